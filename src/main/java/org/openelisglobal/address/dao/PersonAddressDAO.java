@@ -23,5 +23,7 @@ public interface PersonAddressDAO extends BaseDAO<PersonAddress, AddressPK> {
 
     List<PersonAddress> getAddressPartsByPersonId(String personId) throws LIMSRuntimeException;
 
+    List<PersonAddress> getAddressPartsByPersonIds(List<String> personIds) throws LIMSRuntimeException;
+
     PersonAddress getByPersonIdAndPartId(String personId, String addressPartId) throws LIMSRuntimeException;
 }
@@ -13,7 +13,9 @@
  */
 package org.openelisglobal.address.daoimpl;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
@@ -49,6 +51,25 @@ public class PersonAddressDAOImpl extends BaseDAOImpl<PersonAddress, AddressPK>
         return null;
     }
 
+    @Override
+    public List<PersonAddress> getAddressPartsByPersonIds(List<String> personIds) throws LIMSRuntimeException {
+        if (personIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "from PersonAddress pa where pa.compoundId.targetId in (:personIds)";
+
+        try {
+            Query<PersonAddress> query = entityManager.unwrap(Session.class).createQuery(sql, PersonAddress.class);
+            query.setParameterList("personIds",
+                    personIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getAddressPartsByPersonIds");
+        }
+
+        return new ArrayList<>();
+    }
+
     @Override
     public PersonAddress getByPersonIdAndPartId(String personId, String addressPartId) throws LIMSRuntimeException {
         String sql = "from PersonAddress pa where pa.compoundId.targetId = :personId and"
@@ -6,6 +6,7 @@ import org.openelisglobal.address.dao.PersonAddressDAO;
 import org.openelisglobal.address.valueholder.AddressPK;
 import org.openelisglobal.address.valueholder.PersonAddress;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.patient.service.PatientDemographicsLoader;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,6 +16,8 @@ public class PersonAddressServiceImpl extends AuditableBaseObjectServiceImpl<Per
         implements PersonAddressService {
     @Autowired
     protected PersonAddressDAO baseObjectDAO;
+    @Autowired
+    private PatientDemographicsLoader demographicsLoader;
 
     PersonAddressServiceImpl() {
         super(PersonAddress.class);
@@ -38,8 +41,27 @@ public class PersonAddressServiceImpl extends AuditableBaseObjectServiceImpl<Per
         return baseObjectDAO.getByPersonIdAndPartId(personId, addressPartId);
     }
 
+    // the address parts are memoized with the patient, every save and delete ends
+    // up in one of these
     @Override
+    @Transactional
     public AddressPK insert(PersonAddress personAddress) {
-        return super.insert(personAddress);
+        AddressPK id = super.insert(personAddress);
+        demographicsLoader.evictPerson(personAddress.getPersonId());
+        return id;
+    }
+
+    @Override
+    protected PersonAddress update(PersonAddress personAddress, String auditTrailType) {
+        PersonAddress updated = super.update(personAddress, auditTrailType);
+        demographicsLoader.evictPerson(updated.getPersonId());
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public void delete(PersonAddress personAddress) {
+        super.delete(personAddress);
+        demographicsLoader.evictPerson(personAddress.getPersonId());
     }
 }
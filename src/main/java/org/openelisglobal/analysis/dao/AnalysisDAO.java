@@ -241,4 +241,30 @@ public interface AnalysisDAO extends BaseDAO<Analysis, String> {
     int getCountOfAnalysisStartedOnExcludedByStatusId(Date collectionDate, Set<Integer> statusIds);
 
     int getCountOfAnalysisStartedOnByStatusId(Date startedDate, List<Integer> statusIds);
+
+    // rows of startedDate, completedDate, count
+    List<Object[]> getTurnAroundDatesReleasedOnByStatusId(Date releasedDate, String statusId)
+            throws LIMSRuntimeException;
+
+    // rows of startedDate, count
+    List<Object[]> getTurnAroundDatesResultEnteredOnExcludedByStatusId(Date completedDate, Set<Integer> statusIds)
+            throws LIMSRuntimeException;
+
+    // rows of the sample's sysUserId, count
+    List<Object[]> getCountsOfAnalysisStartedOnExcludedByStatusIdByUser(Date startedDate, Set<Integer> statusIds)
+            throws LIMSRuntimeException;
+
+    List<Analysis> getAnalysisStartedOnExcludedByStatusIdForUser(Date startedDate, Set<Integer> statusIds,
+            String sysUserId) throws LIMSRuntimeException;
+
+    List<Analysis> getAnalysesReleasedOnByStatusIdStartedBefore(Date releasedDate, String statusId,
+            Date startedBefore) throws LIMSRuntimeException;
+
+    List<Analysis> getAnalysesReleasedOnByStatusIdWithoutDocument(Date releasedDate, String statusId,
+            String documentTypeId, String tableId) throws LIMSRuntimeException;
+
+    int getCountOfAnalysesReleasedOnByStatusIdWithoutDocument(Date releasedDate, String statusId,
+            String documentTypeId, String tableId) throws LIMSRuntimeException;
+
+    List<Analysis> getAnalysesBySampleIds(List<String> sampleIds) throws LIMSRuntimeException;
 }
@@ -53,6 +53,13 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class AnalysisDAOImpl extends BaseDAOImpl<Analysis, String> implements AnalysisDAO {
 
+    // the same test ReportTrackingService.getLastReportForSample makes, as a
+    // subquery instead of one query per analysis
+    private static final String RELEASED_WITHOUT_DOCUMENT = "from Analysis a join a.sampleItem si where"
+            + " a.releasedDate = :releasedDate and a.statusId = :statusId and not exists (select dt.id from"
+            + " DocumentTrack dt where dt.documentTypeId = :documentTypeId and dt.tableId = :tableId and"
+            + " dt.recordId = si.sample.id)";
+
     public AnalysisDAOImpl() {
         super(Analysis.class);
     }
@@ -1802,4 +1809,148 @@ public class AnalysisDAOImpl extends BaseDAOImpl<Analysis, String> implements An
 
         return null;
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Analysis> getAnalysesBySampleIds(List<String> sampleIds) throws LIMSRuntimeException {
+        if (sampleIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            // sample item is fetched so callers can group by sample without a query per analysis
+            String sql = "from Analysis a join fetch a.sampleItem si where si.sample.id in (:sampleIds)";
+            Query<Analysis> query = entityManager.unwrap(Session.class).createQuery(sql, Analysis.class);
+            query.setParameterList("sampleIds",
+                    sampleIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getAnalysesBySampleIds");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getTurnAroundDatesReleasedOnByStatusId(Date releasedDate, String statusId)
+            throws LIMSRuntimeException {
+        String sql = "select a.startedDate, a.completedDate, count(*) from Analysis a where a.releasedDate ="
+                + " :releasedDate and a.statusId = :statusId group by a.startedDate, a.completedDate";
+        try {
+            Query<Object[]> query = entityManager.unwrap(Session.class).createQuery(sql, Object[].class);
+            query.setParameter("releasedDate", releasedDate);
+            query.setParameter("statusId", Integer.parseInt(statusId));
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getTurnAroundDatesReleasedOnByStatusId");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getTurnAroundDatesResultEnteredOnExcludedByStatusId(Date completedDate,
+            Set<Integer> statusIds) throws LIMSRuntimeException {
+        String sql = "select a.startedDate, count(*) from Analysis a where a.completedDate = :completedDate and"
+                + " a.statusId not in ( :statusList ) group by a.startedDate";
+        try {
+            Query<Object[]> query = entityManager.unwrap(Session.class).createQuery(sql, Object[].class);
+            query.setParameter("completedDate", completedDate);
+            query.setParameterList("statusList", statusIds);
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getTurnAroundDatesResultEnteredOnExcludedByStatusId");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getCountsOfAnalysisStartedOnExcludedByStatusIdByUser(Date startedDate,
+            Set<Integer> statusIds) throws LIMSRuntimeException {
+        String sql = "select s.sysUserId, count(*) from Analysis a join a.sampleItem si join si.sample s where"
+                + " a.startedDate = :startedDate and a.statusId not in ( :statusList ) group by s.sysUserId";
+        try {
+            Query<Object[]> query = entityManager.unwrap(Session.class).createQuery(sql, Object[].class);
+            query.setParameter("startedDate", startedDate);
+            query.setParameterList("statusList", statusIds);
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getCountsOfAnalysisStartedOnExcludedByStatusIdByUser");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Analysis> getAnalysisStartedOnExcludedByStatusIdForUser(Date startedDate, Set<Integer> statusIds,
+            String sysUserId) throws LIMSRuntimeException {
+        String sql = "select a from Analysis a join a.sampleItem si join si.sample s where a.startedDate ="
+                + " :startedDate and a.statusId not in ( :statusList ) and s.sysUserId = :sysUserId";
+        try {
+            Query<Analysis> query = entityManager.unwrap(Session.class).createQuery(sql, Analysis.class);
+            query.setParameter("startedDate", startedDate);
+            query.setParameterList("statusList", statusIds);
+            query.setParameter("sysUserId", Integer.parseInt(sysUserId));
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getAnalysisStartedOnExcludedByStatusIdForUser");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Analysis> getAnalysesReleasedOnByStatusIdStartedBefore(Date releasedDate, String statusId,
+            Date startedBefore) throws LIMSRuntimeException {
+        String sql = "from Analysis a where a.releasedDate = :releasedDate and a.statusId = :statusId and"
+                + " a.startedDate < :startedBefore";
+        try {
+            Query<Analysis> query = entityManager.unwrap(Session.class).createQuery(sql, Analysis.class);
+            query.setParameter("releasedDate", releasedDate);
+            query.setParameter("statusId", Integer.parseInt(statusId));
+            query.setParameter("startedBefore", startedBefore);
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getAnalysesReleasedOnByStatusIdStartedBefore");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Analysis> getAnalysesReleasedOnByStatusIdWithoutDocument(Date releasedDate, String statusId,
+            String documentTypeId, String tableId) throws LIMSRuntimeException {
+        String sql = "select a " + RELEASED_WITHOUT_DOCUMENT;
+        try {
+            Query<Analysis> query = entityManager.unwrap(Session.class).createQuery(sql, Analysis.class);
+            setReleasedWithoutDocumentParameters(query, releasedDate, statusId, documentTypeId, tableId);
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getAnalysesReleasedOnByStatusIdWithoutDocument");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public int getCountOfAnalysesReleasedOnByStatusIdWithoutDocument(Date releasedDate, String statusId,
+            String documentTypeId, String tableId) throws LIMSRuntimeException {
+        String sql = "select count(*) " + RELEASED_WITHOUT_DOCUMENT;
+        try {
+            Query<Long> query = entityManager.unwrap(Session.class).createQuery(sql, Long.class);
+            setReleasedWithoutDocumentParameters(query, releasedDate, statusId, documentTypeId, tableId);
+            return query.uniqueResult().intValue();
+        } catch (HibernateException e) {
+            handleException(e, "getCountOfAnalysesReleasedOnByStatusIdWithoutDocument");
+        }
+        return 0;
+    }
+
+    private void setReleasedWithoutDocumentParameters(Query<?> query, Date releasedDate, String statusId,
+            String documentTypeId, String tableId) {
+        query.setParameter("releasedDate", releasedDate);
+        query.setParameter("statusId", Integer.parseInt(statusId));
+        query.setParameter("documentTypeId", Integer.parseInt(documentTypeId));
+        query.setParameter("tableId", Integer.parseInt(tableId));
+    }
 }
@@ -143,12 +143,16 @@ public interface AnalysisService extends BaseObjectService<Analysis, String> {
 
     Result getQuantifiedResult(Analysis analysis);
 
+    Result getQuantifiedResult(List<Result> existingResults);
+
     String getStatusId(Analysis analysis);
 
     Boolean getTriggeredReflex(Analysis analysis);
 
     boolean resultIsConclusion(Result currentResult, Analysis analysis);
 
+    boolean resultIsConclusion(Result currentResult, List<Result> results);
+
     boolean isParentNonConforming(Analysis analysis);
 
     Test getTest(Analysis analysis);
@@ -216,5 +220,25 @@ public interface AnalysisService extends BaseObjectService<Analysis, String> {
 
     int getCountOfAnalysisStartedOnByStatusId(Date startedDate, List<Integer> statusIds);
 
+    List<Object[]> getTurnAroundDatesReleasedOnByStatusId(Date releasedDate, String statusId);
+
+    List<Object[]> getTurnAroundDatesResultEnteredOnExcludedByStatusId(Date completedDate, Set<Integer> statusIds);
+
+    List<Object[]> getCountsOfAnalysisStartedOnExcludedByStatusIdByUser(Date startedDate, Set<Integer> statusIds);
+
+    List<Analysis> getAnalysisStartedOnExcludedByStatusIdForUser(Date startedDate, Set<Integer> statusIds,
+            String sysUserId);
+
+    List<Analysis> getAnalysesReleasedOnByStatusIdStartedBefore(Date releasedDate, String statusId,
+            Date startedBefore);
+
+    List<Analysis> getAnalysesReleasedOnByStatusIdWithoutDocument(Date releasedDate, String statusId,
+            String documentTypeId, String tableId);
+
+    int getCountOfAnalysesReleasedOnByStatusIdWithoutDocument(Date releasedDate, String statusId,
+            String documentTypeId, String tableId);
+
     String getMethodId(Analysis analysis);
+
+    List<Analysis> getAnalysesBySampleIds(List<String> sampleIds);
 }
@@ -12,6 +12,7 @@ import org.apache.commons.validator.GenericValidator;
 import org.openelisglobal.analysis.dao.AnalysisDAO;
 import org.openelisglobal.analysis.valueholder.Analysis;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.services.DashBoardMetricsService;
 import org.openelisglobal.common.services.IReportTrackingService;
 import org.openelisglobal.common.services.IStatusService;
 import org.openelisglobal.common.services.QAService;
@@ -82,9 +83,23 @@ public class AnalysisServiceImpl extends AuditableBaseObjectServiceImpl<Analysis
         if (analysis.getFhirUuid() == null) {
             analysis.setFhirUuid(UUID.randomUUID());
         }
+        DashBoardMetricsService.changed();
         return super.insert(analysis);
     }
 
+    @Override
+    protected Analysis update(Analysis analysis, String auditTrailType) {
+        DashBoardMetricsService.changed();
+        return super.update(analysis, auditTrailType);
+    }
+
+    @Override
+    @Transactional
+    public void delete(Analysis analysis) {
+        DashBoardMetricsService.changed();
+        super.delete(analysis);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public String getTestDisplayName(Analysis analysis) {
@@ -156,7 +171,11 @@ public class AnalysisServiceImpl extends AuditableBaseObjectServiceImpl<Analysis
         if (analysis == null) {
             return null;
         }
-        List<Result> existingResults = resultService.getResultsByAnalysis(analysis);
+        return getQuantifiedResult(resultService.getResultsByAnalysis(analysis));
+    }
+
+    @Override
+    public Result getQuantifiedResult(List<Result> existingResults) {
         List<String> quantifiableResultsIds = new ArrayList<>();
         for (Result existingResult : existingResults) {
             if (TypeOfTestResultServiceImpl.ResultType.isDictionaryVariant(existingResult.getResultType())) {
@@ -205,8 +224,12 @@ public class AnalysisServiceImpl extends AuditableBaseObjectServiceImpl<Analysis
         if (analysis == null || currentResult == null) {
             return false;
         }
-        List<Result> results = resultService.getResultsByAnalysis(analysis);
-        if (results.size() == 1) {
+        return resultIsConclusion(currentResult, resultService.getResultsByAnalysis(analysis));
+    }
+
+    @Override
+    public boolean resultIsConclusion(Result currentResult, List<Result> results) {
+        if (currentResult == null || results.size() == 1) {
             return false;
         }
 
@@ -454,6 +477,7 @@ public class AnalysisServiceImpl extends AuditableBaseObjectServiceImpl<Analysis
 
     @Override
     public void updateNoAuditTrail(Analysis analysis) {
+        DashBoardMetricsService.changed();
         getBaseObjectDAO().update(analysis);
     }
 
@@ -768,6 +792,56 @@ public class AnalysisServiceImpl extends AuditableBaseObjectServiceImpl<Analysis
         return baseObjectDAO.getCountOfAnalysisStartedOnByStatusId(startedDate, statusIds);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getTurnAroundDatesReleasedOnByStatusId(Date releasedDate, String statusId) {
+        return baseObjectDAO.getTurnAroundDatesReleasedOnByStatusId(releasedDate, statusId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getTurnAroundDatesResultEnteredOnExcludedByStatusId(Date completedDate,
+            Set<Integer> statusIds) {
+        return baseObjectDAO.getTurnAroundDatesResultEnteredOnExcludedByStatusId(completedDate, statusIds);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getCountsOfAnalysisStartedOnExcludedByStatusIdByUser(Date startedDate,
+            Set<Integer> statusIds) {
+        return baseObjectDAO.getCountsOfAnalysisStartedOnExcludedByStatusIdByUser(startedDate, statusIds);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Analysis> getAnalysisStartedOnExcludedByStatusIdForUser(Date startedDate, Set<Integer> statusIds,
+            String sysUserId) {
+        return baseObjectDAO.getAnalysisStartedOnExcludedByStatusIdForUser(startedDate, statusIds, sysUserId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Analysis> getAnalysesReleasedOnByStatusIdStartedBefore(Date releasedDate, String statusId,
+            Date startedBefore) {
+        return baseObjectDAO.getAnalysesReleasedOnByStatusIdStartedBefore(releasedDate, statusId, startedBefore);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Analysis> getAnalysesReleasedOnByStatusIdWithoutDocument(Date releasedDate, String statusId,
+            String documentTypeId, String tableId) {
+        return baseObjectDAO.getAnalysesReleasedOnByStatusIdWithoutDocument(releasedDate, statusId, documentTypeId,
+                tableId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public int getCountOfAnalysesReleasedOnByStatusIdWithoutDocument(Date releasedDate, String statusId,
+            String documentTypeId, String tableId) {
+        return baseObjectDAO.getCountOfAnalysesReleasedOnByStatusIdWithoutDocument(releasedDate, statusId,
+                documentTypeId, tableId);
+    }
+
     @Override
     public List<Analysis> getAnalysesResultEnteredOnExcludedByStatusId(Date completedDate, Set<Integer> statusIds) {
         return baseObjectDAO.getAnalysesResultEnteredOnExcludedByStatusId(completedDate, statusIds);
@@ -777,4 +851,10 @@ public class AnalysisServiceImpl extends AuditableBaseObjectServiceImpl<Analysis
     public String getMethodId(Analysis analysis) {
         return analysis == null ? "" : analysis.getMethod() == null ? "" : analysis.getMethod().getId();
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Analysis> getAnalysesBySampleIds(List<String> sampleIds) {
+        return baseObjectDAO.getAnalysesBySampleIds(sampleIds);
+    }
 }
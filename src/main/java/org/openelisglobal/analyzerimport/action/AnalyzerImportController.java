@@ -13,17 +13,26 @@
  */
 package org.openelisglobal.analyzerimport.action;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.validator.GenericValidator;
 import org.openelisglobal.analyzer.service.BidirectionalAnalyzer;
+import org.openelisglobal.analyzerimport.action.beans.AnalyzerImportJobStatus;
 import org.openelisglobal.analyzerimport.analyzerreaders.ASTMAnalyzerReader;
 import org.openelisglobal.analyzerimport.analyzerreaders.AnalyzerReader;
 import org.openelisglobal.analyzerimport.analyzerreaders.AnalyzerReaderFactory;
+import org.openelisglobal.analyzerimport.astm.AstmConnectionStatistics;
+import org.openelisglobal.analyzerimport.astm.AstmTcpListener;
+import org.openelisglobal.analyzerimport.service.AnalyzerImportQueue;
 import org.openelisglobal.analyzerimport.util.AnalyzerTestNameCache;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob.Source;
 import org.openelisglobal.common.action.IActionConstants;
 import org.openelisglobal.common.services.PluginAnalyzerService;
 import org.openelisglobal.internationalization.MessageUtil;
@@ -32,26 +41,71 @@ import org.openelisglobal.login.valueholder.UserSessionData;
 import org.openelisglobal.plugin.AnalyzerImporterPlugin;
 import org.openelisglobal.systemuser.service.SystemUserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
 
 @Controller
 public class AnalyzerImportController implements IActionConstants {
 
+    private static final String ANALYZER_HEADER = "X-Analyzer";
+
     @Autowired
     protected LoginUserService loginService;
     @Autowired
     protected SystemUserService systemUserService;
     @Autowired
     private PluginAnalyzerService pluginAnalyzerService;
+    @Autowired
+    private AnalyzerImportQueue analyzerImportQueue;
+    @Autowired
+    private AstmTcpListener astmTcpListener;
+
+    // when false uploads are parsed and inserted before the response is sent, as
+    // they were before the import queue
+    @Value("${org.openelisglobal.analyzer.import.async:true}")
+    private boolean asyncImport;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     @PostMapping("/importAnalyzer")
     protected void doPost(@RequestParam("file") MultipartFile file, HttpServletRequest request,
             HttpServletResponse response) throws ServletException, IOException {
 
+        if (asyncImport) {
+            byte[] payload = file.getBytes();
+            if (payload.length == 0) {
+                response.getWriter().print("Empty file");
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
+            // the reader is picked by the file name, reading the file to find out which
+            // analyzer sent it is left to the queue and its error shows on the job
+            if (GenericValidator.isBlankOrNull(file.getOriginalFilename())
+                    || AnalyzerReaderFactory.getReaderFor(file.getOriginalFilename()) == null) {
+                response.getWriter().print("Unable to read file");
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
+            AnalyzerImportJobStatus status = analyzerImportQueue.submit(payload, file.getOriginalFilename(),
+                    Source.FILE, getAnalyzerKey(request), getSysUserId(request));
+            // FlatFileTransport.pl deletes the file once it reads success, the job can
+            // be followed at the Location
+            response.setStatus(HttpServletResponse.SC_ACCEPTED);
+            response.setHeader("Location",
+                    request.getContextPath() + "/analyzer/import/jobs/" + status.getJobId());
+            response.getWriter().print("success");
+            return;
+        }
+
         AnalyzerReader reader = null;
         boolean fileRead = false;
         InputStream stream = file.getInputStream();
@@ -89,13 +143,19 @@ public class AnalyzerImportController implements IActionConstants {
 
         ASTMAnalyzerReader reader = null;
         boolean read = false;
-        InputStream stream = request.getInputStream();
+        byte[] payload = StreamUtils.copyToByteArray(request.getInputStream());
 
         reader = (ASTMAnalyzerReader) AnalyzerReaderFactory.getReaderFor("astm");
 
         if (reader != null) {
-            read = reader.readStream(stream);
+            read = reader.readStream(new ByteArrayInputStream(payload));
             if (read) {
+                // queries are answered in the response so only results are queued
+                if (asyncImport && reader.isAnalyzerResult()) {
+                    writeAccepted(response, analyzerImportQueue.submit(payload, null, Source.ASTM,
+                            getAnalyzerKey(request), getSysUserId(request)));
+                    return;
+                }
                 boolean success = reader.processData(getSysUserId(request));
                 if (reader.hasResponse()) {
                     response.getWriter().print(reader.getResponse());
@@ -118,6 +178,24 @@ public class AnalyzerImportController implements IActionConstants {
         }
     }
 
+    @GetMapping(value = "/analyzer/import/jobs/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<AnalyzerImportJobStatus> getImportJobStatus(@PathVariable Integer jobId) {
+        AnalyzerImportJobStatus status = analyzerImportQueue.getStatus(jobId);
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
+    @GetMapping(value = "/analyzer/import/metrics", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public Map<String, Object> getImportMetrics() {
+        return analyzerImportQueue.getMetrics();
+    }
+
+    @GetMapping(value = "/analyzer/astm/connections", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<AstmConnectionStatistics> getAstmConnections() {
+        return astmTcpListener.getConnectionStatistics();
+    }
+
     @PostMapping("/analyzer/runAction")
     public ResponseEntity<String> runAnalyzerAction(@RequestParam String analyzerType,
             @RequestParam String actionName) {
@@ -140,6 +218,22 @@ public class AnalyzerImportController implements IActionConstants {
         return analyzer;
     }
 
+    private void writeAccepted(HttpServletResponse response, AnalyzerImportJobStatus status) throws IOException {
+        response.setStatus(HttpServletResponse.SC_ACCEPTED);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getWriter(), status);
+    }
+
+    /*
+     * uploads are ordered and deduplicated per analyzer. An analyzer can name
+     * itself in the X-Analyzer header, otherwise the host it sends from stands in
+     * for it
+     */
+    private String getAnalyzerKey(HttpServletRequest request) {
+        String analyzer = request.getHeader(ANALYZER_HEADER);
+        return GenericValidator.isBlankOrNull(analyzer) ? request.getRemoteAddr() : analyzer.trim();
+    }
+
     private String getSysUserId(HttpServletRequest request) {
         UserSessionData usd = (UserSessionData) request.getAttribute(USER_SESSION_DATA);
         if (usd == null) {
@@ -0,0 +1,75 @@
+package org.openelisglobal.analyzerimport.action.beans;
+
+import java.sql.Timestamp;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob;
+
+/*
+ * What the sender of an analyzer upload is told about its job, without the
+ * payload
+ */
+public class AnalyzerImportJobStatus {
+
+    private Integer jobId;
+    private String analyzer;
+    private String fileName;
+    private String status;
+    private String error;
+    private boolean duplicate;
+    private Integer attempts;
+    private Timestamp receivedTime;
+    private Timestamp startedTime;
+    private Timestamp finishedTime;
+
+    public AnalyzerImportJobStatus(AnalyzerImportJob job, boolean duplicate) {
+        jobId = job.getId();
+        analyzer = job.getAnalyzerKey();
+        fileName = job.getFileName();
+        status = job.getStatus().name();
+        error = job.getError();
+        attempts = job.getAttempts();
+        receivedTime = job.getReceivedTime();
+        startedTime = job.getStartedTime();
+        finishedTime = job.getFinishedTime();
+        this.duplicate = duplicate;
+    }
+
+    public Integer getJobId() {
+        return jobId;
+    }
+
+    public String getAnalyzer() {
+        return analyzer;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public Timestamp getReceivedTime() {
+        return receivedTime;
+    }
+
+    public Timestamp getStartedTime() {
+        return startedTime;
+    }
+
+    public Timestamp getFinishedTime() {
+        return finishedTime;
+    }
+}
@@ -79,7 +79,7 @@ public class ASTMAnalyzerReader extends AnalyzerReader {
     public boolean processData(String currentUserId) {
         // it is assumed that all requests are either requests for information
         // or analyzer results to be entered
-        if (plugin.isAnalyzerResult(lines)) {
+        if (isAnalyzerResult()) {
             return insertAnalyzerData(currentUserId);
         } else {
             responseBody = buildResponseForQuery();
@@ -88,6 +88,14 @@ public class ASTMAnalyzerReader extends AnalyzerReader {
         }
     }
 
+    /*
+     * whether the message read holds results rather than a query, only valid after
+     * readStream succeeded
+     */
+    public boolean isAnalyzerResult() {
+        return plugin.isAnalyzerResult(lines);
+    }
+
     public boolean hasResponse() {
         return hasResponse;
     }
@@ -0,0 +1,371 @@
+package org.openelisglobal.analyzerimport.astm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openelisglobal.common.log.LogEvent;
+
+/**
+ * One instrument connection and its side of the ASTM E1381 conversation. Only
+ * the listener's selector thread calls into it apart from the statistics and
+ * recordLatency, so the protocol state is not synchronized.
+ *
+ * The instrument establishes with ENQ, sends numbered frames that are each
+ * ACKed or NAKed on their checksum and frame number, and ends the message with
+ * EOT. Answers to queries are sent the same way in the other direction. When
+ * both sides send ENQ at once the instrument goes first, as the standard asks.
+ */
+class AstmConnection {
+
+    enum State {
+        IDLE, RECEIVING, AWAITING_ENQ_ACK, SENDING
+    }
+
+    // timeouts and retry counts from E1381 section 6.5
+    private static final long RECEIVE_TIMEOUT = 30 * 1000;
+    private static final long ACK_TIMEOUT = 15 * 1000;
+    private static final long ENQ_NAK_DELAY = 10 * 1000;
+    private static final long CONTENTION_DELAY = 20 * 1000;
+    private static final int MAX_RETRANSMITS = 6;
+    private static final int MAX_ESTABLISH_ATTEMPTS = 6;
+
+    interface MessageHandler {
+        void onMessage(AstmConnection connection, byte[] message, long receivedAt);
+    }
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final String remoteAddress;
+    private final MessageHandler handler;
+    private final int maxMessageLength;
+    private final Queue<ByteBuffer> writes = new ArrayDeque<>();
+
+    private State state = State.IDLE;
+    private long stateSince = System.currentTimeMillis();
+
+    private final byte[] frame = new byte[AstmFraming.MAX_FRAME_LENGTH];
+    private int frameLength;
+    private int expectedFrameNumber;
+    private boolean discarding;
+    private final ByteArrayOutputStream message = new ByteArrayOutputStream();
+
+    private final Queue<List<byte[]>> outbox = new ArrayDeque<>();
+    private List<byte[]> sendingFrames;
+    private int sendingIndex;
+    private int retransmits;
+    private int establishAttempts;
+    private long sendNotBefore;
+
+    private final long connectedSince = System.currentTimeMillis();
+    private volatile long lastActivity = connectedSince;
+    private volatile long bytesIn;
+    private volatile long bytesOut;
+    private volatile long framesIn;
+    private volatile long framesOut;
+    private volatile long naksSent;
+    private volatile long naksReceived;
+    private volatile long messagesIn;
+    private volatile long messagesOut;
+    private volatile long messagesDropped;
+    private final AtomicLong latencyCount = new AtomicLong();
+    private final AtomicLong latencyTotal = new AtomicLong();
+    private final AtomicLong latencyMax = new AtomicLong();
+
+    AstmConnection(SocketChannel channel, SelectionKey key, String remoteAddress, MessageHandler handler,
+            int maxMessageLength) {
+        this.channel = channel;
+        this.key = key;
+        this.remoteAddress = remoteAddress;
+        this.handler = handler;
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    void onRead(ByteBuffer buffer) throws IOException {
+        lastActivity = System.currentTimeMillis();
+        bytesIn += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            onByte(buffer.get());
+        }
+    }
+
+    private void onByte(byte b) throws IOException {
+        switch (state) {
+        case IDLE:
+            if (b == AstmFraming.ENQ) {
+                startReceiving();
+            }
+            // anything else outside of a message is line noise
+            break;
+        case RECEIVING:
+            onReceivingByte(b);
+            break;
+        case AWAITING_ENQ_ACK:
+            if (b == AstmFraming.ACK) {
+                establishAttempts = 0;
+                setState(State.SENDING);
+                sendingIndex = 0;
+                retransmits = 0;
+                sendFrame();
+            } else if (b == AstmFraming.NAK) {
+                naksReceived++;
+                retryEstablish(ENQ_NAK_DELAY);
+            } else if (b == AstmFraming.ENQ) {
+                // contention, the instrument goes first and the answer waits
+                sendNotBefore = System.currentTimeMillis() + CONTENTION_DELAY;
+                startReceiving();
+            }
+            break;
+        case SENDING:
+            // an EOT instead of an ACK asks us to stop sending soon, it is treated as
+            // an ACK and the message is finished
+            if (b == AstmFraming.ACK || b == AstmFraming.EOT) {
+                framesOut++;
+                sendingIndex++;
+                retransmits = 0;
+                if (sendingIndex < sendingFrames.size()) {
+                    sendFrame();
+                } else {
+                    write(AstmFraming.EOT);
+                    messagesOut++;
+                    sendingFrames = null;
+                    setState(State.IDLE);
+                }
+            } else if (b == AstmFraming.NAK) {
+                naksReceived++;
+                if (++retransmits > MAX_RETRANSMITS) {
+                    abortSending("frame refused " + retransmits + " times");
+                } else {
+                    sendFrame();
+                }
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void onReceivingByte(byte b) throws IOException {
+        if (frameLength == 0) {
+            if (b == AstmFraming.STX) {
+                frame[frameLength++] = b;
+            } else if (b == AstmFraming.EOT) {
+                finishReceiving();
+            }
+            return;
+        }
+        if (frameLength == frame.length) {
+            // longer than any frame may be, refuse it and wait for the retransmission
+            frameLength = 0;
+            nak();
+            return;
+        }
+        frame[frameLength++] = b;
+        if (AstmFraming.isFrameEnd(frame, frameLength)) {
+            onFrame();
+            frameLength = 0;
+        }
+    }
+
+    private void onFrame() throws IOException {
+        int frameNumber = frame[1] - '0';
+        if (!AstmFraming.hasValidChecksum(frame, frameLength) || frameNumber < 0 || frameNumber > 7) {
+            nak();
+            return;
+        }
+        if (frameNumber == (expectedFrameNumber + 7) % 8) {
+            // our ACK of the previous frame was lost and it was sent again
+            write(AstmFraming.ACK);
+            return;
+        }
+        if (frameNumber != expectedFrameNumber) {
+            nak();
+            return;
+        }
+        framesIn++;
+        expectedFrameNumber = (expectedFrameNumber + 1) % 8;
+        if (!discarding) {
+            message.write(frame, 2, frameLength - 7);
+            if (message.size() > maxMessageLength) {
+                // the rest is still accepted so the instrument moves on to its next message
+                LogEvent.logWarn(this.getClass().getSimpleName(), "onFrame",
+                        "ASTM message from " + remoteAddress + " is longer than " + maxMessageLength
+                                + " bytes, discarding it");
+                discarding = true;
+                message.reset();
+            }
+        }
+        write(AstmFraming.ACK);
+    }
+
+    private void startReceiving() throws IOException {
+        setState(State.RECEIVING);
+        frameLength = 0;
+        expectedFrameNumber = 1;
+        discarding = false;
+        message.reset();
+        write(AstmFraming.ACK);
+    }
+
+    private void finishReceiving() {
+        setState(State.IDLE);
+        if (discarding) {
+            messagesDropped++;
+            discarding = false;
+        } else if (message.size() > 0) {
+            messagesIn++;
+            byte[] received = message.toByteArray();
+            message.reset();
+            handler.onMessage(this, received, System.currentTimeMillis());
+        }
+    }
+
+    private void nak() throws IOException {
+        naksSent++;
+        write(AstmFraming.NAK);
+    }
+
+    /*
+     * queues an answer for the instrument, it is sent as soon as the line is free
+     */
+    void send(String answer) throws IOException {
+        List<byte[]> frames = AstmFraming.toFrames(answer);
+        if (!frames.isEmpty()) {
+            outbox.add(frames);
+            tick(System.currentTimeMillis());
+        }
+    }
+
+    /*
+     * called on every turn of the selector loop to send what waits and to time
+     * out a partner that stopped answering
+     */
+    void tick(long now) throws IOException {
+        switch (state) {
+        case IDLE:
+            if (sendingFrames == null) {
+                sendingFrames = outbox.poll();
+            }
+            if (sendingFrames != null && now >= sendNotBefore) {
+                setState(State.AWAITING_ENQ_ACK);
+                write(AstmFraming.ENQ);
+            }
+            break;
+        case RECEIVING:
+            if (now - lastActivity > RECEIVE_TIMEOUT) {
+                LogEvent.logWarn(this.getClass().getSimpleName(), "tick",
+                        "ASTM message from " + remoteAddress + " timed out, discarding it");
+                messagesDropped++;
+                message.reset();
+                setState(State.IDLE);
+            }
+            break;
+        case AWAITING_ENQ_ACK:
+            if (now - stateSince > ACK_TIMEOUT) {
+                retryEstablish(0);
+            }
+            break;
+        case SENDING:
+            if (now - stateSince > ACK_TIMEOUT) {
+                abortSending("no answer to frame " + (sendingIndex + 1));
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void retryEstablish(long delay) {
+        setState(State.IDLE);
+        if (++establishAttempts >= MAX_ESTABLISH_ATTEMPTS) {
+            LogEvent.logWarn(this.getClass().getSimpleName(), "retryEstablish",
+                    "ASTM instrument " + remoteAddress + " did not accept an answer, dropping it");
+            messagesDropped++;
+            sendingFrames = null;
+            establishAttempts = 0;
+            return;
+        }
+        sendNotBefore = System.currentTimeMillis() + delay;
+    }
+
+    private void abortSending(String reason) throws IOException {
+        LogEvent.logWarn(this.getClass().getSimpleName(), "abortSending",
+                "ASTM answer to " + remoteAddress + " abandoned: " + reason);
+        messagesDropped++;
+        write(AstmFraming.EOT);
+        sendingFrames = null;
+        setState(State.IDLE);
+    }
+
+    private void sendFrame() throws IOException {
+        // the timeout runs from each frame
+        stateSince = System.currentTimeMillis();
+        write(sendingFrames.get(sendingIndex));
+    }
+
+    private void setState(State state) {
+        this.state = state;
+        this.stateSince = System.currentTimeMillis();
+    }
+
+    private void write(byte controlCharacter) throws IOException {
+        write(new byte[] { controlCharacter });
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        writes.add(ByteBuffer.wrap(bytes));
+        flush();
+    }
+
+    /*
+     * writes what the socket takes now and asks the selector for the rest
+     */
+    void flush() throws IOException {
+        while (!writes.isEmpty()) {
+            ByteBuffer buffer = writes.peek();
+            bytesOut += channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+            writes.poll();
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+    }
+
+    void recordLatency(long millis) {
+        latencyCount.incrementAndGet();
+        latencyTotal.addAndGet(millis);
+        latencyMax.accumulateAndGet(millis, Math::max);
+    }
+
+    AstmConnectionStatistics getStatistics() {
+        AstmConnectionStatistics statistics = new AstmConnectionStatistics();
+        statistics.setRemoteAddress(remoteAddress);
+        statistics.setState(state.name());
+        statistics.setConnectedSince(connectedSince);
+        statistics.setLastActivity(lastActivity);
+        statistics.setBytesIn(bytesIn);
+        statistics.setBytesOut(bytesOut);
+        statistics.setFramesIn(framesIn);
+        statistics.setFramesOut(framesOut);
+        statistics.setNaksSent(naksSent);
+        statistics.setNaksReceived(naksReceived);
+        statistics.setMessagesIn(messagesIn);
+        statistics.setMessagesOut(messagesOut);
+        statistics.setMessagesDropped(messagesDropped);
+        long count = latencyCount.get();
+        statistics.setAverageLatencyMillis(count == 0 ? 0 : latencyTotal.get() / count);
+        statistics.setMaxLatencyMillis(latencyMax.get());
+        return statistics;
+    }
+}
@@ -0,0 +1,147 @@
+package org.openelisglobal.analyzerimport.astm;
+
+/*
+ * Counters of one instrument connection as they were when it was asked for
+ */
+public class AstmConnectionStatistics {
+
+    private String remoteAddress;
+    private String state;
+    private long connectedSince;
+    private long lastActivity;
+    private long bytesIn;
+    private long bytesOut;
+    private long framesIn;
+    private long framesOut;
+    private long naksSent;
+    private long naksReceived;
+    private long messagesIn;
+    private long messagesOut;
+    private long messagesDropped;
+    private long averageLatencyMillis;
+    private long maxLatencyMillis;
+
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    public void setRemoteAddress(String remoteAddress) {
+        this.remoteAddress = remoteAddress;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public long getConnectedSince() {
+        return connectedSince;
+    }
+
+    public void setConnectedSince(long connectedSince) {
+        this.connectedSince = connectedSince;
+    }
+
+    public long getLastActivity() {
+        return lastActivity;
+    }
+
+    public void setLastActivity(long lastActivity) {
+        this.lastActivity = lastActivity;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public void setBytesIn(long bytesIn) {
+        this.bytesIn = bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public void setBytesOut(long bytesOut) {
+        this.bytesOut = bytesOut;
+    }
+
+    public long getFramesIn() {
+        return framesIn;
+    }
+
+    public void setFramesIn(long framesIn) {
+        this.framesIn = framesIn;
+    }
+
+    public long getFramesOut() {
+        return framesOut;
+    }
+
+    public void setFramesOut(long framesOut) {
+        this.framesOut = framesOut;
+    }
+
+    public long getNaksSent() {
+        return naksSent;
+    }
+
+    public void setNaksSent(long naksSent) {
+        this.naksSent = naksSent;
+    }
+
+    public long getNaksReceived() {
+        return naksReceived;
+    }
+
+    public void setNaksReceived(long naksReceived) {
+        this.naksReceived = naksReceived;
+    }
+
+    public long getMessagesIn() {
+        return messagesIn;
+    }
+
+    public void setMessagesIn(long messagesIn) {
+        this.messagesIn = messagesIn;
+    }
+
+    public long getMessagesOut() {
+        return messagesOut;
+    }
+
+    public void setMessagesOut(long messagesOut) {
+        this.messagesOut = messagesOut;
+    }
+
+    public long getMessagesDropped() {
+        return messagesDropped;
+    }
+
+    public void setMessagesDropped(long messagesDropped) {
+        this.messagesDropped = messagesDropped;
+    }
+
+    /*
+     * from the EOT that ended a message to it being spooled or its answer being
+     * queued for sending
+     */
+    public long getAverageLatencyMillis() {
+        return averageLatencyMillis;
+    }
+
+    public void setAverageLatencyMillis(long averageLatencyMillis) {
+        this.averageLatencyMillis = averageLatencyMillis;
+    }
+
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    public void setMaxLatencyMillis(long maxLatencyMillis) {
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+}
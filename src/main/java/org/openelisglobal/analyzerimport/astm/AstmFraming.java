@@ -0,0 +1,96 @@
+package org.openelisglobal.analyzerimport.astm;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ASTM E1381 (CLSI LIS01-A2) low level framing: control characters, frame
+ * checksums and splitting a message into frames.
+ */
+final class AstmFraming {
+
+    static final byte STX = 0x02;
+    static final byte ETX = 0x03;
+    static final byte EOT = 0x04;
+    static final byte ENQ = 0x05;
+    static final byte ACK = 0x06;
+    static final byte LF = 0x0A;
+    static final byte CR = 0x0D;
+    static final byte NAK = 0x15;
+    static final byte ETB = 0x17;
+
+    // text characters allowed in one frame
+    static final int MAX_FRAME_TEXT = 240;
+    // STX, frame number, text, ETB or ETX, two checksum characters, CR and LF
+    static final int MAX_FRAME_LENGTH = MAX_FRAME_TEXT + 7;
+
+    private AstmFraming() {
+    }
+
+    /*
+     * modulo 256 sum of the frame number, the text and the ETB or ETX, as two
+     * upper case hex digits
+     */
+    static byte[] checksum(byte[] frame, int from, int toInclusive) {
+        int sum = 0;
+        for (int i = from; i <= toInclusive; i++) {
+            sum += frame[i] & 0xFF;
+        }
+        sum &= 0xFF;
+        return new byte[] { (byte) Character.toUpperCase(Character.forDigit(sum >> 4, 16)),
+                (byte) Character.toUpperCase(Character.forDigit(sum & 0xF, 16)) };
+    }
+
+    /*
+     * Whether the bytes hold a complete frame: STX FN text ETB|ETX C1 C2 CR LF
+     */
+    static boolean isFrameEnd(byte[] frame, int length) {
+        return length >= 7 && frame[length - 1] == LF && frame[length - 2] == CR
+                && (frame[length - 5] == ETX || frame[length - 5] == ETB);
+    }
+
+    static boolean hasValidChecksum(byte[] frame, int length) {
+        byte[] expected = checksum(frame, 1, length - 5);
+        return Character.toUpperCase(frame[length - 4]) == expected[0]
+                && Character.toUpperCase(frame[length - 3]) == expected[1];
+    }
+
+    /*
+     * Splits a message into frames, one record or more per frame. Records are
+     * taken from the lines of the message and each is ended with a CR, a record
+     * longer than a frame is continued over ETB frames. Frame numbers start at 1
+     * and wrap at 7
+     */
+    static List<byte[]> toFrames(String message) {
+        List<byte[]> frames = new ArrayList<>();
+        int frameNumber = 1;
+        for (String record : message.split("\r\n|\r|\n")) {
+            if (record.isEmpty()) {
+                continue;
+            }
+            byte[] text = (record + "\r").getBytes(StandardCharsets.ISO_8859_1);
+            for (int start = 0; start < text.length; start += MAX_FRAME_TEXT) {
+                int end = Math.min(start + MAX_FRAME_TEXT, text.length);
+                frames.add(frame(frameNumber, text, start, end, end == text.length));
+                frameNumber = (frameNumber + 1) % 8;
+            }
+        }
+        return frames;
+    }
+
+    private static byte[] frame(int frameNumber, byte[] text, int start, int end, boolean last) {
+        int textLength = end - start;
+        byte[] frame = new byte[textLength + 7];
+        frame[0] = STX;
+        frame[1] = (byte) ('0' + frameNumber);
+        System.arraycopy(text, start, frame, 2, textLength);
+        frame[textLength + 2] = last ? ETX : ETB;
+        byte[] checksum = checksum(frame, 1, textLength + 2);
+        frame[textLength + 3] = checksum[0];
+        frame[textLength + 4] = checksum[1];
+        frame[textLength + 5] = CR;
+        frame[textLength + 6] = LF;
+        return frame;
+    }
+}
@@ -0,0 +1,350 @@
+package org.openelisglobal.analyzerimport.astm;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.apache.commons.validator.GenericValidator;
+import org.openelisglobal.analyzerimport.analyzerreaders.ASTMAnalyzerReader;
+import org.openelisglobal.analyzerimport.analyzerreaders.AnalyzerReaderFactory;
+import org.openelisglobal.analyzerimport.service.AnalyzerImportQueue;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob.Source;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Accepts ASTM E1381 connections from bidirectional analyzers directly instead
+ * of through a bridge posting to /analyzer/astm. One selector thread does all
+ * of the socket work for every instrument, complete messages are handed to the
+ * astmListener pool where the analyzer plugin is found as for the http
+ * endpoint. Results are spooled on the analyzer import queue and queries are
+ * answered over the same connection.
+ *
+ * The listener only starts when a port is configured.
+ */
+@Component
+public class AstmTcpListener implements AstmConnection.MessageHandler {
+
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+    @Autowired
+    private AnalyzerImportQueue analyzerImportQueue;
+    @Autowired
+    @Qualifier(AsyncConfig.ASTM_LISTENER_EXECUTOR)
+    private InstrumentedTaskExecutor executor;
+
+    @Value("${org.openelisglobal.analyzer.astm.port:0}")
+    private int port;
+    @Value("${org.openelisglobal.analyzer.astm.bindAddress:0.0.0.0}")
+    private String bindAddress;
+    @Value("${org.openelisglobal.analyzer.astm.maxConnections:64}")
+    private int maxConnections;
+    @Value("${org.openelisglobal.analyzer.astm.maxMessageLength:1048576}")
+    private int maxMessageLength;
+    @Value("${org.openelisglobal.analyzer.astm.systemUserId:1}")
+    private String systemUserId;
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    // work for the selector thread from the pool, the connections are only touched
+    // by the selector thread
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+    private final ConcurrentMap<AstmConnection, Inbox> connections = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        if (port <= 0) {
+            return;
+        }
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.bind(new InetSocketAddress(bindAddress, port));
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            LogEvent.logError("could not listen for ASTM connections on " + bindAddress + ":" + port, e);
+            closeQuietly();
+            return;
+        }
+        running = true;
+        selectorThread = new Thread(this::run, "astm-listener");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        LogEvent.logInfo(this.getClass().getSimpleName(), "start",
+                "listening for ASTM connections on " + bindAddress + ":" + port);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join(5 * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public List<AstmConnectionStatistics> getConnectionStatistics() {
+        List<AstmConnectionStatistics> statistics = new ArrayList<>();
+        for (AstmConnection connection : connections.keySet()) {
+            statistics.add(connection.getStatistics());
+        }
+        return statistics;
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select(1000);
+                for (Runnable task = selectorTasks.poll(); task != null; task = selectorTasks.poll()) {
+                    task.run();
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    handle(key);
+                }
+                selector.selectedKeys().clear();
+                long now = System.currentTimeMillis();
+                for (AstmConnection connection : connections.keySet()) {
+                    try {
+                        connection.tick(now);
+                    } catch (IOException e) {
+                        close(connection, e);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LogEvent.logError("the ASTM listener stopped", e);
+        } finally {
+            running = false;
+            closeQuietly();
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        AstmConnection connection = (AstmConnection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                readBuffer.clear();
+                int read = ((SocketChannel) key.channel()).read(readBuffer);
+                if (read < 0) {
+                    close(connection, null);
+                    return;
+                }
+                readBuffer.flip();
+                connection.onRead(readBuffer);
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.flush();
+            }
+        } catch (IOException e) {
+            close(connection, e);
+        }
+    }
+
+    private void accept() {
+        SocketChannel channel = null;
+        try {
+            channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            String remoteAddress = String.valueOf(channel.getRemoteAddress());
+            if (connections.size() >= maxConnections) {
+                LogEvent.logWarn(this.getClass().getSimpleName(), "accept",
+                        "refusing ASTM connection from " + remoteAddress + ", " + maxConnections
+                                + " connections are open");
+                channel.close();
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setKeepAlive(true);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            AstmConnection connection = new AstmConnection(channel, key, remoteAddress, this, maxMessageLength);
+            key.attach(connection);
+            connections.put(connection, new Inbox());
+            LogEvent.logInfo(this.getClass().getSimpleName(), "accept", "ASTM connection from " + remoteAddress);
+        } catch (IOException e) {
+            LogEvent.logError("could not accept an ASTM connection", e);
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // already failing
+                }
+            }
+        }
+    }
+
+    private void close(AstmConnection connection, IOException cause) {
+        connections.remove(connection);
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() == connection) {
+                key.cancel();
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    LogEvent.logError(e);
+                }
+            }
+        }
+        if (cause == null) {
+            LogEvent.logInfo(this.getClass().getSimpleName(), "close",
+                    "ASTM connection from " + connection.getRemoteAddress() + " closed");
+        } else {
+            LogEvent.logWarn(this.getClass().getSimpleName(), "close", "ASTM connection from "
+                    + connection.getRemoteAddress() + " closed: " + cause.getMessage());
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (selector != null) {
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            }
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            LogEvent.logError(e);
+        }
+        connections.clear();
+    }
+
+    /*
+     * called on the selector thread when an instrument finished a message. The
+     * messages of one connection are worked one at a time so its results are
+     * spooled in the order they were sent
+     */
+    @Override
+    public void onMessage(AstmConnection connection, byte[] message, long receivedAt) {
+        Inbox inbox = connections.get(connection);
+        if (inbox == null) {
+            return;
+        }
+        inbox.messages.add(new Received(message, receivedAt));
+        schedule(connection, inbox);
+    }
+
+    private void schedule(AstmConnection connection, Inbox inbox) {
+        if (!inbox.messages.isEmpty() && inbox.working.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> drain(connection, inbox));
+            } catch (TaskRejectedException e) {
+                // the messages stay in the inbox until a drain finishes and looks again
+                inbox.working.set(false);
+                LogEvent.logWarn(this.getClass().getSimpleName(), "schedule",
+                        "ASTM listener pool is full, " + inbox.messages.size() + " messages from "
+                                + connection.getRemoteAddress() + " wait for the next drain");
+            }
+        }
+    }
+
+    private void drain(AstmConnection connection, Inbox inbox) {
+        try {
+            for (Received received = inbox.messages.poll(); received != null; received = inbox.messages.poll()) {
+                try {
+                    process(connection, received);
+                } catch (RuntimeException e) {
+                    LogEvent.logError(e);
+                }
+            }
+        } finally {
+            inbox.working.set(false);
+        }
+        schedule(connection, inbox);
+        // picks up inboxes the pool turned away while it was full
+        connections.forEach(this::schedule);
+    }
+
+    private void process(AstmConnection connection, Received received) {
+        ASTMAnalyzerReader reader = (ASTMAnalyzerReader) AnalyzerReaderFactory.getReaderFor("astm");
+        if (!reader.readStream(new ByteArrayInputStream(received.message))) {
+            LogEvent.logWarn(this.getClass().getSimpleName(), "process",
+                    "ASTM message from " + connection.getRemoteAddress() + " not read: " + reader.getError());
+            return;
+        }
+        if (reader.isAnalyzerResult()) {
+            analyzerImportQueue.submit(received.message, null, Source.ASTM, getAnalyzerKey(connection),
+                    systemUserId);
+        } else {
+            reader.processData(systemUserId);
+            if (reader.hasResponse() && !GenericValidator.isBlankOrNull(reader.getResponse())) {
+                String response = reader.getResponse();
+                selectorTasks.add(() -> {
+                    try {
+                        connection.send(response);
+                    } catch (IOException e) {
+                        close(connection, e);
+                    }
+                });
+                selector.wakeup();
+            }
+        }
+        connection.recordLatency(System.currentTimeMillis() - received.receivedAt);
+    }
+
+    // the host without the port so a reconnecting instrument keeps its lane
+    private String getAnalyzerKey(AstmConnection connection) {
+        String remoteAddress = connection.getRemoteAddress();
+        int portSeparator = remoteAddress.lastIndexOf(':');
+        return "astm:" + (portSeparator > 0 ? remoteAddress.substring(0, portSeparator) : remoteAddress);
+    }
+
+    private static class Inbox {
+        private final Queue<Received> messages = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean working = new AtomicBoolean();
+    }
+
+    private static class Received {
+        private final byte[] message;
+        private final long receivedAt;
+
+        private Received(byte[] message, long receivedAt) {
+            this.message = message;
+            this.receivedAt = receivedAt;
+        }
+    }
+}
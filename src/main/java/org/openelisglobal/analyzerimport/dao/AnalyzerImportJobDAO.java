@@ -0,0 +1,32 @@
+package org.openelisglobal.analyzerimport.dao;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob.Status;
+import org.openelisglobal.common.dao.BaseDAO;
+import org.openelisglobal.common.exception.LIMSRuntimeException;
+
+public interface AnalyzerImportJobDAO extends BaseDAO<AnalyzerImportJob, Integer> {
+
+    AnalyzerImportJob getJobForAnalyzerAndContent(String analyzerKey, String contentHash)
+            throws LIMSRuntimeException;
+
+    /*
+     * ids and analyzer keys of the jobs in the statuses, oldest first
+     */
+    List<Object[]> getJobKeysWithStatus(Collection<Status> statuses) throws LIMSRuntimeException;
+
+    /*
+     * number of jobs by status
+     */
+    List<Object[]> getCountsByStatus() throws LIMSRuntimeException;
+
+    /*
+     * moves the job to NEEDS_REVIEW if it is still RUNNING, true when it was
+     */
+    boolean markForReviewIfRunning(Integer jobId, String error, Timestamp finishedTime) throws LIMSRuntimeException;
+
+    int deleteJobsFinishedBefore(Timestamp finishedBefore) throws LIMSRuntimeException;
+}
@@ -0,0 +1,102 @@
+package org.openelisglobal.analyzerimport.daoimpl;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.openelisglobal.analyzerimport.dao.AnalyzerImportJobDAO;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob.Status;
+import org.openelisglobal.common.daoimpl.BaseDAOImpl;
+import org.openelisglobal.common.exception.LIMSRuntimeException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+@Transactional
+public class AnalyzerImportJobDAOImpl extends BaseDAOImpl<AnalyzerImportJob, Integer>
+        implements AnalyzerImportJobDAO {
+
+    public AnalyzerImportJobDAOImpl() {
+        super(AnalyzerImportJob.class);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AnalyzerImportJob getJobForAnalyzerAndContent(String analyzerKey, String contentHash)
+            throws LIMSRuntimeException {
+        String sql = "from AnalyzerImportJob j where j.analyzerKey = :analyzerKey and j.contentHash = :contentHash";
+        try {
+            Query<AnalyzerImportJob> query = entityManager.unwrap(Session.class).createQuery(sql,
+                    AnalyzerImportJob.class);
+            query.setParameter("analyzerKey", analyzerKey);
+            query.setParameter("contentHash", contentHash);
+            return query.uniqueResult();
+        } catch (HibernateException e) {
+            handleException(e, "getJobForAnalyzerAndContent");
+        }
+        return null;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getJobKeysWithStatus(Collection<Status> statuses) throws LIMSRuntimeException {
+        String sql = "select j.id, j.analyzerKey from AnalyzerImportJob j where j.status in (:statuses)"
+                + " order by j.id";
+        try {
+            Query<Object[]> query = entityManager.unwrap(Session.class).createQuery(sql, Object[].class);
+            query.setParameterList("statuses", statuses);
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getJobKeysWithStatus");
+        }
+        return null;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getCountsByStatus() throws LIMSRuntimeException {
+        String sql = "select j.status, count(j) from AnalyzerImportJob j group by j.status";
+        try {
+            Query<Object[]> query = entityManager.unwrap(Session.class).createQuery(sql, Object[].class);
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getCountsByStatus");
+        }
+        return null;
+    }
+
+    @Override
+    public boolean markForReviewIfRunning(Integer jobId, String error, Timestamp finishedTime)
+            throws LIMSRuntimeException {
+        String sql = "update AnalyzerImportJob j set j.status = :reviewStatus, j.error = :error,"
+                + " j.finishedTime = :finishedTime where j.id = :id and j.status = :runningStatus";
+        try {
+            Query<?> query = entityManager.unwrap(Session.class).createQuery(sql);
+            query.setParameter("reviewStatus", Status.NEEDS_REVIEW);
+            query.setParameter("error", error);
+            query.setParameter("finishedTime", finishedTime);
+            query.setParameter("id", jobId);
+            query.setParameter("runningStatus", Status.RUNNING);
+            return query.executeUpdate() > 0;
+        } catch (HibernateException e) {
+            handleException(e, "markForReviewIfRunning");
+        }
+        return false;
+    }
+
+    @Override
+    public int deleteJobsFinishedBefore(Timestamp finishedBefore) throws LIMSRuntimeException {
+        String sql = "delete from AnalyzerImportJob j where j.finishedTime < :finishedBefore";
+        try {
+            Query<?> query = entityManager.unwrap(Session.class).createQuery(sql);
+            query.setParameter("finishedBefore", finishedBefore);
+            return query.executeUpdate();
+        } catch (HibernateException e) {
+            handleException(e, "deleteJobsFinishedBefore");
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,21 @@
+package org.openelisglobal.analyzerimport.service;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob.Status;
+import org.openelisglobal.common.service.BaseObjectService;
+
+public interface AnalyzerImportJobService extends BaseObjectService<AnalyzerImportJob, Integer> {
+
+    AnalyzerImportJob getJobForAnalyzerAndContent(String analyzerKey, String contentHash);
+
+    List<Object[]> getJobKeysWithStatus(Collection<Status> statuses);
+
+    List<Object[]> getCountsByStatus();
+
+    boolean markForReviewIfRunning(Integer jobId, String error, Timestamp finishedTime);
+
+    int deleteJobsFinishedBefore(Timestamp finishedBefore);
+}
@@ -0,0 +1,60 @@
+package org.openelisglobal.analyzerimport.service;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import org.openelisglobal.analyzerimport.dao.AnalyzerImportJobDAO;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob.Status;
+import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class AnalyzerImportJobServiceImpl extends AuditableBaseObjectServiceImpl<AnalyzerImportJob, Integer>
+        implements AnalyzerImportJobService {
+
+    @Autowired
+    private AnalyzerImportJobDAO baseObjectDAO;
+
+    public AnalyzerImportJobServiceImpl() {
+        super(AnalyzerImportJob.class);
+        this.auditTrailLog = false;
+    }
+
+    @Override
+    protected AnalyzerImportJobDAO getBaseObjectDAO() {
+        return baseObjectDAO;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AnalyzerImportJob getJobForAnalyzerAndContent(String analyzerKey, String contentHash) {
+        return baseObjectDAO.getJobForAnalyzerAndContent(analyzerKey, contentHash);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getJobKeysWithStatus(Collection<Status> statuses) {
+        return baseObjectDAO.getJobKeysWithStatus(statuses);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getCountsByStatus() {
+        return baseObjectDAO.getCountsByStatus();
+    }
+
+    @Override
+    @Transactional
+    public boolean markForReviewIfRunning(Integer jobId, String error, Timestamp finishedTime) {
+        return baseObjectDAO.markForReviewIfRunning(jobId, error, finishedTime);
+    }
+
+    @Override
+    @Transactional
+    public int deleteJobsFinishedBefore(Timestamp finishedBefore) {
+        return baseObjectDAO.deleteJobsFinishedBefore(finishedBefore);
+    }
+}
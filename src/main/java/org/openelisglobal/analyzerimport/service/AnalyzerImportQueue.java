@@ -0,0 +1,299 @@
+package org.openelisglobal.analyzerimport.service;
+
+import java.io.ByteArrayInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openelisglobal.analyzerimport.action.beans.AnalyzerImportJobStatus;
+import org.openelisglobal.analyzerimport.analyzerreaders.ASTMAnalyzerReader;
+import org.openelisglobal.analyzerimport.analyzerreaders.AnalyzerReader;
+import org.openelisglobal.analyzerimport.analyzerreaders.AnalyzerReaderFactory;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob.Source;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob.Status;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Takes analyzer uploads off the request thread. An upload is spooled to the
+ * analyzer_import_job table and its id handed back straight away, the parsing
+ * and inserting is done on the analyzerImport pool. Each analyzer has its own
+ * lane that is worked by one thread at a time so its uploads are inserted in
+ * the order they arrived, while different analyzers run side by side.
+ *
+ * Content already received from the same analyzer is not queued again unless
+ * its import failed. Jobs left queued by a restart, or turned away by a full
+ * pool, are picked up again by the sweep. A job left running by a restart may
+ * have inserted some or all of its results, so it is not run again but marked
+ * NEEDS_REVIEW for someone to check the analyzer results.
+ */
+@Service
+public class AnalyzerImportQueue {
+
+    private static final String DEFAULT_ERROR = "Unable to import the analyzer data";
+    private static final String INTERRUPTED_ERROR = "The import was interrupted, check the analyzer results for"
+            + " this upload before sending it again";
+
+    @Autowired
+    private AnalyzerImportJobService jobService;
+    @Autowired
+    @Qualifier(AsyncConfig.ANALYZER_IMPORT_EXECUTOR)
+    private InstrumentedTaskExecutor executor;
+
+    @Value("${org.openelisglobal.analyzer.import.retentionDays:30}")
+    private int retentionDays;
+
+    private final ConcurrentMap<String, Lane> lanes = new ConcurrentHashMap<>();
+    // every job waiting in or being worked by a lane, so the sweep does not add it
+    // a second time
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+    private final Throughput throughput = new Throughput();
+
+    /*
+     * spools the payload and queues it for its analyzer. Returns the job already
+     * made for the same content when there is one
+     */
+    public AnalyzerImportJobStatus submit(byte[] payload, String fileName, Source source, String analyzerKey,
+            String systemUserId) {
+        String contentHash = hash(payload);
+        AnalyzerImportJob job = jobService.getJobForAnalyzerAndContent(analyzerKey, contentHash);
+        if (job != null && job.getStatus() != Status.FAILED) {
+            throughput.duplicates.incrementAndGet();
+            return new AnalyzerImportJobStatus(job, true);
+        }
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        if (job == null) {
+            job = new AnalyzerImportJob();
+            job.setAnalyzerKey(analyzerKey);
+            job.setSource(source);
+            job.setFileName(fileName);
+            job.setContentHash(contentHash);
+            job.setPayload(payload);
+            job.setPayloadSize(payload.length);
+            job.setStatus(Status.QUEUED);
+            job.setAttempts(0);
+            job.setSystemUserId(systemUserId);
+            job.setSysUserId(systemUserId);
+            job.setReceivedTime(now);
+            try {
+                job.setId(jobService.insert(job));
+            } catch (RuntimeException e) {
+                // a retry of the same upload got past the lookup at the same time
+                AnalyzerImportJob existing = jobService.getJobForAnalyzerAndContent(analyzerKey, contentHash);
+                if (existing == null) {
+                    throw e;
+                }
+                throughput.duplicates.incrementAndGet();
+                return new AnalyzerImportJobStatus(existing, true);
+            }
+        } else {
+            // a failed upload that is sent again is tried again
+            job.setStatus(Status.QUEUED);
+            job.setError(null);
+            job.setFileName(fileName);
+            job.setSystemUserId(systemUserId);
+            job.setSysUserId(systemUserId);
+            job.setReceivedTime(now);
+            job.setStartedTime(null);
+            job.setFinishedTime(null);
+            job = jobService.update(job);
+        }
+        throughput.received.incrementAndGet();
+        enqueue(job.getId(), analyzerKey);
+        return new AnalyzerImportJobStatus(job, false);
+    }
+
+    public AnalyzerImportJobStatus getStatus(Integer jobId) {
+        return jobService.getMatch("id", jobId).map(job -> new AnalyzerImportJobStatus(job, false)).orElse(null);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("since", throughput.since);
+        metrics.put("received", throughput.received.get());
+        metrics.put("duplicates", throughput.duplicates.get());
+        metrics.put("succeeded", throughput.succeeded.get());
+        metrics.put("failed", throughput.failed.get());
+        metrics.put("pending", pending.size());
+        metrics.put("bytesProcessed", throughput.bytesProcessed.get());
+        long finished = throughput.succeeded.get() + throughput.failed.get();
+        metrics.put("averageQueueMillis", finished == 0 ? 0 : throughput.queueMillis.get() / finished);
+        metrics.put("averageProcessingMillis", finished == 0 ? 0 : throughput.processingMillis.get() / finished);
+        long minutes = Math.max(1, Duration.ofMillis(System.currentTimeMillis() - throughput.since).toMinutes());
+        metrics.put("jobsPerMinute", (double) finished / minutes);
+        Map<String, Long> jobsByStatus = new LinkedHashMap<>();
+        for (Object[] row : jobService.getCountsByStatus()) {
+            jobsByStatus.put(((Status) row[0]).name(), ((Number) row[1]).longValue());
+        }
+        metrics.put("jobsByStatus", jobsByStatus);
+        return metrics;
+    }
+
+    @Scheduled(initialDelay = 30 * 1000, fixedDelayString = "${org.openelisglobal.analyzer.import.sweepInterval:60000}")
+    public void sweep() {
+        try {
+            for (Object[] row : jobService.getJobKeysWithStatus(Arrays.asList(Status.QUEUED))) {
+                enqueue((Integer) row[0], (String) row[1]);
+            }
+            // a job being worked here is pending until its outcome is saved, any other
+            // running job was cut off before it finished
+            for (Object[] row : jobService.getJobKeysWithStatus(Arrays.asList(Status.RUNNING))) {
+                Integer jobId = (Integer) row[0];
+                if (!pending.contains(jobId) && jobService.markForReviewIfRunning(jobId, INTERRUPTED_ERROR,
+                        new Timestamp(System.currentTimeMillis()))) {
+                    LogEvent.logWarn(this.getClass().getSimpleName(), "sweep",
+                            "analyzer import job " + jobId + " was interrupted and needs review");
+                }
+            }
+            for (Lane lane : lanes.values()) {
+                schedule(lane);
+            }
+            if (retentionDays > 0) {
+                jobService.deleteJobsFinishedBefore(new Timestamp(
+                        System.currentTimeMillis() - Duration.ofDays(retentionDays).toMillis()));
+            }
+        } catch (RuntimeException e) {
+            LogEvent.logError(e);
+        }
+    }
+
+    private void enqueue(Integer jobId, String analyzerKey) {
+        if (pending.add(jobId)) {
+            Lane lane = lanes.computeIfAbsent(analyzerKey, k -> new Lane());
+            lane.jobIds.add(jobId);
+            schedule(lane);
+        }
+    }
+
+    private void schedule(Lane lane) {
+        if (!lane.jobIds.isEmpty() && lane.running.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> drain(lane));
+            } catch (TaskRejectedException e) {
+                // the jobs stay in the lane until the next sweep
+                lane.running.set(false);
+                LogEvent.logWarn(this.getClass().getSimpleName(), "schedule",
+                        "analyzer import pool is full, " + lane.jobIds.size() + " jobs wait for the next sweep");
+            }
+        }
+    }
+
+    private void drain(Lane lane) {
+        try {
+            for (Integer jobId = lane.jobIds.poll(); jobId != null; jobId = lane.jobIds.poll()) {
+                try {
+                    process(jobId);
+                } catch (RuntimeException e) {
+                    // left as it is in the database for the sweep to try again
+                    LogEvent.logError(e);
+                } finally {
+                    pending.remove(jobId);
+                }
+            }
+        } finally {
+            lane.running.set(false);
+        }
+        // a job added after the last poll but before running was cleared
+        schedule(lane);
+    }
+
+    private void process(Integer jobId) {
+        AnalyzerImportJob job = jobService.get(jobId);
+        if (job.getStatus() != Status.QUEUED) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        job.setStatus(Status.RUNNING);
+        job.setStartedTime(new Timestamp(started));
+        job.setAttempts(job.getAttempts() == null ? 1 : job.getAttempts() + 1);
+        job = jobService.update(job);
+
+        String error;
+        try {
+            error = parseAndInsert(job);
+        } catch (RuntimeException e) {
+            LogEvent.logError(e);
+            error = e.getMessage() == null ? DEFAULT_ERROR : e.getMessage();
+        }
+
+        long finished = System.currentTimeMillis();
+        job.setStatus(error == null ? Status.SUCCEEDED : Status.FAILED);
+        job.setError(error);
+        job.setFinishedTime(new Timestamp(finished));
+        jobService.update(job);
+
+        (error == null ? throughput.succeeded : throughput.failed).incrementAndGet();
+        throughput.bytesProcessed.addAndGet(job.getPayload().length);
+        throughput.queueMillis.addAndGet(Math.max(0, started - job.getReceivedTime().getTime()));
+        throughput.processingMillis.addAndGet(finished - started);
+    }
+
+    // null when the data was inserted, otherwise why it was not
+    protected String parseAndInsert(AnalyzerImportJob job) {
+        boolean inserted;
+        AnalyzerReader reader;
+        if (job.getSource() == Source.ASTM) {
+            ASTMAnalyzerReader astmReader = (ASTMAnalyzerReader) AnalyzerReaderFactory.getReaderFor("astm");
+            reader = astmReader;
+            inserted = astmReader.readStream(new ByteArrayInputStream(job.getPayload()))
+                    && astmReader.processData(job.getSystemUserId());
+        } else {
+            reader = AnalyzerReaderFactory.getReaderFor(job.getFileName() == null ? "" : job.getFileName());
+            inserted = reader.readStream(new ByteArrayInputStream(job.getPayload()))
+                    && reader.insertAnalyzerData(job.getSystemUserId());
+        }
+        if (inserted) {
+            return null;
+        }
+        return reader.getError() == null ? DEFAULT_ERROR : reader.getError();
+    }
+
+    private static String hash(byte[] payload) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(payload);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every java runtime has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Lane {
+        private final Queue<Integer> jobIds = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean running = new AtomicBoolean();
+    }
+
+    private static class Throughput {
+        private final long since = System.currentTimeMillis();
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong duplicates = new AtomicLong();
+        private final AtomicLong succeeded = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong bytesProcessed = new AtomicLong();
+        private final AtomicLong queueMillis = new AtomicLong();
+        private final AtomicLong processingMillis = new AtomicLong();
+    }
+}
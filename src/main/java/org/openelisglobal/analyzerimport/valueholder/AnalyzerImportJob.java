@@ -0,0 +1,196 @@
+package org.openelisglobal.analyzerimport.valueholder;
+
+import java.sql.Timestamp;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import org.openelisglobal.common.valueholder.BaseObject;
+
+/**
+ * An analyzer upload as it was received, kept until it has been parsed and
+ * inserted so it survives a restart. The same content from the same analyzer is
+ * only ever queued once.
+ */
+@Entity
+@Table(name = "analyzer_import_job")
+public class AnalyzerImportJob extends BaseObject<Integer> {
+
+    private static final long serialVersionUID = -3541928356731209554L;
+
+    public enum Source {
+        FILE, ASTM
+    }
+
+    // NEEDS_REVIEW is a job that was interrupted while it was running, so some of
+    // its results may have been inserted
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, NEEDS_REVIEW
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "analyzer_import_job_generator")
+    @SequenceGenerator(name = "analyzer_import_job_generator", sequenceName = "analyzer_import_job_seq",
+            allocationSize = 1)
+    private Integer id;
+
+    @Column(name = "analyzer_key")
+    private String analyzerKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "source")
+    private Source source;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "content_hash")
+    private String contentHash;
+
+    @Column(name = "payload")
+    private byte[] payload;
+
+    @Column(name = "payload_size")
+    private Integer payloadSize;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private Status status;
+
+    @Column(name = "error")
+    private String error;
+
+    @Column(name = "system_user_id")
+    private String systemUserId;
+
+    @Column(name = "attempts")
+    private Integer attempts;
+
+    @Column(name = "received_time")
+    private Timestamp receivedTime;
+
+    @Column(name = "started_time")
+    private Timestamp startedTime;
+
+    @Column(name = "finished_time")
+    private Timestamp finishedTime;
+
+    @Override
+    public Integer getId() {
+        return id;
+    }
+
+    @Override
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getAnalyzerKey() {
+        return analyzerKey;
+    }
+
+    public void setAnalyzerKey(String analyzerKey) {
+        this.analyzerKey = analyzerKey;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public void setSource(Source source) {
+        this.source = source;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    public Integer getPayloadSize() {
+        return payloadSize;
+    }
+
+    public void setPayloadSize(Integer payloadSize) {
+        this.payloadSize = payloadSize;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getSystemUserId() {
+        return systemUserId;
+    }
+
+    public void setSystemUserId(String systemUserId) {
+        this.systemUserId = systemUserId;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Timestamp getReceivedTime() {
+        return receivedTime;
+    }
+
+    public void setReceivedTime(Timestamp receivedTime) {
+        this.receivedTime = receivedTime;
+    }
+
+    public Timestamp getStartedTime() {
+        return startedTime;
+    }
+
+    public void setStartedTime(Timestamp startedTime) {
+        this.startedTime = startedTime;
+    }
+
+    public Timestamp getFinishedTime() {
+        return finishedTime;
+    }
+
+    public void setFinishedTime(Timestamp finishedTime) {
+        this.finishedTime = finishedTime;
+    }
+}
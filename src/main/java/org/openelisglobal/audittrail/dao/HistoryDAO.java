@@ -10,4 +10,6 @@ public interface HistoryDAO extends BaseDAO<History, String> {
     List<History> getHistoryByRefIdAndRefTableId(String Id, String Table) throws LIMSRuntimeException;
 
     List<History> getHistoryByRefIdAndRefTableId(History history) throws LIMSRuntimeException;
+
+    void insertBatch(List<History> histories) throws LIMSRuntimeException;
 }
@@ -13,12 +13,19 @@
  */
 package org.openelisglobal.audittrail.daoimpl;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.sql.Timestamp;
-import java.util.Vector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.openelisglobal.audittrail.dao.AuditTrailService;
 import org.openelisglobal.audittrail.valueholder.History;
 import org.openelisglobal.common.action.IActionConstants;
@@ -32,8 +39,11 @@ import org.openelisglobal.history.service.HistoryService;
 import org.openelisglobal.referencetables.service.ReferenceTablesService;
 import org.openelisglobal.referencetables.valueholder.ReferenceTables;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Component
 @Transactional
@@ -45,6 +55,14 @@ public class AuditTrailServiceImpl implements AuditTrailService {
     @Autowired
     private HistoryService historyService;
 
+    @Value("${org.openelisglobal.audit.batchSize:50}")
+    private int batchSize;
+
+    // reference_table rows are maintained through liquibase so they are only read
+    // once per table
+    private final Map<String, ReferenceTables> referenceTables = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, List<AuditedField>> AUDITED_FIELDS = new ConcurrentHashMap<>();
+
     // For an insert log the id, sys_user_id, ref id, reftable, timestamp, activity
     // (='I'). The change column would be blank, since the
     // before data did not contain anything. Note: This requires making the changes
@@ -52,9 +70,7 @@ public class AuditTrailServiceImpl implements AuditTrailService {
     @Override
     public void saveNewHistory(BaseObject newObject, String sysUserId, String tableName) throws LIMSRuntimeException {
 
-        ReferenceTables referenceTables = new ReferenceTables();
-        referenceTables.setTableName(tableName);
-        ReferenceTables referenceTable = referenceTablesService.getReferenceTableByName(referenceTables);
+        ReferenceTables referenceTable = getReferenceTable(tableName);
 
         // bugzilla 2111: if keepHistory is N then return - don't throw exception
         if (referenceTable != null && !referenceTable.getKeepHistory().equals(IActionConstants.YES)) {
@@ -108,9 +124,7 @@ public class AuditTrailServiceImpl implements AuditTrailService {
             String tableName) throws LIMSRuntimeException {
 
         // bugzilla 2571 go through ReferenceTablesDAO to get reference tables info
-        ReferenceTables referenceTables = new ReferenceTables();
-        referenceTables.setTableName(tableName);
-        ReferenceTables rt = referenceTablesService.getReferenceTableByName(referenceTables);
+        ReferenceTables rt = getReferenceTable(tableName);
 
         // bugzilla 2111: if keepHistory is N then return - don't throw exception
         if (rt != null && !rt.getKeepHistory().equals(IActionConstants.YES)) {
@@ -235,214 +249,104 @@ public class AuditTrailServiceImpl implements AuditTrailService {
      * @param existingObject the existing object in the database. Used only for
      *                       updates
      * @param tableName      the name of the table being logged.
-     * @throws IllegalArgumentException
-     * @throws IllegalAccessException
-     * @throws InvocationTargetException
+     * @return the changed values as xml, null if nothing changed
      */
     private String getChanges(BaseObject newObject, BaseObject existingObject, String tableName) {
-
-        // bugzilla 1857
-        Vector<Object> optionList = new Vector<>();
-        Class objectClass = existingObject.getClass();
-        // get an array of all fields in the class including those in superclasses if
-        // this is a subclass.
-        Field[] fields = getAllFields(objectClass, null);
-
-        // Iterate through all the fields in the object
-        fieldIteration: for (int ii = 0; ii < fields.length; ii++) {
-            LogEvent.logTrace(this.getClass().getName(), "getChanges", "field: " + fields[ii].getName());
-
-            // make private fields accessible so we can access their values.
-            // This is discouraged as it can introduce security vulnerabilities so care
-            // should be taken in this section of the code to not do anything other than
-            // read from this field so it can be saved in the audit log
-            fields[ii].setAccessible(true);
-
-            // if the current field is static, transient or final then don't log it as
-            // these modifiers are v.unlikely to be part of the data model.
-            if (Modifier.isTransient(fields[ii].getModifiers()) || Modifier.isFinal(fields[ii].getModifiers())
-                    || Modifier.isStatic(fields[ii].getModifiers())) {
-                LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                        fields[ii].getName() + " transient: " + Modifier.isTransient(fields[ii].getModifiers()));
-                LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                        fields[ii].getName() + " final: " + Modifier.isFinal(fields[ii].getModifiers()));
-                LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                        fields[ii].getName() + " static: " + Modifier.isStatic(fields[ii].getModifiers()));
-                continue fieldIteration;
-            }
-
-            String fieldName = fields[ii].getName();
-            if ((!fieldName.equals("id"))
-                    // bugzilla 2574
-                    // && (!fieldName.equals("lastupdated"))
-                    && (!fieldName.equals("sysUserId")) && (!fieldName.equals("systemUser"))
-                    && (!fieldName.equals("originalLastupdated"))) {
-                // bugzilla 2578
-                // && (!fieldName.equals("collectionDateForDisplay"))
-                // && (!fieldName.equals("collectionTimeForDisplay")) ) {
-                Class interfaces[] = fields[ii].getType().getInterfaces();
-                String auditFunctionName = "get" + StringUtil.capitalize(fieldName) + "_Audit";
-                for (int i = 0; i < interfaces.length;) {
-                    if (interfaces[i].equals(java.util.Collection.class)) {
-                        if (!methodExists(objectClass, auditFunctionName)) { // check if separate audit field exists
-                            continue fieldIteration;
-                        }
-                    }
-                    i++;
+        StringBuilder xml = null;
+
+        for (AuditedField field : getAuditedFields(existingObject.getClass())) {
+            String fieldName = field.getName();
+            String propertyNewState = newObject == null ? "" : field.read(newObject);
+            String propertyPreUpdateState = field.read(existingObject);
+
+            LabelValuePair lvb;
+            // bugzilla 2134 fixed the analysis_qaevent completed date problem
+            // bugzilla 2122 fixed the sample collection date problem
+            if (fieldName.equals("qaEvent") || fieldName.equals("sample")) {
+                lvb = processLabelValueFixes(fieldName, propertyPreUpdateState, existingObject, newObject);
+            } else {
+                // Ignore the parent class if any, only compare the current level
+                if (propertyNewState.startsWith("{org.openelisglobal")) {
+                    propertyNewState = propertyPreUpdateState;
                 }
-
-                String propertyNewState;
-                String propertyPreUpdateState;
-
-                // get new field values
-                try {
-                    if (newObject != null) {
-                        Object objPropNewState = fields[ii].get(newObject);
-                        if (objPropNewState != null) {
-                            propertyNewState = objPropNewState.toString();
-                        } else {
-                            propertyNewState = "";
-                        }
-
-                        try {
-                            LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                                    "does " + auditFunctionName + " exist in newObject");
-
-                            if (methodExists(newObject.getClass(), auditFunctionName)) {
-                                LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                                        auditFunctionName + " exists in newObject");
-
-                                Method m2 = newObject.getClass().getMethod(auditFunctionName, new Class[0]);
-                                Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
-
-                                String o2Value;
-
-                                if (o2 != null) {
-                                    o2Value = o2.toString();
-                                } else {
-                                    o2Value = "";
-                                }
-
-                                propertyNewState = o2Value;
-                            }
-                        } catch (RuntimeException | NoSuchMethodException | IllegalAccessException
-                                | InvocationTargetException e) {
-                            // buzilla 2154
-                            LogEvent.logError(e);
-                            throw new LIMSRuntimeException("Error in AuditTrail processLabelValue()", e);
-                        }
-                    } else {
-                        propertyNewState = "";
-                    }
-                } catch (IllegalAccessException e) {
-                    // buzilla 2154
-                    LogEvent.logError(e);
-                    propertyNewState = "";
+                if (propertyPreUpdateState.startsWith("{org.openelisglobal")) {
+                    propertyPreUpdateState = propertyNewState;
                 }
-                LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                        "field: " + fields[ii].getName() + " propertyNewState: " + propertyNewState);
-
-                try {
-                    Object objPreUpdateState = fields[ii].get(existingObject);
-                    if (objPreUpdateState != null) {
-                        propertyPreUpdateState = objPreUpdateState.toString();
-
-                    } else {
-                        propertyPreUpdateState = "";
-                    }
+                if (propertyNewState.equals(propertyPreUpdateState)) {
+                    continue; // Values haven't changed so loop to next property
+                }
+                lvb = processLabelValue(fieldName, propertyPreUpdateState, existingObject, newObject);
+            }
 
-                    try {
-                        LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                                "does " + auditFunctionName + " exists in existingObject");
+            if (lvb != null) {
+                if (xml == null) {
+                    xml = new StringBuilder();
+                }
+                XMLUtil.appendKeyValue(lvb.getLabel(), lvb.getValue(), xml);
+                xml.append("\n");
+            }
+        }
 
-                        if (methodExists(existingObject.getClass(), auditFunctionName)) {
-                            LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                                    auditFunctionName + " exists in existingObject");
-                            Method m2 = existingObject.getClass().getMethod(auditFunctionName, new Class[0]);
-                            Object o2 = m2.invoke(existingObject, (Object[]) new Class[0]);
+        return xml == null ? null : xml.toString();
+    }
 
-                            String o2Value;
+    private List<AuditedField> getAuditedFields(Class<?> objectClass) {
+        return AUDITED_FIELDS.computeIfAbsent(objectClass, this::findAuditedFields);
+    }
 
-                            if (o2 != null) {
-                                o2Value = o2.toString();
-                            } else {
-                                o2Value = "";
-                            }
+    /*
+     * Works out once per class which fields are logged and how to read them.
+     * Static, transient and final fields are skipped as they are v.unlikely to be
+     * part of the data model, as are collections that have no get<Field>_Audit
+     * method to represent them.
+     */
+    private List<AuditedField> findAuditedFields(Class<?> objectClass) {
+        List<AuditedField> auditedFields = new ArrayList<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        for (Field field : getAllFields(objectClass, null)) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isTransient(modifiers) || Modifier.isFinal(modifiers) || Modifier.isStatic(modifiers)) {
+                continue;
+            }
+            String fieldName = field.getName();
+            // bugzilla 2574 lastupdated is logged
+            if (fieldName.equals("id") || fieldName.equals("sysUserId") || fieldName.equals("systemUser")
+                    || fieldName.equals("originalLastupdated")) {
+                continue;
+            }
 
-                            propertyPreUpdateState = o2Value;
+            Method auditMethod = findDeclaredMethod(objectClass,
+                    "get" + StringUtil.capitalize(fieldName) + "_Audit");
+            if (auditMethod == null && Arrays.asList(field.getType().getInterfaces()).contains(Collection.class)) {
+                continue;
+            }
 
-                        }
-                    } catch (RuntimeException | NoSuchMethodException | IllegalAccessException
-                            | InvocationTargetException e) {
-                        // buzilla 2154
-                        LogEvent.logError(e);
-                        throw new LIMSRuntimeException("Error in AuditTrail processLabelValue()", e);
-                    }
-                } catch (IllegalArgumentException e) {
-                    LogEvent.logError(e);
-                    propertyPreUpdateState = "";
-                } catch (IllegalAccessException e) {
-                    // buzilla 2154
-                    LogEvent.logError(e);
-                    propertyPreUpdateState = "";
-                }
-                LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                        "field: " + fields[ii].getName() + " propertyPreUpdateState: " + propertyPreUpdateState);
-
-                // bugzilla 2134 fixed the analysis_qaevent completed date problem
-                // bugzilla 2122 fixed the sample collection date problem
-                if (fieldName.equals("qaEvent") || fieldName.equals("sample")) {
-                    LabelValuePair lvb = processLabelValueFixes(fieldName, propertyPreUpdateState, existingObject,
-                            newObject);
-                    if (lvb != null) {
-                        String label = lvb.getLabel();
-                        String value = lvb.getValue();
-                        optionList.add(new LabelValuePair(label, value));
-                    }
-                } else {
-                    // Ignore the parent class if any, only compare the current level
-                    if (propertyNewState.startsWith("{org.openelisglobal")) {
-                        propertyNewState = propertyPreUpdateState;
-                    }
-                    if (propertyPreUpdateState.startsWith("{org.openelisglobal")) {
-                        propertyPreUpdateState = propertyNewState;
-                    }
-
-                    // LogEvent.logInfo("AuditTrailDAOImpl","getChanges","TABLE NAME: " +
-                    // tableName);
-                    // LogEvent.logInfo("AuditTrailDAOImpl","getChanges","FIELD NAME: " +
-                    // fieldName);
-                    // LogEvent.logInfo("AuditTrailDAOImpl","getChanges","PRE UPDATE: " +
-                    // propertyPreUpdateState);
-                    // LogEvent.logInfo("AuditTrailDAOImpl","getChanges","NEW UPDATE: " +
-                    // propertyNewState);
-                    // LogEvent.logInfo("","","\n");
-
-                    LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                            "field compare: " + fields[ii].getName() + " propertyNewState: " + propertyNewState);
-                    LogEvent.logTrace(this.getClass().getName(), "getChanges", "field compare: " + fields[ii].getName()
-                            + " propertyPreUpdateState: " + propertyPreUpdateState);
-
-                    // Now we have the two property values - compare them
-                    if (propertyNewState.equals(propertyPreUpdateState)) {
-                        continue; // Values haven't changed so loop to next property
-                    } else {
-                        LabelValuePair lvb = processLabelValue(fieldName, propertyPreUpdateState, existingObject,
-                                newObject);
-                        if (lvb != null) {
-                            optionList.add(new LabelValuePair(lvb.getLabel(), lvb.getValue()));
-                        }
-                    }
+            try {
+                // make private fields accessible so we can read their values. Care should
+                // be taken to not do anything other than read from them
+                field.setAccessible(true);
+                MethodHandle auditGetter = null;
+                if (auditMethod != null) {
+                    auditMethod.setAccessible(true);
+                    auditGetter = lookup.unreflect(auditMethod);
                 }
+                auditedFields.add(new AuditedField(fieldName, lookup.unreflectGetter(field), auditGetter));
+            } catch (IllegalAccessException | RuntimeException e) {
+                LogEvent.logError(e);
+                throw new LIMSRuntimeException("Error in AuditTrail reading fields of " + objectClass.getName(), e);
             }
         }
+        return auditedFields;
+    }
 
-        String xml = null;
-        if (optionList.size() > 0) {
-            xml = getXMLFormat(optionList);
+    private Method findDeclaredMethod(Class<?> clazz, String methodName) {
+        for (Method method : clazz.getDeclaredMethods()) {
+            if (method.getName().equals(methodName)) {
+                return method;
+            }
         }
-
-        return xml;
+        return null;
     }
 
     /**
@@ -1284,24 +1188,6 @@ public class AuditTrailServiceImpl implements AuditTrailService {
         return lvb;
     }
 
-    /**
-     * Convert to xml format
-     *
-     * @param list the list to be converted
-     * @return xml string
-     */
-    private String getXMLFormat(Vector list) {
-        StringBuilder xml = new StringBuilder();
-
-        for (int i = 0; i < list.size(); i++) {
-            LabelValuePair lvp = (LabelValuePair) list.elementAt(i);
-            XMLUtil.appendKeyValue(lvp.getLabel(), lvp.getValue(), xml);
-            xml.append("\n");
-        }
-
-        return xml.toString();
-    }
-
     /**
      * Convert to xml format by reading the table bases on it's id (dom4j)
      *
@@ -1370,12 +1256,110 @@ public class AuditTrailServiceImpl implements AuditTrailService {
         return null;
     }
 
+    private ReferenceTables getReferenceTable(String tableName) {
+        if (tableName == null) {
+            return null;
+        }
+        String key = tableName.toLowerCase().trim();
+        ReferenceTables referenceTable = referenceTables.get(key);
+        if (referenceTable == null) {
+            referenceTable = referenceTablesService.getReferenceTableByName(tableName);
+            if (referenceTable != null) {
+                referenceTables.put(key, referenceTable);
+            }
+        }
+        return referenceTable;
+    }
+
     /**
-     * Save the object into history table
+     * Save the object into history table. Within a transaction the row is held
+     * back and written with the others from the same transaction in one batch
+     * just before it commits, so the history is committed or rolled back together
+     * with the change it describes.
      *
      * @param history the history object being saved
      */
     private void insertData(History history) throws LIMSRuntimeException {
-        historyService.insert(history);
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            historyService.insert(history);
+            return;
+        }
+        PendingHistory pending = getPendingHistory();
+        pending.add(history);
+        if (pending.size() >= batchSize) {
+            pending.flush();
+        }
+    }
+
+    // synchronizations are suspended along with their transaction, so a
+    // REQUIRES_NEW transaction gets its own pending list rather than the outer one
+    private PendingHistory getPendingHistory() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingHistory) {
+                return (PendingHistory) synchronization;
+            }
+        }
+        PendingHistory pending = new PendingHistory();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    private class PendingHistory implements TransactionSynchronization {
+        private final List<History> histories = new ArrayList<>();
+
+        private void add(History history) {
+            histories.add(history);
+        }
+
+        private int size() {
+            return histories.size();
+        }
+
+        private void flush() {
+            if (!histories.isEmpty()) {
+                historyService.insertBatch(histories);
+                histories.clear();
+            }
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            flush();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            histories.clear();
+        }
+    }
+
+    private static class AuditedField {
+        private final String name;
+        private final MethodHandle getter;
+        private final MethodHandle auditGetter;
+
+        private AuditedField(String name, MethodHandle getter, MethodHandle auditGetter) {
+            this.name = name;
+            this.getter = getter;
+            this.auditGetter = auditGetter;
+        }
+
+        private String getName() {
+            return name;
+        }
+
+        // the get<Field>_Audit value is logged in place of the field when it exists
+        private String read(Object object) {
+            try {
+                Object value = auditGetter == null ? getter.invoke(object) : auditGetter.invoke(object);
+                return value == null ? "" : value.toString();
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                LogEvent.logError(e);
+                throw new LIMSRuntimeException("Error in AuditTrail reading " + name, e);
+            }
+        }
     }
 }
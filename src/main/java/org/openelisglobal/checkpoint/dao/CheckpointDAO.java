@@ -0,0 +1,7 @@
+package org.openelisglobal.checkpoint.dao;
+
+import org.openelisglobal.checkpoint.valueholder.Checkpoint;
+import org.openelisglobal.common.dao.BaseDAO;
+
+public interface CheckpointDAO extends BaseDAO<Checkpoint, String> {
+}
@@ -0,0 +1,16 @@
+package org.openelisglobal.checkpoint.daoimpl;
+
+import org.openelisglobal.checkpoint.dao.CheckpointDAO;
+import org.openelisglobal.checkpoint.valueholder.Checkpoint;
+import org.openelisglobal.common.daoimpl.BaseDAOImpl;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+@Transactional
+public class CheckpointDAOImpl extends BaseDAOImpl<Checkpoint, String> implements CheckpointDAO {
+
+    public CheckpointDAOImpl() {
+        super(Checkpoint.class);
+    }
+}
@@ -0,0 +1,14 @@
+package org.openelisglobal.checkpoint.service;
+
+import java.util.Optional;
+import org.openelisglobal.checkpoint.valueholder.Checkpoint;
+import org.openelisglobal.common.service.BaseObjectService;
+
+public interface CheckpointService extends BaseObjectService<Checkpoint, String> {
+
+    Optional<String> getCursor(String name);
+
+    void saveCursor(String name, String cursorValue);
+
+    void clearCursor(String name);
+}
@@ -0,0 +1,54 @@
+package org.openelisglobal.checkpoint.service;
+
+import java.util.Optional;
+import org.openelisglobal.checkpoint.dao.CheckpointDAO;
+import org.openelisglobal.checkpoint.valueholder.Checkpoint;
+import org.openelisglobal.common.service.BaseObjectServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class CheckpointServiceImpl extends BaseObjectServiceImpl<Checkpoint, String> implements CheckpointService {
+
+    @Autowired
+    protected CheckpointDAO baseObjectDAO;
+
+    CheckpointServiceImpl() {
+        super(Checkpoint.class);
+    }
+
+    @Override
+    protected CheckpointDAO getBaseObjectDAO() {
+        return baseObjectDAO;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<String> getCursor(String name) {
+        return baseObjectDAO.get(name).map(Checkpoint::getCursorValue);
+    }
+
+    // checkpoints are committed independently of the caller so progress isn't lost
+    // if the surrounding work is rolled back
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void saveCursor(String name, String cursorValue) {
+        Optional<Checkpoint> checkpoint = baseObjectDAO.get(name);
+        if (checkpoint.isPresent()) {
+            checkpoint.get().setCursorValue(cursorValue);
+        } else {
+            Checkpoint newCheckpoint = new Checkpoint();
+            newCheckpoint.setId(name);
+            newCheckpoint.setCursorValue(cursorValue);
+            baseObjectDAO.insert(newCheckpoint);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void clearCursor(String name) {
+        baseObjectDAO.get(name).ifPresent(checkpoint -> baseObjectDAO.delete(checkpoint));
+    }
+}
@@ -0,0 +1,46 @@
+package org.openelisglobal.checkpoint.valueholder;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.validation.constraints.Size;
+import org.openelisglobal.common.valueholder.BaseObject;
+
+/**
+ * A named cursor persisted by long running or scheduled processes so they can
+ * resume from where they stopped after a restart.
+ */
+@Entity
+@Table(name = "checkpoint")
+public class Checkpoint extends BaseObject<String> {
+
+    private static final long serialVersionUID = 6311254370954387412L;
+
+    @Id
+    @Column(name = "name")
+    @Size(max = 100)
+    private String id;
+
+    @Column(name = "cursor_value")
+    @Size(max = 255)
+    private String cursorValue;
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getCursorValue() {
+        return cursorValue;
+    }
+
+    public void setCursorValue(String cursorValue) {
+        this.cursorValue = cursorValue;
+    }
+}
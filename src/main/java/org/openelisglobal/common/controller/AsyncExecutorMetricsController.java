@@ -0,0 +1,29 @@
+package org.openelisglobal.common.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.openelisglobal.config.InstrumentedTaskExecutor.ExecutorMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/rest")
+public class AsyncExecutorMetricsController {
+
+    @Autowired
+    private Map<String, InstrumentedTaskExecutor> executors;
+
+    @GetMapping(value = "/async-executors/metrics", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<ExecutorMetrics> getExecutorMetrics() {
+        List<ExecutorMetrics> metrics = new ArrayList<>();
+        for (InstrumentedTaskExecutor executor : executors.values()) {
+            metrics.add(executor.getMetrics());
+        }
+        return metrics;
+    }
+}
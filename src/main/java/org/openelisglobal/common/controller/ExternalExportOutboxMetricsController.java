@@ -0,0 +1,22 @@
+package org.openelisglobal.common.controller;
+
+import java.util.Map;
+import org.openelisglobal.dataexchange.common.ExternalExportOutbox;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/rest")
+public class ExternalExportOutboxMetricsController {
+
+    @Autowired
+    private ExternalExportOutbox outbox;
+
+    @GetMapping(value = "/export-outbox/metrics", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Object> getOutboxMetrics() {
+        return outbox.getMetrics();
+    }
+}
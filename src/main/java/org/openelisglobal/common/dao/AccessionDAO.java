@@ -10,6 +10,10 @@ public interface AccessionDAO {
 
     long getNextNumberIncrement(String prefix, AccessionFormat accessionFormat);
 
+    long getNextNumberBlock(String prefix, AccessionFormat accessionFormat, int blockSize);
+
+    void createIfAbsent(String prefix, AccessionFormat accessionFormat, long curVal);
+
     AccessionNumberInfo save(AccessionNumberInfo info);
 
     AccessionNumberInfo get(AccessionIdentity accessionIdentity);
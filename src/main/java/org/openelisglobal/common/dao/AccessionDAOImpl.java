@@ -6,6 +6,7 @@ import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import org.hibernate.HibernateException;
+import org.hibernate.query.NativeQuery;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.provider.validation.AccessionNumberValidatorFactory.AccessionFormat;
@@ -41,6 +42,54 @@ public class AccessionDAOImpl implements AccessionDAO {
         }
     }
 
+    /**
+     * Moves cur_val forward by blockSize in a single statement and returns the
+     * new value, which is the last number of the block now owned by the caller.
+     */
+    @Override
+    public long getNextNumberBlock(String prefix, AccessionFormat accessionFormat, int blockSize) {
+        try {
+            String sql = "UPDATE accession_number_info" //
+                    + " SET cur_val = cur_val + :blockSize " //
+                    + " WHERE prefix = :prefix" //
+                    + " AND type = :type" //
+                    + " RETURNING cur_val";
+            Query query = entityManager.createNativeQuery(sql);
+            query.setParameter("blockSize", blockSize);
+            query.setParameter("prefix", prefix);
+            query.setParameter("type", accessionFormat.name());
+
+            return ((BigInteger) query.getSingleResult()).longValue();
+        } catch (HibernateException | NoResultException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in " + this.getClass().getSimpleName() + " " + "getNextNumberBlock",
+                    e);
+        }
+    }
+
+    /**
+     * Creates the counter row unless another node or thread got there first, in
+     * which case the existing row is left untouched.
+     */
+    @Override
+    public void createIfAbsent(String prefix, AccessionFormat accessionFormat, long curVal) {
+        try {
+            String sql = "INSERT INTO accession_number_info (prefix, type, cur_val)" //
+                    + " VALUES (:prefix, :type, :curVal)" //
+                    + " ON CONFLICT DO NOTHING";
+            Query query = entityManager.createNativeQuery(sql);
+            query.setParameter("prefix", prefix);
+            query.setParameter("type", accessionFormat.name());
+            query.setParameter("curVal", curVal);
+            // without a query space hibernate drops the whole second level cache
+            query.unwrap(NativeQuery.class).addSynchronizedEntityClass(AccessionNumberInfo.class);
+            query.executeUpdate();
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in " + this.getClass().getSimpleName() + " " + "createIfAbsent", e);
+        }
+    }
+
     @Override
     public long getNextNumberNoIncrement(String prefix, AccessionFormat accessionFormat) {
         try {
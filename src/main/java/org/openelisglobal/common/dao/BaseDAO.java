@@ -259,6 +259,38 @@ public interface BaseDAO<T extends BaseObject<PK>, PK extends Serializable> {
     List<T> getMatchingOrderedPage(Map<String, Object> propertyValues, List<String> orderProperties, boolean descending,
             int startingRecNo);
 
+    /**
+     * @param cursor a cursor from a page returned earlier, null or empty for the
+     *               first page
+     * @return A page of results sorted by id, with the cursors of the pages
+     *         around it
+     */
+    KeysetPage<T> getKeysetPage(String cursor);
+
+    /**
+     * Pages by seeking past the sort key of the neighbouring page rather than by
+     * offset so that deep pages cost the same as the first one. The id is always
+     * added as the last sort key so the order is total.
+     *
+     * @param propertyValues  Key Value pairs where key is the property name and
+     *                        value is the value it must match
+     * @param orderProperties the properties to order by, starting with the first
+     *                        entry. They must not be null for any row
+     * @param descending      Set to true to order by descending, false for order by
+     *                        ascending
+     * @param cursor          a cursor from a page returned earlier with the same
+     *                        ordering, null or empty for the first page
+     * @return A page of results, with the cursors of the pages around it
+     */
+    KeysetPage<T> getMatchingKeysetPage(Map<String, Object> propertyValues, List<String> orderProperties,
+            boolean descending, String cursor);
+
+    /**
+     * @see #getMatchingKeysetPage(Map, List, boolean, String)
+     */
+    KeysetPage<T> getLikeKeysetPage(Map<String, String> propertyValues, List<String> orderProperties,
+            boolean descending, String cursor);
+
     /**
      * @param object the data to insert
      * @return the id of the inserted object
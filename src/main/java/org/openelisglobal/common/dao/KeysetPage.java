@@ -0,0 +1,45 @@
+package org.openelisglobal.common.dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page read by seeking past the sort key of the previous page instead of
+ * skipping rows, so every page costs the same however deep it is. The cursors
+ * are opaque and are passed back unchanged to read the neighbouring page, they
+ * are null when there is no page in that direction.
+ *
+ * @param <T> the type of data object on the page
+ */
+public class KeysetPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+    private final String previousCursor;
+
+    public KeysetPage(List<T> items, String nextCursor, String previousCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+}
@@ -14,12 +14,15 @@
 package org.openelisglobal.common.daoimpl;
 
 import java.io.Serializable;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
@@ -33,15 +36,21 @@ import javax.persistence.criteria.Order;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import org.apache.commons.validator.GenericValidator;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.query.Query;
 import org.openelisglobal.common.action.IActionConstants;
 import org.openelisglobal.common.dao.BaseDAO;
+import org.openelisglobal.common.dao.KeysetPage;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.common.valueholder.BaseObject;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
@@ -507,6 +516,155 @@ public abstract class BaseDAOImpl<T extends BaseObject<PK>, PK extends Serializa
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<T> getKeysetPage(String cursor) {
+        return getMatchingKeysetPage(new HashMap<>(), new ArrayList<>(), false, cursor);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<T> getMatchingKeysetPage(Map<String, Object> propertyValues, List<String> orderProperties,
+            boolean descending, String cursor) {
+        List<PropertyValueComparison> whereComparisonOperations = new ArrayList<>();
+        for (Entry<String, Object> entrySet : propertyValues.entrySet()) {
+            whereComparisonOperations
+                    .add(new PropertyValueComparison(entrySet.getKey(), entrySet.getValue(), DBComparison.EQ));
+        }
+        return getKeysetPage((criteriaBuilder, root) -> getWherePredicates(criteriaBuilder, root,
+                whereComparisonOperations), orderProperties, descending, cursor, getDefaultPageSize());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<T> getLikeKeysetPage(Map<String, String> propertyValues, List<String> orderProperties,
+            boolean descending, String cursor) {
+        List<PropertyValueComparison> whereComparisonOperations = new ArrayList<>();
+        for (Entry<String, String> entrySet : propertyValues.entrySet()) {
+            whereComparisonOperations
+                    .add(new PropertyValueComparison(entrySet.getKey(), entrySet.getValue(), DBComparison.LIKE));
+        }
+        return getKeysetPage((criteriaBuilder, root) -> getWherePredicates(criteriaBuilder, root,
+                whereComparisonOperations), orderProperties, descending, cursor, getDefaultPageSize());
+    }
+
+    /**
+     * Reads one keyset page. The rows are restricted with (k1, .., kn, id) > (v1,
+     * .., vn, id) taken from the cursor, written out as k1 >= v1 and (k1 > v1 or
+     * (k1 = v1 and ..)) so the leading sort key bounds an index range scan. For a
+     * page before the cursor the comparison and the ordering are reversed and the
+     * rows put back in order afterwards.
+     *
+     * @param restriction     the conditions every row on the page must meet
+     * @param orderProperties the properties to order by, must not be null for any
+     *                        row. The id is added as the last one
+     * @param cursor          a cursor from a page returned earlier with the same
+     *                        ordering, null or empty for the first page
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    protected KeysetPage<T> getKeysetPage(KeysetRestriction<T> restriction, List<String> orderProperties,
+            boolean descending, String cursor, int pageSize) {
+        List<String> keyProperties = new ArrayList<>(orderProperties);
+        keyProperties.remove("id");
+        keyProperties.add("id");
+        int ordering = (classType.getName() + keyProperties + descending).hashCode();
+        KeysetCursor position = GenericValidator.isBlankOrNull(cursor) ? null
+                : KeysetCursor.decode(cursor, ordering);
+        if (position != null && position.getValues().size() != keyProperties.size()) {
+            throw new IllegalArgumentException("page cursor does not belong to this ordering");
+        }
+        boolean backwards = position != null && position.isBefore();
+        // the direction the rows are read in
+        boolean readDescending = descending != backwards;
+        try {
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(classType);
+            Root<T> root = criteriaQuery.from(classType);
+            criteriaQuery.select(root);
+
+            List<Path> keyPaths = new ArrayList<>();
+            for (String keyProperty : keyProperties) {
+                keyPaths.add(getPathToProperty(root, keyProperty));
+            }
+            List<Predicate> wherePredicates = new ArrayList<>(restriction.getPredicates(criteriaBuilder, root));
+            if (position != null) {
+                List<Object> keyValues = new ArrayList<>();
+                for (int i = 0; i < keyProperties.size(); i++) {
+                    keyValues.add(toQueryValue(keyProperties.get(i), position.getValues().get(i)));
+                }
+                wherePredicates.add(getSeekPredicate(criteriaBuilder, keyPaths, keyValues, readDescending));
+            }
+            criteriaQuery.where(wherePredicates.toArray(new Predicate[wherePredicates.size()]));
+
+            List<Order> orderByList = new ArrayList<>();
+            for (Path keyPath : keyPaths) {
+                orderByList.add(readDescending ? criteriaBuilder.desc(keyPath) : criteriaBuilder.asc(keyPath));
+            }
+            criteriaQuery.orderBy(orderByList);
+
+            TypedQuery<T> typedQuery = entityManager.createQuery(criteriaQuery);
+            typedQuery.setMaxResults(pageSize + 1);
+            List<T> items = new ArrayList<>(typedQuery.getResultList());
+            boolean more = items.size() > pageSize;
+            if (more) {
+                items.remove(pageSize);
+            }
+            if (backwards) {
+                Collections.reverse(items);
+            }
+
+            String nextCursor = null;
+            String previousCursor = null;
+            if (!items.isEmpty()) {
+                if (backwards ? position != null : more) {
+                    nextCursor = KeysetCursor.encode(false, ordering,
+                            getKeyValues(items.get(items.size() - 1), keyProperties));
+                }
+                if (backwards ? more : position != null) {
+                    previousCursor = KeysetCursor.encode(true, ordering, getKeyValues(items.get(0), keyProperties));
+                }
+            }
+            return new KeysetPage<>(items, nextCursor, previousCursor);
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in " + this.getClass().getSimpleName() + " " + "getKeysetPage", e);
+        }
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private Predicate getSeekPredicate(CriteriaBuilder criteriaBuilder, List<Path> keyPaths, List<Object> keyValues,
+            boolean descending) {
+        List<Predicate> alternatives = new ArrayList<>();
+        List<Predicate> equalPrefix = new ArrayList<>();
+        for (int i = 0; i < keyPaths.size(); i++) {
+            Path keyPath = keyPaths.get(i);
+            Comparable keyValue = (Comparable) keyValues.get(i);
+            List<Predicate> alternative = new ArrayList<>(equalPrefix);
+            alternative.add(descending ? criteriaBuilder.lessThan(keyPath, keyValue)
+                    : criteriaBuilder.greaterThan(keyPath, keyValue));
+            alternatives.add(criteriaBuilder.and(alternative.toArray(new Predicate[alternative.size()])));
+            equalPrefix.add(criteriaBuilder.equal(keyPath, keyValue));
+        }
+        Comparable leadingValue = (Comparable) keyValues.get(0);
+        Predicate leadingBound = descending ? criteriaBuilder.lessThanOrEqualTo(keyPaths.get(0), leadingValue)
+                : criteriaBuilder.greaterThanOrEqualTo(keyPaths.get(0), leadingValue);
+        return criteriaBuilder.and(leadingBound,
+                criteriaBuilder.or(alternatives.toArray(new Predicate[alternatives.size()])));
+    }
+
+    private List<Object> getKeyValues(T item, List<String> keyProperties) {
+        BeanWrapper itemWrapper = new BeanWrapperImpl(item);
+        List<Object> keyValues = new ArrayList<>();
+        for (String keyProperty : keyProperties) {
+            keyValues.add(itemWrapper.getPropertyValue(keyProperty));
+        }
+        return keyValues;
+    }
+
+    protected int getDefaultPageSize() {
+        return Integer.parseInt(ConfigurationProperties.getInstance().getPropertyValue("page.defaultPageSize"));
+    }
+
     @Override
     public PK insert(T object) {
         try {
@@ -595,6 +753,7 @@ public abstract class BaseDAOImpl<T extends BaseObject<PK>, PK extends Serializa
 
             Predicate greaterThanPredicate = criteriaBuilder.greaterThan(root.get("id"), start);
             criteriaQuery.where(greaterThanPredicate);
+            criteriaQuery.orderBy(criteriaBuilder.asc(root.get("id")));
 
             TypedQuery<T> query = entityManager.createQuery(criteriaQuery);
             query.setFirstResult(0);
@@ -625,6 +784,7 @@ public abstract class BaseDAOImpl<T extends BaseObject<PK>, PK extends Serializa
 
             Predicate greaterThanPredicate = criteriaBuilder.lessThan(root.get("id"), start);
             criteriaQuery.where(greaterThanPredicate);
+            criteriaQuery.orderBy(criteriaBuilder.desc(root.get("id")));
 
             TypedQuery<T> query = entityManager.createQuery(criteriaQuery);
             query.setFirstResult(0);
@@ -660,18 +820,20 @@ public abstract class BaseDAOImpl<T extends BaseObject<PK>, PK extends Serializa
         return tableName.substring(tableName.indexOf('.') + 1);
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     protected void addWhere(CriteriaBuilder criteriaBuilder, CriteriaQuery<T> criteriaQuery, Root<T> root,
             List<PropertyValueComparison> whereComparisonOperations) {
+        List<Predicate> wherePredicates = getWherePredicates(criteriaBuilder, root, whereComparisonOperations);
+        criteriaQuery.where(wherePredicates.toArray(new Predicate[wherePredicates.size()]));
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private List<Predicate> getWherePredicates(CriteriaBuilder criteriaBuilder, Root<T> root,
+            List<PropertyValueComparison> whereComparisonOperations) {
         List<Predicate> wherePredicates = new ArrayList<>();
         for (PropertyValueComparison comparisonOperation : whereComparisonOperations) {
             String propertyName = comparisonOperation.getPropertyName();
-            Object propertyValue = comparisonOperation.getPropertyValue();
+            Object propertyValue = toQueryValue(propertyName, comparisonOperation.getPropertyValue());
             Path pathToProperty = getPathToProperty(root, propertyName);
-            if ((propertyName.endsWith("id") || propertyName.endsWith("Id")) && propertyValue instanceof String
-                    && org.apache.commons.validator.GenericValidator.isInt((String) propertyValue)) {
-                propertyValue = Integer.valueOf((String) propertyValue);
-            }
             Predicate predicate;
             switch (comparisonOperation.getComparison()) {
             case EQ:
@@ -693,7 +855,16 @@ public abstract class BaseDAOImpl<T extends BaseObject<PK>, PK extends Serializa
             }
             wherePredicates.add(predicate);
         }
-        criteriaQuery.where(wherePredicates.toArray(new Predicate[wherePredicates.size()]));
+        return wherePredicates;
+    }
+
+    // ids are mapped as strings but compared as the numbers they are stored as
+    private Object toQueryValue(String propertyName, Object propertyValue) {
+        if ((propertyName.endsWith("id") || propertyName.endsWith("Id")) && propertyValue instanceof String
+                && GenericValidator.isInt((String) propertyValue)) {
+            return Integer.valueOf((String) propertyValue);
+        }
+        return propertyValue;
     }
 
     @SuppressWarnings("rawtypes")
@@ -763,11 +934,60 @@ public abstract class BaseDAOImpl<T extends BaseObject<PK>, PK extends Serializa
         return "'" + sql + "'";
     }
 
+    /**
+     * Claims up to limit rows of an outbox table that are due and not claimed by
+     * anyone else until claimedUntil, oldest first, and counts the attempt. Rows
+     * another node is claiming at the same moment are skipped instead of waited
+     * for. The table needs id, claimed_until and next_attempt_time columns and
+     * the entity claimedUntil and attempts properties
+     *
+     * @param dueCondition sql restricting the rows of the table that are waiting
+     *                     to be sent
+     * @param parameters   the named parameters of dueCondition
+     */
+    protected List<T> claimDue(String dueCondition, Map<String, Object> parameters, int limit, Timestamp now,
+            Timestamp claimedUntil) throws HibernateException {
+        String sql = "select id from " + getTableName() + " where " + dueCondition
+                + " and (next_attempt_time is null or next_attempt_time <= :now)"
+                + " and (claimed_until is null or claimed_until < :now) order by id limit :limit"
+                + " for update skip locked";
+        Session session = entityManager.unwrap(Session.class);
+        NativeQuery<?> idQuery = session.createNativeQuery(sql);
+        parameters.forEach(idQuery::setParameter);
+        idQuery.setParameter("now", now);
+        idQuery.setParameter("limit", limit);
+        List<Integer> ids = idQuery.list().stream().map(id -> ((Number) id).intValue())
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Query<?> claim = session.createQuery("update " + getObjectName() + " o set o.claimedUntil = :claimedUntil,"
+                + " o.attempts = coalesce(o.attempts, 0) + 1 where o.id in (:ids)");
+        claim.setParameter("claimedUntil", claimedUntil);
+        claim.setParameterList("ids", ids);
+        claim.executeUpdate();
+
+        Query<T> query = session.createQuery("from " + getObjectName() + " o where o.id in (:ids) order by o.id",
+                classType);
+        query.setParameterList("ids", ids);
+        return query.list();
+    }
+
     protected void handleException(Exception e, String method) throws LIMSRuntimeException {
         LogEvent.logError(e);
         throw new LIMSRuntimeException("Error in " + this.getClass().getSimpleName() + " " + method, e);
     }
 
+    /**
+     * The conditions a keyset page is restricted to, built against the root of
+     * the query that reads the page
+     */
+    @FunctionalInterface
+    protected interface KeysetRestriction<E> {
+        List<Predicate> getPredicates(CriteriaBuilder criteriaBuilder, Root<E> root);
+    }
+
     private class PropertyValueComparison {
         private final String propertyName;
         private final Object propertyValue;
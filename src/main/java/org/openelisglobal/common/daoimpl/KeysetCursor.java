@@ -0,0 +1,146 @@
+package org.openelisglobal.common.daoimpl;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The position a keyset page starts from: the sort key values and id of the row
+ * next to it and whether the page lies after or before that row. It is handed
+ * to clients base64 encoded and carries a hash of the ordering it was made for
+ * so it is not replayed against a different one.
+ */
+final class KeysetCursor {
+
+    private static final String AFTER = "a";
+    private static final String BEFORE = "b";
+    private static final String SEPARATOR = ",";
+
+    private final boolean before;
+    private final List<Object> values;
+
+    private KeysetCursor(boolean before, List<Object> values) {
+        this.before = before;
+        this.values = Collections.unmodifiableList(values);
+    }
+
+    boolean isBefore() {
+        return before;
+    }
+
+    List<Object> getValues() {
+        return values;
+    }
+
+    static String encode(boolean before, int ordering, List<Object> values) {
+        StringBuilder cursor = new StringBuilder(before ? BEFORE : AFTER);
+        cursor.append(SEPARATOR).append(Integer.toHexString(ordering));
+        for (Object value : values) {
+            cursor.append(SEPARATOR).append(encodeValue(value));
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(cursor.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not made by encode for
+     *                                  the same ordering
+     */
+    static KeysetCursor decode(String cursor, int ordering) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("malformed page cursor", e);
+        }
+        if (parts.length < 3 || !(AFTER.equals(parts[0]) || BEFORE.equals(parts[0]))
+                || !Integer.toHexString(ordering).equals(parts[1])) {
+            throw new IllegalArgumentException("page cursor does not belong to this ordering");
+        }
+        List<Object> values = new ArrayList<>(parts.length - 2);
+        for (int i = 2; i < parts.length; i++) {
+            values.add(decodeValue(parts[i]));
+        }
+        return new KeysetCursor(BEFORE.equals(parts[0]), values);
+    }
+
+    // the type is kept with the value so the comparison binds the same type the
+    // column was read as
+    private static String encodeValue(Object value) {
+        String type;
+        String text;
+        if (value instanceof String) {
+            type = "S";
+            text = (String) value;
+        } else if (value instanceof Integer) {
+            type = "I";
+            text = value.toString();
+        } else if (value instanceof Long) {
+            type = "L";
+            text = value.toString();
+        } else if (value instanceof BigDecimal) {
+            type = "N";
+            text = value.toString();
+        } else if (value instanceof Boolean) {
+            type = "B";
+            text = value.toString();
+        } else if (value instanceof Timestamp) {
+            // keeps the sub millisecond part postgres stores
+            type = "T";
+            text = value.toString();
+        } else if (value instanceof java.sql.Date) {
+            type = "D";
+            text = value.toString();
+        } else if (value instanceof java.util.Date) {
+            type = "U";
+            text = Long.toString(((java.util.Date) value).getTime());
+        } else {
+            throw new IllegalArgumentException(
+                    "can not page on a " + (value == null ? "null value" : value.getClass().getName()));
+        }
+        try {
+            return type + URLEncoder.encode(text, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object decodeValue(String encoded) {
+        if (encoded.isEmpty()) {
+            throw new IllegalArgumentException("malformed page cursor");
+        }
+        String text;
+        try {
+            text = URLDecoder.decode(encoded.substring(1), StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        switch (encoded.charAt(0)) {
+        case 'S':
+            return text;
+        case 'I':
+            return Integer.valueOf(text);
+        case 'L':
+            return Long.valueOf(text);
+        case 'N':
+            return new BigDecimal(text);
+        case 'B':
+            return Boolean.valueOf(text);
+        case 'T':
+            return Timestamp.valueOf(text);
+        case 'D':
+            return java.sql.Date.valueOf(text);
+        case 'U':
+            return new java.util.Date(Long.parseLong(text));
+        default:
+            throw new IllegalArgumentException("malformed page cursor");
+        }
+    }
+}
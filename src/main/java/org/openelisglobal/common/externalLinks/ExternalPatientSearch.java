@@ -44,6 +44,7 @@ import org.apache.http.params.CoreConnectionPNames;
 import org.dom4j.DocumentException;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.provider.query.ExtendedPatientSearchResults;
+import org.openelisglobal.config.AsyncConfig;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Scope;
@@ -140,7 +141,7 @@ public class ExternalPatientSearch implements IExternalPatientSearch {
     }
 
     @Override
-    @Async
+    @Async(AsyncConfig.EXTERNAL_SEND_EXECUTOR)
     public Future<Integer> runExternalSearch() {
         try {
             synchronized (this) {
@@ -23,6 +23,7 @@ import org.apache.http.HttpStatus;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.provider.query.ExtendedPatientSearchResults;
 import org.openelisglobal.common.util.DateUtil;
+import org.openelisglobal.config.AsyncConfig;
 import org.openelisglobal.internationalization.MessageUtil;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Scope;
@@ -126,7 +127,7 @@ public class PatientInfoHighwaySearch implements IExternalPatientSearch {
     }
 
     @Override
-    @Async
+    @Async(AsyncConfig.EXTERNAL_SEND_EXECUTOR)
     public Future<Integer> runExternalSearch() {
         try {
             synchronized (this) {
@@ -32,8 +32,6 @@ import javax.servlet.http.HttpServletResponse;
 import net.sf.jasperreports.engine.JRException;
 import net.sf.jasperreports.engine.JRParameter;
 import net.sf.jasperreports.engine.JasperReport;
-import net.sf.jasperreports.engine.JasperRunManager;
-import net.sf.jasperreports.engine.util.JRLoader;
 import org.openelisglobal.analysis.service.AnalysisService;
 import org.openelisglobal.analysis.valueholder.Analysis;
 import org.openelisglobal.analyte.valueholder.Analyte;
@@ -56,6 +54,7 @@ import org.openelisglobal.person.service.PersonService;
 import org.openelisglobal.person.valueholder.Person;
 import org.openelisglobal.provider.service.ProviderService;
 import org.openelisglobal.provider.valueholder.Provider;
+import org.openelisglobal.reports.service.ReportTemplateCache;
 import org.openelisglobal.reports.valueholder.common.JRHibernateDataSource;
 import org.openelisglobal.reports.valueholder.resultsreport.ResultsReportAnalyteResult;
 import org.openelisglobal.reports.valueholder.resultsreport.ResultsReportAnalyteResultComparator;
@@ -110,6 +109,7 @@ public class ResultsReportProvider extends BaseReportsProvider {
     protected SampleHumanService sampleHumanService = SpringContext.getBean(SampleHumanService.class);
     protected SampleOrganizationService sampleOrganizationService = SpringContext
             .getBean(SampleOrganizationService.class);
+    private ReportTemplateCache reportTemplateCache = SpringContext.getBean(ReportTemplateCache.class);
 
     private String dateAsText;
     private String originalMessage;
@@ -201,20 +201,18 @@ public class ResultsReportProvider extends BaseReportsProvider {
                     parameters.put(JRParameter.REPORT_RESOURCE_BUNDLE,
                             ResourceBundle.getBundle("languages/message", locale));
 
-                    // turn subreport jasper files into JasperReport objects to pass in as
-                    // parameters
-                    JasperReport providerDetailsReport = (JasperReport) JRLoader
-                            .loadObjectFromFile(providerDetailsReportFile.getPath());
-                    JasperReport projectDetailsReport = (JasperReport) JRLoader
-                            .loadObjectFromFile(projectDetailsReportFile.getPath());
-                    JasperReport sourceTypeDetailsReport = (JasperReport) JRLoader
-                            .loadObjectFromFile(sourceTypeDetailsReportFile.getPath());
-                    JasperReport patientDetailsReport = (JasperReport) JRLoader
-                            .loadObjectFromFile(patientDetailsReportFile.getPath());
-                    JasperReport testResultsReport = (JasperReport) JRLoader
-                            .loadObjectFromFile(testResultsReportFile.getPath());
-                    JasperReport resultValueReport = (JasperReport) JRLoader
-                            .loadObjectFromFile(resultValueReportFile.getPath());
+                    // the subreports are passed in as JasperReport objects, loaded once for all
+                    // of the reports
+                    JasperReport providerDetailsReport = reportTemplateCache
+                            .getReport(providerDetailsReportFile.getPath());
+                    JasperReport projectDetailsReport = reportTemplateCache
+                            .getReport(projectDetailsReportFile.getPath());
+                    JasperReport sourceTypeDetailsReport = reportTemplateCache
+                            .getReport(sourceTypeDetailsReportFile.getPath());
+                    JasperReport patientDetailsReport = reportTemplateCache
+                            .getReport(patientDetailsReportFile.getPath());
+                    JasperReport testResultsReport = reportTemplateCache.getReport(testResultsReportFile.getPath());
+                    JasperReport resultValueReport = reportTemplateCache.getReport(resultValueReportFile.getPath());
 
                     parameters.put("Provider_Details", providerDetailsReport);
                     parameters.put("Project_Details", projectDetailsReport);
@@ -544,7 +542,7 @@ public class ResultsReportProvider extends BaseReportsProvider {
 
                     // bugzilla 1900 moved this to here
                     byte[] bytes = null;
-                    bytes = JasperRunManager.runReportToPdf(mainReportFile.getPath(), parameters, ds);
+                    bytes = reportTemplateCache.runReportToPdf(mainReportFile.getPath(), parameters, ds);
 
                     // bugzilla 1900 moved this to here to fix java.lang.IllegalStateException:
                     // getOutputStream() has already been called
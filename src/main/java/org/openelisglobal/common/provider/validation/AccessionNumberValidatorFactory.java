@@ -58,17 +58,17 @@ public class AccessionNumberValidatorFactory implements ConfigurationListener {
                 }
             } else if (accessionFormat.equals(AccessionFormat.YEARNUM_SIX.name())) {
                 if (!mainGeneratorSet) {
-                    mainGenerator = getYearNumValidator(6, null);
+                    mainGenerator = getYearNumValidator(6, null, AccessionFormat.YEARNUM_SIX);
                     mainAccessionFormat = AccessionFormat.YEARNUM_SIX;
                 }
             } else if (accessionFormat.equals(AccessionFormat.YEARNUM_DASH_SEVEN.name())) {
                 if (!mainGeneratorSet) {
-                    mainGenerator = getYearNumValidator(7, '-');
+                    mainGenerator = getYearNumValidator(7, '-', AccessionFormat.YEARNUM_DASH_SEVEN);
                     mainAccessionFormat = AccessionFormat.YEARNUM_DASH_SEVEN;
                 }
             } else if (accessionFormat.equals(AccessionFormat.YEARNUM_SEVEN.name())) {
                 if (!mainGeneratorSet) {
-                    mainGenerator = getYearNumValidator(7, null);
+                    mainGenerator = getYearNumValidator(7, null, AccessionFormat.YEARNUM_SEVEN);
                     mainAccessionFormat = AccessionFormat.YEARNUM_SEVEN;
                 }
             }
@@ -100,11 +100,11 @@ public class AccessionNumberValidatorFactory implements ConfigurationListener {
         case PROGRAMNUM:
             return getProgramValidator();
         case YEARNUM_SIX:
-            return getYearNumValidator(6, null);
+            return getYearNumValidator(6, null, AccessionFormat.YEARNUM_SIX);
         case YEARNUM_DASH_SEVEN:
-            return getYearNumValidator(7, '-');
+            return getYearNumValidator(7, '-', AccessionFormat.YEARNUM_DASH_SEVEN);
         case YEARNUM_SEVEN:
-            return getYearNumValidator(7, null);
+            return getYearNumValidator(7, null, AccessionFormat.YEARNUM_SEVEN);
         case ALT_YEAR:
             return getAltYearValidator();
         default:
@@ -129,11 +129,11 @@ public class AccessionNumberValidatorFactory implements ConfigurationListener {
         case PROGRAMNUM:
             return getProgramValidator();
         case YEARNUM_SIX:
-            return getYearNumValidator(6, null);
+            return getYearNumValidator(6, null, AccessionFormat.YEARNUM_SIX);
         case YEARNUM_DASH_SEVEN:
-            return getYearNumValidator(7, '-');
+            return getYearNumValidator(7, '-', AccessionFormat.YEARNUM_DASH_SEVEN);
         case YEARNUM_SEVEN:
-            return getYearNumValidator(7, null);
+            return getYearNumValidator(7, null, AccessionFormat.YEARNUM_SEVEN);
         case ALT_YEAR:
             return getAltYearValidator();
         case GENERAL:
@@ -150,8 +150,9 @@ public class AccessionNumberValidatorFactory implements ConfigurationListener {
         return new DigitAccessionValidator(length);
     }
 
-    private IAccessionNumberGenerator getYearNumValidator(int length, Character separator) {
-        return new YearNumAccessionValidator(length, separator);
+    private IAccessionNumberGenerator getYearNumValidator(int length, Character separator,
+            AccessionFormat accessionFormat) {
+        return new YearNumAccessionValidator(length, separator, accessionFormat);
     }
 
     private IAccessionNumberGenerator getAlphanumValidator() {
@@ -15,8 +15,9 @@
  */
 package org.openelisglobal.common.provider.validation;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.function.LongSupplier;
+import org.openelisglobal.common.provider.validation.AccessionNumberValidatorFactory.AccessionFormat;
+import org.openelisglobal.common.service.AccessionNumberAllocator;
 import org.openelisglobal.internationalization.MessageUtil;
 import org.openelisglobal.sample.service.SampleService;
 import org.openelisglobal.spring.util.SpringContext;
@@ -24,12 +25,16 @@ import org.openelisglobal.spring.util.SpringContext;
 public class DigitAccessionValidator implements IAccessionNumberGenerator {
 
     protected SampleService sampleService = SpringContext.getBean(SampleService.class);
+    protected AccessionNumberAllocator accessionNumberAllocator = SpringContext
+            .getBean(AccessionNumberAllocator.class);
+
+    // there is no prefix, the counter row is keyed on the format alone
+    private static final String COUNTER_PREFIX = "";
 
     private String incrementStartingValue = "0000001";
     private int upperIncRange = 9999999;
     private int maxLength = 7;
     private static final boolean NEED_PROGRAM_CODE = false;
-    private static Set<String> REQUESTED_NUMBERS = new HashSet<>();
     private String format;
 
     public DigitAccessionValidator(int length) {
@@ -109,22 +114,40 @@ public class DigitAccessionValidator implements IAccessionNumberGenerator {
 
     @Override
     public String getNextAvailableAccessionNumber(String prefix, boolean reserve) throws IllegalStateException {
-        String nextAccessionNumber;
-        String curLargestAccessionNumber = sampleService.getLargestAccessionNumber();
+        LongSupplier largestInUse = this::getLargestNumberInUse;
 
-        if (curLargestAccessionNumber == null) {
-            nextAccessionNumber = incrementStartingValue;
-        } else {
-            nextAccessionNumber = incrementAccessionNumber(curLargestAccessionNumber);
+        if (!reserve) {
+            return formatAccessionNumber(
+                    accessionNumberAllocator.peekNextNumber(COUNTER_PREFIX, AccessionFormat.UNFORMATTED, largestInUse));
+        }
 
-            while (REQUESTED_NUMBERS.contains(nextAccessionNumber)) {
-                nextAccessionNumber = incrementAccessionNumber(nextAccessionNumber);
-            }
+        String nextAccessionNumber;
+        do {
+            nextAccessionNumber = formatAccessionNumber(
+                    accessionNumberAllocator.nextNumber(COUNTER_PREFIX, AccessionFormat.UNFORMATTED, largestInUse));
+        } while (accessionNumberIsUsed(nextAccessionNumber, null));
+
+        return nextAccessionNumber;
+    }
 
-            REQUESTED_NUMBERS.add(nextAccessionNumber);
+    private String formatAccessionNumber(long increment) throws IllegalStateException {
+        if (increment > upperIncRange) {
+            throw new IllegalStateException("AccessionNumber has no next value");
         }
+        return String.format(format, increment);
+    }
 
-        return nextAccessionNumber;
+    // only used to seed the counter the first time it is needed
+    private long getLargestNumberInUse() {
+        String curLargestAccessionNumber = sampleService.getLargestAccessionNumberMatchingPattern("", maxLength);
+        if (curLargestAccessionNumber == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(curLargestAccessionNumber);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
     @Override
@@ -20,8 +20,11 @@ import static org.openelisglobal.common.provider.validation.IAccessionNumberVali
 import static org.openelisglobal.common.provider.validation.IAccessionNumberValidator.ValidationResults.SAMPLE_STATUS_FAIL;
 
 import java.util.List;
+import java.util.function.LongSupplier;
 import org.apache.commons.validator.GenericValidator;
 import org.openelisglobal.common.action.IActionConstants;
+import org.openelisglobal.common.provider.validation.AccessionNumberValidatorFactory.AccessionFormat;
+import org.openelisglobal.common.service.AccessionNumberAllocator;
 import org.openelisglobal.common.services.IStatusService;
 import org.openelisglobal.common.services.StatusService.RecordStatus;
 import org.openelisglobal.common.services.StatusSet;
@@ -40,6 +43,8 @@ import org.openelisglobal.spring.util.SpringContext;
 public class ProgramAccessionValidator implements IAccessionNumberGenerator {
 
     protected SampleService sampleService = SpringContext.getBean(SampleService.class);
+    protected AccessionNumberAllocator accessionNumberAllocator = SpringContext
+            .getBean(AccessionNumberAllocator.class);
     protected ProjectService projectService = SpringContext.getBean(ProjectService.class);
     protected static ObservationHistoryService observationHistoryService = SpringContext
             .getBean(ObservationHistoryService.class);
@@ -144,19 +149,43 @@ public class ProgramAccessionValidator implements IAccessionNumberGenerator {
 
     @Override
     public String getNextAvailableAccessionNumber(String prefix, boolean reserve) {
-        String nextAccessionNumber = null;
+        String programCode = prefix.toUpperCase();
+        LongSupplier largestIncrement = () -> getLargestIncrementInUse(programCode);
 
-        String curLargestAccessionNumber = sampleService.getLargestAccessionNumberWithPrefix(prefix);
-
-        if (curLargestAccessionNumber == null) {
-            nextAccessionNumber = createFirstAccessionNumber(prefix);
-        } else {
-            nextAccessionNumber = incrementAccessionNumber(curLargestAccessionNumber);
+        if (!reserve) {
+            return formatAccessionNumber(programCode,
+                    accessionNumberAllocator.peekNextNumber(programCode, AccessionFormat.PROGRAMNUM, largestIncrement));
         }
 
+        String nextAccessionNumber;
+        do {
+            nextAccessionNumber = formatAccessionNumber(programCode,
+                    accessionNumberAllocator.nextNumber(programCode, AccessionFormat.PROGRAMNUM, largestIncrement));
+        } while (sampleService.getSampleByAccessionNumber(nextAccessionNumber) != null);
+
         return nextAccessionNumber;
     }
 
+    private String formatAccessionNumber(String programCode, long increment) {
+        if (increment > UPPER_INC_RANGE) {
+            throw new IllegalArgumentException("AccessionNumber has no next value");
+        }
+        return programCode + String.format("%05d", increment);
+    }
+
+    // only used to seed the counter the first time a program code is seen
+    private long getLargestIncrementInUse(String programCode) {
+        String curLargestAccessionNumber = sampleService.getLargestAccessionNumberWithPrefix(programCode);
+        if (curLargestAccessionNumber == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(curLargestAccessionNumber.substring(INCREMENT_START));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return 0;
+        }
+    }
+
     @Override
     public boolean accessionNumberIsUsed(String accessionNumber, String recordType) {
         boolean accessionNumberUsed = sampleService.getSampleByAccessionNumber(accessionNumber) != null;
@@ -15,8 +15,9 @@
  */
 package org.openelisglobal.common.provider.validation;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.function.LongSupplier;
+import org.openelisglobal.common.provider.validation.AccessionNumberValidatorFactory.AccessionFormat;
+import org.openelisglobal.common.service.AccessionNumberAllocator;
 import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.common.util.ConfigurationProperties.Property;
 import org.openelisglobal.common.util.DateUtil;
@@ -28,6 +29,8 @@ import org.openelisglobal.spring.util.SpringContext;
 public class YearNumAccessionValidator implements IAccessionNumberGenerator {
 
     protected SampleService sampleService = SpringContext.getBean(SampleService.class);
+    protected AccessionNumberAllocator accessionNumberAllocator = SpringContext
+            .getBean(AccessionNumberAllocator.class);
 
     private String incrementStartingValue = "000001";
     private static int upperIncrementValue = 999999;
@@ -36,13 +39,14 @@ public class YearNumAccessionValidator implements IAccessionNumberGenerator {
     private static final int YEAR_END = 2;
     private int acccessionLength = 8;
     private static final boolean NEED_PROGRAM_CODE = false;
-    private static Set<String> REQUESTED_NUMBERS = new HashSet<>();
     private final boolean useSeparator;
     private final String separator;
     private final int separatorLength;
     private String incrementFormat;
+    private final AccessionFormat accessionFormat;
 
-    public YearNumAccessionValidator(int length, Character separator) {
+    public YearNumAccessionValidator(int length, Character separator, AccessionFormat accessionFormat) {
+        this.accessionFormat = accessionFormat;
         useSeparator = separator != null;
         this.separator = useSeparator ? separator.toString() : "";
         separatorLength = useSeparator ? 1 : 0;
@@ -124,29 +128,45 @@ public class YearNumAccessionValidator implements IAccessionNumberGenerator {
         }
     }
 
+    // the counter is kept per year, so it starts over when the year changes
     @Override
     public String getNextAvailableAccessionNumber(String prefix, boolean reserve) {
+        String yearPrefix = DateUtil.getTwoDigitYear() + separator;
+        LongSupplier largestIncrement = () -> getLargestIncrementInUse(yearPrefix);
+
+        if (!reserve) {
+            return formatAccessionNumber(yearPrefix,
+                    accessionNumberAllocator.peekNextNumber(yearPrefix, accessionFormat, largestIncrement));
+        }
+
         String nextAccessionNumber;
+        do {
+            nextAccessionNumber = formatAccessionNumber(yearPrefix,
+                    accessionNumberAllocator.nextNumber(yearPrefix, accessionFormat, largestIncrement));
+        } while (accessionNumberIsUsed(nextAccessionNumber, null));
 
-        String curLargestAccessionNumber = sampleService.getLargestAccessionNumberWithPrefix(prefix);
+        return nextAccessionNumber;
+    }
 
-        if (curLargestAccessionNumber == null) {
-            if (REQUESTED_NUMBERS.isEmpty()) {
-                nextAccessionNumber = createFirstAccessionNumber(prefix);
-            } else {
-                nextAccessionNumber = REQUESTED_NUMBERS.iterator().next();
-            }
-        } else {
-            nextAccessionNumber = incrementAccessionNumber(curLargestAccessionNumber);
+    private String formatAccessionNumber(String yearPrefix, long increment) {
+        if (increment > upperIncrementValue) {
+            throw new IllegalArgumentException("AccessionNumber has no next value");
         }
+        return yearPrefix + String.format(incrementFormat, increment);
+    }
 
-        while (REQUESTED_NUMBERS.contains(nextAccessionNumber)) {
-            nextAccessionNumber = incrementAccessionNumber(nextAccessionNumber);
+    // only used to seed the counter the first time a year is seen
+    private long getLargestIncrementInUse(String yearPrefix) {
+        String curLargestAccessionNumber = sampleService.getLargestAccessionNumberMatchingPattern(yearPrefix,
+                acccessionLength);
+        if (curLargestAccessionNumber == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(curLargestAccessionNumber.substring(yearPrefix.length()));
+        } catch (NumberFormatException e) {
+            return 0;
         }
-
-        REQUESTED_NUMBERS.add(nextAccessionNumber);
-
-        return nextAccessionNumber;
     }
 
     @Override
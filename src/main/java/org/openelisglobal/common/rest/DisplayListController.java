@@ -23,6 +23,7 @@ import org.openelisglobal.common.rest.provider.form.DisplayListPagingForm;
 import org.openelisglobal.common.rest.util.DisplayListPaging;
 import org.openelisglobal.common.services.DisplayListService;
 import org.openelisglobal.common.services.DisplayListService.ListType;
+import org.openelisglobal.common.services.DisplayListSnapshot;
 import org.openelisglobal.common.services.IStatusService;
 import org.openelisglobal.common.services.StatusService;
 import org.openelisglobal.common.services.StatusService.AnalysisStatus;
@@ -61,7 +62,9 @@ import org.openelisglobal.typeofsample.service.TypeOfSampleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ResolvableType;
+import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.stereotype.Controller;
@@ -224,8 +227,8 @@ public class DisplayListController extends BaseRestController {
 
     @GetMapping(value = "displayList/{listType}", produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseBody
-    public List<IdValuePair> getDisplayList(@PathVariable DisplayListService.ListType listType) {
-        return DisplayListService.getInstance().getFreshList(listType);
+    public ResponseEntity<List<IdValuePair>> getDisplayList(@PathVariable DisplayListService.ListType listType) {
+        return snapshotResponse(DisplayListService.getInstance().getSnapshot(listType));
     }
 
     @GetMapping(value = "paginatedDisplayList/{listType}", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -250,8 +253,21 @@ public class DisplayListController extends BaseRestController {
 
     @GetMapping(value = "tests", produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseBody
-    public List<IdValuePair> getTests() {
-        return DisplayListService.getInstance().getFreshList(ListType.ALL_TESTS);
+    public ResponseEntity<List<IdValuePair>> getTests() {
+        return snapshotResponse(DisplayListService.getInstance().getSnapshot(ListType.ALL_TESTS));
+    }
+
+    /*
+     * The ETag changes with every new version of the list, a request carrying the
+     * current one in If-None-Match gets a 304 from the ResponseEntity handling.
+     * no-cache makes the browser revalidate rather than reuse the list blindly
+     */
+    private ResponseEntity<List<IdValuePair>> snapshotResponse(DisplayListSnapshot snapshot) {
+        if (snapshot == null) {
+            return ResponseEntity.ok().body(null);
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(snapshot.getETag())
+                .lastModified(snapshot.getLastModified()).body(snapshot.getList());
     }
 
     @GetMapping(value = "tests-by-sample", produces = MediaType.APPLICATION_JSON_VALUE)
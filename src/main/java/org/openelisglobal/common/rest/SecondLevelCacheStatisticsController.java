@@ -0,0 +1,74 @@
+package org.openelisglobal.common.rest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.http.HttpServletRequest;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.openelisglobal.login.dao.UserModuleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Hit, miss and put counts of the hibernate second level and query caches so
+ * the sizing in hibernate/ehcache.xml can be checked against real use.
+ * Evictions are only counted by the cache itself and are published over JMX.
+ */
+@RestController
+@RequestMapping("/rest")
+public class SecondLevelCacheStatisticsController extends BaseRestController {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private UserModuleService userModuleService;
+
+    @GetMapping(value = "/secondLevelCacheStatistics", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> getStatistics(HttpServletRequest request) {
+        if (!userModuleService.isUserAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        result.put("since", statistics.getStartTime());
+        result.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        result.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        result.put("secondLevelCachePuts", statistics.getSecondLevelCachePutCount());
+        result.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        result.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        result.put("queryCachePuts", statistics.getQueryCachePutCount());
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regionNames);
+        for (String regionName : regionNames) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(regionName);
+            if (regionStatistics != null) {
+                regions.put(regionName, toMap(regionStatistics));
+            }
+        }
+        result.put("regions", regions);
+        return ResponseEntity.ok(result);
+    }
+
+    private Map<String, Object> toMap(CacheRegionStatistics regionStatistics) {
+        Map<String, Object> region = new LinkedHashMap<>();
+        region.put("hits", regionStatistics.getHitCount());
+        region.put("misses", regionStatistics.getMissCount());
+        region.put("puts", regionStatistics.getPutCount());
+        long requests = regionStatistics.getHitCount() + regionStatistics.getMissCount();
+        region.put("hitRatio", requests == 0 ? 0.0 : (double) regionStatistics.getHitCount() / requests);
+        region.put("elementsInMemory", regionStatistics.getElementCountInMemory());
+        return region;
+    }
+}
@@ -2,11 +2,12 @@ package org.openelisglobal.common.rest.provider;
 
 import ca.uhn.fhir.rest.client.api.IGenericClient;
 import java.lang.reflect.InvocationTargetException;
-import java.time.Duration;
+import java.sql.Date;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -23,6 +24,7 @@ import org.openelisglobal.common.rest.provider.bean.homedashboard.DashBoardTile;
 import org.openelisglobal.common.rest.provider.bean.homedashboard.OrderDisplayBean;
 import org.openelisglobal.common.rest.provider.form.PatientDashBoardForm;
 import org.openelisglobal.common.rest.util.PatientDashBoardPaging;
+import org.openelisglobal.common.services.DashBoardMetricsService;
 import org.openelisglobal.common.services.IStatusService;
 import org.openelisglobal.common.services.StatusService.AnalysisStatus;
 import org.openelisglobal.common.services.StatusService.ExternalOrderStatus;
@@ -31,6 +33,7 @@ import org.openelisglobal.dataexchange.fhir.FhirConfig;
 import org.openelisglobal.dataexchange.fhir.FhirUtil;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder;
 import org.openelisglobal.dataexchange.service.order.ElectronicOrderService;
+import org.openelisglobal.patient.valueholder.Patient;
 import org.openelisglobal.sample.service.SampleService;
 import org.openelisglobal.sample.valueholder.Sample;
 import org.openelisglobal.samplehuman.service.SampleHumanService;
@@ -78,183 +81,75 @@ public class PatientDashBoardProvider {
     @Autowired
     SystemUserService systemUserService;
 
-    private double calculateAverageReceptionToValidationTime() {
-        List<Analysis> analyses = analysisService.getAnalysesCompletedOnByStatusId(DateUtil.getNowAsSqlDate(),
-                iStatusService.getStatusID(AnalysisStatus.Finalized));
-
-        List<Long> hours = new ArrayList<>();
-        analyses.forEach(analysis -> {
-            // Convert java.sql.Date to java.time.LocalDate
-            LocalDate localStartDate = analysis.getStartedDate().toLocalDate();
-            LocalDate localEndDate = analysis.getReleasedDate().toLocalDate();
-            // Calculate time difference in hours
-            Long hoursDiff = Duration.between(localStartDate.atStartOfDay(), localEndDate.atStartOfDay()).toHours();
-            hours.add(hoursDiff);
-        });
-
-        long sum = 0;
-        if (!hours.isEmpty()) {
-            for (Long h : hours) {
-                sum += h;
-            }
-        }
-        return hours.isEmpty() ? 0.0 : (double) sum / hours.size();
-    }
-
-    private double calculateAverageReceptionToResultTime() {
-        Set<Integer> statusIdSet = new HashSet<>();
-        statusIdSet.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.SampleRejected)));
-        List<Analysis> analyses = analysisService
-                .getAnalysesResultEnteredOnExcludedByStatusId(DateUtil.getNowAsSqlDate(), statusIdSet);
-
-        List<Long> hours = new ArrayList<>();
-        analyses.forEach(analysis -> {
-            // Convert java.sql.Date to java.time.LocalDate
-            LocalDate localStartDate = analysis.getStartedDate().toLocalDate();
-            LocalDate localEndDate = analysis.getCompletedDate().toLocalDate();
-            // Calculate time difference in hours
-            Long hoursDiff = Duration.between(localStartDate.atStartOfDay(), localEndDate.atStartOfDay()).toHours();
-            hours.add(hoursDiff);
-        });
-
-        long sum = 0;
-        if (!hours.isEmpty()) {
-            for (Long h : hours) {
-                sum += h;
-            }
-        }
-        return hours.isEmpty() ? 0.0 : (double) sum / hours.size();
-    }
-
-    private double calculateAverageResultToValidationTime() {
-        List<Analysis> analyses = analysisService.getAnalysesCompletedOnByStatusId(DateUtil.getNowAsSqlDate(),
-                iStatusService.getStatusID(AnalysisStatus.Finalized));
-
-        List<Long> hours = new ArrayList<>();
-        analyses.forEach(analysis -> {
-            // Convert java.sql.Date to java.time.LocalDate
-            LocalDate localStartDate = analysis.getCompletedDate().toLocalDate();
-            LocalDate localEndDate = analysis.getReleasedDate().toLocalDate();
-            // Calculate time difference in hours
-            Long hoursDiff = Duration.between(localStartDate.atStartOfDay(), localEndDate.atStartOfDay()).toHours();
-            hours.add(hoursDiff);
-        });
-
-        long sum = 0;
-        if (!hours.isEmpty()) {
-            for (Long h : hours) {
-                sum += h;
-            }
-        }
-        return hours.isEmpty() ? 0.0 : (double) sum / hours.size();
-    }
+    @Autowired
+    private DashBoardMetricsService dashBoardMetricsService;
 
     private List<Analysis> analysesWithDelayedTurnAroundTime() {
-        List<Analysis> analyses = analysisService.getAnalysesCompletedOnByStatusId(DateUtil.getNowAsSqlDate(),
-                iStatusService.getStatusID(AnalysisStatus.Finalized));
-
-        List<Analysis> delayedAnalyses = new ArrayList<>();
-        analyses.forEach(analysis -> {
-            // Convert java.sql.Date to java.time.LocalDate
-            LocalDate localStartDate = analysis.getStartedDate().toLocalDate();
-            LocalDate localEndDate = analysis.getReleasedDate().toLocalDate();
-            // Calculate time difference in hours
-            Long hoursDiff = Duration.between(localStartDate.atStartOfDay(), localEndDate.atStartOfDay()).toHours();
-            if (hoursDiff > 96) {
-                delayedAnalyses.add(analysis);
-            }
-        });
-        return delayedAnalyses;
+        // more than DELAYED_TURN_AROUND_HOURS from the start of the day it was started
+        LocalDate today = LocalDate.now();
+        Date startedBefore = Date.valueOf(today.minusDays(DashBoardMetricsService.DELAYED_TURN_AROUND_HOURS / 24));
+        return analysisService.getAnalysesReleasedOnByStatusIdStartedBefore(Date.valueOf(today),
+                iStatusService.getStatusID(AnalysisStatus.Finalized), startedBefore);
     }
 
     private List<Analysis> unprintedResults() {
-        List<Analysis> analyses = analysisService.getAnalysesCompletedOnByStatusId(DateUtil.getNowAsSqlDate(),
-                iStatusService.getStatusID(AnalysisStatus.Finalized));
+        return analysisService.getAnalysesReleasedOnByStatusIdWithoutDocument(DateUtil.getNowAsSqlDate(),
+                iStatusService.getStatusID(AnalysisStatus.Finalized),
+                dashBoardMetricsService.getPatientReportDocumentTypeId(), dashBoardMetricsService.getSampleTableId());
+    }
 
-        List<Analysis> unprintedAnalyses = new ArrayList<>();
+    private List<OrderDisplayBean> convertAnalysesToOrderBean(List<Analysis> analyses) {
+        List<OrderDisplayBean> orderBeanList = new ArrayList<>();
         if (analyses == null) {
-            return unprintedAnalyses;
+            return orderBeanList;
         }
-        analyses.forEach(a -> {
-            if (!analysisService.patientReportHasBeenDone(a)) {
-                unprintedAnalyses.add(a);
+        Set<String> sampleIds = new LinkedHashSet<>();
+        for (Analysis analysis : analyses) {
+            if (analysis != null && analysis.getSampleItem() != null) {
+                sampleIds.add(analysis.getSampleItem().getSample().getId());
             }
-        });
-        return unprintedAnalyses;
-    }
+        }
+        // one query for all the patients instead of one per row
+        Map<String, Patient> patientsBySampleId = sampleIds.isEmpty() ? new HashMap<>()
+                : sampleHumanService.getPatientsForSamples(new ArrayList<>(sampleIds));
 
-    private List<OrderDisplayBean> convertAnalysesToOrderBean(List<Analysis> analyses) {
-        List<OrderDisplayBean> orderBeanList = new ArrayList<>();
-        if (analyses != null) {
-            analyses.forEach(analysis -> {
-                if (analysis != null) {
-                    OrderDisplayBean orderBean = new OrderDisplayBean();
-                    orderBean.setId(analysis.getId());
-                    Sample sample = analysis.getSampleItem() != null ? analysis.getSampleItem().getSample() : null;
-                    if (sample != null) {
-                        orderBean.setPriority(sample.getPriority() != null ? sample.getPriority().toString() : "");
-                        orderBean.setLabNumber(sample.getAccessionNumber() != null ? sample.getAccessionNumber() : "");
-                        orderBean.setPatientId(sampleHumanService.getPatientForSample(sample).getNationalId());
-                    }
-                    orderBean.setOrderDate(analysis.getStartedDateForDisplay());
-                    orderBean.setTestName(analysis.getTest() != null ? analysis.getTest().getLocalizedName() : "");
-                    orderBean
-                            .setTestSection(analysis.getTestSection() != null ? analysis.getTestSection().getId() : "");
-                    orderBeanList.add(orderBean);
+        analyses.forEach(analysis -> {
+            if (analysis != null) {
+                OrderDisplayBean orderBean = new OrderDisplayBean();
+                orderBean.setId(analysis.getId());
+                Sample sample = analysis.getSampleItem() != null ? analysis.getSampleItem().getSample() : null;
+                if (sample != null) {
+                    orderBean.setPriority(sample.getPriority() != null ? sample.getPriority().toString() : "");
+                    orderBean.setLabNumber(sample.getAccessionNumber() != null ? sample.getAccessionNumber() : "");
+                    Patient patient = patientsBySampleId.get(sample.getId());
+                    orderBean.setPatientId(patient != null ? patient.getNationalId() : "");
                 }
-            });
-        }
+                orderBean.setOrderDate(analysis.getStartedDateForDisplay());
+                orderBean.setTestName(analysis.getTest() != null ? analysis.getTest().getLocalizedName() : "");
+                orderBean.setTestSection(analysis.getTestSection() != null ? analysis.getTestSection().getId() : "");
+                orderBeanList.add(orderBean);
+            }
+        });
 
         return orderBeanList;
     }
 
-    private List<OrderDisplayBean> convertAnalysesToUserOrdersBean(List<Analysis> analyses) {
+    private List<OrderDisplayBean> getUserOrdersBeans() {
         List<OrderDisplayBean> userOrders = new ArrayList<>();
-        Map<String, List<Analysis>> userOrdersMap = new HashMap<>();
-        analyses.forEach(analysis -> {
-            String systemUserId = analysis.getSampleItem().getSample().getSysUserId();
-            if (userOrdersMap.containsKey(systemUserId)) {
-                userOrdersMap.get(systemUserId).add(analysis);
-            } else {
-                List<Analysis> userAnalyses = new ArrayList<>();
-                userAnalyses.add(analysis);
-                userOrdersMap.put(systemUserId, userAnalyses);
-            }
-        });
-
-        userOrdersMap.forEach((userId, analysisList) -> {
-            OrderDisplayBean userOrderBean = new OrderDisplayBean();
-            SystemUser user = systemUserService.get(userId);
+        dashBoardMetricsService.getEnteredTodayByUser().forEach((userId, count) -> {
+            SystemUser user = userId == null ? null : systemUserService.get(userId);
             if (user != null) {
+                OrderDisplayBean userOrderBean = new OrderDisplayBean();
                 userOrderBean.setId(userId);
                 userOrderBean.setUserFirstName(user.getFirstName());
                 userOrderBean.setUserLastName(user.getLastName());
-                userOrderBean.setCountOfOrdersEntered(userOrdersMap.get(userId).size());
+                userOrderBean.setCountOfOrdersEntered(count);
                 userOrders.add(userOrderBean);
             }
         });
         return userOrders;
     }
 
-    private List<OrderDisplayBean> getUserOrderBeans(List<Analysis> analyses, String userId) {
-        Map<String, List<Analysis>> userOrdersMap = new HashMap<>();
-        analyses.forEach(analysis -> {
-            String systemUserId = analysis.getSampleItem().getSample().getSysUserId();
-            if (userOrdersMap.containsKey(systemUserId)) {
-                userOrdersMap.get(systemUserId).add(analysis);
-            } else {
-                List<Analysis> userAnalyses = new ArrayList<>();
-                userAnalyses.add(analysis);
-                userOrdersMap.put(systemUserId, userAnalyses);
-            }
-        });
-
-        if (userOrdersMap.get(userId) != null) {
-            return convertAnalysesToOrderBean(userOrdersMap.get(userId));
-        }
-        return new ArrayList<>();
-    }
-
     private List<OrderDisplayBean> convertElectronicToOrderBean(List<ElectronicOrder> eOrders) {
         List<OrderDisplayBean> orderBeanList = new ArrayList<>();
         eOrders.forEach(eOrder -> {
@@ -297,73 +192,7 @@ public class PatientDashBoardProvider {
     @GetMapping(value = "home-dashboard/metrics", produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseBody
     public DashBoardMetrics getDasBoardTiles() {
-
-        DashBoardMetrics metrics = new DashBoardMetrics();
-        java.sql.Timestamp startTimestamp = DateUtil
-                .convertStringDateStringTimeToTimestamp(DateUtil.getCurrentDateAsText(), "00:00:00.0");
-        java.sql.Timestamp endTimestamp = DateUtil
-                .convertStringDateStringTimeToTimestamp(DateUtil.getCurrentDateAsText(), "23:59:59");
-        DashBoardTile.TileType.stream().forEach(type -> {
-            List<Integer> statusIdList;
-            Set<Integer> statusIdSet;
-            switch (type) {
-            case ORDERS_IN_PROGRESS:
-                statusIdList = new ArrayList<>();
-                statusIdList.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.NotStarted)));
-                metrics.setOrdersInProgress(analysisService.getCountOfAnalysesForStatusIds(statusIdList));
-                break;
-            case ORDERS_READY_FOR_VALIDATION:
-                statusIdList = new ArrayList<>();
-                statusIdList.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.TechnicalAcceptance)));
-                metrics.setOrdersReadyForValidation(analysisService.getCountOfAnalysesForStatusIds(statusIdList));
-                break;
-            case ORDERS_COMPLETED_TODAY:
-                statusIdList = new ArrayList<>();
-                statusIdList.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.Finalized)));
-                metrics.setOrdersCompletedToday(analysisService
-                        .getCountOfAnalysisCompletedOnByStatusId(DateUtil.getNowAsSqlDate(), statusIdList));
-                break;
-            case ORDERS_PATIALLY_COMPLETED_TODAY:
-                statusIdSet = new HashSet<>();
-                statusIdSet.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.SampleRejected)));
-                statusIdSet.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.Finalized)));
-                metrics.setPatiallyCompletedToday(analysisService
-                        .getCountOfAnalysisStartedOnExcludedByStatusId(DateUtil.getNowAsSqlDate(), statusIdSet));
-                break;
-
-            case ORDERS_ENTERED_BY_USER_TODAY:
-                statusIdSet = new HashSet<>();
-                statusIdSet.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.SampleRejected)));
-                metrics.setOrderEnterdByUserToday(analysisService
-                        .getCountOfAnalysisStartedOnExcludedByStatusId(DateUtil.getNowAsSqlDate(), statusIdSet));
-                break;
-            case ORDERS_REJECTED_TODAY:
-                statusIdList = new ArrayList<>();
-                statusIdList.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.SampleRejected)));
-                metrics.setOrdersRejectedToday(analysisService
-                        .getCountOfAnalysisStartedOnByStatusId(DateUtil.getNowAsSqlDate(), statusIdList));
-                break;
-            case UN_PRINTED_RESULTS:
-                metrics.setUnPritendResults(unprintedResults().size());
-                break;
-            case INCOMING_ORDERS:
-                List<Integer> estausIds = new ArrayList<>();
-                estausIds.add(Integer.parseInt(iStatusService.getStatusID(ExternalOrderStatus.Entered)));
-                estausIds.add(Integer.parseInt(iStatusService.getStatusID(ExternalOrderStatus.NonConforming)));
-                metrics.setIncomigOrders(electronicOrderService.getCountOfElectronicOrdersByStatusList(estausIds));
-                break;
-            case AVERAGE_TURN_AROUND_TIME:
-                metrics.setAverageTurnAroudTime(calculateAverageReceptionToValidationTime());
-                break;
-            case DELAYED_TURN_AROUND:
-                metrics.setDelayedTurnAround(analysesWithDelayedTurnAroundTime().size());
-                break;
-            default:
-                break;
-            }
-        });
-
-        return metrics;
+        return dashBoardMetricsService.getMetrics();
     }
 
     /**
@@ -427,10 +256,7 @@ public class PatientDashBoardProvider {
             analyses = analysisService.getAnalysisStartedOnExcludedByStatusId(DateUtil.getNowAsSqlDate(), statusIdSet);
             return convertAnalysesToOrderBean(analyses);
         case ORDERS_ENTERED_BY_USER_TODAY:
-            statusIdSet = new HashSet<>();
-            statusIdSet.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.SampleRejected)));
-            analyses = analysisService.getAnalysisStartedOnExcludedByStatusId(DateUtil.getNowAsSqlDate(), statusIdSet);
-            return convertAnalysesToUserOrdersBean(analyses);
+            return getUserOrdersBeans();
         case ORDERS_REJECTED_TODAY:
             analyses = analysisService.getAnalysisStartedOnRangeByStatusId(DateUtil.getNowAsSqlDate(),
                     DateUtil.getNowAsSqlDate(), iStatusService.getStatusID(AnalysisStatus.SampleRejected));
@@ -452,9 +278,9 @@ public class PatientDashBoardProvider {
             if (StringUtils.isNotBlank(systemUserId)) {
                 statusIdSet = new HashSet<>();
                 statusIdSet.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.SampleRejected)));
-                analyses = analysisService.getAnalysisStartedOnExcludedByStatusId(DateUtil.getNowAsSqlDate(),
-                        statusIdSet);
-                return getUserOrderBeans(analyses, systemUserId);
+                analyses = analysisService.getAnalysisStartedOnExcludedByStatusIdForUser(
+                        DateUtil.getNowAsSqlDate(), statusIdSet, systemUserId);
+                return convertAnalysesToOrderBean(analyses);
             }
         }
         return new ArrayList<>();
@@ -463,10 +289,6 @@ public class PatientDashBoardProvider {
     @GetMapping(value = "home-dashboard/turn-around-time-metrics", produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseBody
     public AverageTimeDisplayBean getDasBoardAverageTurnAroundTime() {
-        AverageTimeDisplayBean timeBean = new AverageTimeDisplayBean();
-        timeBean.setReceptionToResult(calculateAverageReceptionToResultTime());
-        timeBean.setReceptionToValidation(calculateAverageReceptionToValidationTime());
-        timeBean.setResultToValidation(calculateAverageResultToValidationTime());
-        return timeBean;
+        return dashBoardMetricsService.getAverageTurnAroundTimes();
     }
 }
@@ -167,9 +167,14 @@ public class PatientSearchRestController extends BaseRestController {
             @RequestParam(required = false) String subjectNumber, @RequestParam(required = false) String nationalID,
             @RequestParam(required = false) String externalID, @RequestParam(required = false) String patientID,
             @RequestParam(required = false) String guid, @RequestParam(required = false) String dateOfBirth,
-            @RequestParam(required = false) String gender) {
+            @RequestParam(required = false) String gender, @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) Integer limit) {
+        if (limit == null) {
+            return searchResultsService.getSearchResults(lastName, firstName, STNumber, subjectNumber, nationalID,
+                    externalID, patientID, guid, dateOfBirth, gender);
+        }
         return searchResultsService.getSearchResults(lastName, firstName, STNumber, subjectNumber, nationalID,
-                externalID, patientID, guid, dateOfBirth, gender);
+                externalID, patientID, guid, dateOfBirth, gender, offset, limit);
     }
 
     private List<PatientSearchResults> searchPatientInClientRegistry(String lastName, String firstName, String STNumber,
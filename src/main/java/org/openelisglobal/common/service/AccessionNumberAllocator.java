@@ -0,0 +1,25 @@
+package org.openelisglobal.common.service;
+
+import java.util.function.LongSupplier;
+import org.openelisglobal.common.provider.validation.AccessionNumberValidatorFactory.AccessionFormat;
+
+/**
+ * Hands out the increment part of accession numbers from the
+ * accession_number_info counter rows, one row per prefix and format. Numbers
+ * are reserved from the row in blocks so most allocations never touch the db.
+ */
+public interface AccessionNumberAllocator {
+
+    /**
+     * @param initialValue the largest increment already in use for this prefix,
+     *                     only called when the counter row does not exist yet
+     * @return the next unused increment, never returned again on any node
+     */
+    long nextNumber(String prefix, AccessionFormat accessionFormat, LongSupplier initialValue);
+
+    /**
+     * @return the increment the next call to nextNumber on this node is likely
+     *         to return, without reserving it
+     */
+    long peekNextNumber(String prefix, AccessionFormat accessionFormat, LongSupplier initialValue);
+}
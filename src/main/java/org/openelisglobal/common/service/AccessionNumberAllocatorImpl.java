@@ -0,0 +1,65 @@
+package org.openelisglobal.common.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import org.openelisglobal.common.provider.validation.AccessionNumberValidatorFactory.AccessionFormat;
+import org.openelisglobal.common.valueholder.AccessionNumberInfo.AccessionIdentity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/*
+ * With a block size of 1 every number is taken straight from the counter row and
+ * numbers are gap free. A larger block size means each node reserves that many
+ * numbers at a time; the unused part of a block is lost when the node restarts,
+ * so gaps are bounded by (blockSize - 1) per node per restart, and numbers from
+ * different nodes interleave rather than strictly increasing.
+ */
+@Service
+public class AccessionNumberAllocatorImpl implements AccessionNumberAllocator {
+
+    @Value("${org.openelisglobal.accession.blockSize:1}")
+    private int blockSize;
+
+    @Autowired
+    private AccessionService accessionService;
+
+    private final Map<AccessionIdentity, Block> blocks = new ConcurrentHashMap<>();
+
+    @Override
+    public long nextNumber(String prefix, AccessionFormat accessionFormat, LongSupplier initialValue) {
+        Block block = blocks.computeIfAbsent(new AccessionIdentity(prefix, accessionFormat), k -> new Block());
+        synchronized (block) {
+            if (block.isExhausted()) {
+                int size = Math.max(blockSize, 1);
+                long last = accessionService.reserveBlock(prefix, accessionFormat, size, initialValue);
+                block.next = last - size + 1;
+                block.last = last;
+            }
+            return block.next++;
+        }
+    }
+
+    @Override
+    public long peekNextNumber(String prefix, AccessionFormat accessionFormat, LongSupplier initialValue) {
+        Block block = blocks.get(new AccessionIdentity(prefix, accessionFormat));
+        if (block != null) {
+            synchronized (block) {
+                if (!block.isExhausted()) {
+                    return block.next;
+                }
+            }
+        }
+        return accessionService.getCurVal(prefix, accessionFormat, initialValue) + 1;
+    }
+
+    private static class Block {
+        private long next = 1;
+        private long last = 0;
+
+        private boolean isExhausted() {
+            return next > last;
+        }
+    }
+}
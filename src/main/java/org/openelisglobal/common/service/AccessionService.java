@@ -1,5 +1,6 @@
 package org.openelisglobal.common.service;
 
+import java.util.function.LongSupplier;
 import org.openelisglobal.common.exception.LIMSInvalidConfigurationException;
 import org.openelisglobal.common.provider.validation.AccessionNumberValidatorFactory.AccessionFormat;
 import org.openelisglobal.common.valueholder.AccessionNumberInfo.AccessionIdentity;
@@ -15,4 +16,8 @@ public interface AccessionService {
     long getNextNumberNoIncrement(AccessionIdentity accessionIdentity) throws LIMSInvalidConfigurationException;
 
     void setCurVal(String prefix, AccessionFormat accessionFormat, long curVal);
+
+    long reserveBlock(String prefix, AccessionFormat accessionFormat, int blockSize, LongSupplier initialValue);
+
+    long getCurVal(String prefix, AccessionFormat accessionFormat, LongSupplier initialValue);
 }
@@ -1,11 +1,13 @@
 package org.openelisglobal.common.service;
 
+import java.util.function.LongSupplier;
 import org.openelisglobal.common.dao.AccessionDAO;
 import org.openelisglobal.common.provider.validation.AccessionNumberValidatorFactory.AccessionFormat;
 import org.openelisglobal.common.valueholder.AccessionNumberInfo;
 import org.openelisglobal.common.valueholder.AccessionNumberInfo.AccessionIdentity;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
@@ -67,6 +69,29 @@ public class AccessionServiceImpl implements AccessionService {
         return accessionDAO.save(info);
     }
 
+    /*
+     * Runs in its own transaction so the counter row is only locked for the
+     * increment and not for the whole of the caller's (sample entry) transaction.
+     * A reserved block is never handed back, as with a database sequence.
+     * initialValue is only evaluated the first time a prefix is seen.
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long reserveBlock(String prefix, AccessionFormat accessionFormat, int blockSize,
+            LongSupplier initialValue) {
+        if (!accessionDAO.exists(new AccessionIdentity(prefix, accessionFormat))) {
+            accessionDAO.createIfAbsent(prefix, accessionFormat, initialValue.getAsLong());
+        }
+        return accessionDAO.getNextNumberBlock(prefix, accessionFormat, blockSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getCurVal(String prefix, AccessionFormat accessionFormat, LongSupplier initialValue) {
+        AccessionNumberInfo info = accessionDAO.get(new AccessionIdentity(prefix, accessionFormat));
+        return info == null ? initialValue.getAsLong() : info.getCurVal();
+    }
+
     @Override
     public void setCurVal(String prefix, AccessionFormat accessionFormat, long curVal) {
         AccessionNumberInfo info = accessionDAO.get(new AccessionIdentity(prefix, accessionFormat));
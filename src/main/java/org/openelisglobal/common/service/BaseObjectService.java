@@ -4,6 +4,7 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import org.openelisglobal.common.dao.KeysetPage;
 import org.openelisglobal.common.valueholder.BaseObject;
 
 public interface BaseObjectService<T extends BaseObject<PK>, PK extends Serializable> {
@@ -197,6 +198,28 @@ public interface BaseObjectService<T extends BaseObject<PK>, PK extends Serializ
     List<T> getMatchingOrderedPage(Map<String, Object> propertyValues, List<String> orderProperties, boolean descending,
             int startingRecNo);
 
+    /**
+     * @param cursor a cursor from a page returned earlier, null or empty for the
+     *               first page
+     * @return A page of results in the default sort order, with the cursors of
+     *         the pages around it
+     */
+    KeysetPage<T> getKeysetPage(String cursor);
+
+    /**
+     * @param propertyValues  Key Value pairs where key is the property name and
+     *                        value is the value it must match
+     * @param orderProperties the properties to order by, starting with the first
+     *                        entry. They must not be null for any row
+     * @param descending      Set to true to order by descending, false for order by
+     *                        ascending
+     * @param cursor          a cursor from a page returned earlier with the same
+     *                        ordering, null or empty for the first page
+     * @return A page of results, with the cursors of the pages around it
+     */
+    KeysetPage<T> getMatchingKeysetPage(Map<String, Object> propertyValues, List<String> orderProperties,
+            boolean descending, String cursor);
+
     /**
      * @param baseObject the data to insert
      * @return the id of the inserted baseObject
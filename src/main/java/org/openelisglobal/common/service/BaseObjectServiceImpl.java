@@ -12,6 +12,7 @@ import java.util.Optional;
 import org.apache.commons.validator.GenericValidator;
 import org.hibernate.ObjectNotFoundException;
 import org.openelisglobal.common.dao.BaseDAO;
+import org.openelisglobal.common.dao.KeysetPage;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.valueholder.BaseObject;
@@ -174,6 +175,19 @@ public abstract class BaseObjectServiceImpl<T extends BaseObject<PK>, PK extends
         return getBaseObjectDAO().getMatchingOrderedPage(propertyValues, orderProperties, descending, pageNumber);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<T> getKeysetPage(String cursor) {
+        return getBaseObjectDAO().getMatchingKeysetPage(new HashMap<>(), defaultSortOrder, false, cursor);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<T> getMatchingKeysetPage(Map<String, Object> propertyValues, List<String> orderProperties,
+            boolean descending, String cursor) {
+        return getBaseObjectDAO().getMatchingKeysetPage(propertyValues, orderProperties, descending, cursor);
+    }
+
     @Override
     @Transactional
     public PK insert(T baseObject) {
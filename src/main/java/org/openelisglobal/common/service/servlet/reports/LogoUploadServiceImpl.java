@@ -2,6 +2,7 @@ package org.openelisglobal.common.service.servlet.reports;
 
 import org.openelisglobal.image.service.ImageService;
 import org.openelisglobal.image.valueholder.Image;
+import org.openelisglobal.reports.service.ReportTemplateCache;
 import org.openelisglobal.siteinformation.service.SiteInformationService;
 import org.openelisglobal.siteinformation.valueholder.SiteInformation;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +16,8 @@ public class LogoUploadServiceImpl implements LogoUploadService {
     private ImageService imageService;
     @Autowired
     private SiteInformationService siteInformationService;
+    @Autowired
+    private ReportTemplateCache reportTemplateCache;
 
     @Override
     @Transactional
@@ -23,6 +26,7 @@ public class LogoUploadServiceImpl implements LogoUploadService {
         logoInformation.setValue("");
         logoInformation.setSysUserId("1");
         siteInformationService.update(logoInformation);
+        reportTemplateCache.evictSiteImages();
     }
 
     @Override
@@ -39,5 +43,6 @@ public class LogoUploadServiceImpl implements LogoUploadService {
         logoInformation.setValue(savedImage.getId());
         logoInformation.setSysUserId("1");
         siteInformationService.update(logoInformation);
+        reportTemplateCache.evictSiteImages();
     }
 }
@@ -0,0 +1,275 @@
+package org.openelisglobal.common.services;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.openelisglobal.analysis.service.AnalysisService;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.common.rest.provider.bean.homedashboard.AverageTimeDisplayBean;
+import org.openelisglobal.common.rest.provider.bean.homedashboard.DashBoardMetrics;
+import org.openelisglobal.common.services.StatusService.AnalysisStatus;
+import org.openelisglobal.common.services.StatusService.ExternalOrderStatus;
+import org.openelisglobal.dataexchange.service.order.ElectronicOrderService;
+import org.openelisglobal.referencetables.service.ReferenceTablesService;
+import org.openelisglobal.reports.service.DocumentTypeService;
+import org.openelisglobal.spring.util.SpringContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the home dashboard counters so the tiles are read from memory rather
+ * than recomputed for every request. The counters are rebuilt from grouped
+ * count queries once a change to an analysis, electronic order or patient report
+ * has committed, at most once every minRefreshInterval, and reconciled on a
+ * schedule so a change made outside the services (e.g. the day rolling over) is
+ * still picked up.
+ */
+@Service
+public class DashBoardMetricsService {
+
+    // a test is delayed when it took more than this many hours from reception to
+    // validation
+    public static final long DELAYED_TURN_AROUND_HOURS = 96;
+
+    @Autowired
+    private AnalysisService analysisService;
+    @Autowired
+    private ElectronicOrderService electronicOrderService;
+    @Autowired
+    private IStatusService statusService;
+    @Autowired
+    private DocumentTypeService documentTypeService;
+    @Autowired
+    private ReferenceTablesService referenceTablesService;
+
+    @Value("${org.openelisglobal.dashboard.minRefreshInterval:10000}")
+    private long minRefreshInterval;
+
+    private volatile Counters counters;
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final TransactionSynchronization markDirtyOnCommit = new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+            dirty.set(true);
+        }
+    };
+
+    /*
+     * Called by the services whenever something the dashboard counts changes.
+     * Looked up through the SpringContext by them as this service depends on them
+     */
+    public static void changed() {
+        SpringContext.getBean(DashBoardMetricsService.class).markDirty();
+    }
+
+    private void markDirty() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // one registration per transaction however many analyses it saves
+            if (!TransactionSynchronizationManager.getSynchronizations().contains(markDirtyOnCommit)) {
+                TransactionSynchronizationManager.registerSynchronization(markDirtyOnCommit);
+            }
+        } else {
+            dirty.set(true);
+        }
+    }
+
+    public DashBoardMetrics getMetrics() {
+        Counters current = getCounters();
+        DashBoardMetrics metrics = new DashBoardMetrics();
+        metrics.setOrdersInProgress(current.ordersInProgress);
+        metrics.setOrdersReadyForValidation(current.ordersReadyForValidation);
+        metrics.setOrdersCompletedToday(current.ordersCompletedToday);
+        metrics.setPatiallyCompletedToday(current.partiallyCompletedToday);
+        metrics.setOrderEnterdByUserToday(current.enteredToday);
+        metrics.setOrdersRejectedToday(current.rejectedToday);
+        metrics.setUnPritendResults(current.unprintedResults);
+        metrics.setIncomigOrders(current.incomingOrders);
+        metrics.setAverageTurnAroudTime(current.receptionToValidation.getAverageHours());
+        metrics.setDelayedTurnAround(current.receptionToValidation.getCountOver(DELAYED_TURN_AROUND_HOURS));
+        return metrics;
+    }
+
+    public AverageTimeDisplayBean getAverageTurnAroundTimes() {
+        Counters current = getCounters();
+        AverageTimeDisplayBean timeBean = new AverageTimeDisplayBean();
+        timeBean.setReceptionToResult(current.receptionToResult.getAverageHours());
+        timeBean.setReceptionToValidation(current.receptionToValidation.getAverageHours());
+        timeBean.setResultToValidation(current.resultToValidation.getAverageHours());
+        return timeBean;
+    }
+
+    /*
+     * number of analyses entered today, not counting rejected ones, by the id of
+     * the user who entered the sample
+     */
+    public Map<String, Integer> getEnteredTodayByUser() {
+        return getCounters().enteredTodayByUser;
+    }
+
+    public String getPatientReportDocumentTypeId() {
+        return documentTypeService.getDocumentTypeByName("patientReport").getId();
+    }
+
+    public String getSampleTableId() {
+        return referenceTablesService.getReferenceTableByName("SAMPLE").getId();
+    }
+
+    private Counters getCounters() {
+        Counters current = counters;
+        if (current == null || !current.day.equals(LocalDate.now()) || (dirty.get()
+                && System.currentTimeMillis() - current.computedAt >= minRefreshInterval)) {
+            current = refresh(current);
+        }
+        return current;
+    }
+
+    // only one thread rebuilds, the others wait for its result rather than
+    // running the same queries
+    private synchronized Counters refresh(Counters stale) {
+        if (counters != stale) {
+            return counters;
+        }
+        // cleared first so a change committed while the queries run is not lost
+        dirty.set(false);
+        try {
+            counters = computeCounters();
+        } catch (RuntimeException e) {
+            dirty.set(true);
+            throw e;
+        }
+        return counters;
+    }
+
+    @Scheduled(initialDelay = 60 * 1000, fixedDelayString = "${org.openelisglobal.dashboard.reconcileInterval:300000}")
+    public synchronized void reconcile() {
+        try {
+            dirty.set(false);
+            counters = computeCounters();
+        } catch (RuntimeException e) {
+            dirty.set(true);
+            LogEvent.logError(e);
+        }
+    }
+
+    private Counters computeCounters() {
+        LocalDate day = LocalDate.now();
+        Date today = Date.valueOf(day);
+        int notStarted = Integer.parseInt(statusService.getStatusID(AnalysisStatus.NotStarted));
+        int technicalAcceptance = Integer.parseInt(statusService.getStatusID(AnalysisStatus.TechnicalAcceptance));
+        String finalizedId = statusService.getStatusID(AnalysisStatus.Finalized);
+        int finalized = Integer.parseInt(finalizedId);
+        int rejected = Integer.parseInt(statusService.getStatusID(AnalysisStatus.SampleRejected));
+
+        Counters computed = new Counters(day);
+        computed.ordersInProgress = analysisService.getCountOfAnalysesForStatusIds(Arrays.asList(notStarted));
+        computed.ordersReadyForValidation = analysisService
+                .getCountOfAnalysesForStatusIds(Arrays.asList(technicalAcceptance));
+        computed.ordersCompletedToday = analysisService.getCountOfAnalysisCompletedOnByStatusId(today,
+                Arrays.asList(finalized));
+        computed.partiallyCompletedToday = analysisService.getCountOfAnalysisStartedOnExcludedByStatusId(today,
+                new HashSet<>(Arrays.asList(rejected, finalized)));
+        computed.rejectedToday = analysisService.getCountOfAnalysisStartedOnByStatusId(today,
+                Arrays.asList(rejected));
+        computed.unprintedResults = analysisService.getCountOfAnalysesReleasedOnByStatusIdWithoutDocument(today,
+                finalizedId, getPatientReportDocumentTypeId(), getSampleTableId());
+        computed.incomingOrders = electronicOrderService.getCountOfElectronicOrdersByStatusList(
+                Arrays.asList(Integer.parseInt(statusService.getStatusID(ExternalOrderStatus.Entered)),
+                        Integer.parseInt(statusService.getStatusID(ExternalOrderStatus.NonConforming))));
+
+        Set<Integer> excludeRejected = Collections.singleton(rejected);
+        Map<String, Integer> byUser = new HashMap<>();
+        int enteredToday = 0;
+        for (Object[] row : analysisService.getCountsOfAnalysisStartedOnExcludedByStatusIdByUser(today,
+                excludeRejected)) {
+            int count = ((Number) row[1]).intValue();
+            byUser.merge((String) row[0], count, Integer::sum);
+            enteredToday += count;
+        }
+        computed.enteredToday = enteredToday;
+        computed.enteredTodayByUser = Collections.unmodifiableMap(byUser);
+
+        // all the dates are days, the hours are counted from the start of the day
+        for (Object[] row : analysisService.getTurnAroundDatesReleasedOnByStatusId(today, finalizedId)) {
+            Date started = (Date) row[0];
+            Date completed = (Date) row[1];
+            long count = ((Number) row[2]).longValue();
+            if (started != null) {
+                computed.receptionToValidation.add(started.toLocalDate(), day, count);
+            }
+            if (completed != null) {
+                computed.resultToValidation.add(completed.toLocalDate(), day, count);
+            }
+        }
+        for (Object[] row : analysisService.getTurnAroundDatesResultEnteredOnExcludedByStatusId(today,
+                excludeRejected)) {
+            Date started = (Date) row[0];
+            if (started != null) {
+                computed.receptionToResult.add(started.toLocalDate(), day, ((Number) row[1]).longValue());
+            }
+        }
+        computed.computedAt = System.currentTimeMillis();
+        return computed;
+    }
+
+    private static class Counters {
+        private final LocalDate day;
+        private long computedAt;
+        private int ordersInProgress;
+        private int ordersReadyForValidation;
+        private int ordersCompletedToday;
+        private int partiallyCompletedToday;
+        private int enteredToday;
+        private int rejectedToday;
+        private int unprintedResults;
+        private int incomingOrders;
+        private Map<String, Integer> enteredTodayByUser;
+        private final TurnAroundHistogram receptionToValidation = new TurnAroundHistogram();
+        private final TurnAroundHistogram receptionToResult = new TurnAroundHistogram();
+        private final TurnAroundHistogram resultToValidation = new TurnAroundHistogram();
+
+        private Counters(LocalDate day) {
+            this.day = day;
+        }
+    }
+
+    /*
+     * Count of analyses by turn around time in hours
+     */
+    private static class TurnAroundHistogram {
+        private final SortedMap<Long, Long> countsByHours = new TreeMap<>();
+        private long total;
+        private long sumOfHours;
+
+        private void add(LocalDate from, LocalDate to, long count) {
+            long hours = ChronoUnit.DAYS.between(from, to) * 24;
+            countsByHours.merge(hours, count, Long::sum);
+            total += count;
+            sumOfHours += hours * count;
+        }
+
+        private double getAverageHours() {
+            return total == 0 ? 0.0 : (double) sumOfHours / total;
+        }
+
+        private int getCountOver(long hours) {
+            long count = 0;
+            for (Long bucketCount : countsByHours.tailMap(hours + 1).values()) {
+                count += bucketCount;
+            }
+            return (int) count;
+        }
+    }
+}
@@ -15,14 +15,18 @@ package org.openelisglobal.common.services;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 import org.apache.commons.validator.GenericValidator;
+import org.openelisglobal.common.util.CacheGeneration;
 import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.common.util.ConfigurationProperties.Property;
 import org.openelisglobal.common.util.IdValuePair;
@@ -102,8 +106,45 @@ public class DisplayListService implements LocaleChangeListener {
         IHC_BREAST_CANCER_REPORT_MOLE_SUBTYPE;
     }
 
-    private static Map<ListType, List<IdValuePair>> typeToListMap;
-    private static Map<String, List<IdValuePair>> dictionaryToListMap = new HashMap<>();
+    // lists built from dictionary entries, dropped whenever a dictionary entry is
+    // saved
+    private static final Set<ListType> DICTIONARY_LISTS = Collections.unmodifiableSet(EnumSet.of(
+            ListType.INITIAL_SAMPLE_CONDITION, ListType.SAMPLE_NATURE, ListType.PATIENT_MARITAL_STATUS,
+            ListType.PATIENT_NATIONALITY, ListType.PATIENT_EDUCATION, ListType.SAMPLE_PATIENT_PAYMENT_OPTIONS,
+            ListType.HAITI_DEPARTMENTS, ListType.REJECTION_REASONS, ListType.TEST_LOCATION_CODE,
+            ListType.DICTIONARY_PROGRAM, ListType.DICTIONARY_TEST_RESULTS, ListType.IHC_BREAST_CANCER_REPORT_INTENSITY,
+            ListType.IHC_BREAST_CANCER_REPORT_CERBB2_PATTERN, ListType.IHC_BREAST_CANCER_REPORT_MOLE_SUBTYPE,
+            ListType.PATHOLOGY_TECHNIQUES, ListType.PATHOLOGIST_REQUESTS, ListType.PATHOLOGIST_CONCLUSIONS,
+            ListType.CYTOLOGY_SATISFACTORY_FOR_EVALUATION, ListType.CYTOLOGY_UN_SATISFACTORY_FOR_EVALUATION,
+            ListType.CYTOLOGY_DIAGNOSIS_RESULT_EPITHELIAL_CELL_SQUAMOUS,
+            ListType.CYTOLOGY_DIAGNOSIS_RESULT_EPITHELIAL_CELL_GLANDULAR,
+            ListType.CYTOLOGY_DIAGNOSIS_RESULT_NON_NEO_PLASTIC_CELLULAR,
+            ListType.CYTOLOGY_DIAGNOSIS_RESULT_REACTIVE_CELLULAR, ListType.CYTOLOGY_DIAGNOSIS_RESULT_ORGANISMS,
+            ListType.CYTOLOGY_DIAGNOSIS_RESULT_OTHER, ListType.TB_ORDER_REASONS, ListType.TB_DIAGNOSTIC_REASONS,
+            ListType.TB_FOLLOWUP_REASONS, ListType.TB_ANALYSIS_METHODS, ListType.TB_SAMPLE_ASPECTS));
+    // lists built from organizations, dropped whenever an organization is saved
+    public static final Set<ListType> ORGANIZATION_LISTS = Collections
+            .unmodifiableSet(EnumSet.of(ListType.PATIENT_HEALTH_REGIONS, ListType.SAMPLE_PATIENT_REFERRING_CLINIC,
+                    ListType.REFERRAL_ORGANIZATIONS, ListType.ARV_ORG_LIST, ListType.ACTIVE_ORG_LIST));
+    // lists built from the test catalog, dropped whenever a test is saved
+    public static final Set<ListType> TEST_LISTS = Collections.unmodifiableSet(
+            EnumSet.of(ListType.ORDERABLE_TESTS, ListType.ALL_TESTS, ListType.IMMUNOHISTOCHEMISTRY_MARKERS_TESTS));
+    public static final Set<ListType> PANEL_LISTS = Collections
+            .unmodifiableSet(EnumSet.of(ListType.PANELS, ListType.PANELS_ACTIVE, ListType.PANELS_INACTIVE));
+    public static final Set<ListType> SAMPLE_TYPE_LISTS = Collections.unmodifiableSet(
+            EnumSet.of(ListType.SAMPLE_TYPE, ListType.SAMPLE_TYPE_ACTIVE, ListType.SAMPLE_TYPE_INACTIVE));
+    public static final Set<ListType> TEST_SECTION_LISTS = Collections.unmodifiableSet(EnumSet
+            .of(ListType.TEST_SECTION_ACTIVE, ListType.TEST_SECTION_INACTIVE, ListType.TEST_SECTION_BY_NAME));
+    public static final Set<ListType> METHOD_LISTS = Collections
+            .unmodifiableSet(EnumSet.of(ListType.METHODS, ListType.METHODS_INACTIVE, ListType.METHOD_BY_NAME));
+    public static final Set<ListType> UNIT_OF_MEASURE_LISTS = Collections.unmodifiableSet(EnumSet
+            .of(ListType.UNIT_OF_MEASURE, ListType.UNIT_OF_MEASURE_ACTIVE, ListType.UNIT_OF_MEASURE_INACTIVE));
+
+    // each list is published as a whole, readers either see the old snapshot or
+    // the new one. A missing entry means the list has to be rebuilt
+    private static volatile Map<ListType, DisplayListSnapshot> typeToListMap = new ConcurrentHashMap<>();
+    private static volatile Map<String, DisplayListSnapshot> dictionaryToListMap = new ConcurrentHashMap<>();
+    private static final CacheGeneration listGeneration = new CacheGeneration();
 
     @Autowired
     private TypeOfSampleService typeOfSampleService;
@@ -173,95 +214,9 @@ public class DisplayListService implements LocaleChangeListener {
 
     @Override
     public void localeChanged(String locale) {
-        // refreshes those lists which are dependent on local
-        typeToListMap.put(ListType.SAMPLE_TYPE, createTypeOfSampleList());
-        typeToListMap.put(ListType.SAMPLE_TYPE_ACTIVE, createSampleTypeList(false));
-        typeToListMap.put(ListType.SAMPLE_TYPE_INACTIVE, createSampleTypeList(true));
-        typeToListMap.put(ListType.INITIAL_SAMPLE_CONDITION,
-                createFromDictionaryCategoryLocalizedSort("specimen reception condition"));
-        typeToListMap.put(ListType.SAMPLE_NATURE, createFromDictionaryCategoryLocalizedSort("specimen nature"));
-        typeToListMap.put(ListType.PATIENT_HEALTH_REGIONS, createPatientHealthRegions());
-        typeToListMap.put(ListType.PATIENT_MARITAL_STATUS,
-                createFromDictionaryCategoryLocalizedSort("Marital Status Demographic Information"));
-        typeToListMap.put(ListType.PATIENT_NATIONALITY,
-                createFromDictionaryCategoryLocalizedSort("Nationality Demographic Information"));
-        typeToListMap.put(ListType.PATIENT_EDUCATION,
-                createFromDictionaryCategoryLocalizedSort("Education Level Demographic Information"));
-        typeToListMap.put(ListType.GENDERS, createGenderList());
-        typeToListMap.put(ListType.QA_EVENTS, createSortedQAEvents());
-        typeToListMap.put(ListType.TEST_SECTION_ACTIVE, createTestSectionActiveList());
-        typeToListMap.put(ListType.TEST_SECTION_INACTIVE, createInactiveTestSection());
-        typeToListMap.put(ListType.TEST_SECTION_BY_NAME, createTestSectionByNameList());
-        typeToListMap.put(ListType.METHODS, createMethodList());
-        typeToListMap.put(ListType.METHODS_INACTIVE, createInactiveMethod());
-        typeToListMap.put(ListType.METHOD_BY_NAME, createMethodByNameList());
-        typeToListMap.put(ListType.SAMPLE_PATIENT_PAYMENT_OPTIONS,
-                createFromDictionaryCategoryLocalizedSort("patientPayment"));
-        typeToListMap.put(ListType.PATIENT_SEARCH_CRITERIA, createPatientSearchCriteria());
-        typeToListMap.put(ListType.PANELS, createPanelList());
-        typeToListMap.put(ListType.PANELS_ACTIVE, createPanelList(false));
-        typeToListMap.put(ListType.PANELS_INACTIVE, createPanelList(true));
+        // names are cached by the services so they have to be reloaded first
         testService.localeChanged(locale);
-        dictionaryToListMap = new HashMap<>();
-        typeToListMap.put(ListType.REJECTION_REASONS, createDictionaryListForCategory("resultRejectionReasons"));
-        typeToListMap.put(ListType.REFERRAL_REASONS, createReferralReasonList());
-
-        typeToListMap.put(ListType.ORDERABLE_TESTS, createOrderableTestList());
-        typeToListMap.put(ListType.ALL_TESTS, createTestList());
-        typeToListMap.put(ListType.IMMUNOHISTOCHEMISTRY_MARKERS_TESTS, createImmunoHistoChemistryTestList());
-        typeToListMap.put(ListType.TEST_LOCATION_CODE, createDictionaryListForCategory("testLocationCode"));
-        typeToListMap.put(ListType.PROGRAM, createProgramList());
-        typeToListMap.put(ListType.DICTIONARY_PROGRAM, createDictionaryListForCategory("programs"));
-        typeToListMap.put(ListType.RESULT_TYPE_LOCALIZED, createLocalizedResultTypeList());
-        typeToListMap.put(ListType.UNIT_OF_MEASURE, createUOMList());
-        typeToListMap.put(ListType.DICTIONARY_TEST_RESULTS, createDictionaryTestResults());
-        typeToListMap.put(ListType.SEVERITY_CONSEQUENCES_LIST, createConsequencesList());
-        typeToListMap.put(ListType.SEVERITY_RECURRENCE_LIST, createRecurrenceList());
-        typeToListMap.put(ListType.ACTION_TYPE_LIST, createActionTypeList());
-        typeToListMap.put(ListType.LABORATORY_COMPONENT, createLaboratoryComponentList());
-        typeToListMap.put(ListType.ORDER_PRIORITY, createSamplePriorityList());
-        typeToListMap.put(ListType.PATHOLOGY_STATUS, createPathologyStatusList());
-        typeToListMap.put(ListType.CYTOLOGY_SPECIMEN_ADEQUACY_SATISFACTION,
-                createCytologySpecimenAdequacySatisfactionList());
-        typeToListMap.put(ListType.CYTOLOGY_STATUS, createCytologyStatusList());
-        typeToListMap.put(ListType.IMMUNOHISTOCHEMISTRY_STATUS, createImmunohistochemistryStatusList());
-        typeToListMap.put(ListType.IMMUNOHISTOCHEMISTRY_REPORT_TYPES, createImmunohistochemistryReportTypeList());
-        typeToListMap.put(ListType.CYTOLOGY_REPORT_TYPES, createCytologyReportTypeList());
-        typeToListMap.put(ListType.PATHOLOGY_REQUEST_STATUS, createPathologyRequestStatusList());
-        typeToListMap.put(ListType.PATHOLOGY_TECHNIQUES, createDictionaryListForCategory("pathology_techniques"));
-        typeToListMap.put(ListType.IHC_BREAST_CANCER_REPORT_INTENSITY,
-                createDictionaryListForCategory("ihc_breast_cancer_report_intensity"));
-        typeToListMap.put(ListType.IHC_BREAST_CANCER_REPORT_CERBB2_PATTERN,
-                createDictionaryListForCategory("ihc_breast_cancer_report_cerbb2_pattern"));
-        typeToListMap.put(ListType.IHC_BREAST_CANCER_REPORT_MOLE_SUBTYPE,
-                createDictionaryListForCategory("ihc_breast_cancer_report_molecular_subtype"));
-        typeToListMap.put(ListType.CYTOLOGY_SATISFACTORY_FOR_EVALUATION,
-                createDictionaryListForCategory("cytology_adequacy_satisfactory"));
-        typeToListMap.put(ListType.CYTOLOGY_UN_SATISFACTORY_FOR_EVALUATION,
-                createDictionaryListForCategory("cytology_adequacy_unsatisfactory"));
-        typeToListMap.put(ListType.PATHOLOGIST_REQUESTS, createDictionaryListForCategory("pathologist_requests"));
-        typeToListMap.put(ListType.PATHOLOGIST_CONCLUSIONS, createDictionaryListForCategory("pathologist_conclusions"));
-        typeToListMap.put(ListType.CYTOLOGY_DIAGNOSIS_RESULT_EPITHELIAL_CELL_SQUAMOUS,
-                createDictionaryListForCategory("cytology_epithelial_cell_abnomalit_squamous"));
-        typeToListMap.put(ListType.CYTOLOGY_DIAGNOSIS_RESULT_EPITHELIAL_CELL_GLANDULAR,
-                createDictionaryListForCategory("cytology_epithelial_cell_abnomalit_glandular"));
-        typeToListMap.put(ListType.CYTOLOGY_DIAGNOSIS_RESULT_NON_NEO_PLASTIC_CELLULAR,
-                createDictionaryListForCategory("cytology_non-neoplastic_cellular_variations"));
-        typeToListMap.put(ListType.CYTOLOGY_DIAGNOSIS_RESULT_REACTIVE_CELLULAR,
-                createDictionaryListForCategory("cytology_reactive_cellular_changes"));
-        typeToListMap.put(ListType.CYTOLOGY_DIAGNOSIS_RESULT_ORGANISMS,
-                createDictionaryListForCategory("cytology_diagnosis_organisms"));
-        typeToListMap.put(ListType.CYTOLOGY_DIAGNOSIS_RESULT_OTHER,
-                createDictionaryListForCategory("cytology_diagnosis_other"));
-        typeToListMap.put(ListType.TB_ORDER_REASONS, createDictionaryListForCategory("TB Order Reasons"));
-        typeToListMap.put(ListType.TB_DIAGNOSTIC_REASONS, createDictionaryListForCategory("TB Diagnostic Reasons"));
-        typeToListMap.put(ListType.TB_FOLLOWUP_REASONS, createDictionaryListForCategory("TB Followup Reasons"));
-        typeToListMap.put(ListType.TB_ANALYSIS_METHODS, createDictionaryListForCategory("TB Analysis Methods"));
-        typeToListMap.put(ListType.TB_SAMPLE_ASPECTS, createDictionaryListForCategory("TB Sample Aspects"));
-        typeToListMap.put(ListType.TB_FOLLOWUP_LINE1, createTBFollowupLine1List());
-        typeToListMap.put(ListType.TB_FOLLOWUP_LINE2, createTBFollowupLine2List());
-        typeToListMap.put(ListType.ARV_ORG_LIST, createArvOrgList());
-        typeToListMap.put(ListType.ACTIVE_ORG_LIST, createActiveOrganizationsList());
+        refreshLists();
     }
 
     private List<IdValuePair> createPathologyStatusList() {
@@ -300,7 +255,34 @@ public class DisplayListService implements LocaleChangeListener {
     }
 
     public List<IdValuePair> getList(ListType listType) {
-        return typeToListMap.get(listType);
+        DisplayListSnapshot snapshot = getSnapshot(listType);
+        return snapshot == null ? null : snapshot.getList();
+    }
+
+    /*
+     * The current version of the list. It is only rebuilt when it has been
+     * invalidated, not on every request.
+     */
+    public DisplayListSnapshot getSnapshot(ListType listType) {
+        DisplayListSnapshot snapshot = typeToListMap.get(listType);
+        if (snapshot == null) {
+            snapshot = rebuildList(listType);
+        }
+        return snapshot;
+    }
+
+    private synchronized DisplayListSnapshot rebuildList(ListType listType) {
+        DisplayListSnapshot snapshot = typeToListMap.get(listType);
+        if (snapshot == null) {
+            long generation = listGeneration.current();
+            List<IdValuePair> list = createList(listType);
+            if (list != null) {
+                DisplayListSnapshot builtSnapshot = new DisplayListSnapshot(list);
+                listGeneration.publishIfCurrent(generation, () -> typeToListMap.put(listType, builtSnapshot));
+                snapshot = builtSnapshot;
+            }
+        }
+        return snapshot;
     }
 
     public List<IdValuePair> getListWithLeadingBlank(ListType listType) {
@@ -322,15 +304,18 @@ public class DisplayListService implements LocaleChangeListener {
     }
 
     public List<IdValuePair> getDictionaryListByCategory(String category) {
-        List<IdValuePair> list = dictionaryToListMap.get(category);
-        if (list == null) {
-            list = createDictionaryListForCategory(category);
-            if (!list.isEmpty()) {
-                dictionaryToListMap.put(category, list);
-            }
-        }
-
-        return list;
+        DisplayListSnapshot snapshot = dictionaryToListMap.get(category);
+        if (snapshot != null) {
+            return snapshot.getList();
+        }
+        long generation = listGeneration.current();
+        List<IdValuePair> list = createDictionaryListForCategory(category);
+        if (list.isEmpty()) {
+            return list;
+        }
+        DisplayListSnapshot builtSnapshot = new DisplayListSnapshot(list);
+        listGeneration.publishIfCurrent(generation, () -> dictionaryToListMap.put(category, builtSnapshot));
+        return builtSnapshot.getList();
     }
 
     private List<IdValuePair> createUOMList() {
@@ -423,209 +408,239 @@ public class DisplayListService implements LocaleChangeListener {
         return dictionaryList;
     }
 
+    /*
+     * Reloads the names behind the list as well, used after a rename
+     */
     public List<IdValuePair> getFreshList(ListType listType) {
         refreshList(listType);
-        return typeToListMap.get(listType);
+        return getList(listType);
     }
 
     public synchronized void refreshLists() {
-        typeToListMap = new HashMap<>();
-        typeToListMap.put(ListType.CYTOLOGY_STATUS, createCytologyStatusList());
-        typeToListMap.put(ListType.PATHOLOGY_STATUS, createPathologyStatusList());
-        typeToListMap.put(ListType.CYTOLOGY_SPECIMEN_ADEQUACY_SATISFACTION,
-                createCytologySpecimenAdequacySatisfactionList());
-        typeToListMap.put(ListType.IMMUNOHISTOCHEMISTRY_STATUS, createImmunohistochemistryStatusList());
-        typeToListMap.put(ListType.IMMUNOHISTOCHEMISTRY_REPORT_TYPES, createImmunohistochemistryReportTypeList());
-        typeToListMap.put(ListType.CYTOLOGY_REPORT_TYPES, createCytologyReportTypeList());
-        typeToListMap.put(ListType.PATHOLOGY_REQUEST_STATUS, createPathologyRequestStatusList());
-        typeToListMap.put(ListType.HOURS, createHourList());
-        typeToListMap.put(ListType.MINS, createMinList());
-        typeToListMap.put(ListType.SAMPLE_TYPE, createTypeOfSampleList());
-        typeToListMap.put(ListType.SAMPLE_TYPE_ACTIVE, createSampleTypeList(false));
-        typeToListMap.put(ListType.SAMPLE_TYPE_INACTIVE, createSampleTypeList(true));
-        typeToListMap.put(ListType.INITIAL_SAMPLE_CONDITION,
-                createFromDictionaryCategoryLocalizedSort("specimen reception condition"));
-        typeToListMap.put(ListType.SAMPLE_NATURE, createFromDictionaryCategoryLocalizedSort("specimen nature"));
-        typeToListMap.put(ListType.PATIENT_HEALTH_REGIONS, createPatientHealthRegions());
-        typeToListMap.put(ListType.PATIENT_MARITAL_STATUS,
-                createFromDictionaryCategoryLocalizedSort("Marital Status Demographic Information"));
-        typeToListMap.put(ListType.PATIENT_NATIONALITY,
-                createFromDictionaryCategoryLocalizedSort("Nationality Demographic Information"));
-        typeToListMap.put(ListType.PATIENT_EDUCATION,
-                createFromDictionaryCategoryLocalizedSort("Education Level Demographic Information"));
-        typeToListMap.put(ListType.GENDERS, createGenderList());
-        typeToListMap.put(ListType.SAMPLE_PATIENT_REFERRING_CLINIC, createReferringClinicList());
-        typeToListMap.put(ListType.QA_EVENTS, createSortedQAEvents());
-        typeToListMap.put(ListType.TEST_SECTION_ACTIVE, createTestSectionActiveList());
-        typeToListMap.put(ListType.METHODS, createMethodList());
-        typeToListMap.put(ListType.METHODS_INACTIVE, createInactiveMethod());
-        typeToListMap.put(ListType.METHOD_BY_NAME, createMethodByNameList());
-        typeToListMap.put(ListType.TEST_SECTION_INACTIVE, createInactiveTestSection());
-        typeToListMap.put(ListType.TEST_SECTION_BY_NAME, createTestSectionByNameList());
-        typeToListMap.put(ListType.HAITI_DEPARTMENTS, createAddressDepartmentList());
-        typeToListMap.put(ListType.SAMPLE_PATIENT_PAYMENT_OPTIONS,
-                createFromDictionaryCategoryLocalizedSort("patientPayment"));
-        typeToListMap.put(ListType.PATIENT_SEARCH_CRITERIA, createPatientSearchCriteria());
-        typeToListMap.put(ListType.PANELS, createPanelList());
-        typeToListMap.put(ListType.PANELS_ACTIVE, createPanelList(false));
-        typeToListMap.put(ListType.PANELS_INACTIVE, createPanelList(true));
-        typeToListMap.put(ListType.ORDERABLE_TESTS, createOrderableTestList());
-        typeToListMap.put(ListType.ALL_TESTS, createTestList());
-        typeToListMap.put(ListType.IMMUNOHISTOCHEMISTRY_MARKERS_TESTS, createImmunoHistoChemistryTestList());
-        typeToListMap.put(ListType.REJECTION_REASONS, createDictionaryListForCategory("resultRejectionReasons"));
-        typeToListMap.put(ListType.REFERRAL_REASONS, createReferralReasonList());
-        typeToListMap.put(ListType.REFERRAL_ORGANIZATIONS, createReferralOrganizationList());
-        typeToListMap.put(ListType.TEST_LOCATION_CODE, createDictionaryListForCategory("testLocationCode"));
-        typeToListMap.put(ListType.PROGRAM, createProgramList());
-        typeToListMap.put(ListType.DICTIONARY_PROGRAM, createDictionaryListForCategory("programs"));
-        typeToListMap.put(ListType.RESULT_TYPE_LOCALIZED, createLocalizedResultTypeList());
-        typeToListMap.put(ListType.RESULT_TYPE_RAW, createRawResultTypeList());
-        typeToListMap.put(ListType.UNIT_OF_MEASURE, createUOMList());
-        typeToListMap.put(ListType.UNIT_OF_MEASURE_ACTIVE, createUOMList());
-        typeToListMap.put(ListType.UNIT_OF_MEASURE_INACTIVE, createUOMList());
-        typeToListMap.put(ListType.DICTIONARY_TEST_RESULTS, createDictionaryTestResults());
-        typeToListMap.put(ListType.SEVERITY_CONSEQUENCES_LIST, createConsequencesList());
-        typeToListMap.put(ListType.SEVERITY_RECURRENCE_LIST, createRecurrenceList());
-        typeToListMap.put(ListType.ACTION_TYPE_LIST, createActionTypeList());
-        typeToListMap.put(ListType.LABORATORY_COMPONENT, createLaboratoryComponentList());
-        typeToListMap.put(ListType.ELECTRONIC_ORDER_STATUSES, createElectronicOrderStatusList());
-        typeToListMap.put(ListType.PRACTITIONER_PERSONS, createActivePractitionerPersonsList());
-        typeToListMap.put(ListType.ORDER_PRIORITY, createSamplePriorityList());
-        typeToListMap.put(ListType.IHC_BREAST_CANCER_REPORT_INTENSITY,
-                createDictionaryListForCategory("ihc_breast_cancer_report_intensity"));
-        typeToListMap.put(ListType.IHC_BREAST_CANCER_REPORT_CERBB2_PATTERN,
-                createDictionaryListForCategory("ihc_breast_cancer_report_cerbb2_pattern"));
-        typeToListMap.put(ListType.IHC_BREAST_CANCER_REPORT_MOLE_SUBTYPE,
-                createDictionaryListForCategory("ihc_breast_cancer_report_molecular_subtype"));
-        typeToListMap.put(ListType.PATHOLOGY_TECHNIQUES, createDictionaryListForCategory("pathology_techniques"));
-        typeToListMap.put(ListType.PATHOLOGIST_REQUESTS, createDictionaryListForCategory("pathologist_requests"));
-        typeToListMap.put(ListType.PATHOLOGIST_CONCLUSIONS, createDictionaryListForCategory("pathologist_conclusions"));
-        typeToListMap.put(ListType.CYTOLOGY_SATISFACTORY_FOR_EVALUATION,
-                createDictionaryListForCategory("cytology_adequacy_satisfactory"));
-        typeToListMap.put(ListType.CYTOLOGY_UN_SATISFACTORY_FOR_EVALUATION,
-                createDictionaryListForCategory("cytology_adequacy_unsatisfactory"));
-        typeToListMap.put(ListType.CYTOLOGY_DIAGNOSIS_RESULT_EPITHELIAL_CELL_SQUAMOUS,
-                createDictionaryListForCategory("cytology_epithelial_cell_abnomalit_squamous"));
-        typeToListMap.put(ListType.CYTOLOGY_DIAGNOSIS_RESULT_EPITHELIAL_CELL_GLANDULAR,
-                createDictionaryListForCategory("cytology_epithelial_cell_abnomalit_glandular"));
-        typeToListMap.put(ListType.CYTOLOGY_DIAGNOSIS_RESULT_NON_NEO_PLASTIC_CELLULAR,
-                createDictionaryListForCategory("cytology_non-neoplastic_cellular_variations"));
-        typeToListMap.put(ListType.CYTOLOGY_DIAGNOSIS_RESULT_REACTIVE_CELLULAR,
-                createDictionaryListForCategory("cytology_reactive_cellular_changes"));
-        typeToListMap.put(ListType.CYTOLOGY_DIAGNOSIS_RESULT_ORGANISMS,
-                createDictionaryListForCategory("cytology_diagnosis_organisms"));
-        typeToListMap.put(ListType.CYTOLOGY_DIAGNOSIS_RESULT_OTHER,
-                createDictionaryListForCategory("cytology_diagnosis_other"));
-        typeToListMap.put(ListType.TB_ORDER_REASONS, createDictionaryListForCategory("TB Order Reasons"));
-        typeToListMap.put(ListType.TB_DIAGNOSTIC_REASONS, createDictionaryListForCategory("TB Diagnostic Reasons"));
-        typeToListMap.put(ListType.TB_FOLLOWUP_REASONS, createDictionaryListForCategory("TB Followup Reasons"));
-        typeToListMap.put(ListType.TB_ANALYSIS_METHODS, createDictionaryListForCategory("TB Analysis Methods"));
-        typeToListMap.put(ListType.TB_SAMPLE_ASPECTS, createDictionaryListForCategory("TB Sample Aspects"));
-        typeToListMap.put(ListType.TB_FOLLOWUP_LINE1, createTBFollowupLine1List());
-        typeToListMap.put(ListType.TB_FOLLOWUP_LINE2, createTBFollowupLine2List());
-        typeToListMap.put(ListType.ARV_ORG_LIST, createArvOrgList());
-        typeToListMap.put(ListType.ACTIVE_ORG_LIST, createActiveOrganizationsList());
-    }
-
-    public void refreshList(ListType listType) {
+        Map<ListType, DisplayListSnapshot> lists = new ConcurrentHashMap<>();
+        for (ListType listType : ListType.values()) {
+            List<IdValuePair> list = createList(listType);
+            if (list != null) {
+                lists.put(listType, new DisplayListSnapshot(list));
+            }
+        }
+        listGeneration.invalidate(() -> {
+            typeToListMap = lists;
+            dictionaryToListMap = new ConcurrentHashMap<>();
+        });
+    }
 
+    public synchronized void refreshList(ListType listType) {
         switch (listType) {
-        case ORDER_PRIORITY: {
-            typeToListMap.put(ListType.ORDER_PRIORITY, createSamplePriorityList());
-            break;
-        }
-        case PRACTITIONER_PERSONS: {
-            typeToListMap.put(ListType.PRACTITIONER_PERSONS, createActivePractitionerPersonsList());
-            break;
-        }
-        case SAMPLE_PATIENT_REFERRING_CLINIC: {
-            typeToListMap.put(ListType.SAMPLE_PATIENT_REFERRING_CLINIC, createReferringClinicList());
-            break;
-        }
-        case ALL_TESTS: {
+        case ALL_TESTS:
+        case IMMUNOHISTOCHEMISTRY_MARKERS_TESTS:
+        case ORDERABLE_TESTS:
             testService.refreshTestNames();
-            typeToListMap.put(ListType.ALL_TESTS, createTestList());
             break;
-        }
-        case IMMUNOHISTOCHEMISTRY_MARKERS_TESTS: {
-            testService.refreshTestNames();
-            typeToListMap.put(ListType.IMMUNOHISTOCHEMISTRY_MARKERS_TESTS, createImmunoHistoChemistryTestList());
-            break;
-        }
-        case ORDERABLE_TESTS: {
-            testService.refreshTestNames();
-            typeToListMap.put(ListType.ORDERABLE_TESTS, createOrderableTestList());
-            break;
-        }
-        case SAMPLE_TYPE: {
-            typeToListMap.put(ListType.SAMPLE_TYPE, createTypeOfSampleList());
-            break;
-        }
-        case SAMPLE_TYPE_ACTIVE: {
-            typeToListMap.put(ListType.SAMPLE_TYPE_ACTIVE, createSampleTypeList(false));
-            break;
-        }
-        case SAMPLE_TYPE_INACTIVE: {
-            typeToListMap.put(ListType.SAMPLE_TYPE_INACTIVE, createSampleTypeList(true));
-            break;
-        }
-        case TEST_SECTION_ACTIVE: {
+        case TEST_SECTION_ACTIVE:
+        case TEST_SECTION_INACTIVE:
             testSectionService.refreshNames();
-            typeToListMap.put(ListType.TEST_SECTION_ACTIVE, createTestSectionActiveList());
             break;
-        }
-        case METHODS: {
+        case METHODS:
+        case METHODS_INACTIVE:
             methodService.refreshNames();
-            typeToListMap.put(ListType.METHODS, createMethodList());
-            break;
-        }
-        case METHODS_INACTIVE: {
-            methodService.refreshNames();
-            typeToListMap.put(ListType.METHODS_INACTIVE, createInactiveMethod());
-            break;
-        }
-        case TEST_SECTION_INACTIVE: {
-            testSectionService.refreshNames();
-            typeToListMap.put(ListType.TEST_SECTION_INACTIVE, createInactiveTestSection());
-            break;
-        }
-        case REFERRAL_ORGANIZATIONS: {
-            typeToListMap.put(ListType.REFERRAL_ORGANIZATIONS, createReferralOrganizationList());
             break;
-        }
-        case PANELS: {
-            typeToListMap.put(ListType.PANELS, createPanelList());
-            break;
-        }
-        case PANELS_ACTIVE: {
-            typeToListMap.put(ListType.PANELS_ACTIVE, createPanelList(false));
-            break;
-        }
-        case PANELS_INACTIVE: {
-            typeToListMap.put(ListType.PANELS_INACTIVE, createPanelList(true));
-            break;
-        }
-        case UNIT_OF_MEASURE: {
+        case UNIT_OF_MEASURE:
             unitOfMeasureService.refreshNames();
-            typeToListMap.put(ListType.UNIT_OF_MEASURE, createUnitOfMeasureList());
             break;
-        }
-        case PATIENT_HEALTH_REGIONS: {
-            typeToListMap.put(ListType.PATIENT_HEALTH_REGIONS, createPatientHealthRegions());
+        default:
             break;
         }
-        case PROGRAM: {
-            typeToListMap.put(ListType.PROGRAM, createProgramList());
-        }
-        case DICTIONARY_TEST_RESULTS: {
-            typeToListMap.put(ListType.DICTIONARY_TEST_RESULTS, createDictionaryTestResults());
-        }
-        case ARV_ORG_LIST: {
-            typeToListMap.put(ListType.ARV_ORG_LIST, createArvOrgList());
+        listGeneration.invalidate(() -> typeToListMap.remove(listType));
+        rebuildList(listType);
+    }
+
+    /*
+     * Drops the lists so the next read rebuilds them. When called inside a
+     * transaction they are dropped again once it is over so a read made before
+     * the commit can't keep the old rows
+     */
+    public void invalidate(Collection<ListType> listTypes) {
+        invalidate(listTypes, false);
+    }
+
+    public void invalidateDictionaryLists() {
+        invalidate(DICTIONARY_LISTS, true);
+    }
+
+    private void invalidate(Collection<ListType> listTypes, boolean dictionaryCategories) {
+        listGeneration.invalidate(() -> dropLists(listTypes, dictionaryCategories));
+    }
+
+    private void dropLists(Collection<ListType> listTypes, boolean dictionaryCategories) {
+        for (ListType listType : listTypes) {
+            typeToListMap.remove(listType);
         }
-        case ACTIVE_ORG_LIST: {
-            typeToListMap.put(ListType.ACTIVE_ORG_LIST, createActiveOrganizationsList());
+        if (dictionaryCategories) {
+            dictionaryToListMap.clear();
         }
+    }
+
+    private List<IdValuePair> createList(ListType listType) {
+        switch (listType) {
+        case CYTOLOGY_STATUS:
+            return createCytologyStatusList();
+        case PATHOLOGY_STATUS:
+            return createPathologyStatusList();
+        case CYTOLOGY_SPECIMEN_ADEQUACY_SATISFACTION:
+            return createCytologySpecimenAdequacySatisfactionList();
+        case IMMUNOHISTOCHEMISTRY_STATUS:
+            return createImmunohistochemistryStatusList();
+        case IMMUNOHISTOCHEMISTRY_REPORT_TYPES:
+            return createImmunohistochemistryReportTypeList();
+        case CYTOLOGY_REPORT_TYPES:
+            return createCytologyReportTypeList();
+        case PATHOLOGY_REQUEST_STATUS:
+            return createPathologyRequestStatusList();
+        case HOURS:
+            return createHourList();
+        case MINS:
+            return createMinList();
+        case SAMPLE_TYPE:
+            return createTypeOfSampleList();
+        case SAMPLE_TYPE_ACTIVE:
+            return createSampleTypeList(false);
+        case SAMPLE_TYPE_INACTIVE:
+            return createSampleTypeList(true);
+        case INITIAL_SAMPLE_CONDITION:
+            return createFromDictionaryCategoryLocalizedSort("specimen reception condition");
+        case SAMPLE_NATURE:
+            return createFromDictionaryCategoryLocalizedSort("specimen nature");
+        case PATIENT_HEALTH_REGIONS:
+            return createPatientHealthRegions();
+        case PATIENT_MARITAL_STATUS:
+            return createFromDictionaryCategoryLocalizedSort("Marital Status Demographic Information");
+        case PATIENT_NATIONALITY:
+            return createFromDictionaryCategoryLocalizedSort("Nationality Demographic Information");
+        case PATIENT_EDUCATION:
+            return createFromDictionaryCategoryLocalizedSort("Education Level Demographic Information");
+        case GENDERS:
+            return createGenderList();
+        case SAMPLE_PATIENT_REFERRING_CLINIC:
+            return createReferringClinicList();
+        case QA_EVENTS:
+            return createSortedQAEvents();
+        case TEST_SECTION_ACTIVE:
+            return createTestSectionActiveList();
+        case METHODS:
+            return createMethodList();
+        case METHODS_INACTIVE:
+            return createInactiveMethod();
+        case METHOD_BY_NAME:
+            return createMethodByNameList();
+        case TEST_SECTION_INACTIVE:
+            return createInactiveTestSection();
+        case TEST_SECTION_BY_NAME:
+            return createTestSectionByNameList();
+        case HAITI_DEPARTMENTS:
+            return createAddressDepartmentList();
+        case SAMPLE_PATIENT_PAYMENT_OPTIONS:
+            return createFromDictionaryCategoryLocalizedSort("patientPayment");
+        case PATIENT_SEARCH_CRITERIA:
+            return createPatientSearchCriteria();
+        case PANELS:
+            return createPanelList();
+        case PANELS_ACTIVE:
+            return createPanelList(false);
+        case PANELS_INACTIVE:
+            return createPanelList(true);
+        case ORDERABLE_TESTS:
+            return createOrderableTestList();
+        case ALL_TESTS:
+            return createTestList();
+        case IMMUNOHISTOCHEMISTRY_MARKERS_TESTS:
+            return createImmunoHistoChemistryTestList();
+        case REJECTION_REASONS:
+            return createDictionaryListForCategory("resultRejectionReasons");
+        case REFERRAL_REASONS:
+            return createReferralReasonList();
+        case REFERRAL_ORGANIZATIONS:
+            return createReferralOrganizationList();
+        case TEST_LOCATION_CODE:
+            return createDictionaryListForCategory("testLocationCode");
+        case PROGRAM:
+            return createProgramList();
+        case DICTIONARY_PROGRAM:
+            return createDictionaryListForCategory("programs");
+        case RESULT_TYPE_LOCALIZED:
+            return createLocalizedResultTypeList();
+        case RESULT_TYPE_RAW:
+            return createRawResultTypeList();
+        case UNIT_OF_MEASURE:
+            return createUOMList();
+        case UNIT_OF_MEASURE_ACTIVE:
+            return createUOMList();
+        case UNIT_OF_MEASURE_INACTIVE:
+            return createUOMList();
+        case DICTIONARY_TEST_RESULTS:
+            return createDictionaryTestResults();
+        case SEVERITY_CONSEQUENCES_LIST:
+            return createConsequencesList();
+        case SEVERITY_RECURRENCE_LIST:
+            return createRecurrenceList();
+        case ACTION_TYPE_LIST:
+            return createActionTypeList();
+        case LABORATORY_COMPONENT:
+            return createLaboratoryComponentList();
+        case ELECTRONIC_ORDER_STATUSES:
+            return createElectronicOrderStatusList();
+        case PRACTITIONER_PERSONS:
+            return createActivePractitionerPersonsList();
+        case ORDER_PRIORITY:
+            return createSamplePriorityList();
+        case IHC_BREAST_CANCER_REPORT_INTENSITY:
+            return createDictionaryListForCategory("ihc_breast_cancer_report_intensity");
+        case IHC_BREAST_CANCER_REPORT_CERBB2_PATTERN:
+            return createDictionaryListForCategory("ihc_breast_cancer_report_cerbb2_pattern");
+        case IHC_BREAST_CANCER_REPORT_MOLE_SUBTYPE:
+            return createDictionaryListForCategory("ihc_breast_cancer_report_molecular_subtype");
+        case PATHOLOGY_TECHNIQUES:
+            return createDictionaryListForCategory("pathology_techniques");
+        case PATHOLOGIST_REQUESTS:
+            return createDictionaryListForCategory("pathologist_requests");
+        case PATHOLOGIST_CONCLUSIONS:
+            return createDictionaryListForCategory("pathologist_conclusions");
+        case CYTOLOGY_SATISFACTORY_FOR_EVALUATION:
+            return createDictionaryListForCategory("cytology_adequacy_satisfactory");
+        case CYTOLOGY_UN_SATISFACTORY_FOR_EVALUATION:
+            return createDictionaryListForCategory("cytology_adequacy_unsatisfactory");
+        case CYTOLOGY_DIAGNOSIS_RESULT_EPITHELIAL_CELL_SQUAMOUS:
+            return createDictionaryListForCategory("cytology_epithelial_cell_abnomalit_squamous");
+        case CYTOLOGY_DIAGNOSIS_RESULT_EPITHELIAL_CELL_GLANDULAR:
+            return createDictionaryListForCategory("cytology_epithelial_cell_abnomalit_glandular");
+        case CYTOLOGY_DIAGNOSIS_RESULT_NON_NEO_PLASTIC_CELLULAR:
+            return createDictionaryListForCategory("cytology_non-neoplastic_cellular_variations");
+        case CYTOLOGY_DIAGNOSIS_RESULT_REACTIVE_CELLULAR:
+            return createDictionaryListForCategory("cytology_reactive_cellular_changes");
+        case CYTOLOGY_DIAGNOSIS_RESULT_ORGANISMS:
+            return createDictionaryListForCategory("cytology_diagnosis_organisms");
+        case CYTOLOGY_DIAGNOSIS_RESULT_OTHER:
+            return createDictionaryListForCategory("cytology_diagnosis_other");
+        case TB_ORDER_REASONS:
+            return createDictionaryListForCategory("TB Order Reasons");
+        case TB_DIAGNOSTIC_REASONS:
+            return createDictionaryListForCategory("TB Diagnostic Reasons");
+        case TB_FOLLOWUP_REASONS:
+            return createDictionaryListForCategory("TB Followup Reasons");
+        case TB_ANALYSIS_METHODS:
+            return createDictionaryListForCategory("TB Analysis Methods");
+        case TB_SAMPLE_ASPECTS:
+            return createDictionaryListForCategory("TB Sample Aspects");
+        case TB_FOLLOWUP_LINE1:
+            return createTBFollowupLine1List();
+        case TB_FOLLOWUP_LINE2:
+            return createTBFollowupLine2List();
+        case ARV_ORG_LIST:
+            return createArvOrgList();
+        case ACTIVE_ORG_LIST:
+            return createActiveOrganizationsList();
+        default:
+            return null;
         }
     }
 
@@ -928,19 +943,6 @@ public class DisplayListService implements LocaleChangeListener {
         return methodPairs;
     }
 
-    private List<IdValuePair> createUnitOfMeasureList() {
-        List<IdValuePair> unitOfMeasuresPairs = new ArrayList<>();
-        // List<UnitOfMeasure> unitOfMeasures =
-        // unitOfMeasureService.getAllActiveUnitOfMeasures();
-        List<UnitOfMeasure> unitOfMeasures = unitOfMeasureService.getAll();
-
-        for (UnitOfMeasure unitOfMeasure : unitOfMeasures) {
-            unitOfMeasuresPairs.add(new IdValuePair(unitOfMeasure.getId(), unitOfMeasure.getLocalizedName()));
-        }
-
-        return unitOfMeasuresPairs;
-    }
-
     private List<IdValuePair> createTypeOfSampleList() {
         List<IdValuePair> typeOfSamplePairs = new ArrayList<>();
         List<TypeOfSample> typeOfSamples = typeOfSampleService.getAllTypeOfSamplesSortOrdered();
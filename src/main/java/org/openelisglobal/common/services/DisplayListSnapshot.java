@@ -0,0 +1,46 @@
+package org.openelisglobal.common.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openelisglobal.common.util.IdValuePair;
+
+/**
+ * An immutable copy of a display list as it was when it was built. Every
+ * snapshot gets a new version so its ETag changes whenever the list is
+ * rebuilt, the start time is part of the tag so versions are not reused after a
+ * restart.
+ */
+public final class DisplayListSnapshot {
+
+    private static final String GENERATION = Long.toString(System.currentTimeMillis(), 36);
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final List<IdValuePair> list;
+    private final long version;
+    private final long lastModified;
+
+    DisplayListSnapshot(List<IdValuePair> list) {
+        this.list = Collections.unmodifiableList(new ArrayList<>(list));
+        this.version = VERSIONS.incrementAndGet();
+        // HTTP dates only carry seconds
+        this.lastModified = System.currentTimeMillis() / 1000 * 1000;
+    }
+
+    public List<IdValuePair> getList() {
+        return list;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public String getETag() {
+        return "\"" + GENERATION + "-" + version + "\"";
+    }
+}
@@ -234,6 +234,22 @@ public class QAService {
         return false;
     }
 
+    /*
+     * For callers which have already loaded the nonconforming event specimens and
+     * the sample qa events for the parent sample
+     */
+    public static boolean isAnalysisParentNonConforming(Analysis analysis, List<NceSpecimen> nceSpecimens,
+            List<SampleQaEvent> sampleQaEvents) {
+        SampleItem sampleItem = analysis.getSampleItem();
+
+        if (sampleItem != null) {
+            return nonconformingByDepricatedStatus(sampleItem.getSample(), analysis) || !nceSpecimens.isEmpty()
+                    || hasOrderOnlyQaEventOrSampleQaEvent(sampleItem, sampleQaEvents);
+        }
+
+        return false;
+    }
+
     public static boolean isOrderNonConforming(Sample sample) {
         if (sample != null) {
             boolean nonconforming = nonconformingByDepricatedStatus(sample);
@@ -270,8 +286,12 @@ public class QAService {
     }
 
     private static boolean hasOrderOnlyQaEventOrSampleQaEvent(SampleItem sampleItem) {
-        List<SampleQaEvent> sampleQaEvents = sampleQaEventService.getSampleQaEventsBySample(sampleItem.getSample());
+        return hasOrderOnlyQaEventOrSampleQaEvent(sampleItem,
+                sampleQaEventService.getSampleQaEventsBySample(sampleItem.getSample()));
+    }
 
+    private static boolean hasOrderOnlyQaEventOrSampleQaEvent(SampleItem sampleItem,
+            List<SampleQaEvent> sampleQaEvents) {
         boolean sampleItemLabeled = false;
         for (SampleQaEvent sampleEvent : sampleQaEvents) {
             if (sampleEvent.getSampleItem() != null) {
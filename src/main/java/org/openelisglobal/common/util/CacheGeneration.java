@@ -0,0 +1,65 @@
+package org.openelisglobal.common.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps a cache that is built from the database from holding on to rows that
+ * have since changed.
+ *
+ * A change made inside a transaction drops the cached data straight away, so
+ * the changing thread does not read its old copy, and again once the
+ * transaction is over, since another thread may have read the old rows and
+ * cached them again while the change was not yet committed. Every drop also
+ * starts a new generation, and a thread that was building the cache when it
+ * was dropped finds its generation is no longer current when it comes to
+ * publish and leaves the cache empty rather than putting back what it read.
+ *
+ * <pre>
+ * long generation = cacheGeneration.current();
+ * Index index = buildIndex();
+ * cacheGeneration.publishIfCurrent(generation, () -&gt; cachedIndex = index);
+ *
+ * cacheGeneration.invalidate(() -&gt; cachedIndex = null);
+ * </pre>
+ */
+public class CacheGeneration {
+
+    private long generation;
+
+    public synchronized long current() {
+        return generation;
+    }
+
+    /*
+     * runs publish unless the cache was dropped since generation was read
+     */
+    public synchronized boolean publishIfCurrent(long generation, Runnable publish) {
+        if (generation != this.generation) {
+            return false;
+        }
+        publish.run();
+        return true;
+    }
+
+    /*
+     * runs drop now and, when called inside a transaction, again after it
+     * completes whether it committed or not
+     */
+    public void invalidate(Runnable drop) {
+        drop(drop);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    drop(drop);
+                }
+            });
+        }
+    }
+
+    private synchronized void drop(Runnable drop) {
+        generation++;
+        drop.run();
+    }
+}
@@ -0,0 +1,133 @@
+package org.openelisglobal.common.util;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.openelisglobal.common.log.LogEvent;
+
+/**
+ * Sends the rows of an outbox table, claiming the due rows a batch at a time
+ * and delivering each on the executor with at most maxConcurrent in flight.
+ * The claim should lease the rows it returns so a row whose delivery never
+ * finishes is claimed again once the lease runs out.
+ *
+ * A row that was not delivered is due again after a backoff that doubles with
+ * every attempt, see {@link #getNextAttemptTime(int)}.
+ */
+public class OutboxDispatcher<T> {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @FunctionalInterface
+    public interface Claimer<T> {
+        /*
+         * claims up to limit due rows
+         */
+        List<T> claim(int limit);
+    }
+
+    @FunctionalInterface
+    public interface Deliverer<T> {
+        /*
+         * sends the row and records the outcome, a row left as it is is claimed again
+         * when its lease runs out
+         */
+        void deliver(T row);
+    }
+
+    private final Executor executor;
+    private final int maxConcurrent;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Claimer<T> claimer;
+    private final Deliverer<T> deliverer;
+
+    private final Semaphore permits;
+    private final AtomicBoolean claiming = new AtomicBoolean();
+    private final AtomicBoolean claimRequested = new AtomicBoolean();
+    private volatile boolean moreDue;
+
+    public OutboxDispatcher(Executor executor, int maxConcurrent, int batchSize, int maxAttempts,
+            long initialBackoffMillis, long maxBackoffMillis, Claimer<T> claimer, Deliverer<T> deliverer) {
+        this.executor = executor;
+        this.maxConcurrent = maxConcurrent;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.claimer = claimer;
+        this.deliverer = deliverer;
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /*
+     * claims the due rows and starts delivering them. A call made while another
+     * thread is claiming is claimed by that thread once it is done, and the
+     * deliveries claim again while the claims come back full
+     */
+    public void sendDue() {
+        claimRequested.set(true);
+        while (claimRequested.get() && claiming.compareAndSet(false, true)) {
+            try {
+                claimRequested.set(false);
+                int limit = Math.min(permits.availablePermits(), batchSize);
+                if (limit == 0) {
+                    // the next delivery to finish claims again
+                    moreDue = true;
+                    return;
+                }
+                List<T> claimed = claimer.claim(limit);
+                moreDue = claimed.size() == limit;
+                for (T row : claimed) {
+                    permits.acquireUninterruptibly();
+                    executor.execute(() -> deliver(row));
+                }
+            } catch (RuntimeException e) {
+                LogEvent.logError(e);
+            } finally {
+                claiming.set(false);
+            }
+        }
+    }
+
+    public int getInFlight() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /*
+     * when a row that was not delivered on its attempts-th attempt is due again,
+     * null once it has had maxAttempts. The backoff is taken randomly from the
+     * upper half so rows that failed together do not all come back together
+     */
+    public Timestamp getNextAttemptTime(int attempts) {
+        if (attempts >= maxAttempts) {
+            return null;
+        }
+        long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempts - 1, 30));
+        return new Timestamp(
+                System.currentTimeMillis() + backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+    }
+
+    public static String truncateError(String error) {
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private void deliver(T row) {
+        try {
+            deliverer.deliver(row);
+        } catch (RuntimeException e) {
+            // the lease runs out and the row is sent again
+            LogEvent.logError(e);
+        } finally {
+            permits.release();
+            if (moreDue) {
+                sendDue();
+            }
+        }
+    }
+}
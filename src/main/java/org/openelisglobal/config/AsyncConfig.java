@@ -2,18 +2,101 @@ package org.openelisglobal.config;
 
 import java.util.concurrent.Executor;
 import javax.annotation.Nullable;
+import org.openelisglobal.config.InstrumentedTaskExecutor.RejectionPolicy;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.AsyncConfigurerSupport;
 import org.springframework.scheduling.annotation.EnableAsync;
 
 @Configuration
 @EnableAsync
 public class AsyncConfig extends AsyncConfigurerSupport {
+
+    public static final String DEFAULT_EXECUTOR = "defaultTaskExecutor";
+    public static final String FHIR_EXECUTOR = "fhirTaskExecutor";
+    public static final String NOTIFICATION_EXECUTOR = "notificationTaskExecutor";
+    public static final String EXTERNAL_SEND_EXECUTOR = "externalSendTaskExecutor";
+    public static final String REPORT_EXPORT_EXECUTOR = "reportExportTaskExecutor";
+    public static final String ANALYZER_IMPORT_EXECUTOR = "analyzerImportTaskExecutor";
+    public static final String ASTM_LISTENER_EXECUTOR = "astmListenerTaskExecutor";
+    public static final String REPORT_RENDER_EXECUTOR = "reportRenderTaskExecutor";
+    public static final String SMS_SEND_EXECUTOR = "smsSendTaskExecutor";
+
+    private static final String PROPERTY_PREFIX = "org.openelisglobal.async.";
+
+    @Autowired
+    private Environment env;
+
+    @Bean(name = DEFAULT_EXECUTOR)
+    public InstrumentedTaskExecutor defaultTaskExecutor() {
+        return createExecutor("default", 4, 16, 500);
+    }
+
+    // FHIR transforms hold a database connection for their whole run, so keep this
+    // pool well below the JDBC pool size. One the pool is too busy for runs on the
+    // calling thread, the transforms start their own transaction so a failure
+    // there does not roll back the caller's save
+    @Bean(name = FHIR_EXECUTOR)
+    public InstrumentedTaskExecutor fhirTaskExecutor() {
+        return createExecutor("fhir", 4, 8, 200);
+    }
+
+    // as with the fhir pool, a notification run on the calling thread has its own
+    // transaction
+    @Bean(name = NOTIFICATION_EXECUTOR)
+    public InstrumentedTaskExecutor notificationTaskExecutor() {
+        return createExecutor("notification", 2, 8, 1000);
+    }
+
+    @Bean(name = EXTERNAL_SEND_EXECUTOR)
+    public InstrumentedTaskExecutor externalSendTaskExecutor() {
+        return createExecutor("externalSend", 2, 8, 500);
+    }
+
+    // exports can run for many minutes each, so only a few at a time and refuse the
+    // rest instead of running them on the requesting thread
+    @Bean(name = REPORT_EXPORT_EXECUTOR)
+    public InstrumentedTaskExecutor reportExportTaskExecutor() {
+        return createExecutor("reportExport", 1, 2, 20, RejectionPolicy.ABORT);
+    }
+
+    // runs at most one task per analyzer at a time, a task the pool refuses stays
+    // spooled in the database and is handed to it again by the next sweep
+    @Bean(name = ANALYZER_IMPORT_EXECUTOR)
+    public InstrumentedTaskExecutor analyzerImportTaskExecutor() {
+        return createExecutor("analyzerImport", 2, 4, 50, RejectionPolicy.ABORT);
+    }
+
+    // messages from the instruments have already been ACKed, one the pool refuses
+    // stays in its connection's inbox and is drained later, the selector thread
+    // never runs it
+    @Bean(name = ASTM_LISTENER_EXECUTOR)
+    public InstrumentedTaskExecutor astmListenerTaskExecutor() {
+        return createExecutor("astmListener", 2, 4, 500, RejectionPolicy.ABORT);
+    }
+
+    // fills the chunks of large reports, the requesting thread already waits on
+    // them so a full pool fills the chunk there
+    @Bean(name = REPORT_RENDER_EXECUTOR)
+    public InstrumentedTaskExecutor reportRenderTaskExecutor() {
+        return createExecutor("reportRender", 2, 4, 8);
+    }
+
+    // each thread waits on a submit_sm response and the sender never hands it
+    // more than the SMSC sessions' windows hold, so nothing is queued and a thread
+    // is started for every message in flight. maxPoolSize should be at least the
+    // sessions times the window
+    @Bean(name = SMS_SEND_EXECUTOR)
+    public InstrumentedTaskExecutor smsSendTaskExecutor() {
+        return createExecutor("smsSend", 2, 10, 0);
+    }
+
     @Override
     public Executor getAsyncExecutor() {
-        return new SimpleAsyncTaskExecutor();
+        return defaultTaskExecutor();
     }
 
     @Override
@@ -21,4 +104,29 @@ public class AsyncConfig extends AsyncConfigurerSupport {
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new AsyncExceptionHandler();
     }
+
+    private InstrumentedTaskExecutor createExecutor(String name, int defaultCoreSize, int defaultMaxSize,
+            int defaultQueueCapacity) {
+        return createExecutor(name, defaultCoreSize, defaultMaxSize, defaultQueueCapacity,
+                RejectionPolicy.CALLER_RUNS);
+    }
+
+    private InstrumentedTaskExecutor createExecutor(String name, int defaultCoreSize, int defaultMaxSize,
+            int defaultQueueCapacity, RejectionPolicy defaultRejectionPolicy) {
+        String prefix = PROPERTY_PREFIX + name + ".";
+        RejectionPolicy rejectionPolicy = RejectionPolicy.valueOf(
+                env.getProperty(prefix + "rejectionPolicy", defaultRejectionPolicy.name()).toUpperCase());
+        boolean virtualThreads = env.getProperty(prefix + "virtualThreads", Boolean.class,
+                env.getProperty(PROPERTY_PREFIX + "virtualThreads", Boolean.class, false));
+
+        InstrumentedTaskExecutor executor = new InstrumentedTaskExecutor(name, rejectionPolicy, virtualThreads);
+        executor.setCorePoolSize(env.getProperty(prefix + "corePoolSize", Integer.class, defaultCoreSize));
+        executor.setMaxPoolSize(env.getProperty(prefix + "maxPoolSize", Integer.class, defaultMaxSize));
+        executor.setQueueCapacity(env.getProperty(prefix + "queueCapacity", Integer.class, defaultQueueCapacity));
+        executor.setKeepAliveSeconds(env.getProperty(prefix + "keepAliveSeconds", Integer.class, 60));
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
 }
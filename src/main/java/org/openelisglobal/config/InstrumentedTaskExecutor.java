@@ -0,0 +1,211 @@
+package org.openelisglobal.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openelisglobal.common.log.LogEvent;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * A bounded {@link ThreadPoolTaskExecutor} that keeps track of how often it
+ * has been saturated and can optionally run its workers on virtual threads when
+ * the runtime supports them.
+ */
+public class InstrumentedTaskExecutor extends ThreadPoolTaskExecutor {
+
+    private static final long serialVersionUID = 4120329384817367761L;
+
+    public enum RejectionPolicy {
+        CALLER_RUNS, ABORT
+    }
+
+    private final String poolName;
+    private final RejectionPolicy rejectionPolicy;
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private boolean virtualThreads;
+
+    public InstrumentedTaskExecutor(String poolName, RejectionPolicy rejectionPolicy, boolean useVirtualThreads) {
+        this.poolName = poolName;
+        this.rejectionPolicy = rejectionPolicy;
+        setThreadNamePrefix(poolName + "-");
+        setRejectedExecutionHandler(rejectionPolicy == RejectionPolicy.CALLER_RUNS
+                ? new ThreadPoolExecutor.CallerRunsPolicy()
+                : new ThreadPoolExecutor.AbortPolicy());
+        if (useVirtualThreads) {
+            ThreadFactory virtualThreadFactory = createVirtualThreadFactory(poolName + "-");
+            if (virtualThreadFactory != null) {
+                setThreadFactory(virtualThreadFactory);
+                virtualThreads = true;
+            } else {
+                LogEvent.logWarn(this.getClass().getSimpleName(), "InstrumentedTaskExecutor",
+                        "virtual threads requested for " + poolName
+                                + " but are not supported by this runtime, using platform threads");
+            }
+        }
+    }
+
+    @Override
+    protected ExecutorService initializeExecutor(ThreadFactory threadFactory,
+            RejectedExecutionHandler rejectedExecutionHandler) {
+        return super.initializeExecutor(threadFactory, (runnable, executor) -> {
+            rejectedCount.incrementAndGet();
+            rejectedExecutionHandler.rejectedExecution(runnable, executor);
+        });
+    }
+
+    public ExecutorMetrics getMetrics() {
+        ExecutorMetrics metrics = new ExecutorMetrics();
+        metrics.setName(poolName);
+        metrics.setVirtualThreads(virtualThreads);
+        metrics.setRejectionPolicy(rejectionPolicy.name());
+        metrics.setCorePoolSize(getCorePoolSize());
+        metrics.setMaxPoolSize(getMaxPoolSize());
+        metrics.setRejectedCount(rejectedCount.get());
+        ThreadPoolExecutor executor = getThreadPoolExecutor();
+        metrics.setPoolSize(executor.getPoolSize());
+        metrics.setLargestPoolSize(executor.getLargestPoolSize());
+        metrics.setActiveCount(executor.getActiveCount());
+        metrics.setQueueSize(executor.getQueue().size());
+        metrics.setQueueRemainingCapacity(executor.getQueue().remainingCapacity());
+        metrics.setTaskCount(executor.getTaskCount());
+        metrics.setCompletedTaskCount(executor.getCompletedTaskCount());
+        return metrics;
+    }
+
+    // virtual threads only exist from java 21, so they are looked up reflectively
+    // to keep compiling against the project's release level
+    private static ThreadFactory createVirtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public static class ExecutorMetrics {
+        private String name;
+        private boolean virtualThreads;
+        private String rejectionPolicy;
+        private int corePoolSize;
+        private int maxPoolSize;
+        private int poolSize;
+        private int largestPoolSize;
+        private int activeCount;
+        private int queueSize;
+        private int queueRemainingCapacity;
+        private long taskCount;
+        private long completedTaskCount;
+        private long rejectedCount;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public void setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+
+        public String getRejectionPolicy() {
+            return rejectionPolicy;
+        }
+
+        public void setRejectionPolicy(String rejectionPolicy) {
+            this.rejectionPolicy = rejectionPolicy;
+        }
+
+        public int getCorePoolSize() {
+            return corePoolSize;
+        }
+
+        public void setCorePoolSize(int corePoolSize) {
+            this.corePoolSize = corePoolSize;
+        }
+
+        public int getMaxPoolSize() {
+            return maxPoolSize;
+        }
+
+        public void setMaxPoolSize(int maxPoolSize) {
+            this.maxPoolSize = maxPoolSize;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public int getLargestPoolSize() {
+            return largestPoolSize;
+        }
+
+        public void setLargestPoolSize(int largestPoolSize) {
+            this.largestPoolSize = largestPoolSize;
+        }
+
+        public int getActiveCount() {
+            return activeCount;
+        }
+
+        public void setActiveCount(int activeCount) {
+            this.activeCount = activeCount;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public void setQueueSize(int queueSize) {
+            this.queueSize = queueSize;
+        }
+
+        public int getQueueRemainingCapacity() {
+            return queueRemainingCapacity;
+        }
+
+        public void setQueueRemainingCapacity(int queueRemainingCapacity) {
+            this.queueRemainingCapacity = queueRemainingCapacity;
+        }
+
+        public long getTaskCount() {
+            return taskCount;
+        }
+
+        public void setTaskCount(long taskCount) {
+            this.taskCount = taskCount;
+        }
+
+        public long getCompletedTaskCount() {
+            return completedTaskCount;
+        }
+
+        public void setCompletedTaskCount(long completedTaskCount) {
+            this.completedTaskCount = completedTaskCount;
+        }
+
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+        public void setRejectedCount(long rejectedCount) {
+            this.rejectedCount = rejectedCount;
+        }
+    }
+}
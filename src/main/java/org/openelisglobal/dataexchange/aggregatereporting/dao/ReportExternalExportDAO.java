@@ -46,4 +46,12 @@ public interface ReportExternalExportDAO extends BaseDAO<ReportExternalExport, S
     public ReportExternalExport loadReport(ReportExternalExport report) throws LIMSRuntimeException;
 
     public ReportExternalExport readReportExternalExport(String idString) throws LIMSRuntimeException;
+
+    public List<ReportExternalExport> claimDueReportExports(String reportQueueTypeId, int limit, Timestamp now,
+            Timestamp claimedUntil) throws LIMSRuntimeException;
+
+    public void recordFailedDelivery(String id, String error, Timestamp nextAttemptTime, boolean deadLetter)
+            throws LIMSRuntimeException;
+
+    public List<Object[]> getUnsentCountsByDeadLetter(String reportQueueTypeId) throws LIMSRuntimeException;
 }
@@ -14,6 +14,8 @@
 package org.openelisglobal.dataexchange.aggregatereporting.daoimpl;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
@@ -204,4 +206,49 @@ public class ReportExternalExportDAOImpl extends BaseDAOImpl<ReportExternalExpor
     public ReportExternalExport loadReport(ReportExternalExport report) throws LIMSRuntimeException {
         return readReportExternalExport(report.getId());
     }
+
+    @Override
+    public List<ReportExternalExport> claimDueReportExports(String reportQueueTypeId, int limit, Timestamp now,
+            Timestamp claimedUntil) throws LIMSRuntimeException {
+        try {
+            return claimDue("type = :typeId and send_flag = true and dead_letter = false",
+                    Collections.singletonMap("typeId", Integer.parseInt(reportQueueTypeId)), limit, now,
+                    claimedUntil);
+        } catch (HibernateException e) {
+            handleException(e, "claimDueReportExports");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void recordFailedDelivery(String id, String error, Timestamp nextAttemptTime, boolean deadLetter)
+            throws LIMSRuntimeException {
+        String sql = "update ReportExternalExport rq set rq.lastError = :error, rq.nextAttemptTime = :nextAttemptTime,"
+                + " rq.claimedUntil = null, rq.deadLetter = :deadLetter where rq.id = :id";
+        try {
+            Query<?> query = entityManager.unwrap(Session.class).createQuery(sql);
+            query.setParameter("error", error);
+            query.setParameter("nextAttemptTime", nextAttemptTime);
+            query.setParameter("deadLetter", deadLetter);
+            query.setParameter("id", Integer.parseInt(id));
+            query.executeUpdate();
+        } catch (HibernateException e) {
+            handleException(e, "recordFailedDelivery");
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getUnsentCountsByDeadLetter(String reportQueueTypeId) throws LIMSRuntimeException {
+        String sql = "select rq.deadLetter, count(rq) from ReportExternalExport rq where rq.send = true"
+                + " and rq.typeId = :typeId group by rq.deadLetter";
+        try {
+            Query<Object[]> query = entityManager.unwrap(Session.class).createQuery(sql, Object[].class);
+            query.setParameter("typeId", Integer.parseInt(reportQueueTypeId));
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getUnsentCountsByDeadLetter");
+        }
+        return new ArrayList<>();
+    }
 }
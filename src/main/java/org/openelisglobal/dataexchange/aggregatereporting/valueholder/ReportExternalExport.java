@@ -28,6 +28,13 @@ public class ReportExternalExport extends BaseObject<String> {
     private boolean send;
     private String data;
     private String bookkeepingData;
+    // delivery bookkeeping for rows sent by the export outbox
+    private Integer attempts;
+    private Timestamp nextAttemptTime;
+    private Timestamp claimedUntil;
+    private String lastError;
+    private boolean deadLetter;
+    private String messageOutId;
 
     public String getId() {
         return id;
@@ -93,6 +100,54 @@ public class ReportExternalExport extends BaseObject<String> {
         this.bookkeepingData = bookkeepingData;
     }
 
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Timestamp getNextAttemptTime() {
+        return nextAttemptTime;
+    }
+
+    public void setNextAttemptTime(Timestamp nextAttemptTime) {
+        this.nextAttemptTime = nextAttemptTime;
+    }
+
+    public Timestamp getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    public void setClaimedUntil(Timestamp claimedUntil) {
+        this.claimedUntil = claimedUntil;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public boolean isDeadLetter() {
+        return deadLetter;
+    }
+
+    public void setDeadLetter(boolean deadLetter) {
+        this.deadLetter = deadLetter;
+    }
+
+    public String getMessageOutId() {
+        return messageOutId;
+    }
+
+    public void setMessageOutId(String messageOutId) {
+        this.messageOutId = messageOutId;
+    }
+
     public int getDataSize() {
         return data.length();
     }
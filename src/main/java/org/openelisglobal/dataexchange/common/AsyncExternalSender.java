@@ -13,6 +13,7 @@
  */
 package org.openelisglobal.dataexchange.common;
 
+import org.openelisglobal.config.AsyncConfig;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
@@ -20,7 +21,7 @@ import org.springframework.stereotype.Service;
 public class AsyncExternalSender implements IAsyncExternalSender {
 
     @Override
-    @Async
+    @Async(AsyncConfig.EXTERNAL_SEND_EXECUTOR)
     public void sendMessage(IExternalSender sender, ITransmissionResponseHandler responseHandler, String msg) {
         sender.sendMessage();
         if (responseHandler != null) {
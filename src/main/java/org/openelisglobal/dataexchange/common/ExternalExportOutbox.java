@@ -0,0 +1,234 @@
+package org.openelisglobal.dataexchange.common;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.apache.commons.validator.GenericValidator;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.common.util.OutboxDispatcher;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.openelisglobal.dataexchange.aggregatereporting.valueholder.ReportExternalExport;
+import org.openelisglobal.dataexchange.service.aggregatereporting.ReportExternalExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Sends the rows waiting in report_external_export to the systems they are
+ * reported to. Due rows of a destination are claimed a batch at a time with
+ * SKIP LOCKED and a lease, so nodes sharing the database do not send the same
+ * row, and are posted on the externalSend pool with at most maxConcurrent in
+ * flight per destination, so a slow receiver only holds up its own rows.
+ *
+ * A row that is not accepted is tried again after a backoff that doubles with
+ * every attempt, with jitter, and is left as a dead letter after maxAttempts.
+ * Outcomes are matched to their row by id, the destination's handler is called
+ * in a transaction with the row once it has been accepted.
+ */
+@Service
+public class ExternalExportOutbox {
+
+    public interface DeliveryHandler {
+        /*
+         * called in a transaction once the receiver accepted the row, the row should
+         * be removed or marked as sent
+         */
+        void delivered(ReportExternalExport report);
+    }
+
+    @Autowired
+    private ReportExternalExportService reportExternalExportService;
+    @Autowired
+    private CloseableHttpClient httpClient;
+    @Autowired
+    private TransmissionSerializer transmissionSerializer;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    @Qualifier(AsyncConfig.EXTERNAL_SEND_EXECUTOR)
+    private InstrumentedTaskExecutor executor;
+
+    @Value("${org.openelisglobal.export.outbox.batchSize:20}")
+    private int batchSize;
+    // the http client keeps two connections per host unless it is told otherwise
+    @Value("${org.openelisglobal.export.outbox.maxConcurrent:2}")
+    private int maxConcurrent;
+    @Value("${org.openelisglobal.export.outbox.maxAttempts:10}")
+    private int maxAttempts;
+    @Value("${org.openelisglobal.export.outbox.initialBackoffMillis:60000}")
+    private long initialBackoffMillis;
+    @Value("${org.openelisglobal.export.outbox.maxBackoffMillis:21600000}")
+    private long maxBackoffMillis;
+    @Value("${org.openelisglobal.export.outbox.leaseMillis:600000}")
+    private long leaseMillis;
+    @Value("${org.openelisglobal.export.outbox.timeoutMillis:60000}")
+    private int timeoutMillis;
+
+    private final ConcurrentMap<String, Destination> destinations = new ConcurrentHashMap<>();
+
+    /*
+     * the rows of the queue type are sent to the url, which is looked up each time
+     * so a changed configuration is used straight away
+     */
+    public void register(String name, String reportQueueTypeId, Supplier<String> url, DeliveryHandler handler) {
+        Destination destination = new Destination(name, reportQueueTypeId, url, handler);
+        destination.dispatcher = new OutboxDispatcher<>(executor, maxConcurrent, batchSize, maxAttempts,
+                initialBackoffMillis, maxBackoffMillis, limit -> claim(destination, limit),
+                report -> deliver(destination, report));
+        destinations.put(name, destination);
+    }
+
+    /*
+     * claims the due rows of the destination and starts sending them. Called by
+     * the exporters on their schedule and again here while the claims come back
+     * full
+     */
+    public void sendDue(String name) {
+        Destination destination = destinations.get(name);
+        if (destination != null) {
+            destination.dispatcher.sendDue();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new TreeMap<>();
+        for (Destination destination : destinations.values()) {
+            Statistics statistics = destination.statistics;
+            Map<String, Object> destinationMetrics = new LinkedHashMap<>();
+            long pending = 0;
+            long deadLetters = 0;
+            for (Object[] row : reportExternalExportService
+                    .getUnsentCountsByDeadLetter(destination.reportQueueTypeId)) {
+                if (Boolean.TRUE.equals(row[0])) {
+                    deadLetters = ((Number) row[1]).longValue();
+                } else {
+                    pending = ((Number) row[1]).longValue();
+                }
+            }
+            destinationMetrics.put("backlog", pending);
+            destinationMetrics.put("deadLetters", deadLetters);
+            destinationMetrics.put("inFlight", destination.dispatcher.getInFlight());
+            long delivered = statistics.delivered.get();
+            long failed = statistics.failed.get();
+            destinationMetrics.put("delivered", delivered);
+            destinationMetrics.put("failed", failed);
+            destinationMetrics.put("deadLettered", statistics.deadLettered.get());
+            long sent = delivered + failed;
+            destinationMetrics.put("failureRate", sent == 0 ? 0.0 : (double) failed / sent);
+            destinationMetrics.put("averageSendMillis", sent == 0 ? 0 : statistics.sendMillis.get() / sent);
+            destinationMetrics.put("maxSendMillis", statistics.maxSendMillis.get());
+            destinationMetrics.put("averageDeliveryDelayMillis",
+                    delivered == 0 ? 0 : statistics.delayMillis.get() / delivered);
+            metrics.put(destination.name, destinationMetrics);
+        }
+        return metrics;
+    }
+
+    private List<ReportExternalExport> claim(Destination destination, int limit) {
+        if (GenericValidator.isBlankOrNull(destination.url.get())) {
+            return new ArrayList<>();
+        }
+        return reportExternalExportService.claimDueReportExports(destination.reportQueueTypeId, limit,
+                new Timestamp(System.currentTimeMillis() + leaseMillis));
+    }
+
+    private void deliver(Destination destination, ReportExternalExport report) {
+        String url = destination.url.get();
+        if (GenericValidator.isBlankOrNull(url)) {
+            // the url was taken out of the configuration since the claim, the row is
+            // claimed again once it is back
+            return;
+        }
+        long started = System.currentTimeMillis();
+        String error = post(url, report.getData());
+        long finished = System.currentTimeMillis();
+        destination.statistics.sendMillis.addAndGet(finished - started);
+        destination.statistics.maxSendMillis.accumulateAndGet(finished - started, Math::max);
+        if (error == null) {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                ReportExternalExport current = reportExternalExportService.readReportExternalExport(report.getId());
+                if (current != null) {
+                    destination.handler.delivered(current);
+                }
+            });
+            destination.statistics.delivered.incrementAndGet();
+            if (report.getEventDate() != null) {
+                destination.statistics.delayMillis.addAndGet(finished - report.getEventDate().getTime());
+            }
+        } else {
+            failed(destination, report, error);
+        }
+    }
+
+    private void failed(Destination destination, ReportExternalExport report, String error) {
+        destination.statistics.failed.incrementAndGet();
+        int attempts = report.getAttempts() == null ? 1 : report.getAttempts();
+        Timestamp nextAttemptTime = destination.dispatcher.getNextAttemptTime(attempts);
+        boolean deadLetter = nextAttemptTime == null;
+        error = OutboxDispatcher.truncateError(error);
+        reportExternalExportService.recordFailedDelivery(report.getId(), error, nextAttemptTime, deadLetter);
+        if (deadLetter) {
+            destination.statistics.deadLettered.incrementAndGet();
+            LogEvent.logWarn(this.getClass().getSimpleName(), "failed", destination.name + " export "
+                    + report.getId() + " was refused " + attempts + " times and will not be sent again: " + error);
+        }
+    }
+
+    // null when the receiver took the message, otherwise why it did not
+    private String post(String url, String message) {
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setConfig(RequestConfig.custom().setConnectionRequestTimeout(timeoutMillis)
+                .setConnectTimeout(timeoutMillis).setSocketTimeout(timeoutMillis).build());
+        httpPost.setEntity(transmissionSerializer.createEntity(message));
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            int status = response.getStatusLine().getStatusCode();
+            EntityUtils.consume(response.getEntity());
+            return status == HttpStatus.SC_OK ? null : "HTTP " + status;
+        } catch (IOException e) {
+            return e.toString();
+        }
+    }
+
+    private static class Destination {
+        private final String name;
+        private final String reportQueueTypeId;
+        private final Supplier<String> url;
+        private final DeliveryHandler handler;
+        private OutboxDispatcher<ReportExternalExport> dispatcher;
+        private final Statistics statistics = new Statistics();
+
+        private Destination(String name, String reportQueueTypeId, Supplier<String> url, DeliveryHandler handler) {
+            this.name = name;
+            this.reportQueueTypeId = reportQueueTypeId;
+            this.url = url;
+            this.handler = handler;
+        }
+    }
+
+    private static class Statistics {
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong deadLettered = new AtomicLong();
+        private final AtomicLong sendMillis = new AtomicLong();
+        private final AtomicLong maxSendMillis = new AtomicLong();
+        private final AtomicLong delayMillis = new AtomicLong();
+    }
+}
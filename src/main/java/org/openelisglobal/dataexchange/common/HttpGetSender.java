@@ -20,11 +20,14 @@ import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
 import org.openelisglobal.common.log.LogEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 @Component
+@Scope("prototype")
 public class HttpGetSender extends HttpSender {
 
     @Autowired
@@ -47,9 +50,9 @@ public class HttpGetSender extends HttpSender {
         }
 
         HttpGet httpGet = new HttpGet(url);
-        try {
-            CloseableHttpResponse response = httpClient.execute(httpGet);
+        try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
             returnStatus = response.getStatusLine().getStatusCode();
+            EntityUtils.consume(response.getEntity());
             return returnStatus == HttpStatus.SC_OK;
         } catch (IOException e1) {
             LogEvent.logError(e1);
@@ -19,18 +19,22 @@ import org.apache.commons.validator.GenericValidator;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
 import org.openelisglobal.common.log.LogEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+// holds the message being sent, so each transmission gets its own
 @Component
+@Scope("prototype")
 public class HttpPostSender extends HttpSender {
 
     @Autowired
     private CloseableHttpClient httpClient;
+    @Autowired
+    private TransmissionSerializer transmissionSerializer;
 
     @Override
     public boolean sendMessage() {
@@ -46,10 +50,10 @@ public class HttpPostSender extends HttpSender {
         }
 
         HttpPost httpPost = new HttpPost(url);
-        httpPost.setEntity(new StringEntity(message, ContentType.TEXT_PLAIN));
-        try {
-            CloseableHttpResponse response = httpClient.execute(httpPost);
+        httpPost.setEntity(transmissionSerializer.createEntity(message));
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
             returnStatus = response.getStatusLine().getStatusCode();
+            EntityUtils.consume(response.getEntity());
             return returnStatus == HttpStatus.SC_OK;
         } catch (IOException e1) {
             LogEvent.logError(e1);
@@ -1,6 +0,0 @@
-package org.openelisglobal.dataexchange.common;
-
-public interface IRowTransmissionResponseHandler extends ITransmissionResponseHandler {
-
-    public void setRowId(String rowId);
-}
@@ -15,26 +15,13 @@ package org.openelisglobal.dataexchange.common;
 
 import ca.uhn.hl7v2.HL7Exception;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.StringWriter;
-import java.io.Writer;
-import java.net.UnknownHostException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Properties;
-import javax.servlet.http.HttpServletResponse;
-import org.exolab.castor.mapping.Mapping;
-import org.exolab.castor.mapping.MappingException;
 import org.exolab.castor.xml.MarshalException;
-import org.exolab.castor.xml.Marshaller;
 import org.exolab.castor.xml.ValidationException;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.common.log.LogEvent;
-import org.openelisglobal.common.util.resources.ResourceLocator;
 import org.openelisglobal.dataexchange.orderresult.OrderResponseWorker;
 import org.openelisglobal.dataexchange.resultreporting.beans.ResultReportXmit;
 import org.openelisglobal.spring.util.SpringContext;
-import org.xml.sax.InputSource;
 
 public class ReportTransmission {
     public enum HTTP_TYPE {
@@ -55,38 +42,15 @@ public class ReportTransmission {
 
     public void sendReport(Object reportObject, String castorPropertyName, String url, boolean sendAsychronously,
             ITransmissionResponseHandler responseHandler) {
-
-        String xmlString = null;
-        String castorMappingName = getCastorMappingName(castorPropertyName);
-
-        InputSource source = getSource(castorMappingName);
-
-        Mapping castorMapping = new Mapping();
+        String xmlString;
         try {
-            castorMapping.loadMapping(source);
-
-            Marshaller marshaller = new Marshaller();
-            marshaller.setMapping(castorMapping);
-            Writer writer = new StringWriter();
-            marshaller.setWriter(writer);
-            marshaller.marshal(reportObject);
-            xmlString = writer.toString();
-
-            sendRawReport(xmlString, url, sendAsychronously, responseHandler, HTTP_TYPE.POST);
-
-        } catch (UnknownHostException e) {
-            List<String> errors = new ArrayList<>();
-            errors.add(e.toString());
-            responseHandler.handleResponse(HttpServletResponse.SC_BAD_REQUEST, errors, xmlString);
-        } catch (ValidationException | MarshalException | IOException | MappingException e) {
+            xmlString = SpringContext.getBean(TransmissionSerializer.class).marshal(reportObject,
+                    castorPropertyName);
+        } catch (ValidationException | MarshalException | IOException | LIMSRuntimeException e) {
             LogEvent.logError(e);
-        } finally {
-            try {
-                source.getByteStream().close();
-            } catch (IOException e) {
-                LogEvent.logError(e);
-            }
+            return;
         }
+        sendRawReport(xmlString, url, sendAsychronously, responseHandler, HTTP_TYPE.POST);
     }
 
     public void sendRawReport(String contents, String url, boolean sendAsychronously,
@@ -123,36 +87,4 @@ public class ReportTransmission {
             LogEvent.logError(e);
         }
     }
-
-    private String getCastorMappingName(String mapping) {
-        InputStream propertyStream = null;
-
-        ResourceLocator resourceLocator = ResourceLocator.getInstance();
-
-        Properties transmissionMap = new Properties();
-        try {
-            propertyStream = resourceLocator.getNamedResourceAsInputStream(ResourceLocator.XMIT_PROPERTIES);
-            transmissionMap.load(propertyStream);
-        } catch (IOException e) {
-            LogEvent.logError(e);
-            throw new LIMSRuntimeException("Unable to load transmission resource mappings.", e);
-        } finally {
-            if (null != propertyStream) {
-                try {
-                    propertyStream.close();
-                } catch (IOException e) {
-                    LogEvent.logError(e);
-                }
-            }
-        }
-
-        String castorMappingName = transmissionMap.getProperty(mapping);
-        return castorMappingName;
-    }
-
-    protected InputSource getSource(String castorMappingName) {
-        InputStream mappingXml = Thread.currentThread().getContextClassLoader().getResourceAsStream(castorMappingName);
-
-        return new InputSource(mappingXml);
-    }
 }
@@ -0,0 +1,101 @@
+package org.openelisglobal.dataexchange.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.entity.EntityBuilder;
+import org.apache.http.entity.ContentType;
+import org.exolab.castor.mapping.Mapping;
+import org.exolab.castor.mapping.MappingException;
+import org.exolab.castor.xml.MarshalException;
+import org.exolab.castor.xml.Marshaller;
+import org.exolab.castor.xml.ValidationException;
+import org.exolab.castor.xml.XMLContext;
+import org.openelisglobal.common.exception.LIMSRuntimeException;
+import org.openelisglobal.common.util.resources.ResourceLocator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.xml.sax.InputSource;
+
+/**
+ * Turns the objects sent to other systems into the messages that are posted.
+ * The castor mapping named by a Transmission.properties entry is loaded the
+ * first time it is used into an XMLContext, which is safe to share and keeps
+ * the class descriptors it resolves, so each message only needs a new
+ * marshaller from it.
+ *
+ * Messages are gzip compressed on their way into the request when the
+ * receivers are configured to accept it.
+ */
+@Component
+public class TransmissionSerializer {
+
+    @Value("${org.openelisglobal.export.gzip:false}")
+    private boolean gzip;
+
+    private final ConcurrentMap<String, XMLContext> contexts = new ConcurrentHashMap<>();
+    private volatile Properties transmissionMap;
+
+    /*
+     * the xml for the object using the mapping of the Transmission.properties
+     * entry
+     */
+    public String marshal(Object reportObject, String castorPropertyName)
+            throws MarshalException, ValidationException, IOException {
+        StringWriter writer = new StringWriter();
+        Marshaller marshaller = contexts.computeIfAbsent(castorPropertyName, this::createContext).createMarshaller();
+        marshaller.setWriter(writer);
+        marshaller.marshal(reportObject);
+        return writer.toString();
+    }
+
+    /*
+     * the request body for a message, compressed while it is written to the
+     * connection when gzip is on
+     */
+    public HttpEntity createEntity(String message) {
+        EntityBuilder builder = EntityBuilder.create().setText(message).setContentType(ContentType.TEXT_PLAIN);
+        if (gzip) {
+            builder.gzipCompress();
+        }
+        return builder.build();
+    }
+
+    private XMLContext createContext(String castorPropertyName) {
+        String castorMappingName = getTransmissionMap().getProperty(castorPropertyName);
+        if (castorMappingName == null) {
+            throw new LIMSRuntimeException("No transmission mapping named " + castorPropertyName);
+        }
+        try (InputStream mappingXml = Thread.currentThread().getContextClassLoader()
+                .getResourceAsStream(castorMappingName)) {
+            if (mappingXml == null) {
+                throw new LIMSRuntimeException("Unable to find castor mapping " + castorMappingName);
+            }
+            Mapping castorMapping = new Mapping();
+            castorMapping.loadMapping(new InputSource(mappingXml));
+            XMLContext context = new XMLContext();
+            context.addMapping(castorMapping);
+            return context;
+        } catch (IOException | MappingException e) {
+            throw new LIMSRuntimeException("Unable to load castor mapping " + castorMappingName, e);
+        }
+    }
+
+    private Properties getTransmissionMap() {
+        if (transmissionMap == null) {
+            Properties properties = new Properties();
+            try (InputStream propertyStream = ResourceLocator.getInstance()
+                    .getNamedResourceAsInputStream(ResourceLocator.XMIT_PROPERTIES)) {
+                properties.load(propertyStream);
+            } catch (IOException e) {
+                throw new LIMSRuntimeException("Unable to load transmission resource mappings.", e);
+            }
+            transmissionMap = properties;
+        }
+        return transmissionMap;
+    }
+}
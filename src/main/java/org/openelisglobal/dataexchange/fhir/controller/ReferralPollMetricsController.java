@@ -0,0 +1,24 @@
+package org.openelisglobal.dataexchange.fhir.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.openelisglobal.dataexchange.fhir.service.FhirApiWorkflowService;
+import org.openelisglobal.dataexchange.fhir.service.PollCycleMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/rest")
+public class ReferralPollMetricsController {
+
+    @Autowired
+    private FhirApiWorkflowService fhirApiWorkflowService;
+
+    @GetMapping(value = "/fhir/referral-poll/metrics", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<PollCycleMetrics> getReferralPollMetrics() {
+        return new ArrayList<>(fhirApiWorkflowService.getPollCycleMetrics().values());
+    }
+}
@@ -4,14 +4,23 @@ import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
 import ca.uhn.fhir.rest.gclient.IQuery;
+import ca.uhn.fhir.rest.param.DateRangeParam;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.validator.GenericValidator;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.instance.model.api.IDomainResource;
@@ -37,6 +46,7 @@ import org.hl7.fhir.r4.model.Task.TaskStatus;
 import org.openelisglobal.common.action.IActionConstants;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.services.TableIdService;
+import org.openelisglobal.config.AsyncConfig;
 import org.openelisglobal.dataexchange.fhir.FhirConfig;
 import org.openelisglobal.dataexchange.fhir.FhirUtil;
 import org.openelisglobal.dataexchange.fhir.exception.FhirLocalPersistingException;
@@ -50,7 +60,9 @@ import org.openelisglobal.referral.fhir.service.FhirReferralService;
 import org.openelisglobal.referral.service.ReferralService;
 import org.openelisglobal.spring.util.SpringContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -81,6 +93,23 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
     @Value("${org.openelisglobal.remote.source.updateStatus}")
     private Optional<Boolean> remoteStoreUpdateStatus;
 
+    @Value("${org.openelisglobal.remote.poll.batched:false}")
+    private boolean batchedPolling;
+
+    @Value("${org.openelisglobal.remote.poll.batchSize:100}")
+    private int pollBatchSize;
+
+    @Autowired
+    @Qualifier(AsyncConfig.FHIR_EXECUTOR)
+    private AsyncTaskExecutor fhirTaskExecutor;
+
+    private static final long POLL_WINDOW_OVERLAP_MILLIS = 60 * 1000;
+
+    // local task changes before this time have already been applied for a remote
+    // store. Kept in memory, so the first cycle after a restart checks every referral
+    private final Map<String, Date> lastPollTimes = new ConcurrentHashMap<>();
+    private final Map<String, PollCycleMetrics> pollCycleMetrics = new ConcurrentHashMap<>();
+
     @Override
     @Scheduled(initialDelay = 10 * 1000, fixedRateString = "${org.openelisglobal.remote.poll.frequency:120000}")
     public void pollForRemoteTasks() {
@@ -90,36 +119,59 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
     @Override
     @Async
     public void processWorkflow(ResourceType resourceType) {
-        for (String remoteStorePath : fhirConfig.getRemoteStorePaths()) {
-            switch (resourceType) {
-            case Task:
-                try {
-                    beginTaskImportOrderPath(remoteStorePath);
-                } catch (RuntimeException e) {
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
-                            "could not process Task import workflow using remote address: " + remoteStorePath);
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
-                }
-                try {
+        if (batchedPolling) {
+            // remote stores are independent of each other so they're polled in parallel
+            List<CompletableFuture<Void>> storeWorkflows = new ArrayList<>();
+            for (String remoteStorePath : fhirConfig.getRemoteStorePaths()) {
+                storeWorkflows.add(CompletableFuture
+                        .runAsync(() -> processWorkflow(resourceType, remoteStorePath), fhirTaskExecutor));
+            }
+            CompletableFuture.allOf(storeWorkflows.toArray(new CompletableFuture[storeWorkflows.size()])).join();
+        } else {
+            for (String remoteStorePath : fhirConfig.getRemoteStorePaths()) {
+                processWorkflow(resourceType, remoteStorePath);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, PollCycleMetrics> getPollCycleMetrics() {
+        return pollCycleMetrics;
+    }
+
+    private void processWorkflow(ResourceType resourceType, String remoteStorePath) {
+        switch (resourceType) {
+        case Task:
+            try {
+                beginTaskImportOrderPath(remoteStorePath);
+            } catch (RuntimeException e) {
+                LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
+                        "could not process Task import workflow using remote address: " + remoteStorePath);
+                LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
+            }
+            try {
+                if (batchedPolling) {
+                    beginTaskCheckIfAcceptedPathBatched(remoteStorePath);
+                } else {
                     beginTaskCheckIfAcceptedPath(remoteStorePath);
-                } catch (RuntimeException e) {
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
-                            "could not process Task accepted workflow using remote address: " + remoteStorePath);
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
-                } catch (FhirLocalPersistingException e) {
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
-                            "could not process Task result import workflow using remote address: " + remoteStorePath);
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
-                }
-                try {
-                    beginTaskImportResultsPath(remoteStorePath);
-                } catch (RuntimeException e) {
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
-                            "could not process Task workflow using remote address: " + remoteStorePath);
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
                 }
-            default:
+            } catch (RuntimeException e) {
+                LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
+                        "could not process Task accepted workflow using remote address: " + remoteStorePath);
+                LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
+            } catch (FhirLocalPersistingException e) {
+                LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
+                        "could not process Task result import workflow using remote address: " + remoteStorePath);
+                LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
             }
+            try {
+                beginTaskImportResultsPath(remoteStorePath);
+            } catch (RuntimeException e) {
+                LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
+                        "could not process Task workflow using remote address: " + remoteStorePath);
+                LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
+            }
+        default:
         }
     }
 
@@ -204,6 +256,157 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
         fhirPersistanceService.updateFhirResourcesInFhirStore(updateResources);
     }
 
+    /*
+     * batched variant of beginTaskCheckIfAcceptedPath. Local tasks based on the
+     * sent referrals are looked up many ids per request and only those changed
+     * since the previous cycle are kept, so the remote store is only queried for
+     * referrals that actually need their status updated
+     */
+    private void beginTaskCheckIfAcceptedPathBatched(String remoteStorePath) throws FhirLocalPersistingException {
+        if (fhirConfig.getRemoteStoreIdentifier().isEmpty()) {
+            return;
+        }
+        Date cycleStart = new Date();
+        long startTime = System.currentTimeMillis();
+        PollRequestCounter counter = new PollRequestCounter();
+        List<String> referralTaskIds = referralService.getSentReferralUuids().stream().map(UUID::toString)
+                .collect(Collectors.toList());
+        Date updatedSince = lastPollTimes.get(remoteStorePath);
+        Map<String, Resource> updateResources = new HashMap<>();
+        boolean failed = true;
+        try {
+            IGenericClient localFhirClient = fhirUtil.getFhirClient(localFhirStorePath);
+            IGenericClient sourceFhirClient = fhirUtil.getFhirClient(remoteStorePath);
+            for (List<String> referralTaskIdsChunk : ListUtils.partition(referralTaskIds, Math.max(1, pollBatchSize))) {
+                Map<String, Task> localTasksByOriginalId = getLocalTasksBasedOnTasks(localFhirClient,
+                        referralTaskIdsChunk, updatedSince, counter);
+                localTasksByOriginalId.values().removeIf(task -> !(TaskStatus.RECEIVED.equals(task.getStatus())
+                        || TaskStatus.ACCEPTED.equals(task.getStatus())
+                        || TaskStatus.REJECTED.equals(task.getStatus())));
+                if (localTasksByOriginalId.isEmpty()) {
+                    continue;
+                }
+
+                Bundle originalTasksBundle = sourceFhirClient.search() //
+                        .forResource(Task.class) //
+                        .returnBundle(Bundle.class) //
+                        .where(Task.STATUS.exactly().codes(TaskStatus.REQUESTED.toCode(), TaskStatus.RECEIVED.toCode())) //
+                        .where(Task.RES_ID.exactly().codes(localTasksByOriginalId.keySet())) //
+                        .count(localTasksByOriginalId.size()) //
+                        .execute();
+                counter.remoteRequests++;
+                for (Task originalTask : getAllTasks(sourceFhirClient, originalTasksBundle, counter, true)) {
+                    Task localTask = localTasksByOriginalId.get(originalTask.getIdElement().getIdPart());
+                    if (localTask != null && !localTask.getStatus().equals(originalTask.getStatus())) {
+                        LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskCheckIfAcceptedPathBatched",
+                                "changing task " + originalTask.getIdElement().getIdPart() + " to "
+                                        + localTask.getStatus());
+                        originalTask.setStatus(localTask.getStatus());
+                        updateResources.put(originalTask.getIdElement().getIdPart(), originalTask);
+                    }
+                }
+            }
+
+            if (!updateResources.isEmpty()) {
+                fhirPersistanceService.updateFhirResourcesInFhirStore(updateResources);
+            }
+            // overlap the next window so changes made while this cycle ran aren't missed
+            lastPollTimes.put(remoteStorePath, new Date(cycleStart.getTime() - POLL_WINDOW_OVERLAP_MILLIS));
+            failed = false;
+        } finally {
+            long duration = System.currentTimeMillis() - startTime;
+            pollCycleMetrics.computeIfAbsent(remoteStorePath, e -> new PollCycleMetrics(e, true)).recordCycle(
+                    cycleStart, duration, counter.remoteRequests, counter.localRequests, referralTaskIds.size(),
+                    updateResources.size(), failed);
+            LogEvent.logDebug(this.getClass().getSimpleName(), "beginTaskCheckIfAcceptedPathBatched",
+                    "checked " + referralTaskIds.size() + " referrals against " + remoteStorePath + " in " + duration
+                            + "ms using " + counter.remoteRequests + " remote and " + counter.localRequests
+                            + " local requests");
+        }
+    }
+
+    private Map<String, Task> getLocalTasksBasedOnTasks(IGenericClient localFhirClient, List<String> taskIds,
+            Date updatedSince, PollRequestCounter counter) {
+        Map<String, Task> tasksByBasedOnId = searchTasksBasedOn(localFhirClient, taskIds, updatedSince, counter);
+
+        // same fallback as getTaskBasedOnTask, for tasks that were copied into the local
+        // store and referenced by identifier instead of being based-on the original
+        Set<String> unresolvedIds = new HashSet<>(taskIds);
+        unresolvedIds.removeAll(tasksByBasedOnId.keySet());
+        if (unresolvedIds.isEmpty()) {
+            return tasksByBasedOnId;
+        }
+        Bundle identifiedTasksBundle = localFhirClient.search() //
+                .forResource(Task.class) //
+                .returnBundle(Bundle.class) //
+                .where(Task.IDENTIFIER.exactly().codes(unresolvedIds)) //
+                .count(unresolvedIds.size()) //
+                .execute();
+        counter.localRequests++;
+        Map<String, String> originalIdsByIdentifiedTaskId = new HashMap<>();
+        for (Task identifiedTask : getAllTasks(localFhirClient, identifiedTasksBundle, counter, false)) {
+            for (Identifier identifier : identifiedTask.getIdentifier()) {
+                if (unresolvedIds.contains(identifier.getValue())) {
+                    originalIdsByIdentifiedTaskId.put(identifiedTask.getIdElement().getIdPart(),
+                            identifier.getValue());
+                }
+            }
+        }
+        if (!originalIdsByIdentifiedTaskId.isEmpty()) {
+            searchTasksBasedOn(localFhirClient, originalIdsByIdentifiedTaskId.keySet(), updatedSince, counter)
+                    .forEach((identifiedTaskId, task) -> tasksByBasedOnId
+                            .put(originalIdsByIdentifiedTaskId.get(identifiedTaskId), task));
+        }
+        return tasksByBasedOnId;
+    }
+
+    private Map<String, Task> searchTasksBasedOn(IGenericClient fhirClient, Collection<String> taskIds,
+            Date updatedSince, PollRequestCounter counter) {
+        IQuery<Bundle> searchQuery = fhirClient.search() //
+                .forResource(Task.class) //
+                .returnBundle(Bundle.class) //
+                .where(Task.BASED_ON.hasAnyOfIds(taskIds)) //
+                .count(taskIds.size());
+        if (updatedSince != null) {
+            searchQuery = searchQuery.lastUpdated(new DateRangeParam(updatedSince, null));
+        }
+        Bundle bundle = searchQuery.execute();
+        counter.localRequests++;
+
+        Set<String> requestedIds = new HashSet<>(taskIds);
+        Map<String, Task> tasksByBasedOnId = new HashMap<>();
+        for (Task task : getAllTasks(fhirClient, bundle, counter, false)) {
+            for (Reference basedOn : task.getBasedOn()) {
+                String basedOnId = basedOn.getReferenceElement().getIdPart();
+                if (requestedIds.contains(basedOnId)) {
+                    tasksByBasedOnId.put(basedOnId, task);
+                }
+            }
+        }
+        return tasksByBasedOnId;
+    }
+
+    private List<Task> getAllTasks(IGenericClient fhirClient, Bundle bundle, PollRequestCounter counter,
+            boolean remote) {
+        List<Task> tasks = new ArrayList<>();
+        while (true) {
+            for (BundleEntryComponent bundleEntry : bundle.getEntry()) {
+                if (bundleEntry.hasResource() && bundleEntry.getResource().getResourceType().equals(ResourceType.Task)) {
+                    tasks.add((Task) bundleEntry.getResource());
+                }
+            }
+            if (bundle.getLink(IBaseBundle.LINK_NEXT) == null) {
+                return tasks;
+            }
+            bundle = fhirClient.loadPage().next(bundle).execute();
+            if (remote) {
+                counter.remoteRequests++;
+            } else {
+                counter.localRequests++;
+            }
+        }
+    }
+
     private void beginTaskImportResultsPath(String remoteStorePath) {
         if (fhirConfig.getRemoteStoreIdentifier().isEmpty()) {
             return;
@@ -944,4 +1147,9 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
         public DiagnosticReport diagnosticReport;
         public List<Observation> observations = new ArrayList<>();
     }
+
+    private static class PollRequestCounter {
+        private int remoteRequests;
+        private int localRequests;
+    }
 }
@@ -1,5 +1,6 @@
 package org.openelisglobal.dataexchange.fhir.service;
 
+import java.util.Map;
 import org.hl7.fhir.r4.model.ResourceType;
 
 public interface FhirApiWorkflowService {
@@ -7,4 +8,6 @@ public interface FhirApiWorkflowService {
     void processWorkflow(ResourceType resourceType);
 
     void pollForRemoteTasks();
+
+    Map<String, PollCycleMetrics> getPollCycleMetrics();
 }
@@ -0,0 +1,32 @@
+package org.openelisglobal.dataexchange.fhir.service;
+
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+
+/**
+ * Tracks how far the resources of a remote registry have been imported so
+ * later imports only need to fetch what changed since then.
+ */
+public interface FhirDeltaSyncService {
+
+    Optional<Date> getHighWaterMark(String sourcePath, Class<? extends IBaseResource> resourceType);
+
+    void saveHighWaterMark(String sourcePath, Class<? extends IBaseResource> resourceType, Date highWaterMark);
+
+    List<Bundle> searchChangedSince(IGenericClient client, Class<? extends IBaseResource> resourceType, Date since);
+
+    Set<String> getDeletedIdsSince(IGenericClient client, Class<? extends IBaseResource> resourceType, Date since);
+
+    /**
+     * The mark to save once the resources of bundles were imported, held back at
+     * the earliest of failedResources so those are fetched again. Empty when
+     * there is nothing to move the mark to.
+     */
+    Optional<Date> getNewHighWaterMark(List<Bundle> bundles, Collection<? extends IBaseResource> failedResources);
+}
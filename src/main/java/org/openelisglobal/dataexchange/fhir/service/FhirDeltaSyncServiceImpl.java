@@ -0,0 +1,160 @@
+package org.openelisglobal.dataexchange.fhir.service;
+
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.gclient.IQuery;
+import ca.uhn.fhir.rest.param.DateParam;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.param.ParamPrefixEnum;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
+import org.hl7.fhir.r4.model.Bundle.HTTPVerb;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.InstantType;
+import org.openelisglobal.checkpoint.service.CheckpointService;
+import org.openelisglobal.common.log.LogEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Service
+public class FhirDeltaSyncServiceImpl implements FhirDeltaSyncService {
+
+    private static final String CHECKPOINT_PREFIX = "fhirImport.";
+
+    @Autowired
+    private CheckpointService checkpointService;
+
+    @Override
+    public Optional<Date> getHighWaterMark(String sourcePath, Class<? extends IBaseResource> resourceType) {
+        return checkpointService.getCursor(getCheckpointName(sourcePath, resourceType))
+                .map(mark -> new InstantType(mark).getValue());
+    }
+
+    /*
+     * when called inside a transaction the mark is only saved once the imported
+     * resources have committed with it, so a rolled back import is fetched again
+     */
+    @Override
+    public void saveHighWaterMark(String sourcePath, Class<? extends IBaseResource> resourceType,
+            Date highWaterMark) {
+        String checkpointName = getCheckpointName(sourcePath, resourceType);
+        String mark = new InstantType(highWaterMark).getValueAsString();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    checkpointService.saveCursor(checkpointName, mark);
+                }
+            });
+        } else {
+            checkpointService.saveCursor(checkpointName, mark);
+        }
+    }
+
+    /*
+     * resources updated at the mark itself are fetched again as well, the
+     * imports are upserts so that is harmless and nothing updated in the same
+     * instant as the last resource of the previous import is missed
+     */
+    @Override
+    public List<Bundle> searchChangedSince(IGenericClient client, Class<? extends IBaseResource> resourceType,
+            Date since) {
+        IQuery<Bundle> searchQuery = client.search().forResource(resourceType).returnBundle(Bundle.class);
+        if (since != null) {
+            searchQuery = searchQuery
+                    .lastUpdated(new DateRangeParam(new DateParam(ParamPrefixEnum.GREATERTHAN_OR_EQUALS, since), null));
+        }
+        return getAllPages(client, searchQuery.execute());
+    }
+
+    // a _lastUpdated search can't see deleted resources, so these come from the
+    // type's history instead. Not every registry supports _history, in which case
+    // deletions are left for the next full import
+    @Override
+    public Set<String> getDeletedIdsSince(IGenericClient client, Class<? extends IBaseResource> resourceType,
+            Date since) {
+        Set<String> deletedIds = new HashSet<>();
+        List<Bundle> historyBundles;
+        try {
+            historyBundles = getAllPages(client,
+                    client.history().onType(resourceType).returnBundle(Bundle.class).since(since).execute());
+        } catch (BaseServerResponseException e) {
+            LogEvent.logWarn(this.getClass().getSimpleName(), "getDeletedIdsSince",
+                    "could not read history of " + resourceType.getSimpleName() + ": " + e.getMessage());
+            return deletedIds;
+        }
+        for (Bundle historyBundle : historyBundles) {
+            for (BundleEntryComponent entry : historyBundle.getEntry()) {
+                if (entry.hasRequest() && HTTPVerb.DELETE.equals(entry.getRequest().getMethod())) {
+                    deletedIds.add(new IdType(entry.getRequest().getUrl()).getIdPart());
+                }
+            }
+        }
+        return deletedIds;
+    }
+
+    /*
+     * a failed resource holds the mark at its lastUpdated so it is fetched again
+     * by the next import along with everything updated after it. A failed
+     * resource without a lastUpdated can't be placed so the mark isn't moved
+     */
+    @Override
+    public Optional<Date> getNewHighWaterMark(List<Bundle> bundles,
+            Collection<? extends IBaseResource> failedResources) {
+        if (failedResources.isEmpty()) {
+            return getLatestLastUpdated(bundles);
+        }
+        Date earliestFailed = null;
+        for (IBaseResource failedResource : failedResources) {
+            Date lastUpdated = failedResource.getMeta().getLastUpdated();
+            if (lastUpdated == null) {
+                return Optional.empty();
+            }
+            if (earliestFailed == null || lastUpdated.before(earliestFailed)) {
+                earliestFailed = lastUpdated;
+            }
+        }
+        return Optional.of(earliestFailed);
+    }
+
+    private Optional<Date> getLatestLastUpdated(List<Bundle> bundles) {
+        Date latest = null;
+        for (Bundle bundle : bundles) {
+            for (BundleEntryComponent entry : bundle.getEntry()) {
+                if (entry.hasResource() && entry.getResource().getMeta().hasLastUpdated()) {
+                    Date lastUpdated = entry.getResource().getMeta().getLastUpdated();
+                    if (latest == null || lastUpdated.after(latest)) {
+                        latest = lastUpdated;
+                    }
+                }
+            }
+        }
+        return Optional.ofNullable(latest);
+    }
+
+    private List<Bundle> getAllPages(IGenericClient client, Bundle responseBundle) {
+        List<Bundle> responseBundles = new ArrayList<>();
+        responseBundles.add(responseBundle);
+        while (responseBundle.getLink(IBaseBundle.LINK_NEXT) != null) {
+            responseBundle = client.loadPage().next(responseBundle).execute();
+            responseBundles.add(responseBundle);
+        }
+        return responseBundles;
+    }
+
+    // source urls can be longer than a checkpoint name allows, so they're hashed
+    private String getCheckpointName(String sourcePath, Class<? extends IBaseResource> resourceType) {
+        return CHECKPOINT_PREFIX + resourceType.getSimpleName() + "." + Integer.toHexString(sourcePath.hashCode());
+    }
+}
@@ -18,6 +18,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 import org.apache.commons.lang3.ObjectUtils;
@@ -73,6 +74,7 @@ import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.common.util.ConfigurationProperties.Property;
 import org.openelisglobal.common.util.DateUtil;
 import org.openelisglobal.common.util.validator.GenericValidator;
+import org.openelisglobal.config.AsyncConfig;
 import org.openelisglobal.dataexchange.fhir.FhirConfig;
 import org.openelisglobal.dataexchange.fhir.FhirUtil;
 import org.openelisglobal.dataexchange.fhir.exception.FhirLocalPersistingException;
@@ -121,6 +123,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
@@ -189,8 +192,8 @@ public class FhirTransformServiceImpl implements FhirTransformService {
         }
     }
 
-    @Transactional
-    @Async
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Async(AsyncConfig.FHIR_EXECUTOR)
     @Override
     public AsyncResult<Bundle> transformPersistPatients(List<String> patientIds) throws FhirLocalPersistingException {
         LogEvent.logTrace(this.getClass().getSimpleName(), "transformPersistPatients",
@@ -221,8 +224,8 @@ public class FhirTransformServiceImpl implements FhirTransformService {
         return new AsyncResult<>(responseBundle);
     }
 
-    @Transactional
-    @Async
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Async(AsyncConfig.FHIR_EXECUTOR)
     @Override
     public AsyncResult<Bundle> transformPersistObjectsUnderSamples(List<String> sampleIds)
             throws FhirLocalPersistingException {
@@ -239,15 +242,29 @@ public class FhirTransformServiceImpl implements FhirTransformService {
         Map<String, DiagnosticReport> diagnosticReports = new HashMap<>();
         Map<String, Observation> observations = new HashMap<>();
         Map<String, Practitioner> requesters = new HashMap<>();
+
+        // fetch everything for the batch up front in a handful of set based queries
+        // instead of several queries per sample
+        Map<String, Sample> samplesById = sampleService.getSamplesByIds(sampleIds).stream()
+                .collect(Collectors.toMap(Sample::getId, Function.identity()));
+        Map<String, Patient> patientsBySampleId = sampleHumanService.getPatientsForSamples(sampleIds);
+        Map<String, Provider> providersBySampleId = sampleHumanService.getProvidersForSamples(sampleIds);
+        Map<String, List<SampleItem>> sampleItemsBySampleId = sampleItemService.getSampleItemsBySampleIds(sampleIds)
+                .stream().collect(Collectors.groupingBy(e -> e.getSample().getId()));
+        Map<String, List<Analysis>> analysesBySampleId = analysisService.getAnalysesBySampleIds(sampleIds).stream()
+                .collect(Collectors.groupingBy(e -> e.getSampleItem().getSample().getId()));
+        Map<String, List<Result>> resultsBySampleId = resultService.getResultsForSampleIds(sampleIds).stream()
+                .collect(Collectors.groupingBy(e -> e.getAnalysis().getSampleItem().getSample().getId()));
+
         for (String sampleId : sampleIds) {
             LogEvent.logDebug(this.getClass().getSimpleName(), "transformPersistObjectsUnderSamples",
                     "transforming sampleId: " + sampleId);
-            Sample sample = sampleService.get(sampleId);
-            Patient patient = sampleHumanService.getPatientForSample(sample);
-            Provider provider = sampleHumanService.getProviderForSample(sample);
-            List<SampleItem> sampleItems = sampleItemService.getSampleItemsBySampleId(sampleId);
-            List<Analysis> analysises = analysisService.getAnalysesBySampleId(sampleId);
-            List<Result> results = resultService.getResultsForSample(sample);
+            Sample sample = samplesById.get(sampleId);
+            Patient patient = patientsBySampleId.get(sampleId);
+            Provider provider = providersBySampleId.get(sampleId);
+            List<SampleItem> sampleItems = sampleItemsBySampleId.get(sampleId);
+            List<Analysis> analysises = analysesBySampleId.get(sampleId);
+            List<Result> results = resultsBySampleId.get(sampleId);
 
             if (sample != null && sample.getFhirUuid() == null) {
                 sample.setFhirUuid(UUID.randomUUID());
@@ -387,8 +404,8 @@ public class FhirTransformServiceImpl implements FhirTransformService {
     }
 
     @Override
-    @Async
-    @Transactional(readOnly = true)
+    @Async(AsyncConfig.FHIR_EXECUTOR)
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
     public void transformPersistPatient(PatientManagementInfo patientInfo, boolean isCreate)
             throws FhirLocalPersistingException {
         LogEvent.logTrace(this.getClass().getSimpleName(), "transformPersistPatient", "transformPersistPatient called");
@@ -421,8 +438,8 @@ public class FhirTransformServiceImpl implements FhirTransformService {
         fhirPersistanceService.createUpdateFhirResourcesInFhirStore(fhirOperations);
     }
 
-    @Transactional
-    @Async
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Async(AsyncConfig.FHIR_EXECUTOR)
     @Override
     public void transformPersistOrganization(Organization organization) throws FhirLocalPersistingException {
         LogEvent.logTrace(this.getClass().getSimpleName(), "transformPersistOrganization",
@@ -436,8 +453,8 @@ public class FhirTransformServiceImpl implements FhirTransformService {
     }
 
     @Override
-    @Async
-    @Transactional(readOnly = true)
+    @Async(AsyncConfig.FHIR_EXECUTOR)
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
     public void transformPersistOrderEntryFhirObjects(SamplePatientUpdateData updateData,
             PatientManagementInfo patientInfo, boolean useReferral, List<ReferralItem> referralItems)
             throws FhirLocalPersistingException {
@@ -1076,8 +1093,8 @@ public class FhirTransformServiceImpl implements FhirTransformService {
     }
 
     @Override
-    @Async
-    @Transactional(readOnly = true)
+    @Async(AsyncConfig.FHIR_EXECUTOR)
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
     public void transformPersistResultsEntryFhirObjects(ResultsUpdateDataSet actionDataSet)
             throws FhirLocalPersistingException {
         LogEvent.logTrace(this.getClass().getSimpleName(), "transformPersistResultsEntryFhirObjects",
@@ -1106,9 +1123,9 @@ public class FhirTransformServiceImpl implements FhirTransformService {
         Bundle responseBundle = fhirPersistanceService.createUpdateFhirResourcesInFhirStore(fhirOperations);
     }
 
-    @Async
+    @Async(AsyncConfig.FHIR_EXECUTOR)
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
     public void transformPersistResultValidationFhirObjects(List<Result> deletableList,
             List<Analysis> analysisUpdateList, ArrayList<Result> resultUpdateList, List<AnalysisItem> resultItemList,
             ArrayList<Sample> sampleUpdateList, ArrayList<Note> noteUpdateList) throws FhirLocalPersistingException {
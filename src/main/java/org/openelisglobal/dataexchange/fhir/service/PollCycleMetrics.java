@@ -0,0 +1,84 @@
+package org.openelisglobal.dataexchange.fhir.service;
+
+import java.util.Date;
+
+/**
+ * Counters for the most recent referral status poll against one remote FHIR
+ * store, plus running totals since startup.
+ */
+public class PollCycleMetrics {
+
+    private String remoteStorePath;
+    private boolean batched;
+    private Date lastCycleStart;
+    private long lastCycleDurationMillis;
+    private int lastCycleRemoteRequests;
+    private int lastCycleLocalRequests;
+    private int lastCycleReferralsChecked;
+    private int lastCycleTasksUpdated;
+    private boolean lastCycleFailed;
+    private long totalCycles;
+    private long totalRequests;
+
+    public PollCycleMetrics(String remoteStorePath, boolean batched) {
+        this.remoteStorePath = remoteStorePath;
+        this.batched = batched;
+    }
+
+    synchronized void recordCycle(Date cycleStart, long durationMillis, int remoteRequests, int localRequests,
+            int referralsChecked, int tasksUpdated, boolean failed) {
+        lastCycleStart = cycleStart;
+        lastCycleDurationMillis = durationMillis;
+        lastCycleRemoteRequests = remoteRequests;
+        lastCycleLocalRequests = localRequests;
+        lastCycleReferralsChecked = referralsChecked;
+        lastCycleTasksUpdated = tasksUpdated;
+        lastCycleFailed = failed;
+        ++totalCycles;
+        totalRequests += remoteRequests + localRequests;
+    }
+
+    public String getRemoteStorePath() {
+        return remoteStorePath;
+    }
+
+    public boolean isBatched() {
+        return batched;
+    }
+
+    public synchronized Date getLastCycleStart() {
+        return lastCycleStart;
+    }
+
+    public synchronized long getLastCycleDurationMillis() {
+        return lastCycleDurationMillis;
+    }
+
+    public synchronized int getLastCycleRemoteRequests() {
+        return lastCycleRemoteRequests;
+    }
+
+    public synchronized int getLastCycleLocalRequests() {
+        return lastCycleLocalRequests;
+    }
+
+    public synchronized int getLastCycleReferralsChecked() {
+        return lastCycleReferralsChecked;
+    }
+
+    public synchronized int getLastCycleTasksUpdated() {
+        return lastCycleTasksUpdated;
+    }
+
+    public synchronized boolean isLastCycleFailed() {
+        return lastCycleFailed;
+    }
+
+    public synchronized long getTotalCycles() {
+        return totalCycles;
+    }
+
+    public synchronized long getTotalRequests() {
+        return totalRequests;
+    }
+}
@@ -12,6 +12,7 @@ import org.hl7.fhir.r4.model.Identifier;
 import org.hl7.fhir.r4.model.ServiceRequest;
 import org.hl7.fhir.r4.model.Task;
 import org.openelisglobal.common.controller.BaseController;
+import org.openelisglobal.common.dao.KeysetPage;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.services.DisplayListService;
 import org.openelisglobal.common.services.DisplayListService.ListType;
@@ -45,7 +46,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class RestElectronicOrdersController extends BaseController {
 
     private static final String[] ALLOWED_FIELDS = new String[] { "searchType", "searchValue", "startDate", "endDate",
-            "testIds", "statusId", "useAllInfo" };
+            "testIds", "statusId", "useAllInfo", "cursor" };
 
     @Autowired
     private StatusOfSampleService statusOfSampleService;
@@ -83,7 +84,14 @@ public class RestElectronicOrdersController extends BaseController {
             List<ElectronicOrder> electronicOrders;
             List<ElectronicOrderDisplayItem> eOrderDisplayItems;
 
-            electronicOrders = electronicOrderService.searchForElectronicOrders(form);
+            if (form.getCursor() == null) {
+                electronicOrders = electronicOrderService.searchForElectronicOrders(form);
+            } else {
+                KeysetPage<ElectronicOrder> page = getPage(form);
+                electronicOrders = page.getItems();
+                form.setNextCursor(page.getNextCursor());
+                form.setPreviousCursor(page.getPreviousCursor());
+            }
             eOrderDisplayItems = convertToDisplayItem(electronicOrders, form.getUseAllInfo());
 
             form.setSearchFinished(true);
@@ -93,6 +101,17 @@ public class RestElectronicOrdersController extends BaseController {
         return form;
     }
 
+    private KeysetPage<ElectronicOrder> getPage(ElectronicOrderViewForm form) {
+        try {
+            return electronicOrderService.searchForElectronicOrdersPage(form);
+        } catch (IllegalArgumentException e) {
+            // a cursor from an older search, start over
+            LogEvent.logWarn(this.getClass().getSimpleName(), "getPage", e.getMessage());
+            form.setCursor("");
+            return electronicOrderService.searchForElectronicOrdersPage(form);
+        }
+    }
+
     private List<ElectronicOrderDisplayItem> convertToDisplayItem(List<ElectronicOrder> electronicOrders,
             boolean useAllInfo) {
         return electronicOrders.stream().map(e -> convertToDisplayItem(e, useAllInfo)).collect(Collectors.toList());
@@ -17,6 +17,7 @@ import java.sql.Date;
 import java.sql.Timestamp;
 import java.util.List;
 import org.openelisglobal.common.dao.BaseDAO;
+import org.openelisglobal.common.dao.KeysetPage;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder.SortOrder;
@@ -34,13 +35,25 @@ public interface ElectronicOrderDAO extends BaseDAO<ElectronicOrder, String> {
 
     List<ElectronicOrder> getAllElectronicOrdersOrderedBy(ElectronicOrder.SortOrder order);
 
-    public List<ElectronicOrder> getAllElectronicOrdersContainingValueOrderedBy(String searchValue, SortOrder order);
+    public List<ElectronicOrder> getAllElectronicOrdersContainingValueOrderedBy(String searchValue, SortOrder order,
+            int offset, int limit);
 
     List<ElectronicOrder> getAllElectronicOrdersContainingValuesOrderedBy(String accessionNumber,
-            String patientLastName, String patientFirstName, String gender, SortOrder order);
+            String patientLastName, String patientFirstName, String gender, SortOrder order, int offset, int limit);
+
+    /**
+     * @param messagePhrase when not blank only orders whose message contains it
+     *                      are returned
+     */
+    List<ElectronicOrder> getElectronicOrdersContainingValuesPage(String accessionNumber, String patientLastName,
+            String patientFirstName, String gender, String messagePhrase, SortOrder order, int startingRecNo,
+            int pageSize);
+
+    int getCountOfElectronicOrdersContainingValues(String accessionNumber, String patientLastName,
+            String patientFirstName, String gender, String messagePhrase);
 
     public List<ElectronicOrder> getElectronicOrdersContainingValueExludedByOrderedBy(String searchValue,
-            List<Integer> exludedStatusIds, SortOrder sortOrder);
+            List<Integer> exludedStatusIds, SortOrder sortOrder, int offset, int limit);
 
     List<ElectronicOrder> getAllElectronicOrdersByDateAndStatus(Date startDate, Date endDate, String statusId,
             SortOrder sortOrder);
@@ -51,6 +64,14 @@ public interface ElectronicOrderDAO extends BaseDAO<ElectronicOrder, String> {
     int getCountOfElectronicOrdersByTimestampAndStatus(Timestamp startTimestamp, Timestamp endTimestamp,
             String statusId);
 
+    /**
+     * @param cursor a cursor from a page returned earlier, null or empty for the
+     *               first page
+     * @return a page of the orders sorted by status
+     */
+    KeysetPage<ElectronicOrder> getElectronicOrdersByTimestampAndStatusPage(Timestamp startTimestamp,
+            Timestamp endTimestamp, String statusId, String cursor);
+
     public List<ElectronicOrder> getAllElectronicOrdersMatchingAnyValue(List<String> identifierValues,
             String patientValue, SortOrder order);
 
@@ -15,17 +15,29 @@ package org.openelisglobal.dataexchange.order.daoimpl;
 
 import java.sql.Date;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Vector;
+import java.util.function.Function;
+import javax.persistence.criteria.Predicate;
 import org.apache.commons.validator.GenericValidator;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
+import org.hibernate.search.engine.search.predicate.dsl.BooleanPredicateClausesStep;
+import org.hibernate.search.engine.search.predicate.dsl.PredicateFinalStep;
+import org.hibernate.search.engine.search.predicate.dsl.SearchPredicateFactory;
+import org.hibernate.search.engine.search.query.SearchQuery;
+import org.hibernate.search.engine.search.sort.dsl.SearchSortFactory;
+import org.hibernate.search.engine.search.sort.dsl.SortFinalStep;
+import org.hibernate.search.mapper.orm.Search;
+import org.openelisglobal.common.dao.KeysetPage;
 import org.openelisglobal.common.daoimpl.BaseDAOImpl;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.dataexchange.order.dao.ElectronicOrderDAO;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder.SortOrder;
+import org.openelisglobal.hibernate.search.bridge.PatientIdentityBinder;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -77,48 +89,15 @@ public class ElectronicOrderDAOImpl extends BaseDAOImpl<ElectronicOrder, String>
     }
 
     @Override
-    public List<ElectronicOrder> getAllElectronicOrdersContainingValueOrderedBy(String searchValue, SortOrder order) {
-
-        String sql = "from ElectronicOrder eo join eo.patient patient join patient.person person  where"
-                + " lower(eo.data) like concat('%', lower(:searchValue), '%') or"
-                + " lower(person.firstName) like concat('%', lower(:searchValue), '%') or"
-                + " lower(person.lastName) like concat('%', lower(:searchValue), '%') or patient.id in"
-                + " (SELECT identity.patientId FROM PatientIdentity identity WHERE"
-                + " identity.identityData like concat('%', :searchValue, '%')) or patient.nationalId"
-                + " like concat('%', :searchValue, '%') or lower(concat(person.firstName, ' ',"
-                + " person.lastName)) like concat('%', lower(:searchValue), '%') order by ";
-
-        switch (order.getValue()) {
-        case "statusId":
-            sql = sql + "eo.statusId asc";
-            break;
-        case "lastupdatedasc":
-            sql = sql + "eo.statusId asc, eo.lastupdated asc";
-            break;
-        case "lastupdateddesc":
-            sql = sql + "eo.statusId asc, eo.lastupdated desc";
-            break;
-        case "externalId":
-            sql = sql + "eo.externalId asc";
-            break;
-        default:
-            //
-            break;
+    @Transactional(readOnly = true)
+    public List<ElectronicOrder> getAllElectronicOrdersContainingValueOrderedBy(String searchValue, SortOrder order,
+            int offset, int limit) {
+        if (searchValue == null) {
+            return new ArrayList<>();
         }
         try {
-
-            Query query = entityManager.unwrap(Session.class).createQuery(sql);
-            query.setParameter("searchValue", searchValue);
-            // query.setParameter("order", order.getValue());
-            List records = query.list();
-            List<ElectronicOrder> eOrders = new ArrayList<>();
-            for (int i = 0; i < records.size(); i++) {
-                Object[] oArray = (Object[]) records.get(i);
-                ElectronicOrder eo = (ElectronicOrder) oArray[0];
-                eOrders.add(eo);
-            }
-            return eOrders;
-        } catch (HibernateException e) {
+            return getIndexQuery(f -> getContainsValuePredicate(f, searchValue), order).fetchHits(offset, limit);
+        } catch (RuntimeException e) {
             handleException(e, "getAllElectronicOrdersContainingValue");
         }
         return null;
@@ -174,143 +153,141 @@ public class ElectronicOrderDAOImpl extends BaseDAOImpl<ElectronicOrder, String>
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ElectronicOrder> getElectronicOrdersContainingValueExludedByOrderedBy(String searchValue,
-            List<Integer> excludedStatuses, SortOrder sortOrder) {
-
-        String sql = "from ElectronicOrder eo join eo.patient patient join patient.person person  where"
-                + " lower(eo.data) like concat('%', lower(:searchValue), '%') or"
-                + " lower(person.firstName) like concat('%', lower(:searchValue), '%') or"
-                + " lower(person.lastName) like concat('%', lower(:searchValue), '%') or"
-                + " lower(concat(person.firstName, ' ', person.lastName)) like concat('%',"
-                + " lower(:searchValue), '%')or patient.id in (SELECT identity.patientId FROM"
-                + " PatientIdentity identity WHERE identity.identityData like concat('%', :searchValue,"
-                + " '%')) or patient.nationalId like concat('%', :searchValue, '%') and eo.statusId not"
-                + " in (:excludedStatuses) order by ";
-
-        switch (sortOrder) {
-        case STATUS_ID:
-            sql = sql + "eo.statusId asc";
-            break;
-        case LAST_UPDATED_ASC:
-            sql = sql + "eo.statusId asc, eo.lastupdated asc";
-            break;
-        case LAST_UPDATED_DESC:
-            sql = sql + "eo.statusId asc, eo.lastupdated desc";
-            break;
-        case EXTERNAL_ID:
-            sql = sql + "eo.externalId asc";
-            break;
-        default:
-            //
-            break;
+            List<Integer> excludedStatuses, SortOrder sortOrder, int offset, int limit) {
+        if (searchValue == null) {
+            return new ArrayList<>();
         }
         try {
-
-            Query<?> query = entityManager.unwrap(Session.class).createQuery(sql);
-            query.setParameter("searchValue", searchValue);
-            query.setParameter("excludedStatuses", excludedStatuses);
-            // query.setParameter("order", order.getValue());
-            List<?> records = query.list();
-            List<ElectronicOrder> eOrders = new ArrayList<>();
-            for (int i = 0; i < records.size(); i++) {
-                Object[] oArray = (Object[]) records.get(i);
-                ElectronicOrder eo = (ElectronicOrder) oArray[0];
-                eOrders.add(eo);
-            }
-            return eOrders;
-        } catch (HibernateException e) {
+            return getIndexQuery(f -> {
+                BooleanPredicateClausesStep<?> predicate = f.bool().must(getContainsValuePredicate(f, searchValue));
+                for (Integer statusId : excludedStatuses) {
+                    predicate.mustNot(f.match().field("statusId").matching(statusId.toString()));
+                }
+                return predicate;
+            }, sortOrder).fetchHits(offset, limit);
+        } catch (RuntimeException e) {
             handleException(e, "getAllElectronicOrdersContainingValue");
         }
         return null;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ElectronicOrder> getAllElectronicOrdersContainingValuesOrderedBy(String accessionNumber,
-            String patientLastName, String patientFirstName, String gender, SortOrder order) {
-        String sql = "from ElectronicOrder eo " + "join eo.patient patient " + "join patient.person person  ";
-        boolean whereClauseStarted = false;
+            String patientLastName, String patientFirstName, String gender, SortOrder order, int offset, int limit) {
+        try {
+            return getIndexQuery(f -> getContainsValuesPredicate(f, accessionNumber, patientLastName,
+                    patientFirstName, gender, null), order).fetchHits(offset, limit);
+        } catch (RuntimeException e) {
+            handleException(e, "getAllElectronicOrdersContainingValue");
+        }
+        return null;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ElectronicOrder> getElectronicOrdersContainingValuesPage(String accessionNumber,
+            String patientLastName, String patientFirstName, String gender, String messagePhrase, SortOrder order,
+            int startingRecNo, int pageSize) {
+        try {
+            return getIndexQuery(f -> getContainsValuesPredicate(f, accessionNumber, patientLastName,
+                    patientFirstName, gender, messagePhrase), order).fetchHits(startingRecNo - 1, pageSize);
+        } catch (RuntimeException e) {
+            handleException(e, "getElectronicOrdersContainingValuesPage");
+        }
+        return null;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public int getCountOfElectronicOrdersContainingValues(String accessionNumber, String patientLastName,
+            String patientFirstName, String gender, String messagePhrase) {
+        try {
+            return (int) getIndexQuery(f -> getContainsValuesPredicate(f, accessionNumber, patientLastName,
+                    patientFirstName, gender, messagePhrase), SortOrder.STATUS_ID).fetchTotalHitCount();
+        } catch (RuntimeException e) {
+            handleException(e, "getCountOfElectronicOrdersContainingValues");
+        }
+        return 0;
+    }
+
+    private SearchQuery<ElectronicOrder> getIndexQuery(
+            Function<SearchPredicateFactory, PredicateFinalStep> predicate, SortOrder order) {
+        return Search.session(entityManager).search(ElectronicOrder.class).where(predicate)
+                .sort(f -> getIndexSort(f, order)).toQuery();
+    }
+
+    // searches what the LIKE '%value%' queries did: the message, the patient's
+    // names, national id and identities. Values are matched from their start, a
+    // leading wildcard would go through every term of the field
+    private PredicateFinalStep getContainsValuePredicate(SearchPredicateFactory f, String searchValue) {
+        String pattern = getPrefixPattern(searchValue);
+        BooleanPredicateClausesStep<?> predicate = f.bool()
+                .should(f.wildcard().field("externalId").matching(pattern))
+                .should(f.wildcard().field("patient.nationalId").matching(pattern))
+                .should(f.wildcard().field("patient." + PatientIdentityBinder.ST_NUMBER).matching(pattern))
+                .should(f.wildcard().field("patient." + PatientIdentityBinder.SUBJECT_NUMBER).matching(pattern))
+                .should(f.wildcard().field("patient." + PatientIdentityBinder.GUID).matching(pattern))
+                .should(f.nested().objectField("patient.person")
+                        .nest(f.bool().should(f.wildcard().field("patient.person.firstName").matching(pattern))
+                                .should(f.wildcard().field("patient.person.lastName").matching(pattern))));
+        String[] names = searchValue.trim().split("\\s+", 2);
+        if (names.length == 2) {
+            // "first last", and the message as a phrase since it is split into
+            // tokens without spaces
+            predicate.should(f.phrase().field("data").matching(searchValue.trim()));
+            predicate.should(f.nested().objectField("patient.person")
+                    .nest(f.bool()
+                            .must(f.wildcard().field("patient.person.firstName").matching(getPrefixPattern(names[0])))
+                            .must(f.wildcard().field("patient.person.lastName")
+                                    .matching(getPrefixPattern(names[1])))));
+        } else {
+            predicate.should(f.wildcard().field("data").matching(pattern));
+        }
+        return predicate;
+    }
+
+    private PredicateFinalStep getContainsValuesPredicate(SearchPredicateFactory f, String accessionNumber,
+            String patientLastName, String patientFirstName, String gender, String messagePhrase) {
+        BooleanPredicateClausesStep<?> predicate = f.bool().must(f.matchAll());
         if (!GenericValidator.isBlankOrNull(accessionNumber)) {
-            sql += getWherePrefix(whereClauseStarted)
-                    + " lower(eo.data) like concat('%', lower(:accessionNumber), '%') ";
-            whereClauseStarted = true;
-        }
-        // if (!GenericValidator.isBlankOrNull(patientId)) {
-        // sql += getWherePrefix(whereClauseStarted) + "and lower(eo.data) like
-        // concat('%',
-        // lower(:patientId), '%') ";
-        // }
+            predicate.must(f.wildcard().field("data").matching(getPrefixPattern(accessionNumber)));
+        }
         if (!GenericValidator.isBlankOrNull(patientLastName)) {
-            sql += getWherePrefix(whereClauseStarted)
-                    + " lower(person.lastName) like concat('%', lower(:patientLastName), '%') ";
-            whereClauseStarted = true;
+            predicate.must(f.nested().objectField("patient.person")
+                    .nest(f.wildcard().field("patient.person.lastName").matching(getPrefixPattern(patientLastName))));
         }
         if (!GenericValidator.isBlankOrNull(patientFirstName)) {
-            sql += getWherePrefix(whereClauseStarted)
-                    + " lower(person.firstName) like concat('%', lower(:patientFirstName), '%') ";
-            whereClauseStarted = true;
-        }
-        // if (!GenericValidator.isBlankOrNull(dateOfBirth)) {
-        // sql += getWherePrefix(whereClauseStarted) + "lower(patient.birthDate) like
-        // concat('%', lower(:dateOfBirth), '%') ";
-        // }
+            predicate.must(f.nested().objectField("patient.person").nest(
+                    f.wildcard().field("patient.person.firstName").matching(getPrefixPattern(patientFirstName))));
+        }
         if (!GenericValidator.isBlankOrNull(gender)) {
-            sql += getWherePrefix(whereClauseStarted) + " lower(patient.gender) = lower(:gender) ";
-            whereClauseStarted = true;
+            predicate.must(f.match().field("patient.gender").matching(gender));
         }
-        sql += " order by ";
-
-        switch (order.getValue()) {
-        case "statusId":
-            sql = sql + "eo.statusId asc";
-            break;
-        case "lastupdatedasc":
-            sql = sql + "eo.statusId asc, eo.lastupdated asc";
-            break;
-        case "lastupdateddesc":
-            sql = sql + "eo.statusId asc, eo.lastupdated desc";
-            break;
-        case "externalId":
-            sql = sql + "eo.externalId asc";
-            break;
-        default:
-            //
-            break;
+        if (!GenericValidator.isBlankOrNull(messagePhrase)) {
+            predicate.must(f.phrase().field("data").matching(messagePhrase));
         }
-        try {
+        return predicate;
+    }
 
-            Query<?> query = entityManager.unwrap(Session.class).createQuery(sql);
-            if (!GenericValidator.isBlankOrNull(accessionNumber)) {
-                query.setParameter("accessionNumber", accessionNumber);
-            }
-            if (!GenericValidator.isBlankOrNull(patientLastName)) {
-                query.setParameter("patientLastName", patientLastName);
-            }
-            if (!GenericValidator.isBlankOrNull(patientFirstName)) {
-                query.setParameter("patientFirstName", patientFirstName);
-            }
-            if (!GenericValidator.isBlankOrNull(gender)) {
-                query.setParameter("gender", gender);
-            }
-            // query.setParameter("order", order.getValue());
-            List<?> records = query.list();
-            List<ElectronicOrder> eOrders = new ArrayList<>();
-            for (int i = 0; i < records.size(); i++) {
-                Object[] oArray = (Object[]) records.get(i);
-                ElectronicOrder eo = (ElectronicOrder) oArray[0];
-                eOrders.add(eo);
-            }
-            return eOrders;
-        } catch (HibernateException e) {
-            handleException(e, "getAllElectronicOrdersContainingValue");
-        }
-        return null;
+    // wildcard patterns are not normalized, the indexed values are lower case
+    private String getPrefixPattern(String value) {
+        return value.trim().toLowerCase().replace("\\", "\\\\").replace("*", "\\*").replace("?", "\\?") + "*";
     }
 
-    private String getWherePrefix(boolean whereClauseStarted) {
-        if (!whereClauseStarted) {
-            return " where ";
-        } else {
-            return " and ";
+    private SortFinalStep getIndexSort(SearchSortFactory f, SortOrder order) {
+        switch (order) {
+        case LAST_UPDATED_ASC:
+            return f.field("statusId").then().field("lastupdated").asc();
+        case LAST_UPDATED_DESC:
+            return f.field("statusId").then().field("lastupdated").desc();
+        case EXTERNAL_ID:
+            return f.field("externalId");
+        case STATUS_ID:
+        default:
+            return f.field("statusId");
         }
     }
 
@@ -404,6 +381,23 @@ public class ElectronicOrderDAOImpl extends BaseDAOImpl<ElectronicOrder, String>
         return null;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<ElectronicOrder> getElectronicOrdersByTimestampAndStatusPage(java.sql.Timestamp startTimestamp,
+            java.sql.Timestamp endTimestamp, String statusId, String cursor) {
+        return getKeysetPage((criteriaBuilder, root) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (startTimestamp != null) {
+                predicates.add(criteriaBuilder.between(root.<java.sql.Timestamp>get("orderTimestamp"), startTimestamp,
+                        endTimestamp));
+            }
+            if (!GenericValidator.isBlankOrNull(statusId)) {
+                predicates.add(criteriaBuilder.equal(root.get("statusId"), Integer.parseInt(statusId)));
+            }
+            return predicates;
+        }, Arrays.asList("statusId"), false, cursor, getDefaultPageSize());
+    }
+
     @Override
     public int getCountOfElectronicOrdersByTimestampAndStatus(java.sql.Timestamp startTimestamp,
             java.sql.Timestamp endTimestamp, String statusId) {
@@ -50,6 +50,13 @@ public class ElectronicOrderViewForm extends BaseForm {
 
     private String qaNote;
 
+    // null lists every match, empty asks for the first page
+    private String cursor;
+
+    private String nextCursor;
+
+    private String previousCursor;
+
     public ElectronicOrderViewForm() {
         setFormName("ElectronicOrderViewForm");
     }
@@ -217,4 +224,28 @@ public class ElectronicOrderViewForm extends BaseForm {
     public void setQaEventId(String qaEventId) {
         this.qaEventId = qaEventId;
     }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    public void setPreviousCursor(String previousCursor) {
+        this.previousCursor = previousCursor;
+    }
 }
@@ -14,13 +14,25 @@
 package org.openelisglobal.dataexchange.order.valueholder;
 
 import java.sql.Timestamp;
+import org.hibernate.search.engine.backend.types.Sortable;
+import org.hibernate.search.mapper.pojo.automaticindexing.ReindexOnUpdate;
+import org.hibernate.search.mapper.pojo.bridge.mapping.annotation.ValueBridgeRef;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.GenericField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.IndexedEmbedded;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.IndexingDependency;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordField;
 import org.openelisglobal.common.valueholder.BaseObject;
 import org.openelisglobal.common.valueholder.ValueHolder;
+import org.openelisglobal.hibernate.search.bridge.PatientIdentityBinder;
+import org.openelisglobal.hibernate.search.bridge.StringNumberValueBridge;
 import org.openelisglobal.internationalization.MessageUtil;
 import org.openelisglobal.patient.valueholder.Patient;
 import org.openelisglobal.sample.valueholder.OrderPriority;
 import org.openelisglobal.statusofsample.valueholder.StatusOfSample;
 
+@Indexed
 public class ElectronicOrder extends BaseObject<String> {
 
     public enum SortOrder {
@@ -56,11 +68,19 @@ public class ElectronicOrder extends BaseObject<String> {
     private static final long serialVersionUID = 5573858445160470854L;
 
     private String id;
+    @KeywordField(normalizer = "lowercase", sortable = Sortable.YES)
     private String externalId;
+    // an edit to the patient is only picked up when the order itself changes
+    @IndexedEmbedded(includePaths = { "person.firstName", "person.lastName", "nationalId", "externalId", "gender",
+            PatientIdentityBinder.ST_NUMBER, PatientIdentityBinder.SUBJECT_NUMBER, PatientIdentityBinder.GUID })
+    @IndexingDependency(reindexOnUpdate = ReindexOnUpdate.SHALLOW)
     private ValueHolder patient;
+    @GenericField(sortable = Sortable.YES, valueBridge = @ValueBridgeRef(type = StringNumberValueBridge.class))
     private String statusId;
     private StatusOfSample status; // not persisted
+    @GenericField(sortable = Sortable.YES)
     private Timestamp orderTimestamp;
+    @FullTextField(analyzer = "messageTokens")
     private String data;
     private ElectronicOrderType type;
     private OrderPriority priority;
@@ -72,6 +92,13 @@ public class ElectronicOrder extends BaseObject<String> {
         patient = new ValueHolder();
     }
 
+    // indexed so searches can sort on it like the queries do
+    @Override
+    @GenericField(sortable = Sortable.YES)
+    public Timestamp getLastupdated() {
+        return super.getLastupdated();
+    }
+
     @Override
     public String getId() {
         return id;
@@ -65,6 +65,7 @@ public class ResultReportingTransfer {
     }
 
     public void sendResults(ResultReportXmit resultReport, List<Result> reportingResult, String url) {
+        boolean referred = false;
         for (TestResultsXmit result : resultReport.getTestResults()) {
 
             // TODO delete if successfully moved to other area
@@ -97,11 +98,14 @@ public class ResultReportingTransfer {
             // continue;
             // }
             if (!GenericValidator.isBlankOrNull(result.getReferringOrderNumber())) { // HL7
-                ITransmissionResponseHandler responseHandler = new ResultFailHandler(reportingResult);
-                new ReportTransmission().sendHL7Report(resultReport, url, responseHandler);
-                continue;
+                referred = true;
             }
         }
+        // the message carries every result of the report, so it is sent once
+        if (referred) {
+            ITransmissionResponseHandler responseHandler = new ResultFailHandler(reportingResult);
+            new ReportTransmission().sendHL7Report(resultReport, url, responseHandler);
+        }
     }
 
     class ResultFailHandler implements ITransmissionResponseHandler {
@@ -118,12 +122,12 @@ public class ResultReportingTransfer {
                 markFinalResultsAsSent();
                 persistMessage(msg, true);
             } else {
-                bufferResults(msg);
-                persistMessage(msg, false);
+                // the buffered row points at its message so the outbox can mark it sent
+                bufferResults(msg, persistMessage(msg, false));
             }
         }
 
-        private void persistMessage(String msg, boolean success) {
+        private String persistMessage(String msg, boolean success) {
             HL7MessageOutService messageOutService = SpringContext.getBean(HL7MessageOutService.class);
             HL7MessageOut messageOut = new HL7MessageOut();
             messageOut.setData(msg);
@@ -132,10 +136,10 @@ public class ResultReportingTransfer {
             } else {
                 messageOut.setStatus(HL7MessageOut.FAIL);
             }
-            messageOutService.insert(messageOut);
+            return messageOutService.insert(messageOut);
         }
 
-        private void bufferResults(String msg) {
+        private void bufferResults(String msg, String messageOutId) {
             ReportExternalExport report = new ReportExternalExport();
             report.setData(msg);
             report.setSysUserId("1");
@@ -144,6 +148,7 @@ public class ResultReportingTransfer {
             report.setTypeId(QUEUE_TYPE_ID);
             report.setBookkeepingData(getResultIdListString() == null ? "" : getResultIdListString());
             report.setSend(true);
+            report.setMessageOutId(messageOutId);
 
             try {
                 SpringContext.getBean(ReportExternalExportService.class).insert(report);
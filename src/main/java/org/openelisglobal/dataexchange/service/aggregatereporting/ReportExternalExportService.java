@@ -26,4 +26,10 @@ public interface ReportExternalExportService extends BaseObjectService<ReportExt
     List<ReportExternalExport> getRecalculateReportExports(String reportQueueTypeId);
 
     ReportExternalExport loadReport(ReportExternalExport report);
+
+    List<ReportExternalExport> claimDueReportExports(String reportQueueTypeId, int limit, Timestamp claimedUntil);
+
+    void recordFailedDelivery(String id, String error, Timestamp nextAttemptTime, boolean deadLetter);
+
+    List<Object[]> getUnsentCountsByDeadLetter(String reportQueueTypeId);
 }
@@ -3,6 +3,7 @@ package org.openelisglobal.dataexchange.service.aggregatereporting;
 import java.sql.Timestamp;
 import java.util.List;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.util.DateUtil;
 import org.openelisglobal.dataexchange.aggregatereporting.dao.ReportExternalExportDAO;
 import org.openelisglobal.dataexchange.aggregatereporting.valueholder.ReportExternalExport;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -83,4 +84,24 @@ public class ReportExternalExportServiceImpl extends AuditableBaseObjectServiceI
     public ReportExternalExport loadReport(ReportExternalExport report) {
         return getBaseObjectDAO().loadReport(report);
     }
+
+    @Override
+    @Transactional
+    public List<ReportExternalExport> claimDueReportExports(String reportQueueTypeId, int limit,
+            Timestamp claimedUntil) {
+        return getBaseObjectDAO().claimDueReportExports(reportQueueTypeId, limit, DateUtil.getNowAsTimestamp(),
+                claimedUntil);
+    }
+
+    @Override
+    @Transactional
+    public void recordFailedDelivery(String id, String error, Timestamp nextAttemptTime, boolean deadLetter) {
+        getBaseObjectDAO().recordFailedDelivery(id, error, nextAttemptTime, deadLetter);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getUnsentCountsByDeadLetter(String reportQueueTypeId) {
+        return getBaseObjectDAO().getUnsentCountsByDeadLetter(reportQueueTypeId);
+    }
 }
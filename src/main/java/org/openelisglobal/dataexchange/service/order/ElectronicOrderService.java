@@ -3,6 +3,7 @@ package org.openelisglobal.dataexchange.service.order;
 import java.sql.Date;
 import java.sql.Timestamp;
 import java.util.List;
+import org.openelisglobal.common.dao.KeysetPage;
 import org.openelisglobal.common.service.BaseObjectService;
 import org.openelisglobal.common.services.StatusService.ExternalOrderStatus;
 import org.openelisglobal.dataexchange.order.form.ElectronicOrderViewForm;
@@ -15,13 +16,21 @@ public interface ElectronicOrderService extends BaseObjectService<ElectronicOrde
 
     List<ElectronicOrder> getElectronicOrdersByExternalId(String id);
 
-    List<ElectronicOrder> getAllElectronicOrdersContainingValueOrderedBy(String searchValue, SortOrder sortOrder);
+    List<ElectronicOrder> getAllElectronicOrdersContainingValueOrderedBy(String searchValue, SortOrder sortOrder,
+            int offset, int limit);
 
     List<ElectronicOrder> getAllElectronicOrdersContainingValuesOrderedBy(String accessionNumber,
-            String patientLastName, String patientFirstName, String gender, SortOrder order);
+            String patientLastName, String patientFirstName, String gender, SortOrder order, int offset, int limit);
+
+    List<ElectronicOrder> getElectronicOrdersContainingValuesPage(String accessionNumber, String patientLastName,
+            String patientFirstName, String gender, String messagePhrase, SortOrder order, int startingRecNo,
+            int pageSize);
+
+    int getCountOfElectronicOrdersContainingValues(String accessionNumber, String patientLastName,
+            String patientFirstName, String gender, String messagePhrase);
 
     List<ElectronicOrder> getElectronicOrdersContainingValueExludedByOrderedBy(String searchValue,
-            List<ExternalOrderStatus> excludedStatuses, SortOrder sortOrder);
+            List<ExternalOrderStatus> excludedStatuses, SortOrder sortOrder, int offset, int limit);
 
     List<ElectronicOrder> getAllElectronicOrdersByDateAndStatus(Date startDate, Date endDate, String statusId,
             SortOrder sortOrder);
@@ -40,5 +49,7 @@ public interface ElectronicOrderService extends BaseObjectService<ElectronicOrde
 
     List<ElectronicOrder> searchForElectronicOrders(ElectronicOrderViewForm form);
 
+    KeysetPage<ElectronicOrder> searchForElectronicOrdersPage(ElectronicOrderViewForm form);
+
     List<ElectronicOrder> searchForStudyElectronicOrders(ElectronicOrderViewForm form);
 }
@@ -10,7 +10,9 @@ import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
 import org.hl7.fhir.r4.model.ResourceType;
 import org.hl7.fhir.r4.model.ServiceRequest;
+import org.openelisglobal.common.dao.KeysetPage;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.services.DashBoardMetricsService;
 import org.openelisglobal.common.services.IStatusService;
 import org.openelisglobal.common.services.StatusService.ExternalOrderStatus;
 import org.openelisglobal.common.util.DateUtil;
@@ -18,6 +20,7 @@ import org.openelisglobal.dataexchange.fhir.FhirConfig;
 import org.openelisglobal.dataexchange.fhir.FhirUtil;
 import org.openelisglobal.dataexchange.order.dao.ElectronicOrderDAO;
 import org.openelisglobal.dataexchange.order.form.ElectronicOrderViewForm;
+import org.openelisglobal.dataexchange.order.form.ElectronicOrderViewForm.SearchType;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder.SortOrder;
 import org.openelisglobal.organization.service.OrganizationService;
@@ -51,6 +54,26 @@ public class ElectronicOrderServiceImpl extends AuditableBaseObjectServiceImpl<E
         return baseObjectDAO;
     }
 
+    @Override
+    @Transactional
+    public String insert(ElectronicOrder electronicOrder) {
+        DashBoardMetricsService.changed();
+        return super.insert(electronicOrder);
+    }
+
+    @Override
+    protected ElectronicOrder update(ElectronicOrder electronicOrder, String auditTrailType) {
+        DashBoardMetricsService.changed();
+        return super.update(electronicOrder, auditTrailType);
+    }
+
+    @Override
+    @Transactional
+    public void delete(ElectronicOrder electronicOrder) {
+        DashBoardMetricsService.changed();
+        super.delete(electronicOrder);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<ElectronicOrder> getAllElectronicOrdersOrderedBy(SortOrder order) {
@@ -64,10 +87,11 @@ public class ElectronicOrderServiceImpl extends AuditableBaseObjectServiceImpl<E
     }
 
     @Override
-    public List<ElectronicOrder> getAllElectronicOrdersContainingValueOrderedBy(String searchValue, SortOrder order) {
+    public List<ElectronicOrder> getAllElectronicOrdersContainingValueOrderedBy(String searchValue, SortOrder order,
+            int offset, int limit) {
 
         List<ElectronicOrder> searchResult = getBaseObjectDAO()
-                .getAllElectronicOrdersContainingValueOrderedBy(searchValue, order);
+                .getAllElectronicOrdersContainingValueOrderedBy(searchValue, order, offset, limit);
 
         if (searchResult != null && searchResult.size() > 0) {
             return searchResult;
@@ -77,19 +101,36 @@ public class ElectronicOrderServiceImpl extends AuditableBaseObjectServiceImpl<E
         if (searchValue != null && searchValue.contains(".")) {
             searchValue = searchValue.substring(0, searchValue.indexOf('.'));
         }
-        return getBaseObjectDAO().getAllElectronicOrdersContainingValueOrderedBy(searchValue, order);
+        return getBaseObjectDAO().getAllElectronicOrdersContainingValueOrderedBy(searchValue, order, offset, limit);
     }
 
     @Override
     public List<ElectronicOrder> getAllElectronicOrdersContainingValuesOrderedBy(String accessionNumber,
-            String patientLastName, String patientFirstName, String gender, SortOrder order) {
+            String patientLastName, String patientFirstName, String gender, SortOrder order, int offset, int limit) {
         return getBaseObjectDAO().getAllElectronicOrdersContainingValuesOrderedBy(accessionNumber, patientLastName,
-                patientFirstName, gender, order);
+                patientFirstName, gender, order, offset, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ElectronicOrder> getElectronicOrdersContainingValuesPage(String accessionNumber,
+            String patientLastName, String patientFirstName, String gender, String messagePhrase, SortOrder order,
+            int startingRecNo, int pageSize) {
+        return getBaseObjectDAO().getElectronicOrdersContainingValuesPage(accessionNumber, patientLastName,
+                patientFirstName, gender, messagePhrase, order, startingRecNo, pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public int getCountOfElectronicOrdersContainingValues(String accessionNumber, String patientLastName,
+            String patientFirstName, String gender, String messagePhrase) {
+        return getBaseObjectDAO().getCountOfElectronicOrdersContainingValues(accessionNumber, patientLastName,
+                patientFirstName, gender, messagePhrase);
     }
 
     @Override
     public List<ElectronicOrder> getElectronicOrdersContainingValueExludedByOrderedBy(String searchValue,
-            List<ExternalOrderStatus> excludedStatuses, SortOrder sortOrder) {
+            List<ExternalOrderStatus> excludedStatuses, SortOrder sortOrder, int offset, int limit) {
         List<Integer> exludedStatusIds = new ArrayList<>();
         for (ExternalOrderStatus status : excludedStatuses) {
             String statusId = statusService.getStatusID(status);
@@ -99,7 +140,7 @@ public class ElectronicOrderServiceImpl extends AuditableBaseObjectServiceImpl<E
         }
 
         return getBaseObjectDAO().getElectronicOrdersContainingValueExludedByOrderedBy(searchValue, exludedStatusIds,
-                sortOrder);
+                sortOrder, offset, limit);
     }
 
     @Override
@@ -147,25 +188,39 @@ public class ElectronicOrderServiceImpl extends AuditableBaseObjectServiceImpl<E
 
             return eOrders;
         case DATE_STATUS:
-            String startDate = form.getStartDate();
-            String endDate = form.getEndDate();
-            if (GenericValidator.isBlankOrNull(startDate) && !GenericValidator.isBlankOrNull(endDate)) {
-                startDate = endDate;
-            }
-            if (GenericValidator.isBlankOrNull(endDate) && !GenericValidator.isBlankOrNull(startDate)) {
-                endDate = startDate;
-            }
-            java.sql.Timestamp startTimestamp = GenericValidator.isBlankOrNull(startDate) ? null
-                    : DateUtil.convertStringDateStringTimeToTimestamp(startDate, "00:00:00.0");
-            java.sql.Timestamp endTimestamp = GenericValidator.isBlankOrNull(endDate) ? null
-                    : DateUtil.convertStringDateStringTimeToTimestamp(endDate, "23:59:59");
-            return getAllElectronicOrdersByTimestampAndStatus(startTimestamp, endTimestamp, form.getStatusId(),
-                    SortOrder.STATUS_ID);
+            return getAllElectronicOrdersByTimestampAndStatus(getSearchStartTimestamp(form),
+                    getSearchEndTimestamp(form), form.getStatusId(), SortOrder.STATUS_ID);
         default:
             return null;
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<ElectronicOrder> searchForElectronicOrdersPage(ElectronicOrderViewForm form) {
+        if (form.getSearchType() != SearchType.DATE_STATUS) {
+            // an identifier only ever matches a handful of orders
+            List<ElectronicOrder> eOrders = searchForElectronicOrders(form);
+            return new KeysetPage<>(eOrders == null ? new ArrayList<>() : eOrders, null, null);
+        }
+        return baseObjectDAO.getElectronicOrdersByTimestampAndStatusPage(getSearchStartTimestamp(form),
+                getSearchEndTimestamp(form), form.getStatusId(), form.getCursor());
+    }
+
+    // a date given on its own is both ends of the range
+    private Timestamp getSearchStartTimestamp(ElectronicOrderViewForm form) {
+        String startDate = GenericValidator.isBlankOrNull(form.getStartDate()) ? form.getEndDate()
+                : form.getStartDate();
+        return GenericValidator.isBlankOrNull(startDate) ? null
+                : DateUtil.convertStringDateStringTimeToTimestamp(startDate, "00:00:00.0");
+    }
+
+    private Timestamp getSearchEndTimestamp(ElectronicOrderViewForm form) {
+        String endDate = GenericValidator.isBlankOrNull(form.getEndDate()) ? form.getStartDate() : form.getEndDate();
+        return GenericValidator.isBlankOrNull(endDate) ? null
+                : DateUtil.convertStringDateStringTimeToTimestamp(endDate, "23:59:59");
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<ElectronicOrder> searchForStudyElectronicOrders(ElectronicOrderViewForm form) {
@@ -191,20 +246,8 @@ public class ElectronicOrderServiceImpl extends AuditableBaseObjectServiceImpl<E
 
             return eOrders;
         case DATE_STATUS:
-            String startDate = form.getStartDate();
-            String endDate = form.getEndDate();
-            if (GenericValidator.isBlankOrNull(startDate) && !GenericValidator.isBlankOrNull(endDate)) {
-                startDate = endDate;
-            }
-            if (GenericValidator.isBlankOrNull(endDate) && !GenericValidator.isBlankOrNull(startDate)) {
-                endDate = startDate;
-            }
-            java.sql.Timestamp startTimestamp = GenericValidator.isBlankOrNull(startDate) ? null
-                    : DateUtil.convertStringDateStringTimeToTimestamp(startDate, "00:00:00.0");
-            java.sql.Timestamp endTimestamp = GenericValidator.isBlankOrNull(endDate) ? null
-                    : DateUtil.convertStringDateStringTimeToTimestamp(endDate, "23:59:59");
-            return getAllElectronicOrdersByTimestampAndStatus(startTimestamp, endTimestamp, form.getStatusId(),
-                    SortOrder.STATUS_ID);
+            return getAllElectronicOrdersByTimestampAndStatus(getSearchStartTimestamp(form),
+                    getSearchEndTimestamp(form), form.getStatusId(), SortOrder.STATUS_ID);
         default:
             return null;
         }
@@ -20,10 +20,4 @@ public class HL7MessageOutServiceImpl extends AuditableBaseObjectServiceImpl<HL7
     protected HL7MessageOutDAO getBaseObjectDAO() {
         return baseObjectDAO;
     }
-
-    @Override
-    public HL7MessageOut getByData(String msg) {
-        // TODO Auto-generated method stub
-        return null;
-    }
 }
@@ -151,6 +151,7 @@ public class DictionaryDAOImpl extends BaseDAOImpl<Dictionary, String> implement
             }
             Query<Dictionary> query = entityManager.unwrap(Session.class).createQuery(sql, Dictionary.class);
             query.setParameter("param1", fieldValue);
+            query.setCacheable(true);
 
             List<Dictionary> list = query.list();
             return list;
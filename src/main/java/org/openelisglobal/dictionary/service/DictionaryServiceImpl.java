@@ -8,6 +8,7 @@ import org.openelisglobal.common.action.IActionConstants;
 import org.openelisglobal.common.exception.LIMSDuplicateRecordException;
 import org.openelisglobal.common.exception.LIMSFrozenRecordException;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.services.DisplayListService;
 import org.openelisglobal.dictionary.dao.DictionaryDAO;
 import org.openelisglobal.dictionary.valueholder.Dictionary;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,10 +47,24 @@ public class DictionaryServiceImpl extends AuditableBaseObjectServiceImpl<Dictio
         if (duplicateDictionaryExists(dictionary)) {
             throw new LIMSDuplicateRecordException("Duplicate record exists for " + dictionary.getDictEntry());
         } else {
+            invalidateDisplayLists();
             return super.insert(dictionary);
         }
     }
 
+    @Override
+    protected Dictionary update(Dictionary dictionary, String auditTrailType) {
+        invalidateDisplayLists();
+        return super.update(dictionary, auditTrailType);
+    }
+
+    private void invalidateDisplayLists() {
+        DisplayListService displayListService = DisplayListService.getInstance();
+        if (displayListService != null) {
+            displayListService.invalidateDictionaryLists();
+        }
+    }
+
     @Override
     @Transactional
     public void delete(Dictionary dictionary) {
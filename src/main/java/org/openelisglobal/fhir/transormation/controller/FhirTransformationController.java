@@ -1,22 +1,23 @@
 package org.openelisglobal.fhir.transormation.controller;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.function.Function;
 import org.hl7.fhir.r4.model.Bundle;
 import org.itech.fhir.dataexport.api.service.DataExportService;
 import org.itech.fhir.dataexport.core.model.DataExportTask;
 import org.itech.fhir.dataexport.core.service.DataExportTaskService;
+import org.openelisglobal.checkpoint.service.CheckpointService;
 import org.openelisglobal.common.controller.BaseController;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.dataexchange.fhir.exception.FhirLocalPersistingException;
 import org.openelisglobal.dataexchange.fhir.exception.FhirPersistanceException;
 import org.openelisglobal.dataexchange.fhir.service.FhirTransformService;
-import org.openelisglobal.patient.valueholder.Patient;
 import org.openelisglobal.sample.service.SampleService;
-import org.openelisglobal.sample.valueholder.Sample;
 import org.openelisglobal.samplehuman.service.SampleHumanService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -33,6 +34,9 @@ public class FhirTransformationController extends BaseController {
     @Autowired
     private FhirTransformService fhirTransformService;
 
+    @Autowired
+    private CheckpointService checkpointService;
+
     @Autowired
     private DataExportService dataExportService;
     @Autowired
@@ -65,54 +69,15 @@ public class FhirTransformationController extends BaseController {
         info.batchSize = batchSize;
         info.threads = threads;
         info.waitForResults = waitForResults;
-        info.objectType = "Patient";
-        info.phase = "Fetching";
-
-        List<Patient> patients;
-        if (info.checkAll) {
-            patients = sampleHumanService.getAllPatientsWithSampleEntered();
-        } else {
-            patients = sampleHumanService.getAllPatientsWithSampleEnteredMissingFhirUuid();
-        }
-        LogEvent.logDebug(this.getClass().getSimpleName(), "transformPersistFhirPatients",
-                "patients to convert: " + patients.size());
-        List<String> patientIds = new ArrayList<>();
-        List<Future<Bundle>> promises = new ArrayList<>();
-        info.objectType = "Patient";
-        for (int i = 0; i < patients.size(); ++i) {
-            info.phase = "Batch Transforming";
-            patientIds.add(patients.get(i).getId());
-            if (i % info.batchSize == info.batchSize - 1 || i + 1 == patients.size()) {
-                LogEvent.logDebug(this.getClass().getSimpleName(), "",
-                        "persisting batch " + (i - info.batchSize + 1) + "-" + i + " of " + patients.size());
-                try {
-                    promises.add(fhirTransformService.transformPersistPatients(patientIds));
-                    ++info.batches;
-                    patientIds = new ArrayList<>();
-                    if (info.waitForResults && (promises.size() >= info.threads || i + 1 == patients.size())) {
-                        waitForResults(promises);
-                        promises = new ArrayList<>();
-                    }
-                } catch (FhirPersistanceException e) {
-                    ++info.batchFailure;
-                    LogEvent.logError(e);
-                    LogEvent.logError(this.getClass().getSimpleName(), "transformPersistFhirPatients",
-                            "error persisting batch " + (i - info.batchSize + 1) + "-" + i);
-                } catch (Exception e) {
-                    ++info.batchFailure;
-                    LogEvent.logError(e);
-                    LogEvent.logError(this.getClass().getSimpleName(), "transformPersistFhirPatients",
-                            "error with batch " + (i - info.batchSize + 1) + "-" + i);
-                } finally {
-                    if (promises.size() >= info.threads || i + 1 == patients.size()) {
-                        promises = new ArrayList<>();
-                    }
-                }
-            }
-        }
-        info.phase = "Finished";
-        LogEvent.logDebug(this.getClass().getSimpleName(), "transformPersistFhirPatients", "finished all batches");
 
+        try {
+            transformPersistPatientsInBatches();
+            info.phase = "Finished";
+            LogEvent.logDebug(this.getClass().getSimpleName(), "transformPersistFhirPatients",
+                    "finished all batches");
+        } finally {
+            endProcess();
+        }
         return info;
     }
 
@@ -140,82 +105,10 @@ public class FhirTransformationController extends BaseController {
 
     private void transformPersistFhirObjects() {
         try {
-            info.objectType = "Patient";
-            info.phase = "Fetching";
-            List<Patient> patients;
-            if (info.checkAll) {
-                patients = sampleHumanService.getAllPatientsWithSampleEntered();
-            } else {
-                patients = sampleHumanService.getAllPatientsWithSampleEnteredMissingFhirUuid();
-            }
-            LogEvent.logDebug(this.getClass().getSimpleName(), "transformPersistMissingFhirObjects",
-                    "patients to convert: " + patients.size());
-            List<String> patientIds = new ArrayList<>();
-            List<Future<Bundle>> promises = new ArrayList<>();
-            info.objectType = "Patient";
-            for (int i = 0; i < patients.size(); ++i) {
-                info.phase = "Batch Transforming";
-                patientIds.add(patients.get(i).getId());
-                if (i % info.batchSize == info.batchSize - 1 || i + 1 == patients.size()) {
-                    LogEvent.logDebug(this.getClass().getSimpleName(), "",
-                            "persisting batch " + (i - info.batchSize + 1) + "-" + i + " of " + patients.size());
-                    try {
-                        promises.add(fhirTransformService.transformPersistPatients(patientIds));
-                        patientIds = new ArrayList<>();
-                        if (info.waitForResults && (promises.size() >= info.threads || i + 1 == patients.size())) {
-                            waitForResults(promises);
-                        }
-                    } catch (FhirPersistanceException e) {
-                        LogEvent.logError(e);
-                        LogEvent.logError(this.getClass().getSimpleName(), "transformPersistMissingFhirObjects",
-                                "error persisting batch " + (i - info.batchSize + 1) + "-" + i);
-                    } catch (Exception e) {
-                        LogEvent.logError(e);
-                        LogEvent.logError(this.getClass().getSimpleName(), "transformPersistMissingFhirObjects",
-                                "error with batch " + (i - info.batchSize + 1) + "-" + i);
-                    }
-                }
-            }
-
-            info.objectType = "Sample";
-            info.phase = "Fetching";
-            List<Sample> samples;
-            if (info.checkAll) {
-                samples = sampleService.getAll();
-            } else {
-                samples = sampleService.getAllMissingFhirUuid();
-            }
-            LogEvent.logDebug(this.getClass().getSimpleName(), "transformPersistMissingFhirObjects",
-                    "samples to convert: " + samples.size());
-
-            List<String> sampleIds = new ArrayList<>();
-            promises = new ArrayList<>();
-            for (int i = 0; i < samples.size(); ++i) {
-                info.phase = "Batch Transforming";
-                sampleIds.add(samples.get(i).getId());
-                if (i % info.batchSize == info.batchSize - 1 || i + 1 == samples.size()) {
-                    LogEvent.logDebug(this.getClass().getSimpleName(), "",
-                            "persisting batch " + (i - info.batchSize + 1) + "-" + i + " of " + samples.size());
-                    try {
-                        promises.add(fhirTransformService.transformPersistObjectsUnderSamples(sampleIds));
-                        ++info.batches;
-                        sampleIds = new ArrayList<>();
-                        if (info.waitForResults && (promises.size() >= info.threads || i + 1 == samples.size())) {
-                            waitForResults(promises);
-                        }
-                    } catch (FhirPersistanceException e) {
-                        ++info.batchFailure;
-                        LogEvent.logError(e);
-                        LogEvent.logError(this.getClass().getSimpleName(), "transformPersistMissingFhirObjects",
-                                "error persisting batch " + (i - info.batchSize + 1) + "-" + i);
-                    } catch (Exception e) {
-                        ++info.batchFailure;
-                        LogEvent.logError(e);
-                        LogEvent.logError(this.getClass().getSimpleName(), "transformPersistMissingFhirObjects",
-                                "error with batch " + (i - info.batchSize + 1) + "-" + i);
-                    }
-                }
-            }
+            transformPersistPatientsInBatches();
+            transformInBatches("Sample",
+                    lastId -> sampleService.getSampleIdsAfter(lastId, !info.checkAll, info.batchSize),
+                    sampleIds -> fhirTransformService.transformPersistObjectsUnderSamples(sampleIds));
             LogEvent.logDebug(this.getClass().getSimpleName(), "transformPersistMissingFhirObjects",
                     "finished all batches");
             info.phase = "Finished";
@@ -226,23 +119,114 @@ public class FhirTransformationController extends BaseController {
         }
     }
 
-    private void waitForResults(List<Future<Bundle>> promises) throws Exception {
-        LogEvent.logDebug(this.getClass().getSimpleName(), "", "waiting for results from "
-                + (promises.size() == 1 ? promises.size() + " thread" : promises.size() + " threads"));
+    private void transformPersistPatientsInBatches() {
+        transformInBatches("Patient",
+                lastId -> sampleHumanService.getPatientIdsWithSampleEnteredAfter(lastId, !info.checkAll,
+                        info.batchSize),
+                patientIds -> fhirTransformService.transformPersistPatients(patientIds));
+    }
 
-        info.phase = "Waiting on Threads";
-        for (int i = promises.size() - 1; i >= 0; i--) {
+    /*
+     * ids are read in keyset order so only one batch of ids is held in memory at a
+     * time. At most info.threads batches are in flight, and the persisted cursor is
+     * only advanced past a batch once it and every batch before it has completed
+     * successfully so a restart never skips objects. Once a batch fails the cursor
+     * stays at the last good id for the rest of the run, and when results are not
+     * waited for it is not saved at all
+     */
+    private void transformInBatches(String objectType, Function<String, List<String>> nextIdsAfter,
+            BatchTransformer transformer) {
+        String checkpointName = checkpointName(objectType);
+        String lastId = checkpointService.getCursor(checkpointName).orElse(null);
+        info.objectType = objectType;
+        info.lastCheckpoint = lastId;
+        LogEvent.logDebug(this.getClass().getSimpleName(), "transformInBatches",
+                "transforming " + objectType + " starting after id: " + lastId);
+
+        boolean advanceCursor = info.waitForResults;
+        Deque<InFlightBatch> inFlight = new ArrayDeque<>();
+        int completedSinceExport = 0;
+        while (true) {
+            info.phase = "Fetching";
+            List<String> ids = nextIdsAfter.apply(lastId);
+            if (ids.isEmpty()) {
+                break;
+            }
+            lastId = ids.get(ids.size() - 1);
+
+            info.phase = "Batch Transforming";
             try {
-                promises.remove(i).get();
-            } catch (InterruptedException | ExecutionException e) {
+                inFlight.add(new InFlightBatch(transformer.transform(ids), lastId, ids.size()));
+                ++info.batches;
+            } catch (FhirPersistanceException | RuntimeException e) {
+                ++info.batchFailure;
+                advanceCursor = false;
                 LogEvent.logError(e);
-                LogEvent.logError(this.getClass().getSimpleName(), "waitForResults", "Error getting value from thread");
-                throw new Exception();
+                LogEvent.logError(this.getClass().getSimpleName(), "transformInBatches",
+                        "error with " + objectType + " batch ending at id " + lastId);
+                continue;
+            }
+
+            if (!info.waitForResults) {
+                // results aren't tracked, so the executor's bounded queue provides the
+                // backpressure
+                info.processed += inFlight.pollFirst().size;
+                continue;
+            }
+            while (inFlight.size() >= Math.max(1, info.threads)) {
+                advanceCursor = awaitOldestBatch(checkpointName, inFlight, advanceCursor);
+                if (++completedSinceExport >= Math.max(1, info.threads)) {
+                    // done so if there is a lot of data being processed, we backup to the CS in
+                    // tandem
+                    runExportTasks();
+                    completedSinceExport = 0;
+                }
             }
         }
-        // done so if there is a lot of data being processed, we backup to the CS in
-        // tandem
-        runExportTasks();
+        while (!inFlight.isEmpty()) {
+            advanceCursor = awaitOldestBatch(checkpointName, inFlight, advanceCursor);
+        }
+        if (info.waitForResults) {
+            runExportTasks();
+        }
+        if (advanceCursor) {
+            // a full pass has completed, the next run starts from the beginning again
+            checkpointService.clearCursor(checkpointName);
+            info.lastCheckpoint = null;
+        }
+    }
+
+    /*
+     * waits for the oldest batch and saves it as the cursor if it and every batch
+     * before it succeeded, returns whether the cursor may still be advanced
+     */
+    private boolean awaitOldestBatch(String checkpointName, Deque<InFlightBatch> inFlight, boolean advanceCursor) {
+        info.phase = "Waiting on Threads";
+        InFlightBatch batch = inFlight.pollFirst();
+        try {
+            batch.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ++info.batchFailure;
+            LogEvent.logError(e);
+            return false;
+        } catch (ExecutionException e) {
+            ++info.batchFailure;
+            LogEvent.logError(e);
+            LogEvent.logError(this.getClass().getSimpleName(), "awaitOldestBatch",
+                    "Error getting value from thread for batch ending at id " + batch.lastId);
+            return false;
+        }
+        info.processed += batch.size;
+        if (advanceCursor) {
+            info.lastCheckpoint = batch.lastId;
+            checkpointService.saveCursor(checkpointName, batch.lastId);
+        }
+        return advanceCursor;
+    }
+
+    private String checkpointName(String objectType) {
+        return "fhirTransform." + objectType + (info.checkAll ? ".all" : ".missing");
     }
 
     private void runExportTasks() {
@@ -282,6 +266,23 @@ public class FhirTransformationController extends BaseController {
         info.running = false;
     }
 
+    @FunctionalInterface
+    private interface BatchTransformer {
+        Future<Bundle> transform(List<String> ids) throws FhirLocalPersistingException;
+    }
+
+    private static class InFlightBatch {
+        private final Future<Bundle> result;
+        private final String lastId;
+        private final int size;
+
+        InFlightBatch(Future<Bundle> result, String lastId, int size) {
+            this.result = result;
+            this.lastId = lastId;
+            this.size = size;
+        }
+    }
+
     public class TransformationInfo {
         public boolean running;
         public int batches;
@@ -289,8 +290,16 @@ public class FhirTransformationController extends BaseController {
         public String objectType;
         public String phase;
         public int batchSize;
-        public int threads; // ignored if waitForResults is false
+        public int threads; // maximum batches in flight, ignored if waitForResults is false
         public boolean checkAll;
         public boolean waitForResults;
+        public long processed;
+        public String lastCheckpoint;
+        public long startedAt = System.currentTimeMillis();
+
+        public double getObjectsPerSecond() {
+            long elapsed = System.currentTimeMillis() - startedAt;
+            return elapsed <= 0 ? 0 : processed * 1000.0 / elapsed;
+        }
     }
 }
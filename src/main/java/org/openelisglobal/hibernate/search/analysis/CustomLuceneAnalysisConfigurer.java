@@ -7,5 +7,9 @@ public class CustomLuceneAnalysisConfigurer implements LuceneAnalysisConfigurer
     @Override
     public void configure(LuceneAnalysisConfigurationContext context) {
         context.normalizer("lowercase").custom().tokenFilter("lowercase").tokenFilter("asciifolding");
+        // splits HL7 and FHIR messages on their delimiters, keeping identifiers and
+        // accession numbers whole
+        context.analyzer("messageTokens").custom().tokenizer("pattern").param("pattern", "[^\\p{L}\\p{N}._\\-]+")
+                .tokenFilter("lowercase").tokenFilter("asciifolding");
     }
 }
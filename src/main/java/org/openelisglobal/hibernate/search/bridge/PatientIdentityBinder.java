@@ -0,0 +1,88 @@
+package org.openelisglobal.hibernate.search.bridge;
+
+import java.util.Collection;
+import org.hibernate.search.engine.backend.document.DocumentElement;
+import org.hibernate.search.engine.backend.document.IndexFieldReference;
+import org.hibernate.search.engine.backend.document.model.dsl.IndexSchemaElement;
+import org.hibernate.search.engine.backend.types.Projectable;
+import org.hibernate.search.engine.backend.types.dsl.IndexFieldType;
+import org.hibernate.search.mapper.pojo.bridge.PropertyBridge;
+import org.hibernate.search.mapper.pojo.bridge.binding.PropertyBindingContext;
+import org.hibernate.search.mapper.pojo.bridge.mapping.programmatic.PropertyBinder;
+import org.hibernate.search.mapper.pojo.bridge.runtime.PropertyBridgeWriteContext;
+import org.openelisglobal.patientidentity.valueholder.PatientIdentity;
+import org.openelisglobal.patientidentitytype.util.PatientIdentityTypeMap;
+
+/**
+ * Indexes a patient's identities as one field per identity type, so a patient
+ * search can match and project them without joining patient_identity.
+ */
+public class PatientIdentityBinder implements PropertyBinder {
+
+    public static final String ST_NUMBER = "stNumber";
+    public static final String SUBJECT_NUMBER = "subjectNumber";
+    public static final String GUID = "guid";
+
+    @Override
+    public void bind(PropertyBindingContext context) {
+        // identities are not reached from the patient when they are saved, the
+        // identity service reindexes the patient itself
+        context.dependencies().useRootOnly();
+
+        IndexFieldType<String> identityType = context.typeFactory().asString().normalizer("lowercase")
+                .projectable(Projectable.YES).toIndexFieldType();
+        IndexSchemaElement schemaElement = context.indexSchemaElement();
+        context.bridge(Collection.class,
+                new Bridge(schemaElement.field(ST_NUMBER, identityType).toReference(),
+                        schemaElement.field(SUBJECT_NUMBER, identityType).toReference(),
+                        schemaElement.field(GUID, identityType).toReference()));
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static class Bridge implements PropertyBridge<Collection> {
+
+        private final IndexFieldReference<String> stNumberField;
+        private final IndexFieldReference<String> subjectNumberField;
+        private final IndexFieldReference<String> guidField;
+
+        private Bridge(IndexFieldReference<String> stNumberField, IndexFieldReference<String> subjectNumberField,
+                IndexFieldReference<String> guidField) {
+            this.stNumberField = stNumberField;
+            this.subjectNumberField = subjectNumberField;
+            this.guidField = guidField;
+        }
+
+        @Override
+        public void write(DocumentElement target, Collection bridgedElement, PropertyBridgeWriteContext context) {
+            PatientIdentityTypeMap typeMap = PatientIdentityTypeMap.getInstance();
+            String stNumberTypeId = typeMap.getIDForType("ST");
+            String subjectNumberTypeId = typeMap.getIDForType("SUBJECT");
+            String guidTypeId = typeMap.getIDForType("GUID");
+
+            // the fields are single valued, the first identity of a type is kept
+            String stNumber = null;
+            String subjectNumber = null;
+            String guid = null;
+            for (Object element : bridgedElement) {
+                PatientIdentity identity = (PatientIdentity) element;
+                String typeId = identity.getIdentityTypeId();
+                if (stNumber == null && typeId != null && typeId.equals(stNumberTypeId)) {
+                    stNumber = identity.getIdentityData();
+                } else if (subjectNumber == null && typeId != null && typeId.equals(subjectNumberTypeId)) {
+                    subjectNumber = identity.getIdentityData();
+                } else if (guid == null && typeId != null && typeId.equals(guidTypeId)) {
+                    guid = identity.getIdentityData();
+                }
+            }
+            addValue(target, stNumberField, stNumber);
+            addValue(target, subjectNumberField, subjectNumber);
+            addValue(target, guidField, guid);
+        }
+
+        private void addValue(DocumentElement target, IndexFieldReference<String> field, String value) {
+            if (value != null) {
+                target.addValue(field, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.openelisglobal.hibernate.search.bridge;
+
+import org.hibernate.search.mapper.pojo.bridge.ValueBridge;
+import org.hibernate.search.mapper.pojo.bridge.runtime.ValueBridgeToIndexedValueContext;
+
+/**
+ * Indexes an id held as a String (see LIMSStringNumberUserType) as a number so
+ * it sorts the way the column does.
+ */
+public class StringNumberValueBridge implements ValueBridge<String, Integer> {
+
+    @Override
+    public Integer toIndexedValue(String value, ValueBridgeToIndexedValueContext context) {
+        return value == null ? null : Integer.valueOf(value);
+    }
+}
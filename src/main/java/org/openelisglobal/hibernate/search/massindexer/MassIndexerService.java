@@ -1,18 +1,55 @@
 package org.openelisglobal.hibernate.search.massindexer;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceContext;
 import javax.transaction.Transactional;
 import org.hibernate.search.mapper.orm.Search;
 import org.hibernate.search.mapper.orm.massindexing.MassIndexer;
 import org.hibernate.search.mapper.orm.session.SearchSession;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder;
+import org.openelisglobal.patient.valueholder.Patient;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
 public class MassIndexerService {
+
+    // the version of each type's mapping. Bump it when the mapping changes in a
+    // way the documents already in the index don't have, the type is then
+    // reindexed on the next start
+    private static final Map<Class<?>, Integer> MAPPING_VERSIONS = new LinkedHashMap<>();
+    static {
+        // 1: gender is normalized to lower case
+        // 2: the identities are indexed by PatientIdentityBinder
+        MAPPING_VERSIONS.put(Patient.class, 2);
+        // 2: the patient's identities are included
+        MAPPING_VERSIONS.put(ElectronicOrder.class, 2);
+    }
+
+    // kept with the index so a new or wiped index is reindexed as well
+    private static final String MAPPING_VERSIONS_FILE = "mapping-versions.properties";
+
     @PersistenceContext
     EntityManager entityManager;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     // parameters to allow tuning the MassIndexer for optimal performance
 
     private int idFetchSize = 100;
@@ -27,5 +64,79 @@ public class MassIndexerService {
         MassIndexer indexer = searchSession.massIndexer();
         indexer.idFetchSize(idFetchSize).batchSizeToLoadObjects(batchSizeToLoadObjects)
                 .threadsToLoadObjects(threadsToLoadObjects).startAndWait();
+        writeMappingVersions(getMappingVersionsFile());
+    }
+
+    /*
+     * reindexes the types whose mapping changed since the index was last built,
+     * in the background so startup is not held up. Searches on those types are
+     * incomplete until it finishes
+     */
+    @PostConstruct
+    public void reindexChangedMappings() {
+        Path versionsFile = getMappingVersionsFile();
+        if (versionsFile == null) {
+            return;
+        }
+        Properties indexedVersions = readMappingVersions(versionsFile);
+        List<Class<?>> changedTypes = new ArrayList<>();
+        for (Entry<Class<?>, Integer> mappingVersion : MAPPING_VERSIONS.entrySet()) {
+            if (!mappingVersion.getValue().toString()
+                    .equals(indexedVersions.getProperty(mappingVersion.getKey().getName()))) {
+                changedTypes.add(mappingVersion.getKey());
+            }
+        }
+        if (changedTypes.isEmpty()) {
+            return;
+        }
+        LogEvent.logInfo(this.getClass().getSimpleName(), "reindexChangedMappings", "reindexing " + changedTypes);
+        EntityManager indexingEntityManager = entityManagerFactory.createEntityManager();
+        Search.session(indexingEntityManager).massIndexer(changedTypes).idFetchSize(idFetchSize)
+                .batchSizeToLoadObjects(batchSizeToLoadObjects).threadsToLoadObjects(threadsToLoadObjects).start()
+                .whenComplete((result, e) -> {
+                    indexingEntityManager.close();
+                    if (e != null) {
+                        LogEvent.logError("could not reindex " + changedTypes, e);
+                    } else {
+                        writeMappingVersions(versionsFile);
+                        LogEvent.logInfo(this.getClass().getSimpleName(), "reindexChangedMappings",
+                                "reindexed " + changedTypes);
+                    }
+                });
+    }
+
+    private Path getMappingVersionsFile() {
+        Object indexRoot = entityManagerFactory.getProperties().get("hibernate.search.backend.directory.root");
+        return indexRoot == null ? null : Paths.get(indexRoot.toString(), MAPPING_VERSIONS_FILE);
+    }
+
+    private Properties readMappingVersions(Path versionsFile) {
+        Properties indexedVersions = new Properties();
+        if (Files.exists(versionsFile)) {
+            try (InputStream in = Files.newInputStream(versionsFile)) {
+                indexedVersions.load(in);
+            } catch (IOException e) {
+                LogEvent.logError("could not read " + versionsFile + ", reindexing every type", e);
+            }
+        }
+        return indexedVersions;
+    }
+
+    private synchronized void writeMappingVersions(Path versionsFile) {
+        if (versionsFile == null) {
+            return;
+        }
+        Properties indexedVersions = new Properties();
+        for (Entry<Class<?>, Integer> mappingVersion : MAPPING_VERSIONS.entrySet()) {
+            indexedVersions.setProperty(mappingVersion.getKey().getName(), mappingVersion.getValue().toString());
+        }
+        try {
+            Files.createDirectories(versionsFile.getParent());
+            try (OutputStream out = Files.newOutputStream(versionsFile)) {
+                indexedVersions.store(out, "index mapping versions, see MassIndexerService");
+            }
+        } catch (IOException e) {
+            LogEvent.logError("could not write " + versionsFile, e);
+        }
     }
 }
@@ -44,6 +44,12 @@ public class HistoryServiceImpl extends AuditableBaseObjectServiceImpl<History,
         return baseObjectDAO.insert(history);
     }
 
+    @Override
+    @Transactional
+    public void insertBatch(List<History> histories) {
+        baseObjectDAO.insertBatch(histories);
+    }
+
     @Override
     public History update(History history) {
         if (history.getLastupdated() == null) {
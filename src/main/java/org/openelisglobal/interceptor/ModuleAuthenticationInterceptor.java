@@ -1,9 +1,8 @@
 package org.openelisglobal.interceptor;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.openelisglobal.common.action.IActionConstants;
@@ -12,8 +11,6 @@ import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.common.validator.BaseErrors;
 import org.openelisglobal.login.dao.UserModuleService;
 import org.openelisglobal.systemmodule.service.SystemModuleUrlService;
-import org.openelisglobal.systemmodule.valueholder.SystemModuleParam;
-import org.openelisglobal.systemmodule.valueholder.SystemModuleUrl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.security.web.DefaultRedirectStrategy;
@@ -28,6 +25,7 @@ import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 public class ModuleAuthenticationInterceptor extends HandlerInterceptorAdapter {
 
     private static final boolean USE_PARAMETERS = true;
+    private static final String LOGIN_USER_ADMIN = "loginUserAdmin";
 
     // whether to reject access to protected pages if no modules are assigned
     public static final boolean REQUIRE_MODULE = true;
@@ -62,7 +60,7 @@ public class ModuleAuthenticationInterceptor extends HandlerInterceptorAdapter {
 
     protected boolean hasPermission(Errors errors, HttpServletRequest request) {
         if (ConfigurationProperties.getInstance().getPropertyValue("permissions.agent").equalsIgnoreCase("ROLE")) {
-            return hasPermissionForUrl(request, USE_PARAMETERS) || userModuleService.isUserAdmin(request);
+            return hasPermissionForUrl(request, USE_PARAMETERS) || isUserAdmin(request);
         } else {
             return userModuleService.isVerifyUserModule(request) || userModuleService.isUserAdmin(request);
         }
@@ -75,38 +73,29 @@ public class ModuleAuthenticationInterceptor extends HandlerInterceptorAdapter {
         if (accessMap == null) {
             accessMap = (HashSet<String>) request.getAttribute(IActionConstants.PERMITTED_ACTIONS_MAP);
         }
-        List<SystemModuleUrl> sysModsByUrl = systemModuleUrlService.getByRequest(request);
+        Set<String> moduleNames = systemModuleUrlService.getModuleNamesForRequest(request, useParameters);
 
-        if (useParameters) {
-            sysModsByUrl = filterParamMatches(request, sysModsByUrl);
-        }
-        if (sysModsByUrl.isEmpty() && REQUIRE_MODULE) {
+        if (moduleNames.isEmpty() && REQUIRE_MODULE) {
             LogEvent.logWarn("ModuleAuthenticationInterceptor", "hasPermissionForUrl()",
                     "This page has no modules assigned to it");
             return false;
         }
-        for (SystemModuleUrl sysModUrl : sysModsByUrl) {
-            if (accessMap.contains(sysModUrl.getSystemModule().getSystemModuleName())) {
+        for (String moduleName : moduleNames) {
+            if (accessMap.contains(moduleName)) {
                 return true;
             }
         }
         return false;
     }
 
-    private List<SystemModuleUrl> filterParamMatches(HttpServletRequest request, List<SystemModuleUrl> sysModsByUrl) {
-        List<SystemModuleUrl> filteredSysModsByUrl = new ArrayList<>();
-        for (SystemModuleUrl sysModUrl : sysModsByUrl) {
-            boolean matchAll = true;
-            SystemModuleParam param = sysModUrl.getParam();
-            if (param != null) {
-                if (!param.getValue().equals(request.getParameter(param.getName()))) {
-                    matchAll = false;
-                }
-            }
-            if (matchAll) {
-                filteredSysModsByUrl.add(sysModUrl);
-            }
+    // login_user.is_admin, looked up once per session. The admin flag in the user
+    // session data can't be used as sso logins set it from the sso roles
+    private boolean isUserAdmin(HttpServletRequest request) {
+        Boolean isAdmin = (Boolean) request.getSession().getAttribute(LOGIN_USER_ADMIN);
+        if (isAdmin == null) {
+            isAdmin = userModuleService.isUserAdmin(request);
+            request.getSession().setAttribute(LOGIN_USER_ADMIN, isAdmin);
         }
-        return filteredSysModsByUrl;
+        return isAdmin;
     }
 }
@@ -6,6 +6,7 @@ import java.util.Map;
 import org.openelisglobal.common.action.IActionConstants;
 import org.openelisglobal.common.exception.LIMSDuplicateRecordException;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.services.DisplayListService;
 import org.openelisglobal.method.dao.MethodDAO;
 import org.openelisglobal.method.valueholder.Method;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -49,6 +50,7 @@ public class MethodServiceImpl extends AuditableBaseObjectServiceImpl<Method, St
         if (getBaseObjectDAO().duplicateMethodExists(method)) {
             throw new LIMSDuplicateRecordException("Duplicate record exists for " + method.getMethodName());
         }
+        invalidateDisplayLists();
         return super.insert(method);
     }
 
@@ -68,6 +70,19 @@ public class MethodServiceImpl extends AuditableBaseObjectServiceImpl<Method, St
         return super.update(method);
     }
 
+    @Override
+    protected Method update(Method method, String auditTrailType) {
+        invalidateDisplayLists();
+        return super.update(method, auditTrailType);
+    }
+
+    private void invalidateDisplayLists() {
+        DisplayListService displayListService = DisplayListService.getInstance();
+        if (displayListService != null) {
+            displayListService.invalidate(DisplayListService.METHOD_LISTS);
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<Method> getAllInActiveMethods() {
@@ -16,7 +16,9 @@
 package org.openelisglobal.note.daoimpl;
 
 import java.sql.Date;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
@@ -126,6 +128,29 @@ public class NoteDAOImpl extends BaseDAOImpl<Note, String> implements NoteDAO {
         return null;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Note> getNotesChronologicallyByRefIdsAndRefTableAndType(List<String> objectIds, String tableId,
+            List<String> filter) throws LIMSRuntimeException {
+        if (objectIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "FROM Note n where n.referenceId in ( :refIds ) and n.referenceTableId = :tableId and"
+                + " n.noteType in ( :filter ) order by n.lastupdated asc";
+
+        try {
+            Query<Note> query = entityManager.unwrap(Session.class).createQuery(sql, Note.class);
+            query.setParameterList("refIds",
+                    objectIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+            query.setParameter("tableId", Integer.parseInt(tableId));
+            query.setParameterList("filter", filter);
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getNotesChronologicallyByRefIdsAndRefTableAndType");
+        }
+        return new ArrayList<>();
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<Note> getNotesInDateRangeAndType(Date lowDate, Date highDate, String noteType, String referenceTableId)
@@ -2,6 +2,8 @@ package org.openelisglobal.note.service;
 
 import java.sql.Date;
 import java.util.List;
+import java.util.Map;
+import org.openelisglobal.analysis.valueholder.Analysis;
 import org.openelisglobal.common.service.BaseObjectService;
 import org.openelisglobal.common.util.StringUtil.EncodeContext;
 import org.openelisglobal.note.service.NoteServiceImpl.NoteType;
@@ -31,6 +33,9 @@ public interface NoteService extends BaseObjectService<Note, String> {
     String getNotesAsString(NoteObject noteObject, boolean prefixType, boolean prefixTimestamp, String noteSeparator,
             NoteType[] filter, boolean excludeExternPrefix);
 
+    Map<String, String> getNotesAsStringForAnalyses(List<Analysis> analyses, boolean prefixType,
+            boolean prefixTimestamp, String noteSeparator, NoteType[] filter, boolean excludeExternPrefix);
+
     List<Note> getNotesByNoteTypeRefIdRefTable(Note note);
 
     List<Note> getNotesInDateRangeAndType(Date lowDate, Date highDate, String noteType, String referenceTableId);
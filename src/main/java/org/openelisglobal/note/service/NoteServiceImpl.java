@@ -2,11 +2,15 @@ package org.openelisglobal.note.service;
 
 import java.sql.Date;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 import org.apache.commons.validator.GenericValidator;
 import org.openelisglobal.analysis.service.AnalysisServiceImpl;
@@ -121,12 +125,7 @@ public class NoteServiceImpl extends AuditableBaseObjectServiceImpl<Note, String
             List<Note> nonConformityNoteList = getNonConformityReasons(noteObject);
             if (!nonConformityNoteList.isEmpty()) {
                 noteList.addAll(nonConformityNoteList);
-                Collections.sort(noteList, new Comparator<Note>() {
-                    @Override
-                    public int compare(Note o1, Note o2) {
-                        return o1.getLastupdated().compareTo(o2.getLastupdated());
-                    }
-                });
+                sortChronologically(noteList);
             }
         }
 
@@ -134,6 +133,113 @@ public class NoteServiceImpl extends AuditableBaseObjectServiceImpl<Note, String
                 context);
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public Map<String, String> getNotesAsStringForAnalyses(List<Analysis> analyses, boolean prefixType,
+            boolean prefixTimestamp, String noteSeparator, NoteType[] filter, boolean excludeExternPrefix) {
+        Map<String, String> notesByAnalysisId = new HashMap<>();
+        if (analyses.isEmpty()) {
+            return notesByAnalysisId;
+        }
+
+        boolean includeNoneConformity = false;
+        List<String> dbFilter = new ArrayList<>(filter.length);
+        for (NoteType type : filter) {
+            if (type == NoteType.NON_CONFORMITY) {
+                includeNoneConformity = true;
+            }
+
+            dbFilter.add(type.getDBCode());
+        }
+
+        Map<String, List<Note>> analysisNotes = getNotesByReferenceId(
+                analyses.stream().map(Analysis::getId).collect(Collectors.toSet()),
+                AnalysisServiceImpl.getTableReferenceId(), dbFilter);
+
+        // the non-conformity notes hang off the parent sample item, sample and qa
+        // events so they are fetched once for the whole list
+        Map<String, List<Note>> sampleItemNotes = new HashMap<>();
+        Map<String, List<Note>> sampleNotes = new HashMap<>();
+        Map<String, List<Note>> qaEventNotes = new HashMap<>();
+        Map<String, List<SampleQaEvent>> sampleQaEvents = new HashMap<>();
+        if (includeNoneConformity) {
+            List<String> nonConformityFilter = Collections.singletonList(NoteType.NON_CONFORMITY.getDBCode());
+            Set<String> sampleItemIds = new HashSet<>();
+            Set<String> sampleIds = new HashSet<>();
+            for (Analysis analysis : analyses) {
+                sampleItemIds.add(analysis.getSampleItem().getId());
+                sampleIds.add(analysis.getSampleItem().getSample().getId());
+            }
+            sampleItemNotes = getNotesByReferenceId(sampleItemIds,
+                    SampleItemServiceImpl.getSampleItemTableReferenceId(), nonConformityFilter);
+            sampleNotes = getNotesByReferenceId(sampleIds, SampleServiceImpl.getTableReferenceId(),
+                    nonConformityFilter);
+
+            Set<String> eventIds = new HashSet<>();
+            for (SampleQaEvent event : sampleQAService.getSampleQaEventsBySampleIds(new ArrayList<>(sampleIds))) {
+                sampleQaEvents.computeIfAbsent(event.getSample().getId(), k -> new ArrayList<>()).add(event);
+                eventIds.add(event.getId());
+            }
+            qaEventNotes = getNotesByReferenceId(eventIds, QAService.TABLE_REFERENCE_ID, nonConformityFilter);
+        }
+
+        for (Analysis analysis : analyses) {
+            List<Note> noteList = new ArrayList<>(
+                    analysisNotes.getOrDefault(analysis.getId(), Collections.emptyList()));
+
+            if (includeNoneConformity) {
+                SampleItem sampleItem = analysis.getSampleItem();
+                String sampleId = sampleItem.getSample().getId();
+                List<Note> nonConformityNoteList = new ArrayList<>();
+                nonConformityNoteList.addAll(sampleItemNotes.getOrDefault(sampleItem.getId(), Collections.emptyList()));
+                nonConformityNoteList.addAll(sampleNotes.getOrDefault(sampleId, Collections.emptyList()));
+                for (SampleQaEvent event : sampleQaEvents.getOrDefault(sampleId, Collections.emptyList())) {
+                    if (event.getSampleItem() == null || sampleItem.getId().equals(event.getSampleItem().getId())) {
+                        nonConformityNoteList.addAll(qaEventNotes.getOrDefault(event.getId(), Collections.emptyList()));
+                        nonConformityNoteList.add(createQaEventProxyNote(event));
+                    }
+                }
+
+                if (!nonConformityNoteList.isEmpty()) {
+                    noteList.addAll(nonConformityNoteList);
+                    sortChronologically(noteList);
+                }
+            }
+
+            notesByAnalysisId.put(analysis.getId(), notesToString(analysis, prefixType, prefixTimestamp,
+                    noteSeparator, noteList, excludeExternPrefix, EncodeContext.HTML));
+        }
+
+        return notesByAnalysisId;
+    }
+
+    private Map<String, List<Note>> getNotesByReferenceId(Collection<String> objectIds, String tableId,
+            List<String> filter) {
+        Map<String, List<Note>> notesByReferenceId = new HashMap<>();
+        for (Note note : baseObjectDAO.getNotesChronologicallyByRefIdsAndRefTableAndType(new ArrayList<>(objectIds),
+                tableId, filter)) {
+            notesByReferenceId.computeIfAbsent(note.getReferenceId(), k -> new ArrayList<>()).add(note);
+        }
+        return notesByReferenceId;
+    }
+
+    private void sortChronologically(List<Note> noteList) {
+        Collections.sort(noteList, new Comparator<Note>() {
+            @Override
+            public int compare(Note o1, Note o2) {
+                return o1.getLastupdated().compareTo(o2.getLastupdated());
+            }
+        });
+    }
+
+    private Note createQaEventProxyNote(SampleQaEvent event) {
+        Note proxyNote = new Note();
+        proxyNote.setNoteType(Note.NON_CONFORMITY);
+        proxyNote.setText(event.getQaEvent().getLocalizedName());
+        proxyNote.setLastupdated(event.getLastupdated());
+        return proxyNote;
+    }
+
     private List<Note> getNonConformityReasons(NoteObject noteObject) {
         ArrayList<Note> notes = new ArrayList<>();
 
@@ -169,11 +275,7 @@ public class NoteServiceImpl extends AuditableBaseObjectServiceImpl<Note, String
                         || sampleItem.getId().equals(event.getSampleItem().getId())) {
                     notes.addAll(baseObjectDAO.getNotesChronologicallyByRefIdAndRefTableAndType(event.getId(),
                             QAService.TABLE_REFERENCE_ID, filter));
-                    Note proxyNote = new Note();
-                    proxyNote.setNoteType(Note.NON_CONFORMITY);
-                    proxyNote.setText(event.getQaEvent().getLocalizedName());
-                    proxyNote.setLastupdated(event.getLastupdated());
-                    notes.add(proxyNote);
+                    notes.add(createQaEventProxyNote(event));
                 }
             }
         }
@@ -0,0 +1,22 @@
+package org.openelisglobal.notification.controller.rest;
+
+import java.util.Map;
+import org.openelisglobal.notification.service.sender.SMPPNotificationSender;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/rest")
+public class SMSOutboxMetricsController {
+
+    @Autowired
+    private SMPPNotificationSender smppNotificationSender;
+
+    @GetMapping(value = "/sms-outbox/metrics", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Object> getOutboxMetrics() {
+        return smppNotificationSender.getMetrics();
+    }
+}
@@ -0,0 +1,30 @@
+package org.openelisglobal.notification.dao;
+
+import java.sql.Timestamp;
+import java.util.List;
+import org.openelisglobal.common.dao.BaseDAO;
+import org.openelisglobal.notification.valueholder.SMSMessageOut;
+
+public interface SMSMessageOutDAO extends BaseDAO<SMSMessageOut, Integer> {
+
+    /*
+     * claims up to limit queued messages that are due until claimedUntil,
+     * counting the attempt, oldest first
+     */
+    List<SMSMessageOut> claimDueMessages(int limit, Timestamp now, Timestamp claimedUntil);
+
+    void recordSent(Integer id, String smscMessageId, Timestamp sentTime);
+
+    /*
+     * a failed message is not tried again, the others are due again at
+     * nextAttemptTime
+     */
+    void recordFailedAttempt(Integer id, String error, Timestamp nextAttemptTime, boolean failed);
+
+    /*
+     * number of messages by status
+     */
+    List<Object[]> getCountsByStatus();
+
+    int deleteMessagesSentBefore(Timestamp sentBefore);
+}
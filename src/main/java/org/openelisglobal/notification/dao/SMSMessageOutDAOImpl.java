@@ -0,0 +1,90 @@
+package org.openelisglobal.notification.dao;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.openelisglobal.common.daoimpl.BaseDAOImpl;
+import org.openelisglobal.notification.valueholder.SMSMessageOut;
+import org.openelisglobal.notification.valueholder.SMSMessageOut.Status;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SMSMessageOutDAOImpl extends BaseDAOImpl<SMSMessageOut, Integer> implements SMSMessageOutDAO {
+
+    public SMSMessageOutDAOImpl() {
+        super(SMSMessageOut.class);
+    }
+
+    @Override
+    public List<SMSMessageOut> claimDueMessages(int limit, Timestamp now, Timestamp claimedUntil) {
+        try {
+            return claimDue("status = :status", Collections.singletonMap("status", Status.QUEUED.name()), limit,
+                    now, claimedUntil);
+        } catch (HibernateException e) {
+            handleException(e, "claimDueMessages");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void recordSent(Integer id, String smscMessageId, Timestamp sentTime) {
+        String sql = "update SMSMessageOut m set m.status = :status, m.smscMessageId = :smscMessageId,"
+                + " m.sentTime = :sentTime, m.claimedUntil = null, m.lastError = null where m.id = :id";
+        try {
+            Query<?> query = entityManager.unwrap(Session.class).createQuery(sql);
+            query.setParameter("status", Status.SENT);
+            query.setParameter("smscMessageId", smscMessageId);
+            query.setParameter("sentTime", sentTime);
+            query.setParameter("id", id);
+            query.executeUpdate();
+        } catch (HibernateException e) {
+            handleException(e, "recordSent");
+        }
+    }
+
+    @Override
+    public void recordFailedAttempt(Integer id, String error, Timestamp nextAttemptTime, boolean failed) {
+        String sql = "update SMSMessageOut m set m.status = :status, m.lastError = :error,"
+                + " m.nextAttemptTime = :nextAttemptTime, m.claimedUntil = null where m.id = :id";
+        try {
+            Query<?> query = entityManager.unwrap(Session.class).createQuery(sql);
+            query.setParameter("status", failed ? Status.FAILED : Status.QUEUED);
+            query.setParameter("error", error);
+            query.setParameter("nextAttemptTime", nextAttemptTime);
+            query.setParameter("id", id);
+            query.executeUpdate();
+        } catch (HibernateException e) {
+            handleException(e, "recordFailedAttempt");
+        }
+    }
+
+    @Override
+    public List<Object[]> getCountsByStatus() {
+        String sql = "select m.status, count(m) from SMSMessageOut m group by m.status";
+        try {
+            Query<Object[]> query = entityManager.unwrap(Session.class).createQuery(sql, Object[].class);
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getCountsByStatus");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public int deleteMessagesSentBefore(Timestamp sentBefore) {
+        String sql = "delete from SMSMessageOut m where m.status = :status and m.sentTime < :sentBefore";
+        try {
+            Query<?> query = entityManager.unwrap(Session.class).createQuery(sql);
+            query.setParameter("status", Status.SENT);
+            query.setParameter("sentBefore", sentBefore);
+            return query.executeUpdate();
+        } catch (HibernateException e) {
+            handleException(e, "deleteMessagesSentBefore");
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,21 @@
+package org.openelisglobal.notification.service;
+
+import java.sql.Timestamp;
+import java.util.List;
+import org.openelisglobal.common.service.BaseObjectService;
+import org.openelisglobal.notification.valueholder.SMSMessageOut;
+
+public interface SMSMessageOutService extends BaseObjectService<SMSMessageOut, Integer> {
+
+    SMSMessageOut queue(String receiver, String message);
+
+    List<SMSMessageOut> claimDueMessages(int limit, Timestamp claimedUntil);
+
+    void recordSent(Integer id, String smscMessageId);
+
+    void recordFailedAttempt(Integer id, String error, Timestamp nextAttemptTime, boolean failed);
+
+    List<Object[]> getCountsByStatus();
+
+    int deleteMessagesSentBefore(Timestamp sentBefore);
+}
@@ -0,0 +1,77 @@
+package org.openelisglobal.notification.service;
+
+import java.sql.Timestamp;
+import java.util.List;
+import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.util.DateUtil;
+import org.openelisglobal.notification.dao.SMSMessageOutDAO;
+import org.openelisglobal.notification.valueholder.SMSMessageOut;
+import org.openelisglobal.notification.valueholder.SMSMessageOut.Status;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class SMSMessageOutServiceImpl extends AuditableBaseObjectServiceImpl<SMSMessageOut, Integer>
+        implements SMSMessageOutService {
+
+    @Autowired
+    private SMSMessageOutDAO baseObjectDAO;
+
+    public SMSMessageOutServiceImpl() {
+        super(SMSMessageOut.class);
+        this.auditTrailLog = false;
+    }
+
+    @Override
+    protected SMSMessageOutDAO getBaseObjectDAO() {
+        return baseObjectDAO;
+    }
+
+    /*
+     * committed on its own, notifications are created in read only transactions
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public SMSMessageOut queue(String receiver, String message) {
+        SMSMessageOut messageOut = new SMSMessageOut();
+        messageOut.setReceiver(receiver);
+        messageOut.setMessage(message);
+        messageOut.setStatus(Status.QUEUED);
+        messageOut.setAttempts(0);
+        messageOut.setQueuedTime(DateUtil.getNowAsTimestamp());
+        messageOut.setSysUserId("1");
+        return save(messageOut);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<SMSMessageOut> claimDueMessages(int limit, Timestamp claimedUntil) {
+        return baseObjectDAO.claimDueMessages(limit, DateUtil.getNowAsTimestamp(), claimedUntil);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void recordSent(Integer id, String smscMessageId) {
+        baseObjectDAO.recordSent(id, smscMessageId, DateUtil.getNowAsTimestamp());
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void recordFailedAttempt(Integer id, String error, Timestamp nextAttemptTime, boolean failed) {
+        baseObjectDAO.recordFailedAttempt(id, error, nextAttemptTime, failed);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getCountsByStatus() {
+        return baseObjectDAO.getCountsByStatus();
+    }
+
+    @Override
+    @Transactional
+    public int deleteMessagesSentBefore(Timestamp sentBefore) {
+        return baseObjectDAO.deleteMessagesSentBefore(sentBefore);
+    }
+}
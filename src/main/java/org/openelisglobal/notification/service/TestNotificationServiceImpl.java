@@ -7,6 +7,7 @@ import org.apache.commons.validator.GenericValidator;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.common.util.ConfigurationProperties.Property;
+import org.openelisglobal.config.AsyncConfig;
 import org.openelisglobal.dictionary.service.DictionaryService;
 import org.openelisglobal.dictionary.valueholder.Dictionary;
 import org.openelisglobal.notification.service.sender.ClientNotificationSender;
@@ -33,6 +34,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
@@ -92,8 +94,8 @@ public class TestNotificationServiceImpl implements TestNotificationService {
     }
 
     @Override
-    @Async
-    @Transactional(readOnly = true)
+    @Async(AsyncConfig.NOTIFICATION_EXECUTOR)
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
     public void createAndSendNotificationsToConfiguredSources(NotificationNature nature, Result result) {
         Optional<? extends NotificationConfig<?>> notificationConfig = analysisNotificationConfigService
                 .getAnalysisNotificationConfigForAnalysisId(result.getAnalysis().getId());
@@ -1,82 +1,181 @@
 package org.openelisglobal.notification.service.sender;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.util.Date;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
 import org.jsmpp.InvalidResponseException;
 import org.jsmpp.PDUException;
-import org.jsmpp.bean.Alphabet;
-import org.jsmpp.bean.BindType;
-import org.jsmpp.bean.ESMClass;
-import org.jsmpp.bean.GeneralDataCoding;
-import org.jsmpp.bean.MessageClass;
-import org.jsmpp.bean.NumberingPlanIndicator;
-import org.jsmpp.bean.RegisteredDelivery;
-import org.jsmpp.bean.SMSCDeliveryReceipt;
-import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.SMPPConstant;
 import org.jsmpp.extra.NegativeResponseException;
 import org.jsmpp.extra.ResponseTimeoutException;
-import org.jsmpp.session.BindParameter;
-import org.jsmpp.session.SMPPSession;
-import org.jsmpp.util.AbsoluteTimeFormatter;
-import org.jsmpp.util.TimeFormatter;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.common.util.ConfigurationProperties.Property;
+import org.openelisglobal.common.util.OutboxDispatcher;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.openelisglobal.notification.service.SMSMessageOutService;
+import org.openelisglobal.notification.valueholder.SMSMessageOut;
 import org.openelisglobal.notification.valueholder.SMSNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+/**
+ * Sends SMS notifications through the SMSC by way of the sms_message_out
+ * outbox, so a notification is not lost when the SMSC cannot be reached. Queued
+ * messages are claimed a batch at a time with SKIP LOCKED and a lease and are
+ * submitted on the smsSend pool over the bound sessions of the SMPPSessionPool,
+ * as many at once as the sessions' windows hold.
+ *
+ * A message the SMSC did not take is tried again after a backoff that doubles
+ * with every attempt, except when the SMSC refused it for good, and is marked
+ * failed after maxAttempts.
+ */
 @Component
 public class SMPPNotificationSender {
 
-    @Value("${org.openelisglobal.smsc.serviceType:CMT}")
-    private String serviceType;
+    @Autowired
+    private SMSMessageOutService smsMessageOutService;
+    @Autowired
+    private SMPPSessionPool sessionPool;
+    @Autowired
+    @Qualifier(AsyncConfig.SMS_SEND_EXECUTOR)
+    private InstrumentedTaskExecutor executor;
 
-    @Value("${org.openelisglobal.smsc.bindParamSystemType:}")
-    private String bindParamSystemType;
+    @Value("${org.openelisglobal.smsc.outbox.batchSize:50}")
+    private int batchSize;
+    @Value("${org.openelisglobal.smsc.outbox.maxAttempts:10}")
+    private int maxAttempts;
+    @Value("${org.openelisglobal.smsc.outbox.initialBackoffMillis:30000}")
+    private long initialBackoffMillis;
+    @Value("${org.openelisglobal.smsc.outbox.maxBackoffMillis:3600000}")
+    private long maxBackoffMillis;
+    @Value("${org.openelisglobal.smsc.outbox.leaseMillis:600000}")
+    private long leaseMillis;
+    @Value("${org.openelisglobal.smsc.outbox.retentionDays:30}")
+    private int retentionDays;
 
-    private static final TimeFormatter TIME_FORMATTER = new AbsoluteTimeFormatter();
+    private OutboxDispatcher<SMSMessageOut> dispatcher;
 
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong delayMillis = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        dispatcher = new OutboxDispatcher<>(executor, sessionPool.getCapacity(), batchSize, maxAttempts,
+                initialBackoffMillis, maxBackoffMillis,
+                limit -> smsMessageOutService.claimDueMessages(limit,
+                        new Timestamp(System.currentTimeMillis() + leaseMillis)),
+                this::deliver);
+    }
+
+    /*
+     * queues the notification and starts sending it, the message is sent later
+     * if the SMSC cannot take it now
+     */
     public void send(SMSNotification notification) {
-        SMPPSession session;
+        smsMessageOutService.queue(notification.getReceiverPhoneNumber(), notification.getMessage());
+        dispatcher.sendDue();
+    }
+
+    /*
+     * picks up the messages that are due again and any left behind by a restart
+     */
+    @Scheduled(initialDelay = 60 * 1000, fixedDelayString = "${org.openelisglobal.smsc.outbox.pollMillis:30000}")
+    public void sendQueued() {
+        if (smppEnabled()) {
+            dispatcher.sendDue();
+        }
+    }
+
+    @Scheduled(initialDelay = 60 * 60 * 1000, fixedRate = 60 * 60 * 1000)
+    public void deleteSentMessages() {
         try {
-            session = initSession();
+            int deleted = smsMessageOutService.deleteMessagesSentBefore(
+                    new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays)));
+            if (deleted > 0) {
+                LogEvent.logInfo(this.getClass().getSimpleName(), "deleteSentMessages",
+                        "deleted " + deleted + " sent sms messages");
+            }
+        } catch (RuntimeException e) {
+            LogEvent.logError(e);
+        }
+    }
 
-            try {
-                String messageId = session.submitShortMessage(serviceType, TypeOfNumber.UNKNOWN,
-                        NumberingPlanIndicator.UNKNOWN, "OpenELIS", TypeOfNumber.UNKNOWN,
-                        NumberingPlanIndicator.UNKNOWN, notification.getReceiverPhoneNumber(), new ESMClass(), (byte) 0,
-                        (byte) 1, TIME_FORMATTER.format(new Date()), null,
-                        new RegisteredDelivery(SMSCDeliveryReceipt.DEFAULT), (byte) 0,
-                        new GeneralDataCoding(Alphabet.ALPHA_DEFAULT, MessageClass.CLASS1, false), (byte) 0,
-                        notification.getMessage().getBytes());
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        Map<String, Object> statuses = new LinkedHashMap<>();
+        for (SMSMessageOut.Status status : SMSMessageOut.Status.values()) {
+            statuses.put(status.name(), 0L);
+        }
+        for (Object[] row : smsMessageOutService.getCountsByStatus()) {
+            statuses.put(String.valueOf(row[0]), ((Number) row[1]).longValue());
+        }
+        long sentCount = sent.get();
+        long attempts = sentCount + failedAttempts.get();
+        metrics.put("messages", statuses);
+        metrics.put("sent", sentCount);
+        metrics.put("failedAttempts", failedAttempts.get());
+        metrics.put("failed", failed.get());
+        metrics.put("failureRate", attempts == 0 ? 0.0 : (double) failedAttempts.get() / attempts);
+        metrics.put("averageDeliveryDelayMillis", sentCount == 0 ? 0 : delayMillis.get() / sentCount);
+        metrics.put("smsc", sessionPool.getMetrics());
+        return metrics;
+    }
 
-                LogEvent.logDebug(this.getClass().getSimpleName(), "send", "sms messageId: " + messageId);
-            } catch (IllegalArgumentException | PDUException | ResponseTimeoutException | InvalidResponseException
-                    | NegativeResponseException | IOException e) {
-                LogEvent.logError(e);
+    private void deliver(SMSMessageOut messageOut) {
+        try {
+            String smscMessageId = sessionPool.submit(messageOut.getReceiver(), messageOut.getMessage());
+            smsMessageOutService.recordSent(messageOut.getId(), smscMessageId);
+            sent.incrementAndGet();
+            if (messageOut.getQueuedTime() != null) {
+                delayMillis.addAndGet(System.currentTimeMillis() - messageOut.getQueuedTime().getTime());
             }
+            LogEvent.logDebug(this.getClass().getSimpleName(), "deliver", "sms messageId: " + smscMessageId);
+        } catch (NegativeResponseException e) {
+            failed(messageOut, "SMSC refused the message with status " + e.getCommandStatus(),
+                    !isTemporary(e.getCommandStatus()));
+        } catch (PDUException e) {
+            failed(messageOut, e.toString(), true);
+        } catch (IOException | ResponseTimeoutException | InvalidResponseException e) {
+            failed(messageOut, e.toString(), false);
+        } catch (InterruptedException e) {
+            // the claim runs out and the message is sent again
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            session.unbindAndClose();
-        } catch (IOException | URISyntaxException e) {
-            LogEvent.logError(e);
+    private void failed(SMSMessageOut messageOut, String error, boolean permanent) {
+        failedAttempts.incrementAndGet();
+        int attempts = messageOut.getAttempts() == null ? 1 : messageOut.getAttempts();
+        Timestamp nextAttemptTime = permanent ? null : dispatcher.getNextAttemptTime(attempts);
+        boolean giveUp = nextAttemptTime == null;
+        error = OutboxDispatcher.truncateError(error);
+        smsMessageOutService.recordFailedAttempt(messageOut.getId(), error, nextAttemptTime, giveUp);
+        if (giveUp) {
+            failed.incrementAndGet();
+            LogEvent.logWarn(this.getClass().getSimpleName(), "failed", "sms message " + messageOut.getId()
+                    + " was not sent after " + attempts + " attempts and will not be sent again: " + error);
         }
     }
 
-    private SMPPSession initSession() throws IOException, URISyntaxException {
-        ConfigurationProperties configurationProperties = ConfigurationProperties.getInstance();
-        SMPPSession session = new SMPPSession();
+    // the SMSC is busy rather than refusing the message itself
+    private boolean isTemporary(int commandStatus) {
+        return commandStatus == SMPPConstant.STAT_ESME_RTHROTTLED || commandStatus == SMPPConstant.STAT_ESME_RMSGQFUL
+                || commandStatus == SMPPConstant.STAT_ESME_RSYSERR;
+    }
 
-        String address = configurationProperties.getPropertyValue(Property.PATIENT_RESULTS_BMP_SMS_ADDRESS);
-        String username = configurationProperties.getPropertyValue(Property.PATIENT_RESULTS_BMP_SMS_USERNAME);
-        String password = configurationProperties.getPropertyValue(Property.PATIENT_RESULTS_BMP_SMS_PASSWORD);
-        URI uri = new URI(address);
-        String systemId = session.connectAndBind(uri.getHost(), uri.getPort(), new BindParameter(BindType.BIND_TX,
-                username, password, bindParamSystemType, TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, null));
-        LogEvent.logDebug(this.getClass().getSimpleName(), "initSession",
-                "Connected with SMPP with system id {" + systemId + "}");
-        return session;
+    private boolean smppEnabled() {
+        return Boolean.TRUE.toString().equalsIgnoreCase(
+                ConfigurationProperties.getInstance().getPropertyValue(Property.PATIENT_RESULTS_SMPP_SMS_ENABLED));
     }
 }
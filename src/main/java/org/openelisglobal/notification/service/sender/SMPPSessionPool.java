@@ -0,0 +1,258 @@
+package org.openelisglobal.notification.service.sender;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.jsmpp.InvalidResponseException;
+import org.jsmpp.PDUException;
+import org.jsmpp.bean.Alphabet;
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.MessageClass;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.SMSCDeliveryReceipt;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.NegativeResponseException;
+import org.jsmpp.extra.ResponseTimeoutException;
+import org.jsmpp.session.BindParameter;
+import org.jsmpp.session.SMPPSession;
+import org.jsmpp.util.AbsoluteTimeFormatter;
+import org.jsmpp.util.TimeFormatter;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.common.util.ConfigurationProperties;
+import org.openelisglobal.common.util.ConfigurationProperties.Property;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps transmitter sessions bound to the SMSC between notifications instead
+ * of binding for every message. The sessions send enquire_link while they are
+ * idle so the SMSC and any firewall in between keep them open, and a session
+ * that was closed is bound again the next time it is used, waiting longer after
+ * every bind that fails.
+ *
+ * submit_sm is sent from as many threads as there are messages in flight. Each
+ * session has at most window of them waiting for their response, and when
+ * maxPerSecond is set the submits of all of the sessions together are spaced
+ * to stay under it.
+ */
+@Component
+public class SMPPSessionPool {
+
+    private static final TimeFormatter TIME_FORMATTER = new AbsoluteTimeFormatter();
+
+    @Value("${org.openelisglobal.smsc.serviceType:CMT}")
+    private String serviceType;
+    @Value("${org.openelisglobal.smsc.bindParamSystemType:}")
+    private String bindParamSystemType;
+    @Value("${org.openelisglobal.smsc.sessions:1}")
+    private int sessionCount;
+    @Value("${org.openelisglobal.smsc.window:10}")
+    private int window;
+    // 0 leaves the rate up to the window and the SMSC
+    @Value("${org.openelisglobal.smsc.maxPerSecond:0}")
+    private int maxPerSecond;
+    @Value("${org.openelisglobal.smsc.enquireLinkMillis:30000}")
+    private int enquireLinkMillis;
+    @Value("${org.openelisglobal.smsc.responseTimeoutMillis:10000}")
+    private long responseTimeoutMillis;
+    @Value("${org.openelisglobal.smsc.reconnectDelayMillis:5000}")
+    private long reconnectDelayMillis;
+    @Value("${org.openelisglobal.smsc.maxReconnectDelayMillis:300000}")
+    private long maxReconnectDelayMillis;
+
+    private List<PooledSession> sessions;
+    private final AtomicInteger nextSession = new AtomicInteger();
+    private long nextSubmitNanos = System.nanoTime();
+
+    private final AtomicLong binds = new AtomicLong();
+    private final AtomicLong bindFailures = new AtomicLong();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong submitMillis = new AtomicLong();
+    private final AtomicLong maxSubmitMillis = new AtomicLong();
+
+    /*
+     * the number of messages that can be waiting for the SMSC at once
+     */
+    public int getCapacity() {
+        return Math.max(1, sessionCount) * Math.max(1, window);
+    }
+
+    /*
+     * submits the message on one of the sessions, binding it first if it is not
+     * bound, and returns the id the SMSC gave it. Waits for room in the session's
+     * window and for the rate limit
+     */
+    public String submit(String receiver, String message) throws IOException, PDUException,
+            ResponseTimeoutException, InvalidResponseException, NegativeResponseException, InterruptedException {
+        PooledSession pooledSession = acquire();
+        try {
+            SMPPSession session = pooledSession.getBoundSession();
+            pace();
+            long started = System.currentTimeMillis();
+            String messageId = session.submitShortMessage(serviceType, TypeOfNumber.UNKNOWN,
+                    NumberingPlanIndicator.UNKNOWN, "OpenELIS", TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN,
+                    receiver, new ESMClass(), (byte) 0, (byte) 1, TIME_FORMATTER.format(new Date()), null,
+                    new RegisteredDelivery(SMSCDeliveryReceipt.DEFAULT), (byte) 0,
+                    new GeneralDataCoding(Alphabet.ALPHA_DEFAULT, MessageClass.CLASS1, false), (byte) 0,
+                    message.getBytes());
+            long elapsed = System.currentTimeMillis() - started;
+            submitted.incrementAndGet();
+            submitMillis.addAndGet(elapsed);
+            maxSubmitMillis.accumulateAndGet(elapsed, Math::max);
+            return messageId;
+        } finally {
+            pooledSession.window.release();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        int bound = 0;
+        int inFlight = 0;
+        for (PooledSession pooledSession : getSessions()) {
+            bound += pooledSession.isBound() ? 1 : 0;
+            inFlight += window - pooledSession.window.availablePermits();
+        }
+        long count = submitted.get();
+        metrics.put("sessions", getSessions().size());
+        metrics.put("boundSessions", bound);
+        metrics.put("inFlight", inFlight);
+        metrics.put("binds", binds.get());
+        metrics.put("bindFailures", bindFailures.get());
+        metrics.put("submitted", count);
+        metrics.put("averageSubmitMillis", count == 0 ? 0 : submitMillis.get() / count);
+        metrics.put("maxSubmitMillis", maxSubmitMillis.get());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void close() {
+        for (PooledSession pooledSession : getSessions()) {
+            pooledSession.close();
+        }
+    }
+
+    // the session with room in its window, starting with the next in turn, or
+    // the next in turn once it has room
+    private PooledSession acquire() throws InterruptedException {
+        List<PooledSession> all = getSessions();
+        int first = Math.floorMod(nextSession.getAndIncrement(), all.size());
+        for (int i = 0; i < all.size(); i++) {
+            PooledSession pooledSession = all.get((first + i) % all.size());
+            if (pooledSession.window.tryAcquire()) {
+                return pooledSession;
+            }
+        }
+        all.get(first).window.acquire();
+        return all.get(first);
+    }
+
+    private void pace() throws InterruptedException {
+        if (maxPerSecond <= 0) {
+            return;
+        }
+        long slot;
+        synchronized (this) {
+            long now = System.nanoTime();
+            slot = nextSubmitNanos - now > 0 ? nextSubmitNanos : now;
+            nextSubmitNanos = slot + TimeUnit.SECONDS.toNanos(1) / maxPerSecond;
+        }
+        long wait = slot - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    private synchronized List<PooledSession> getSessions() {
+        if (sessions == null) {
+            sessions = new ArrayList<>();
+            for (int i = 0; i < Math.max(1, sessionCount); i++) {
+                sessions.add(new PooledSession(i));
+            }
+        }
+        return sessions;
+    }
+
+    private class PooledSession {
+        private final int number;
+        private final Semaphore window = new Semaphore(Math.max(1, SMPPSessionPool.this.window));
+        private SMPPSession session;
+        // the address and account the session was bound with
+        private String boundTo;
+        private long reconnectDelay;
+        private long nextBindTime;
+
+        private PooledSession(int number) {
+            this.number = number;
+        }
+
+        private synchronized boolean isBound() {
+            return session != null && session.getSessionState().isBound();
+        }
+
+        private synchronized SMPPSession getBoundSession() throws IOException {
+            ConfigurationProperties configurationProperties = ConfigurationProperties.getInstance();
+            String address = configurationProperties.getPropertyValue(Property.PATIENT_RESULTS_BMP_SMS_ADDRESS);
+            String username = configurationProperties.getPropertyValue(Property.PATIENT_RESULTS_BMP_SMS_USERNAME);
+            String password = configurationProperties.getPropertyValue(Property.PATIENT_RESULTS_BMP_SMS_PASSWORD);
+            String bindTo = address + " " + username + " " + password;
+            if (isBound() && bindTo.equals(boundTo)) {
+                return session;
+            }
+            close();
+            if (System.currentTimeMillis() < nextBindTime) {
+                throw new IOException("SMSC session " + number + " is waiting to bind again");
+            }
+            try {
+                URI uri = new URI(address);
+                SMPPSession newSession = new SMPPSession();
+                newSession.setEnquireLinkTimer(enquireLinkMillis);
+                newSession.setTransactionTimer(responseTimeoutMillis);
+                String systemId = newSession.connectAndBind(uri.getHost(), uri.getPort(),
+                        new BindParameter(BindType.BIND_TX, username, password, bindParamSystemType,
+                                TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, null),
+                        responseTimeoutMillis);
+                session = newSession;
+                boundTo = bindTo;
+                reconnectDelay = 0;
+                binds.incrementAndGet();
+                LogEvent.logInfo(SMPPSessionPool.class.getSimpleName(), "getBoundSession",
+                        "SMSC session " + number + " bound to system id {" + systemId + "}");
+                return session;
+            } catch (IOException | URISyntaxException | RuntimeException e) {
+                bindFailures.incrementAndGet();
+                reconnectDelay = reconnectDelay == 0 ? reconnectDelayMillis
+                        : Math.min(maxReconnectDelayMillis, reconnectDelay * 2);
+                nextBindTime = System.currentTimeMillis() + reconnectDelay;
+                LogEvent.logWarn(SMPPSessionPool.class.getSimpleName(), "getBoundSession", "SMSC session " + number
+                        + " could not bind, trying again in " + reconnectDelay + " ms: " + e.getMessage());
+                throw e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+        }
+
+        private synchronized void close() {
+            if (session != null) {
+                if (session.getSessionState().isBound()) {
+                    session.unbindAndClose();
+                } else {
+                    session.close();
+                }
+                session = null;
+                boundTo = null;
+            }
+        }
+    }
+}
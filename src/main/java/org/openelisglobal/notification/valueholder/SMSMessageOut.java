@@ -0,0 +1,154 @@
+package org.openelisglobal.notification.valueholder;
+
+import java.sql.Timestamp;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import org.openelisglobal.common.valueholder.BaseObject;
+
+/**
+ * An SMS waiting to be submitted to the SMSC, kept until the SMSC accepted it
+ * so notifications survive a restart or the SMSC being unreachable.
+ */
+@Entity
+@Table(name = "sms_message_out")
+public class SMSMessageOut extends BaseObject<Integer> {
+
+    private static final long serialVersionUID = 6180254739628150378L;
+
+    public enum Status {
+        QUEUED, SENT, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sms_message_out_generator")
+    @SequenceGenerator(name = "sms_message_out_generator", sequenceName = "sms_message_out_seq", allocationSize = 1)
+    private Integer id;
+
+    @Column(name = "receiver")
+    private String receiver;
+
+    @Column(name = "message")
+    private String message;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private Status status;
+
+    @Column(name = "attempts")
+    private Integer attempts;
+
+    @Column(name = "next_attempt_time")
+    private Timestamp nextAttemptTime;
+
+    @Column(name = "claimed_until")
+    private Timestamp claimedUntil;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(name = "smsc_message_id")
+    private String smscMessageId;
+
+    @Column(name = "queued_time")
+    private Timestamp queuedTime;
+
+    @Column(name = "sent_time")
+    private Timestamp sentTime;
+
+    @Override
+    public Integer getId() {
+        return id;
+    }
+
+    @Override
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getReceiver() {
+        return receiver;
+    }
+
+    public void setReceiver(String receiver) {
+        this.receiver = receiver;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Timestamp getNextAttemptTime() {
+        return nextAttemptTime;
+    }
+
+    public void setNextAttemptTime(Timestamp nextAttemptTime) {
+        this.nextAttemptTime = nextAttemptTime;
+    }
+
+    public Timestamp getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    public void setClaimedUntil(Timestamp claimedUntil) {
+        this.claimedUntil = claimedUntil;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public String getSmscMessageId() {
+        return smscMessageId;
+    }
+
+    public void setSmscMessageId(String smscMessageId) {
+        this.smscMessageId = smscMessageId;
+    }
+
+    public Timestamp getQueuedTime() {
+        return queuedTime;
+    }
+
+    public void setQueuedTime(Timestamp queuedTime) {
+        this.queuedTime = queuedTime;
+    }
+
+    public Timestamp getSentTime() {
+        return sentTime;
+    }
+
+    public void setSentTime(Timestamp sentTime) {
+        this.sentTime = sentTime;
+    }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import org.hibernate.query.NativeQuery;
 import org.openelisglobal.notifications.entity.Notification;
 import org.openelisglobal.systemuser.valueholder.SystemUser;
 import org.springframework.stereotype.Repository;
@@ -50,7 +51,7 @@ public class NotificationDAOImpl implements NotificationDAO {
                                                                                            // directly specify column
                                                                                            // name
                 "WHERE user_id = :userId").setParameter("time", OffsetDateTime.now()).setParameter("userId", userId)
-                .executeUpdate();
+                .unwrap(NativeQuery.class).addSynchronizedEntityClass(Notification.class).executeUpdate();
     }
 
     @Override
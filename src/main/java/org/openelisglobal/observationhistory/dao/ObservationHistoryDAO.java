@@ -62,6 +62,9 @@ public interface ObservationHistoryDAO extends BaseDAO<ObservationHistory, Strin
 
     List<ObservationHistory> getObservationHistoriesBySampleItemId(String sampleItemId) throws LIMSRuntimeException;
 
+    List<ObservationHistory> getObservationHistoriesBySampleItemIds(List<String> sampleItemIds)
+            throws LIMSRuntimeException;
+
     List<ObservationHistory> getObservationHistoriesBySampleId(String sampleId) throws LIMSRuntimeException;
 
     List<ObservationHistory> getObservationHistoriesByPatientIdAndType(String patientId,
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
@@ -109,6 +110,27 @@ public class ObservationHistoryDAOImpl extends BaseDAOImpl<ObservationHistory, S
         return null;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<ObservationHistory> getObservationHistoriesBySampleItemIds(List<String> sampleItemIds)
+            throws LIMSRuntimeException {
+        if (sampleItemIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "from ObservationHistory oh where oh.sampleItemId in (:sampleItemIds)";
+
+        try {
+            Query<ObservationHistory> query = entityManager.unwrap(Session.class).createQuery(sql,
+                    ObservationHistory.class);
+            query.setParameterList("sampleItemIds",
+                    sampleItemIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getObservationHistoriesBySampleItemIds");
+        }
+        return new ArrayList<>();
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<ObservationHistory> getObservationHistoriesBySampleId(String sampleId) throws LIMSRuntimeException {
@@ -23,6 +23,8 @@ public interface ObservationHistoryService extends BaseObjectService<Observation
 
     List<ObservationHistory> getObservationHistoriesBySampleItemId(String sampleItemId);
 
+    List<ObservationHistory> getObservationHistoriesBySampleItemIds(List<String> sampleItemIds);
+
     List<ObservationHistory> getObservationHistoriesByValueAndType(String value, String typeId, String valueType);
 
     List<ObservationHistory> getObservationHistoriesBySampleId(String sampleId);
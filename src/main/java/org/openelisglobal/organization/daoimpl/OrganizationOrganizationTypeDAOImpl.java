@@ -18,12 +18,14 @@ package org.openelisglobal.organization.daoimpl;
 import java.util.List;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import org.hibernate.Cache;
 import org.hibernate.Session;
 import org.hibernate.query.NativeQuery;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.organization.dao.OrganizationOrganizationTypeDAO;
 import org.openelisglobal.organization.valueholder.Organization;
+import org.openelisglobal.organization.valueholder.OrganizationType;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -32,6 +34,8 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class OrganizationOrganizationTypeDAOImpl implements OrganizationOrganizationTypeDAO {
 
+    private static final String LINK_TABLE = "organization_organization_type";
+
     @PersistenceContext
     EntityManager entityManager;
 
@@ -43,7 +47,9 @@ public class OrganizationOrganizationTypeDAOImpl implements OrganizationOrganiza
             String sql = "delete from organization_organization_type where org_id = :id";
             NativeQuery query = entityManager.unwrap(Session.class).createNativeQuery(sql);
             query.setParameter("id", Integer.parseInt(id));
+            query.addSynchronizedQuerySpace(LINK_TABLE);
             query.executeUpdate();
+            evictCachedLinks(id);
         } catch (RuntimeException e) {
             LogEvent.logError(e);
             throw new LIMSRuntimeException("Error in OrganizationOrganizationType deleteAllLinksForOrganization()", e);
@@ -60,7 +66,9 @@ public class OrganizationOrganizationTypeDAOImpl implements OrganizationOrganiza
             NativeQuery query = entityManager.unwrap(Session.class).createNativeQuery(sql);
             query.setParameter("org_id", Integer.parseInt(org.getId()));
             query.setParameter("type_id", Integer.parseInt(typeId));
+            query.addSynchronizedQuerySpace(LINK_TABLE);
             query.executeUpdate();
+            evictCachedLinks(org.getId());
 
         } catch (RuntimeException e) {
             LogEvent.logError(e);
@@ -105,6 +113,16 @@ public class OrganizationOrganizationTypeDAOImpl implements OrganizationOrganiza
         return orgIdList;
     }
 
+    /*
+     * the links are written with sql so the cached collections mapped on the link
+     * table have to be dropped by hand
+     */
+    private void evictCachedLinks(String organizationId) {
+        Cache cache = entityManager.unwrap(Session.class).getSessionFactory().getCache();
+        cache.evictCollectionData(Organization.class.getName() + ".organizationTypes", organizationId);
+        cache.evictCollectionData(OrganizationType.class.getName() + ".organizations");
+    }
+
     private void handleException(Exception e, String string) {
         LogEvent.logError(e);
     }
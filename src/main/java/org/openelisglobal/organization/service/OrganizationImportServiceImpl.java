@@ -3,11 +3,14 @@ package org.openelisglobal.organization.service;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.commons.validator.GenericValidator;
@@ -16,12 +19,14 @@ import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
 import org.hl7.fhir.r4.model.Resource;
 import org.hl7.fhir.r4.model.ResourceType;
+import org.openelisglobal.common.action.IActionConstants;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.services.DisplayListService;
 import org.openelisglobal.common.services.DisplayListService.ListType;
 import org.openelisglobal.dataexchange.fhir.FhirUtil;
 import org.openelisglobal.dataexchange.fhir.exception.FhirGeneralException;
+import org.openelisglobal.dataexchange.fhir.service.FhirDeltaSyncService;
 import org.openelisglobal.dataexchange.fhir.service.FhirPersistanceService;
 import org.openelisglobal.dataexchange.fhir.service.FhirTransformService;
 import org.openelisglobal.organization.valueholder.Organization;
@@ -51,6 +56,9 @@ public class OrganizationImportServiceImpl implements OrganizationImportService
     @Value("${org.openelisglobal.facilitylist.auth:basic}")
     private String facilityAuth;
 
+    @Value("${org.openelisglobal.facilitylist.deltaSync:false}")
+    private boolean deltaSync;
+
     @Autowired
     private FhirUtil fhirUtil;
     @Autowired
@@ -58,6 +66,8 @@ public class OrganizationImportServiceImpl implements OrganizationImportService
     @Autowired
     private FhirPersistanceService fhirPersistanceService;
     @Autowired
+    private FhirDeltaSyncService fhirDeltaSyncService;
+    @Autowired
     private OrganizationService organizationService;
     @Autowired
     private OrganizationTypeService organizationTypeService;
@@ -67,6 +77,7 @@ public class OrganizationImportServiceImpl implements OrganizationImportService
     @Async
     @Scheduled(initialDelay = 1000, fixedRateString = "${facilitylist.schedule.fixedRate}")
     public void importOrganizationList() throws FhirGeneralException, IOException {
+        boolean changed = true;
         if (!GenericValidator.isBlankOrNull(facilityFhirStore)) {
             IGenericClient client;
             if (facilityAuth.equals("token")) {
@@ -76,33 +87,97 @@ public class OrganizationImportServiceImpl implements OrganizationImportService
                 client = fhirUtil.getFhirClient(facilityFhirStore);
             }
 
-            List<Bundle> responseBundles = new ArrayList<>();
-            Bundle responseBundle = client.search().forResource(org.hl7.fhir.r4.model.Organization.class)
-                    .returnBundle(Bundle.class).execute();
-            responseBundles.add(responseBundle);
-            while (responseBundle.getLink(IBaseBundle.LINK_NEXT) != null) {
-                responseBundle = client.loadPage().next(responseBundle).execute();
-                responseBundles.add(responseBundle);
+            if (deltaSync) {
+                changed = importOrganizationChanges(client);
+            } else {
+                importAllOrganizations(client);
             }
-            organizationService.deactivateAllOrganizations();
-            importOrgsFromBundle(client, responseBundles);
+        }
+        if (changed) {
+            DisplayListService.getInstance().refreshList(ListType.REFERRAL_ORGANIZATIONS);
+            DisplayListService.getInstance().refreshList(ListType.SAMPLE_PATIENT_REFERRING_CLINIC);
+            DisplayListService.getInstance().refreshList(ListType.PATIENT_HEALTH_REGIONS);
+        }
+    }
 
-            responseBundles = new ArrayList<>();
-            responseBundle = client.search().forResource(org.hl7.fhir.r4.model.Location.class)
-                    .returnBundle(Bundle.class).execute();
+    private void importAllOrganizations(IGenericClient client) throws FhirGeneralException {
+        List<Bundle> responseBundles = new ArrayList<>();
+        Bundle responseBundle = client.search().forResource(org.hl7.fhir.r4.model.Organization.class)
+                .returnBundle(Bundle.class).execute();
+        responseBundles.add(responseBundle);
+        while (responseBundle.getLink(IBaseBundle.LINK_NEXT) != null) {
+            responseBundle = client.loadPage().next(responseBundle).execute();
             responseBundles.add(responseBundle);
-            while (responseBundle.getLink(IBaseBundle.LINK_NEXT) != null) {
-                responseBundle = client.loadPage().next(responseBundle).execute();
-                responseBundles.add(responseBundle);
+        }
+        organizationService.deactivateAllOrganizations();
+        importOrgsFromBundle(client, responseBundles, false, new ArrayList<>());
+
+        responseBundles = new ArrayList<>();
+        responseBundle = client.search().forResource(org.hl7.fhir.r4.model.Location.class).returnBundle(Bundle.class)
+                .execute();
+        responseBundles.add(responseBundle);
+        while (responseBundle.getLink(IBaseBundle.LINK_NEXT) != null) {
+            responseBundle = client.loadPage().next(responseBundle).execute();
+            responseBundles.add(responseBundle);
+        }
+        importLocationsFromBundle(client, responseBundles);
+    }
+
+    /*
+     * only imports the organizations and locations changed since the last import
+     * from this registry. Without a high-water mark (the first run) everything is
+     * imported the same way as a full import
+     */
+    private boolean importOrganizationChanges(IGenericClient client) throws FhirGeneralException {
+        Optional<Date> orgMark = fhirDeltaSyncService.getHighWaterMark(facilityFhirStore,
+                org.hl7.fhir.r4.model.Organization.class);
+        Optional<Date> locationMark = fhirDeltaSyncService.getHighWaterMark(facilityFhirStore,
+                org.hl7.fhir.r4.model.Location.class);
+
+        List<Bundle> orgBundles = fhirDeltaSyncService.searchChangedSince(client,
+                org.hl7.fhir.r4.model.Organization.class, orgMark.orElse(null));
+        boolean changed = false;
+        if (orgMark.isPresent()) {
+            // deleted before upserted in case an organization was deleted and then
+            // recreated with the same id
+            Set<String> deletedOrgIds = fhirDeltaSyncService.getDeletedIdsSince(client,
+                    org.hl7.fhir.r4.model.Organization.class, orgMark.get());
+            for (String deletedOrgId : deletedOrgIds) {
+                Organization dbOrg = organizationService.getOrganizationByFhirId(deletedOrgId);
+                if (dbOrg != null && !IActionConstants.NO.equals(dbOrg.getIsActive())) {
+                    dbOrg.setIsActive(IActionConstants.NO);
+                    changed = true;
+                }
             }
-            importLocationsFromBundle(client, responseBundles);
+        } else {
+            organizationService.deactivateAllOrganizations();
+        }
+        List<Resource> failedOrgs = new ArrayList<>();
+        changed |= importOrgsFromBundle(client, orgBundles, orgMark.isPresent(), failedOrgs) > 0;
+
+        List<Bundle> locationBundles = fhirDeltaSyncService.searchChangedSince(client,
+                org.hl7.fhir.r4.model.Location.class, locationMark.orElse(null));
+        changed |= importLocationsFromBundle(client, locationBundles) > 0;
+
+        // locations are stored as a whole so there are no single failed locations
+        Optional<Date> newOrgMark = fhirDeltaSyncService.getNewHighWaterMark(orgBundles, failedOrgs);
+        if (newOrgMark.isPresent()) {
+            fhirDeltaSyncService.saveHighWaterMark(facilityFhirStore, org.hl7.fhir.r4.model.Organization.class,
+                    newOrgMark.get());
         }
-        DisplayListService.getInstance().refreshList(ListType.REFERRAL_ORGANIZATIONS);
-        DisplayListService.getInstance().refreshList(ListType.SAMPLE_PATIENT_REFERRING_CLINIC);
-        DisplayListService.getInstance().refreshList(ListType.PATIENT_HEALTH_REGIONS);
+        Optional<Date> newLocationMark = fhirDeltaSyncService.getNewHighWaterMark(locationBundles,
+                Collections.emptyList());
+        if (newLocationMark.isPresent()) {
+            fhirDeltaSyncService.saveHighWaterMark(facilityFhirStore, org.hl7.fhir.r4.model.Location.class,
+                    newLocationMark.get());
+        }
+        LogEvent.logInfo(this.getClass().getSimpleName(), "importOrganizationChanges",
+                (orgMark.isPresent() ? "delta" : "full") + " organization import from " + facilityFhirStore
+                        + (changed ? " applied changes" : " found no changes"));
+        return changed;
     }
 
-    private void importLocationsFromBundle(IGenericClient client, List<Bundle> responseBundles)
+    private int importLocationsFromBundle(IGenericClient client, List<Bundle> responseBundles)
             throws FhirGeneralException {
         Map<String, Resource> remoteFhirLocations = new HashMap<>();
         for (Bundle responseBundle : responseBundles) {
@@ -115,10 +190,20 @@ public class OrganizationImportServiceImpl implements OrganizationImportService
         }
 
         // import fhir locations as is
-        fhirPersistanceService.updateFhirResourcesInFhirStore(remoteFhirLocations);
+        if (!remoteFhirLocations.isEmpty()) {
+            fhirPersistanceService.updateFhirResourcesInFhirStore(remoteFhirLocations);
+        }
+        return remoteFhirLocations.size();
     }
 
-    private void importOrgsFromBundle(IGenericClient client, List<Bundle> responseBundles) throws FhirGeneralException {
+    /*
+     * incremental is set when responseBundles only holds changed organizations, in
+     * which case parents and organization type memberships of organizations that
+     * weren't returned are left as they are in the db. Organizations that could
+     * not be imported are added to failedOrgs
+     */
+    private int importOrgsFromBundle(IGenericClient client, List<Bundle> responseBundles, boolean incremental,
+            List<Resource> failedOrgs) throws FhirGeneralException {
         Map<String, Resource> remoteFhirOrganizations = new HashMap<>();
 
         Map<String, OrganizationObjects> organizationObjectsByOrgUUID = new HashMap<>();
@@ -138,6 +223,7 @@ public class OrganizationImportServiceImpl implements OrganizationImportService
                             .getOrDefault(fhirOrganization.getIdElement().getIdPart(), new OrganizationObjects());
 
                     // preserve the mappings between the objects
+                    organizationObjects.fhirOrganization = fhirOrganization;
                     organizationObjects.organization = fhirTransformService.transformToOrganization(fhirOrganization);
                     organizationObjects.organizationTypeNames = organizationObjects.organization.getOrganizationTypes()
                             .stream().map(e -> e.getName()).collect(Collectors.toSet());
@@ -159,7 +245,8 @@ public class OrganizationImportServiceImpl implements OrganizationImportService
 
         // ensure the org types are in the db
         for (Entry<String, OrganizationType> entry : orgTypesByName.entrySet()) {
-            dbOrgTypesByName.put(entry.getKey(), this.insertOrUpdateOrganizationType(entry.getValue()));
+            dbOrgTypesByName.put(entry.getKey(),
+                    this.insertOrUpdateOrganizationType(entry.getValue(), !incremental));
         }
 
         for (OrganizationObjects organizationObjects : organizationObjectsByOrgUUID.values()) {
@@ -170,10 +257,14 @@ public class OrganizationImportServiceImpl implements OrganizationImportService
                     Organization dbParentOrg;
                     if (dbOrgsByUUID.containsKey(organizationObjects.parentUUID)) {
                         dbParentOrg = dbOrgsByUUID.get(organizationObjects.parentUUID);
-                    } else {
+                    } else if (organizationObjectsByOrgUUID.containsKey(organizationObjects.parentUUID)) {
                         dbParentOrg = insertOrUpdateOrganization(
                                 organizationObjectsByOrgUUID.get(organizationObjects.parentUUID).organization);
                         dbOrgsByUUID.put(organizationObjects.parentUUID, dbParentOrg);
+                    } else {
+                        // parent wasn't part of this import so it must already be in the db
+                        dbParentOrg = organizationService.getOrganizationByFhirId(organizationObjects.parentUUID);
+                        dbOrgsByUUID.put(organizationObjects.parentUUID, dbParentOrg);
                     }
                     // set the parent org to the db parent org
                     curOrganization.setOrganization(dbParentOrg);
@@ -182,12 +273,19 @@ public class OrganizationImportServiceImpl implements OrganizationImportService
                 // save this org with all it's db pointers set
                 Organization dbOrg = insertOrUpdateOrganization(curOrganization);
                 dbOrgsByUUID.put(dbOrg.getFhirUuidAsString(), dbOrg);
+                if (incremental) {
+                    for (OrganizationType oldOrgType : dbOrg.getOrganizationTypes()) {
+                        oldOrgType.getOrganizations().remove(dbOrg);
+                    }
+                    dbOrg.getOrganizationTypes().clear();
+                }
                 for (String orgTypeName : organizationObjects.organizationTypeNames) {
                     OrganizationType orgType = dbOrgTypesByName.get(orgTypeName);
                     dbOrg.getOrganizationTypes().add(orgType);
                     orgType.getOrganizations().add(dbOrg);
                 }
             } catch (LIMSRuntimeException e) {
+                failedOrgs.add(organizationObjects.fhirOrganization);
                 LogEvent.logError(e);
                 LogEvent.logError(this.getClass().getSimpleName(), "", "error importing an organization with id: "
                         + organizationObjects.organization.getFhirUuidAsString());
@@ -195,14 +293,19 @@ public class OrganizationImportServiceImpl implements OrganizationImportService
         }
 
         // import fhir organizations as is
-        fhirPersistanceService.updateFhirResourcesInFhirStore(remoteFhirOrganizations);
+        if (!remoteFhirOrganizations.isEmpty()) {
+            fhirPersistanceService.updateFhirResourcesInFhirStore(remoteFhirOrganizations);
+        }
+        return remoteFhirOrganizations.size();
     }
 
-    private OrganizationType insertOrUpdateOrganizationType(OrganizationType orgType) {
+    private OrganizationType insertOrUpdateOrganizationType(OrganizationType orgType, boolean replaceOrganizations) {
         OrganizationType dbOrgType = organizationTypeService.getOrganizationTypeByName(orgType.getName());
         if (dbOrgType != null) {
             dbOrgType.setDescription(orgType.getDescription());
-            dbOrgType.setOrganizations(orgType.getOrganizations());
+            if (replaceOrganizations) {
+                dbOrgType.setOrganizations(orgType.getOrganizations());
+            }
         } else {
             dbOrgType = organizationTypeService.save(orgType);
         }
@@ -230,6 +333,7 @@ public class OrganizationImportServiceImpl implements OrganizationImportService
     }
 
     public class OrganizationObjects {
+        public org.hl7.fhir.r4.model.Organization fhirOrganization;
         public Organization organization;
         public String parentUUID;
         public Set<String> organizationTypeNames;
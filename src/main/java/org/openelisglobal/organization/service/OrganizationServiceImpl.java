@@ -4,6 +4,7 @@ import java.util.List;
 import org.openelisglobal.common.action.IActionConstants;
 import org.openelisglobal.common.exception.LIMSDuplicateRecordException;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.services.DisplayListService;
 import org.openelisglobal.organization.dao.OrganizationDAO;
 import org.openelisglobal.organization.dao.OrganizationOrganizationTypeDAO;
 import org.openelisglobal.organization.valueholder.Organization;
@@ -103,9 +104,23 @@ public class OrganizationServiceImpl extends AuditableBaseObjectServiceImpl<Orga
                 && getBaseObjectDAO().duplicateOrganizationExists(organization)) {
             throw new LIMSDuplicateRecordException("Duplicate record exists for " + organization.getOrganizationName());
         }
+        invalidateDisplayLists();
         return super.insert(organization);
     }
 
+    @Override
+    protected Organization update(Organization organization, String auditTrailType) {
+        invalidateDisplayLists();
+        return super.update(organization, auditTrailType);
+    }
+
+    private void invalidateDisplayLists() {
+        DisplayListService displayListService = DisplayListService.getInstance();
+        if (displayListService != null) {
+            displayListService.invalidate(DisplayListService.ORGANIZATION_LISTS);
+        }
+    }
+
     @Override
     public Organization update(Organization organization) {
         if (organization.getIsActive().equals(IActionConstants.YES)
@@ -4,6 +4,7 @@ import java.util.List;
 import org.hibernate.Hibernate;
 import org.openelisglobal.common.exception.LIMSDuplicateRecordException;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.services.DisplayListService;
 import org.openelisglobal.localization.valueholder.Localization;
 import org.openelisglobal.panel.dao.PanelDAO;
 import org.openelisglobal.panel.valueholder.Panel;
@@ -107,6 +108,7 @@ public class PanelServiceImpl extends AuditableBaseObjectServiceImpl<Panel, Stri
             throw new LIMSDuplicateRecordException("Duplicate record exists for panel description");
         }
         baseObjectDAO.clearIDMaps();
+        invalidateDisplayLists();
         return super.insert(panel);
     }
 
@@ -134,9 +136,23 @@ public class PanelServiceImpl extends AuditableBaseObjectServiceImpl<Panel, Stri
         return super.update(panel);
     }
 
+    @Override
+    protected Panel update(Panel panel, String auditTrailType) {
+        invalidateDisplayLists();
+        return super.update(panel, auditTrailType);
+    }
+
+    private void invalidateDisplayLists() {
+        DisplayListService displayListService = DisplayListService.getInstance();
+        if (displayListService != null) {
+            displayListService.invalidate(DisplayListService.PANEL_LISTS);
+        }
+    }
+
     @Override
     public void delete(Panel panel) {
         super.delete(panel);
+        invalidateDisplayLists();
         baseObjectDAO.clearIDMaps();
     }
 
@@ -133,6 +133,7 @@ public class PanelItemDAOImpl extends BaseDAOImpl<PanelItem, String> implements
             String sql = "from PanelItem p where p.panel.id = :panelId";
             Query<PanelItem> query = entityManager.unwrap(Session.class).createQuery(sql, PanelItem.class);
             query.setParameter("panelId", Integer.parseInt(panelId));
+            query.setCacheable(true);
 
             list = query.list();
         } catch (RuntimeException e) {
@@ -0,0 +1,72 @@
+package org.openelisglobal.patient.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.openelisglobal.address.valueholder.PersonAddress;
+import org.openelisglobal.patientidentity.valueholder.PatientIdentity;
+import org.openelisglobal.person.valueholder.Person;
+
+/**
+ * The identities, person and address parts of one patient as they were read
+ * together by the PatientDemographicsLoader. The address parts are only read
+ * the first time they are asked for as most callers only want an identity.
+ */
+public class PatientDemographics {
+
+    private final String patientId;
+    private final Person person;
+    private final List<PatientIdentity> identities;
+    private final Map<String, PatientIdentity> identitiesByType = new LinkedHashMap<>();
+    private volatile List<PersonAddress> addressParts;
+
+    PatientDemographics(String patientId, Person person, List<PatientIdentity> identities) {
+        this.patientId = patientId;
+        this.person = person;
+        this.identities = Collections.unmodifiableList(identities);
+        for (PatientIdentity identity : identities) {
+            // the identities are read in id order, the oldest one of a type wins
+            identitiesByType.putIfAbsent(identity.getIdentityTypeId(), identity);
+        }
+    }
+
+    public String getPatientId() {
+        return patientId;
+    }
+
+    public Person getPerson() {
+        return person;
+    }
+
+    public String getPersonId() {
+        return person == null ? null : person.getId();
+    }
+
+    public List<PatientIdentity> getIdentities() {
+        return identities;
+    }
+
+    public PatientIdentity getIdentity(String identityTypeId) {
+        return identitiesByType.get(identityTypeId);
+    }
+
+    /*
+     * the identity data for the type or an empty string if the patient has none
+     */
+    public String getIdentityData(String identityTypeId) {
+        PatientIdentity identity = getIdentity(identityTypeId);
+        return identity == null ? "" : identity.getIdentityData();
+    }
+
+    /*
+     * null until the loader has read them
+     */
+    List<PersonAddress> getAddressParts() {
+        return addressParts;
+    }
+
+    void setAddressParts(List<PersonAddress> addressParts) {
+        this.addressParts = Collections.unmodifiableList(addressParts);
+    }
+}
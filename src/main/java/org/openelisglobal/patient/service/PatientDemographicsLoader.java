@@ -0,0 +1,171 @@
+package org.openelisglobal.patient.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.openelisglobal.address.dao.PersonAddressDAO;
+import org.openelisglobal.address.valueholder.PersonAddress;
+import org.openelisglobal.common.util.validator.GenericValidator;
+import org.openelisglobal.patient.valueholder.Patient;
+import org.openelisglobal.patientidentity.dao.PatientIdentityDAO;
+import org.openelisglobal.patientidentity.valueholder.PatientIdentity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Reads the demographics of patients a set at a time and keeps them for the
+ * rest of the http request, or of the transaction when there is no request, so
+ * a screen asking for several identities of the same patient reads them once.
+ * The services that save identities and address parts evict what they change,
+ * anything saved around them is only seen by the next request.
+ */
+@Component
+public class PatientDemographicsLoader {
+
+    private static final String MEMO_KEY = PatientDemographicsLoader.class.getName() + ".memo";
+
+    @Autowired
+    private PatientIdentityDAO patientIdentityDAO;
+    @Autowired
+    private PersonAddressDAO personAddressDAO;
+
+    public PatientDemographics get(Patient patient) {
+        return getAll(Collections.singletonList(patient)).get(patient.getId());
+    }
+
+    /*
+     * the demographics of all of the patients keyed by patient id, the identities
+     * of the ones not already read are read with a single query
+     */
+    public Map<String, PatientDemographics> getAll(Collection<Patient> patients) {
+        Map<String, PatientDemographics> memo = getMemo();
+        Map<String, PatientDemographics> demographics = new LinkedHashMap<>();
+        Map<String, Patient> unread = new LinkedHashMap<>();
+        for (Patient patient : patients) {
+            if (patient == null) {
+                continue;
+            }
+            if (GenericValidator.isBlankOrNull(patient.getId())) {
+                // not saved yet so there is nothing to read
+                demographics.put(patient.getId(),
+                        new PatientDemographics(null, patient.getPerson(), new ArrayList<>()));
+                continue;
+            }
+            PatientDemographics known = memo == null ? null : memo.get(patient.getId());
+            if (known != null) {
+                demographics.put(patient.getId(), known);
+            } else {
+                unread.put(patient.getId(), patient);
+            }
+        }
+        if (unread.isEmpty()) {
+            return demographics;
+        }
+
+        Map<String, List<PatientIdentity>> identitiesByPatient = new HashMap<>();
+        for (PatientIdentity identity : patientIdentityDAO
+                .getPatientIdentitiesForPatients(new ArrayList<>(unread.keySet()))) {
+            identitiesByPatient.computeIfAbsent(identity.getPatientId(), k -> new ArrayList<>()).add(identity);
+        }
+        for (Patient patient : unread.values()) {
+            PatientDemographics read = new PatientDemographics(patient.getId(), patient.getPerson(),
+                    identitiesByPatient.getOrDefault(patient.getId(), new ArrayList<>()));
+            demographics.put(patient.getId(), read);
+            if (memo != null) {
+                memo.put(patient.getId(), read);
+            }
+        }
+        return demographics;
+    }
+
+    /*
+     * the address parts of the patient's person, read with the first call for any
+     * of the patients read with it
+     */
+    public List<PersonAddress> getAddressParts(PatientDemographics demographics) {
+        List<PersonAddress> addressParts = demographics.getAddressParts();
+        if (addressParts != null) {
+            return addressParts;
+        }
+        if (GenericValidator.isBlankOrNull(demographics.getPersonId())) {
+            demographics.setAddressParts(new ArrayList<>());
+            return demographics.getAddressParts();
+        }
+
+        Map<String, List<PatientDemographics>> waitingByPersonId = new HashMap<>();
+        waitingByPersonId.computeIfAbsent(demographics.getPersonId(), k -> new ArrayList<>()).add(demographics);
+        Map<String, PatientDemographics> memo = getMemo();
+        if (memo != null) {
+            for (PatientDemographics other : memo.values()) {
+                if (other.getAddressParts() == null && !GenericValidator.isBlankOrNull(other.getPersonId())) {
+                    waitingByPersonId.computeIfAbsent(other.getPersonId(), k -> new ArrayList<>()).add(other);
+                }
+            }
+        }
+
+        Map<String, List<PersonAddress>> partsByPersonId = new HashMap<>();
+        for (PersonAddress part : personAddressDAO
+                .getAddressPartsByPersonIds(new ArrayList<>(waitingByPersonId.keySet()))) {
+            partsByPersonId.computeIfAbsent(part.getPersonId(), k -> new ArrayList<>()).add(part);
+        }
+        for (Map.Entry<String, List<PatientDemographics>> entry : waitingByPersonId.entrySet()) {
+            for (PatientDemographics waiting : entry.getValue()) {
+                waiting.setAddressParts(partsByPersonId.getOrDefault(entry.getKey(), new ArrayList<>()));
+            }
+        }
+        return demographics.getAddressParts();
+    }
+
+    public void evictPatient(String patientId) {
+        Map<String, PatientDemographics> memo = getMemo();
+        if (memo != null && patientId != null) {
+            memo.remove(patientId);
+        }
+    }
+
+    public void evictPerson(String personId) {
+        Map<String, PatientDemographics> memo = getMemo();
+        if (memo != null && personId != null) {
+            memo.values().removeIf(demographics -> personId.equals(demographics.getPersonId()));
+        }
+    }
+
+    // null when there is neither a request nor a transaction to keep them for
+    @SuppressWarnings("unchecked")
+    private Map<String, PatientDemographics> getMemo() {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null) {
+            Map<String, PatientDemographics> memo = (Map<String, PatientDemographics>) requestAttributes
+                    .getAttribute(MEMO_KEY, RequestAttributes.SCOPE_REQUEST);
+            if (memo == null) {
+                memo = new HashMap<>();
+                requestAttributes.setAttribute(MEMO_KEY, memo, RequestAttributes.SCOPE_REQUEST);
+            }
+            return memo;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Map<String, PatientDemographics> memo = (Map<String, PatientDemographics>) TransactionSynchronizationManager
+                    .getResource(MEMO_KEY);
+            if (memo == null) {
+                memo = new HashMap<>();
+                TransactionSynchronizationManager.bindResource(MEMO_KEY, memo);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResourceIfPossible(MEMO_KEY);
+                    }
+                });
+            }
+            return memo;
+        }
+        return null;
+    }
+}
@@ -1,6 +1,7 @@
 package org.openelisglobal.patient.service;
 
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import org.openelisglobal.common.service.BaseObjectService;
@@ -39,6 +40,15 @@ public interface PatientService extends BaseObjectService<Patient, String> {
 
     String getNationalId(Patient patient);
 
+    Map<String, String> getNationalIds(Collection<Patient> patients);
+
+    /*
+     * reads the identities of all of the patients with one query so the identity
+     * getters do not query for them one patient at a time for the rest of the
+     * request
+     */
+    void loadDemographics(Collection<Patient> patients);
+
     String getSTNumber(Patient patient);
 
     String getSubjectNumber(Patient patient);
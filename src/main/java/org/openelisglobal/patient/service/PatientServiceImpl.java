@@ -2,6 +2,8 @@ package org.openelisglobal.patient.service;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -21,7 +23,6 @@ import org.openelisglobal.gender.valueholder.Gender;
 import org.openelisglobal.patient.action.IPatientUpdate.PatientUpdateStatus;
 import org.openelisglobal.patient.action.bean.PatientManagementInfo;
 import org.openelisglobal.patient.dao.PatientDAO;
-import org.openelisglobal.patient.util.PatientUtil;
 import org.openelisglobal.patient.valueholder.Patient;
 import org.openelisglobal.patient.valueholder.PatientContact;
 import org.openelisglobal.patientidentity.service.PatientIdentityService;
@@ -94,6 +95,8 @@ public class PatientServiceImpl extends AuditableBaseObjectServiceImpl<Patient,
 
     @Autowired
     private PatientContactService patientContactService;
+    @Autowired
+    private PatientDemographicsLoader demographicsLoader;
 
     @PostConstruct
     public void initializeGlobalVariables() {
@@ -264,6 +267,42 @@ public class PatientServiceImpl extends AuditableBaseObjectServiceImpl<Patient,
         }
     }
 
+    /*
+     * Same as getNationalId but resolves the identities for all of the patients
+     * with a single query. The map is keyed by patient id
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, String> getNationalIds(Collection<Patient> patients) {
+        Map<String, String> nationalIds = new HashMap<>();
+        List<Patient> unresolvedPatients = new ArrayList<>();
+        for (Patient patient : patients) {
+            if (patient == null) {
+                continue;
+            }
+            if (!GenericValidator.isBlankOrNull(patient.getNationalId())) {
+                nationalIds.put(patient.getId(), patient.getNationalId());
+            } else {
+                nationalIds.put(patient.getId(), "");
+                unresolvedPatients.add(patient);
+            }
+        }
+
+        if (!unresolvedPatients.isEmpty() && !GenericValidator.isBlankOrNull(PATIENT_NATIONAL_IDENTITY)) {
+            for (PatientDemographics demographics : demographicsLoader.getAll(unresolvedPatients).values()) {
+                nationalIds.put(demographics.getPatientId(),
+                        demographics.getIdentityData(PATIENT_NATIONAL_IDENTITY));
+            }
+        }
+        return nationalIds;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void loadDemographics(Collection<Patient> patients) {
+        demographicsLoader.getAll(patients);
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -291,14 +330,7 @@ public class PatientServiceImpl extends AuditableBaseObjectServiceImpl<Patient,
             return "";
         }
 
-        PatientIdentity identity = patientIdentityService.getPatitentIdentityForPatientAndType(patient.getId(),
-                identityId);
-
-        if (identity != null) {
-            return identity.getIdentityData();
-        } else {
-            return "";
-        }
+        return demographicsLoader.get(patient).getIdentityData(identityId);
     }
 
     /*
@@ -367,7 +399,9 @@ public class PatientServiceImpl extends AuditableBaseObjectServiceImpl<Patient,
      */
     @Override
     public Map<String, String> getAddressComponents(Patient patient) {
-        return personService.getAddressComponents(patient.getPerson());
+        PatientDemographics demographics = demographicsLoader.get(patient);
+        return personService.getAddressComponents(patient.getPerson(),
+                demographicsLoader.getAddressParts(demographics));
     }
 
     /*
@@ -440,7 +474,8 @@ public class PatientServiceImpl extends AuditableBaseObjectServiceImpl<Patient,
     @Override
     @Transactional(readOnly = true)
     public List<PatientIdentity> getIdentityList(Patient patient) {
-        return patient != null ? PatientUtil.getIdentityListForPatient(patient) : new ArrayList<>();
+        return patient != null ? new ArrayList<>(demographicsLoader.get(patient).getIdentities())
+                : new ArrayList<>();
     }
 
     @Override
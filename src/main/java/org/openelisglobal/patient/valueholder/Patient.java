@@ -13,18 +13,26 @@
  */
 package org.openelisglobal.patient.valueholder;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.sql.Date;
 import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 import org.hibernate.search.engine.backend.types.ObjectStructure;
+import org.hibernate.search.engine.backend.types.Projectable;
+import org.hibernate.search.mapper.pojo.bridge.mapping.annotation.PropertyBinderRef;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.GenericField;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.IndexedEmbedded;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.PropertyBinding;
 import org.openelisglobal.common.util.DateUtil;
 import org.openelisglobal.common.valueholder.BaseObject;
 import org.openelisglobal.common.valueholder.ValueHolder;
 import org.openelisglobal.common.valueholder.ValueHolderInterface;
+import org.openelisglobal.hibernate.search.bridge.PatientIdentityBinder;
+import org.openelisglobal.patientidentity.valueholder.PatientIdentity;
 import org.openelisglobal.person.valueholder.Person;
 
 @Indexed
@@ -37,12 +45,12 @@ public class Patient extends BaseObject<String> {
 
     private String race;
 
-    @GenericField
+    @KeywordField(normalizer = "lowercase", projectable = Projectable.YES)
     private String gender;
 
     private Timestamp birthDate;
 
-    @GenericField
+    @GenericField(projectable = Projectable.YES)
     private String birthDateForDisplay;
 
     private String epiFirstName;
@@ -59,7 +67,7 @@ public class Patient extends BaseObject<String> {
 
     private String deathDateForDisplay;
 
-    @KeywordField(normalizer = "lowercase")
+    @KeywordField(normalizer = "lowercase", projectable = Projectable.YES)
     private String nationalId;
 
     private String ethnicity;
@@ -75,7 +83,7 @@ public class Patient extends BaseObject<String> {
     @IndexedEmbedded(structure = ObjectStructure.NESTED)
     private ValueHolderInterface person;
 
-    @KeywordField(normalizer = "lowercase")
+    @KeywordField(normalizer = "lowercase", projectable = Projectable.YES)
     private String externalId;
 
     private String upidCode;
@@ -86,6 +94,10 @@ public class Patient extends BaseObject<String> {
 
     private UUID fhirUuid;
 
+    // read only, the identities are saved through PatientIdentityService
+    @PropertyBinding(binder = @PropertyBinderRef(type = PatientIdentityBinder.class))
+    private Set<PatientIdentity> identities = new HashSet<>(0);
+
     public String getChartNumber() {
         return chartNumber;
     }
@@ -216,6 +228,11 @@ public class Patient extends BaseObject<String> {
         this.nationalId = nationalId;
     }
 
+    @JsonIgnore
+    public Set<PatientIdentity> getIdentities() {
+        return identities;
+    }
+
     public Person getPerson() {
         return (Person) this.person.getValue();
     }
@@ -23,4 +23,21 @@ public interface PatientIdentityDAO extends BaseDAO<PatientIdentity, String> {
 
     public PatientIdentity getPatitentIdentityForPatientAndType(String patientId, String identityTypeId)
             throws LIMSRuntimeException;
+
+    public List<PatientIdentity> getPatientIdentitiesForPatientsAndType(List<String> patientIds,
+            String identityTypeId) throws LIMSRuntimeException;
+
+    /**
+     * all the identities of all of the patients, ordered by patient and id
+     */
+    public List<PatientIdentity> getPatientIdentitiesForPatients(List<String> patientIds)
+            throws LIMSRuntimeException;
+
+    /**
+     * queues the patient the identity belongs to for reindexing, as its
+     * identities are part of the patient's search document
+     *
+     * @param removed whether the identity was deleted
+     */
+    void reindexPatient(PatientIdentity patientIdentity, boolean removed) throws LIMSRuntimeException;
 }
@@ -1,13 +1,19 @@
 package org.openelisglobal.patientidentity.daoimpl;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.hibernate.Hibernate;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
+import org.hibernate.search.mapper.orm.Search;
 import org.openelisglobal.common.daoimpl.BaseDAOImpl;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.patient.valueholder.Patient;
 import org.openelisglobal.patientidentity.dao.PatientIdentityDAO;
 import org.openelisglobal.patientidentity.valueholder.PatientIdentity;
 import org.springframework.stereotype.Component;
@@ -135,4 +141,64 @@ public class PatientIdentityDAOImpl extends BaseDAOImpl<PatientIdentity, String>
 
         return null;
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PatientIdentity> getPatientIdentitiesForPatientsAndType(List<String> patientIds,
+            String identityTypeId) throws LIMSRuntimeException {
+        if (patientIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "from PatientIdentity pi where pi.patientId in (:patientIds) and pi.identityTypeId = :typeId";
+        try {
+            Query<PatientIdentity> query = entityManager.unwrap(Session.class).createQuery(sql, PatientIdentity.class);
+            query.setParameterList("patientIds",
+                    patientIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+            query.setParameter("typeId", Integer.parseInt(identityTypeId));
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getPatientIdentitiesForPatientsAndType");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PatientIdentity> getPatientIdentitiesForPatients(List<String> patientIds)
+            throws LIMSRuntimeException {
+        if (patientIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "from PatientIdentity pi where pi.patientId in (:patientIds) order by pi.patientId, pi.id";
+        try {
+            Query<PatientIdentity> query = entityManager.unwrap(Session.class).createQuery(sql, PatientIdentity.class);
+            query.setParameterList("patientIds",
+                    patientIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getPatientIdentitiesForPatients");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void reindexPatient(PatientIdentity patientIdentity, boolean removed) throws LIMSRuntimeException {
+        try {
+            Patient patient = entityManager.find(Patient.class, patientIdentity.getPatientId());
+            if (patient == null) {
+                return;
+            }
+            // the collection is mapped inverse so nothing else keeps a loaded copy current
+            Set<PatientIdentity> identities = patient.getIdentities();
+            if (Hibernate.isInitialized(identities)) {
+                identities.removeIf(identity -> identity.getId().equals(patientIdentity.getId()));
+                if (!removed) {
+                    identities.add(patientIdentity);
+                }
+            }
+            Search.session(entityManager).indexingPlan().addOrUpdate(patient);
+        } catch (RuntimeException e) {
+            handleException(e, "reindexPatient");
+        }
+    }
 }
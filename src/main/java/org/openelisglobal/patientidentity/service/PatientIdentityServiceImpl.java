@@ -2,6 +2,7 @@ package org.openelisglobal.patientidentity.service;
 
 import java.util.List;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.patient.service.PatientDemographicsLoader;
 import org.openelisglobal.patientidentity.dao.PatientIdentityDAO;
 import org.openelisglobal.patientidentity.valueholder.PatientIdentity;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +14,8 @@ public class PatientIdentityServiceImpl extends AuditableBaseObjectServiceImpl<P
         implements PatientIdentityService {
     @Autowired
     protected PatientIdentityDAO baseObjectDAO;
+    @Autowired
+    private PatientDemographicsLoader demographicsLoader;
 
     PatientIdentityServiceImpl() {
         super(PatientIdentity.class);
@@ -23,6 +26,33 @@ public class PatientIdentityServiceImpl extends AuditableBaseObjectServiceImpl<P
         return baseObjectDAO;
     }
 
+    // the identities are indexed and memoized with their patient, every save and
+    // delete ends up in one of these
+    @Override
+    @Transactional
+    public String insert(PatientIdentity patientIdentity) {
+        String id = super.insert(patientIdentity);
+        getBaseObjectDAO().reindexPatient(patientIdentity, false);
+        demographicsLoader.evictPatient(patientIdentity.getPatientId());
+        return id;
+    }
+
+    @Override
+    protected PatientIdentity update(PatientIdentity patientIdentity, String auditTrailType) {
+        PatientIdentity updated = super.update(patientIdentity, auditTrailType);
+        getBaseObjectDAO().reindexPatient(updated, false);
+        demographicsLoader.evictPatient(updated.getPatientId());
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public void delete(PatientIdentity patientIdentity) {
+        super.delete(patientIdentity);
+        getBaseObjectDAO().reindexPatient(patientIdentity, true);
+        demographicsLoader.evictPatient(patientIdentity.getPatientId());
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<PatientIdentity> getPatientIdentitiesForPatient(String id) {
@@ -40,4 +70,11 @@ public class PatientIdentityServiceImpl extends AuditableBaseObjectServiceImpl<P
     public List<PatientIdentity> getPatientIdentitiesByValueAndType(String value, String identityType) {
         return getBaseObjectDAO().getPatientIdentitiesByValueAndType(value, identityType);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PatientIdentity> getPatientIdentitiesForPatientsAndType(List<String> patientIds,
+            String identityTypeId) {
+        return getBaseObjectDAO().getPatientIdentitiesForPatientsAndType(patientIds, identityTypeId);
+    }
 }
@@ -2,6 +2,7 @@ package org.openelisglobal.person.service;
 
 import java.util.List;
 import java.util.Map;
+import org.openelisglobal.address.valueholder.PersonAddress;
 import org.openelisglobal.common.service.BaseObjectService;
 import org.openelisglobal.person.valueholder.Person;
 
@@ -24,6 +25,8 @@ public interface PersonService extends BaseObjectService<Person, String> {
 
     Map<String, String> getAddressComponents(Person person);
 
+    Map<String, String> getAddressComponents(Person person, List<PersonAddress> addressParts);
+
     String getPhone(Person person);
 
     String getWorkPhone(Person person);
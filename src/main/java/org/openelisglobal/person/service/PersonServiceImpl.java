@@ -82,6 +82,14 @@ public class PersonServiceImpl extends AuditableBaseObjectServiceImpl<Person, St
 
     @Override
     public Map<String, String> getAddressComponents(Person person) {
+        if (person == null) {
+            return new HashMap<>();
+        }
+        return getAddressComponents(person, personAddressService.getAddressPartsByPersonId(person.getId()));
+    }
+
+    @Override
+    public Map<String, String> getAddressComponents(Person person, List<PersonAddress> addressParts) {
         String value;
         Map<String, String> addressMap = new HashMap<>();
 
@@ -89,8 +97,6 @@ public class PersonServiceImpl extends AuditableBaseObjectServiceImpl<Person, St
             return addressMap;
         }
 
-        List<PersonAddress> addressParts = personAddressService.getAddressPartsByPersonId(person.getId());
-
         for (PersonAddress parts : addressParts) {
             if ("D".equals(parts.getType()) && !GenericValidator.isBlankOrNull(parts.getValue())) {
                 addressMap.put(addressPartIdToNameMap.get(parts.getAddressPartId()),
@@ -18,6 +18,7 @@ import java.util.HashSet;
 import java.util.Set;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.Pattern;
+import org.hibernate.search.engine.backend.types.Projectable;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.AssociationInverseSide;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordField;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.ObjectPath;
@@ -34,11 +35,11 @@ public class Person extends BaseObject<String> {
     private String id;
 
     @ValidName(nameType = NameType.LAST_NAME)
-    @KeywordField(normalizer = "lowercase")
+    @KeywordField(normalizer = "lowercase", projectable = Projectable.YES)
     private String lastName;
 
     @ValidName(nameType = NameType.FIRST_NAME)
-    @KeywordField(normalizer = "lowercase")
+    @KeywordField(normalizer = "lowercase", projectable = Projectable.YES)
     private String firstName;
 
     private String middleName;
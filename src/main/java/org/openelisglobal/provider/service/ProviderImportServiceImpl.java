@@ -4,9 +4,13 @@ import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 import org.apache.commons.validator.GenericValidator;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.r4.model.Bundle;
@@ -20,6 +24,7 @@ import org.openelisglobal.common.services.DisplayListService.ListType;
 import org.openelisglobal.dataexchange.fhir.FhirUtil;
 import org.openelisglobal.dataexchange.fhir.exception.FhirGeneralException;
 import org.openelisglobal.dataexchange.fhir.exception.FhirLocalPersistingException;
+import org.openelisglobal.dataexchange.fhir.service.FhirDeltaSyncService;
 import org.openelisglobal.dataexchange.fhir.service.FhirPersistanceService;
 import org.openelisglobal.dataexchange.fhir.service.FhirTransformService;
 import org.openelisglobal.person.service.PersonService;
@@ -36,6 +41,9 @@ public class ProviderImportServiceImpl implements ProviderImportService {
     @Value("${org.openelisglobal.providerlist.fhirstore:}")
     private String providerFhirStore;
 
+    @Value("${org.openelisglobal.providerlist.deltaSync:false}")
+    private boolean deltaSync;
+
     @Autowired
     private FhirUtil fhirUtil;
     @Autowired
@@ -45,6 +53,8 @@ public class ProviderImportServiceImpl implements ProviderImportService {
     @Autowired
     private FhirPersistanceService fhirPersistanceService;
     @Autowired
+    private FhirDeltaSyncService fhirDeltaSyncService;
+    @Autowired
     private ProviderService providerService;
     @Autowired
     private PersonService personService;
@@ -53,25 +63,81 @@ public class ProviderImportServiceImpl implements ProviderImportService {
     @Async
     @Scheduled(initialDelay = 1000, fixedRateString = "${org.openelisglobal.providerlist.poll.frequency:3600000}")
     public void importPractitionerList() throws FhirLocalPersistingException, FhirGeneralException, IOException {
+        boolean changed = true;
         if (!GenericValidator.isBlankOrNull(providerFhirStore)) {
             IGenericClient client = fhirUtil.getFhirClient(providerFhirStore);
+            Optional<Date> practitionerMark = deltaSync
+                    ? fhirDeltaSyncService.getHighWaterMark(providerFhirStore, Practitioner.class)
+                    : Optional.empty();
+            if (practitionerMark.isPresent()) {
+                changed = importPractitionerChanges(client, practitionerMark.get());
+            } else {
+                List<Resource> failedPractitioners = new ArrayList<>();
+                List<Bundle> responseBundles = importAllPractitioners(client, failedPractitioners);
+                if (deltaSync) {
+                    saveHighWaterMark(responseBundles, failedPractitioners);
+                }
+            }
+        }
+        if (changed) {
+            DisplayListService.getInstance().refreshList(ListType.PRACTITIONER_PERSONS);
+        }
+    }
 
-            List<Bundle> responseBundles = new ArrayList<>();
-            Bundle responseBundle = client.search().forResource(org.hl7.fhir.r4.model.Practitioner.class)
-                    .where(Practitioner.ACTIVE.exactly().code("true")).returnBundle(Bundle.class).execute();
+    private List<Bundle> importAllPractitioners(IGenericClient client, List<Resource> failedPractitioners)
+            throws FhirGeneralException {
+        List<Bundle> responseBundles = new ArrayList<>();
+        Bundle responseBundle = client.search().forResource(org.hl7.fhir.r4.model.Practitioner.class)
+                .where(Practitioner.ACTIVE.exactly().code("true")).returnBundle(Bundle.class).execute();
+        responseBundles.add(responseBundle);
+        while (responseBundle.getLink(IBaseBundle.LINK_NEXT) != null) {
+            responseBundle = client.loadPage().next(responseBundle).execute();
             responseBundles.add(responseBundle);
-            while (responseBundle.getLink(IBaseBundle.LINK_NEXT) != null) {
-                responseBundle = client.loadPage().next(responseBundle).execute();
-                responseBundles.add(responseBundle);
+        }
+        // providerService.deactivateAllProviders();
+        importProvidersFromBundle(client, responseBundles, failedPractitioners);
+        return responseBundles;
+    }
+
+    /*
+     * changed practitioners are fetched regardless of their active flag so that
+     * deactivations made in the registry are applied here as well
+     */
+    private boolean importPractitionerChanges(IGenericClient client, Date since) throws FhirGeneralException {
+        boolean changed = false;
+        for (String deletedId : fhirDeltaSyncService.getDeletedIdsSince(client, Practitioner.class, since)) {
+            try {
+                Provider dbProvider = providerService.getProviderByFhirId(UUID.fromString(deletedId));
+                if (dbProvider != null && !dbProvider.isDesynchronized()
+                        && Boolean.TRUE.equals(dbProvider.getActive())) {
+                    providerService.deactivateProviders(Arrays.asList(dbProvider));
+                    changed = true;
+                }
+            } catch (IllegalArgumentException e) {
+                LogEvent.logWarn(this.getClass().getSimpleName(), "importPractitionerChanges",
+                        "ignoring deleted practitioner with non uuid id: " + deletedId);
             }
-            // providerService.deactivateAllProviders();
-            importProvidersFromBundle(client, responseBundles);
         }
-        DisplayListService.getInstance().refreshList(ListType.PRACTITIONER_PERSONS);
+        List<Bundle> responseBundles = fhirDeltaSyncService.searchChangedSince(client, Practitioner.class, since);
+        List<Resource> failedPractitioners = new ArrayList<>();
+        changed |= importProvidersFromBundle(client, responseBundles, failedPractitioners) > 0;
+        saveHighWaterMark(responseBundles, failedPractitioners);
+        return changed;
     }
 
-    private void importProvidersFromBundle(IGenericClient client, List<Bundle> responseBundles)
-            throws FhirGeneralException {
+    private void saveHighWaterMark(List<Bundle> responseBundles, List<Resource> failedPractitioners) {
+        Optional<Date> highWaterMark = fhirDeltaSyncService.getNewHighWaterMark(responseBundles,
+                failedPractitioners);
+        if (highWaterMark.isPresent()) {
+            fhirDeltaSyncService.saveHighWaterMark(providerFhirStore, Practitioner.class, highWaterMark.get());
+        }
+    }
+
+    /*
+     * practitioners that could not be imported are added to failedPractitioners
+     */
+    private int importProvidersFromBundle(IGenericClient client, List<Bundle> responseBundles,
+            List<Resource> failedPractitioners) throws FhirGeneralException {
         Map<String, Resource> remoteFhirProviders = new HashMap<>();
 
         for (Bundle responseBundle : responseBundles) {
@@ -88,6 +154,7 @@ public class ProviderImportServiceImpl implements ProviderImportService {
                         }
 
                     } catch (RuntimeException e) {
+                        failedPractitioners.add(fhirPractitioner);
                         LogEvent.logError(e);
                         LogEvent.logError(this.getClass().getSimpleName(), "importProvidersFromBundle",
                                 fhirContext.newJsonParser().encodeResourceToString(fhirPractitioner));
@@ -96,6 +163,9 @@ public class ProviderImportServiceImpl implements ProviderImportService {
             }
         }
 
-        fhirPersistanceService.updateFhirResourcesInFhirStore(remoteFhirProviders);
+        if (!remoteFhirProviders.isEmpty()) {
+            fhirPersistanceService.updateFhirResourcesInFhirStore(remoteFhirProviders);
+        }
+        return remoteFhirProviders.size();
     }
 }
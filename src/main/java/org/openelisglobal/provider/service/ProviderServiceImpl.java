@@ -1,10 +1,13 @@
 package org.openelisglobal.provider.service;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.services.DisplayListService;
+import org.openelisglobal.common.services.DisplayListService.ListType;
 import org.openelisglobal.person.service.PersonService;
 import org.openelisglobal.person.valueholder.Person;
 import org.openelisglobal.provider.dao.ProviderDAO;
@@ -29,6 +32,33 @@ public class ProviderServiceImpl extends AuditableBaseObjectServiceImpl<Provider
         return baseObjectDAO;
     }
 
+    @Override
+    @Transactional
+    public String insert(Provider provider) {
+        invalidateDisplayLists();
+        return super.insert(provider);
+    }
+
+    @Override
+    protected Provider update(Provider provider, String auditTrailType) {
+        invalidateDisplayLists();
+        return super.update(provider, auditTrailType);
+    }
+
+    @Override
+    @Transactional
+    public void delete(Provider provider) {
+        invalidateDisplayLists();
+        super.delete(provider);
+    }
+
+    private void invalidateDisplayLists() {
+        DisplayListService displayListService = DisplayListService.getInstance();
+        if (displayListService != null) {
+            displayListService.invalidate(Collections.singleton(ListType.PRACTITIONER_PERSONS));
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public void getData(Provider provider) {
@@ -1,6 +1,8 @@
 package org.openelisglobal.qaevent.daoimpl;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 import org.openelisglobal.common.daoimpl.BaseDAOImpl;
@@ -44,4 +46,16 @@ public class NceSpecimenDAOImpl extends BaseDAOImpl<NceSpecimen, String> impleme
 
         return list;
     }
+
+    @Override
+    public List<NceSpecimen> getSpecimenBySampleItemIds(List<String> sampleItemIds) {
+        if (sampleItemIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "from NceSpecimen ns where ns.sampleItemId in (:sampleItemIds)";
+        Query<NceSpecimen> query = entityManager.unwrap(Session.class).createQuery(sql, NceSpecimen.class);
+        query.setParameterList("sampleItemIds",
+                sampleItemIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+        return query.list();
+    }
 }
@@ -1,7 +1,6 @@
 package org.openelisglobal.referral.fhir.controller;
 
 import java.util.List;
-import java.util.stream.Collectors;
 import javax.validation.Valid;
 import org.apache.commons.validator.GenericValidator;
 import org.openelisglobal.common.controller.BaseController;
@@ -60,25 +59,25 @@ public class FhirReferralReceptionController extends BaseController {
                 || !GenericValidator.isBlankOrNull(searchForm.getPatientID())
                 || !GenericValidator.isBlankOrNull(searchForm.getDateOfBirth())
                 || !GenericValidator.isBlankOrNull(searchForm.getGender())) {
-            List<ElectronicOrder> electronicOrders = electronicOrderService
-                    .getAllElectronicOrdersContainingValuesOrderedBy(searchForm.getExternalAccessionNumber(),
-                            searchForm.getPatientLastName(), searchForm.getPatientFirstName(), searchForm.getGender(),
-                            SortOrder.LAST_UPDATED_ASC);
-            // TODO add to sql query instead of filtering here
-            electronicOrders = electronicOrders.stream()
-                    .filter(e -> e.getData().contains(fhirConfig.getOeFhirSystem() + "/refer_reason"))
-                    .collect(Collectors.toList());
-            form.setElectronicOrders(electronicOrders);
+            String referralPhrase = fhirConfig.getOeFhirSystem() + "/refer_reason";
+            int total = electronicOrderService.getCountOfElectronicOrdersContainingValues(
+                    searchForm.getExternalAccessionNumber(), searchForm.getPatientLastName(),
+                    searchForm.getPatientFirstName(), searchForm.getGender(), referralPhrase);
 
             // correct for proper bounds
             int startIndex = (searchForm.getPage() - 1) * 50;
-            startIndex = startIndex > electronicOrders.size() ? 0 : startIndex;
-            int endIndex = startIndex + 50 > electronicOrders.size() ? electronicOrders.size() : startIndex + 50;
+            startIndex = startIndex > total ? 0 : startIndex;
+            List<ElectronicOrder> electronicOrders = electronicOrderService.getElectronicOrdersContainingValuesPage(
+                    searchForm.getExternalAccessionNumber(), searchForm.getPatientLastName(),
+                    searchForm.getPatientFirstName(), searchForm.getGender(), referralPhrase,
+                    SortOrder.LAST_UPDATED_ASC, startIndex + 1, 50);
+            int endIndex = startIndex + electronicOrders.size();
+            form.setElectronicOrders(electronicOrders);
 
             // set attributes for use in jsp
             request.setAttribute("startIndex", startIndex);
             request.setAttribute("endIndex", endIndex);
-            request.setAttribute("total", electronicOrders.size());
+            request.setAttribute("total", total);
             for (ElectronicOrder eOrder : electronicOrders) {
                 eOrder.setStatus(statusOfSampleService.get(eOrder.getStatusId()));
             }
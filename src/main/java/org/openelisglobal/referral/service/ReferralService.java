@@ -16,6 +16,8 @@ public interface ReferralService extends BaseObjectService<Referral, String> {
 
     Referral getReferralByAnalysisId(String analysisId);
 
+    List<Referral> getReferralsByAnalysisIds(List<String> analysisIds);
+
     List<Referral> getReferralsBySampleId(String id);
 
     List<Referral> getUncanceledOpenReferrals();
@@ -60,6 +60,12 @@ public class ReferralServiceImpl extends AuditableBaseObjectServiceImpl<Referral
         return getMatch("analysis.id", id).orElse(null);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Referral> getReferralsByAnalysisIds(List<String> analysisIds) {
+        return getBaseObjectDAO().getReferralsByAnalysisIds(analysisIds);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<Referral> getUncanceledOpenReferrals() {
@@ -15,6 +15,7 @@ package org.openelisglobal.reports.action.implementation;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.sql.SQLException;
 import java.text.ParseException;
@@ -23,7 +24,7 @@ import javax.xml.ws.Response;
 import net.sf.jasperreports.engine.JRException;
 import org.openelisglobal.reports.action.implementation.reportBeans.RoutineColumnBuilder;
 
-public abstract class CSVRoutineSampleExportReport extends CSVRoutineExportReport {
+public abstract class CSVRoutineSampleExportReport extends CSVRoutineExportReport implements IStreamingReportCreator {
 
     protected String lowDateStr;
     protected String highDateStr;
@@ -64,15 +65,27 @@ public abstract class CSVRoutineSampleExportReport extends CSVRoutineExportRepor
         }
 
         ByteArrayOutputStream buffer = new ByteArrayOutputStream(100000);
-        buffer.write(csvRoutineColumnBuilder.getColumnNamesLine().getBytes("windows-1252"));
-
-        writeResultsToBuffer(buffer);
-        csvRoutineColumnBuilder.closeResultSet();
+        runReport(buffer);
 
         return buffer.toByteArray();
     }
 
-    protected void writeResultsToBuffer(ByteArrayOutputStream buffer)
+    @Override
+    public boolean canStream() {
+        return !errorFound;
+    }
+
+    @Override
+    public void runReport(OutputStream outputStream) throws IOException, SQLException, ParseException {
+        try {
+            outputStream.write(csvRoutineColumnBuilder.getColumnNamesLine().getBytes("windows-1252"));
+            writeResultsToBuffer(outputStream);
+        } finally {
+            csvRoutineColumnBuilder.closeResultSet();
+        }
+    }
+
+    protected void writeResultsToBuffer(OutputStream buffer)
             throws IOException, UnsupportedEncodingException, SQLException, ParseException {
         while (csvRoutineColumnBuilder.next()) {
             buffer.write(csvRoutineColumnBuilder.nextLine().getBytes("windows-1252"));
@@ -13,8 +13,8 @@
  */
 package org.openelisglobal.reports.action.implementation;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.sql.SQLException;
 import java.text.ParseException;
@@ -94,7 +94,7 @@ public class ExportTBOrdersByDate extends CSVRoutineSampleExportReport
     }
 
     @Override
-    protected void writeResultsToBuffer(ByteArrayOutputStream buffer)
+    protected void writeResultsToBuffer(OutputStream buffer)
             throws IOException, UnsupportedEncodingException, SQLException, ParseException {
 
         String currentAccessionNumber = null;
@@ -125,7 +125,7 @@ public class ExportTBOrdersByDate extends CSVRoutineSampleExportReport
         }
     }
 
-    protected void writeConsolidatedBaseToBuffer(ByteArrayOutputStream buffer, String[] splitBase)
+    protected void writeConsolidatedBaseToBuffer(OutputStream buffer, String[] splitBase)
             throws IOException, UnsupportedEncodingException {
 
         if (splitBase != null) {
@@ -0,0 +1,19 @@
+package org.openelisglobal.reports.action.implementation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.text.ParseException;
+
+/**
+ * A report that can write its output as it is generated instead of building it
+ * in memory first. Only usable when {@link #canStream()} is true, otherwise
+ * {@link IReportCreator#runReport()} has to be used (e.g. for the pdf listing
+ * validation errors).
+ */
+public interface IStreamingReportCreator extends IReportCreator {
+
+    boolean canStream();
+
+    void runReport(OutputStream outputStream) throws IOException, SQLException, ParseException;
+}
@@ -77,6 +77,11 @@ public class PatientCILNSPClinical extends PatientReport implements IReportCreat
         // return "PatientClinicalReport";
     }
 
+    @Override
+    protected boolean supportsBulkRendering() {
+        return true;
+    }
+
     @Override
     protected void createReportParameters() {
         super.createReportParameters();
@@ -104,8 +109,7 @@ public class PatientCILNSPClinical extends PatientReport implements IReportCreat
         Set<SampleItem> sampleSet = new HashSet<>();
 
         boolean isConfirmationSample = sampleService.isConfirmationSample(currentSample);
-        List<Analysis> analysisList = analysisService
-                .getAnalysesBySampleIdAndStatusId(sampleService.getId(currentSample), analysisStatusIds);
+        List<Analysis> analysisList = getCurrentSampleAnalyses(analysisStatusIds);
         List<Analysis> filteredAnalysisList = userService.filterAnalysesByLabUnitRoles(systemUserId, analysisList,
                 Constants.ROLE_REPORTS);
         List<ClinicalPatientData> currentSampleReportItems = new ArrayList<>(filteredAnalysisList.size());
@@ -32,14 +32,13 @@ import org.openelisglobal.common.services.IStatusService;
 import org.openelisglobal.common.services.StatusService.AnalysisStatus;
 import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.common.util.ConfigurationProperties.Property;
-import org.openelisglobal.image.service.ImageService;
-import org.openelisglobal.image.valueholder.Image;
 import org.openelisglobal.internationalization.MessageUtil;
 import org.openelisglobal.localization.service.LocalizationService;
 import org.openelisglobal.note.service.NoteService;
 import org.openelisglobal.referral.valueholder.Referral;
 import org.openelisglobal.referral.valueholder.ReferralResult;
 import org.openelisglobal.reports.action.implementation.reportBeans.ClinicalPatientData;
+import org.openelisglobal.reports.service.ReportTemplateCache;
 import org.openelisglobal.result.valueholder.Result;
 import org.openelisglobal.sample.util.AccessionNumberUtil;
 import org.openelisglobal.sampleitem.valueholder.SampleItem;
@@ -53,7 +52,7 @@ public class PatientCILNSPClinical_vreduit extends PatientReport implements IRep
     private static Set<Integer> analysisStatusIds;
     private static Set<Integer> validatedAnalysisStatusIds;
     protected List<ClinicalPatientData> clinicalReportItems;
-    private ImageService imageService = SpringContext.getBean(ImageService.class);
+    private ReportTemplateCache reportTemplateCache = SpringContext.getBean(ReportTemplateCache.class);
     private SiteInformationService siteInformationService = SpringContext.getBean(SiteInformationService.class);
 
     static {
@@ -96,11 +95,11 @@ public class PatientCILNSPClinical_vreduit extends PatientReport implements IRep
                 SpringContext.getBean(LocalizationService.class).getLocalizedValueById(ConfigurationProperties
                         .getInstance().getPropertyValue(Property.BILLING_REFERENCE_NUMBER_LABEL)));
         reportParameters.put("footerName", getFooterName());
-        Optional<Image> labDirectorSignature = imageService.getImageBySiteInfoName("labDirectorSignature");
+        Optional<byte[]> labDirectorSignature = reportTemplateCache.getSiteImage("labDirectorSignature");
         reportParameters.put("useLabDirectorSignature", labDirectorSignature.isPresent());
         if (labDirectorSignature.isPresent()) {
             reportParameters.put("labDirectorSignature",
-                    new ByteArrayInputStream(labDirectorSignature.get().getImage()));
+                    new ByteArrayInputStream(labDirectorSignature.get()));
         }
 
         reportParameters.put("labDirectorName",
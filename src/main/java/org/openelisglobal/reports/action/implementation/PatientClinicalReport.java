@@ -81,10 +81,14 @@ public class PatientClinicalReport extends PatientReport implements IReportCreat
         return "PatientClinicalReport";
     }
 
+    @Override
+    protected boolean supportsBulkRendering() {
+        return true;
+    }
+
     @Override
     protected void createReportItems() {
-        List<Analysis> analysisList = analysisService
-                .getAnalysesBySampleIdAndStatusId(sampleService.getId(currentSample), analysisStatusIds);
+        List<Analysis> analysisList = getCurrentSampleAnalyses(analysisStatusIds);
 
         List<Analysis> filteredAnalysisList = userService.filterAnalysesByLabUnitRoles(systemUserId, analysisList,
                 Constants.ROLE_REPORTS);
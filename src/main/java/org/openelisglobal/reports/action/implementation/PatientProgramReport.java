@@ -32,8 +32,6 @@ import org.openelisglobal.common.util.ConfigurationProperties.Property;
 import org.openelisglobal.common.util.DateUtil;
 import org.openelisglobal.dictionary.service.DictionaryService;
 import org.openelisglobal.dictionary.valueholder.Dictionary;
-import org.openelisglobal.image.service.ImageService;
-import org.openelisglobal.image.valueholder.Image;
 import org.openelisglobal.internationalization.MessageUtil;
 import org.openelisglobal.localization.service.LocalizationService;
 import org.openelisglobal.observationhistory.service.ObservationHistoryService;
@@ -51,6 +49,7 @@ import org.openelisglobal.provider.service.ProviderService;
 import org.openelisglobal.provider.valueholder.Provider;
 import org.openelisglobal.reports.action.implementation.reportBeans.ProgramSampleReportData;
 import org.openelisglobal.reports.form.ReportForm;
+import org.openelisglobal.reports.service.ReportTemplateCache;
 import org.openelisglobal.result.service.ResultService;
 import org.openelisglobal.result.valueholder.Result;
 import org.openelisglobal.sample.service.SampleService;
@@ -66,7 +65,7 @@ import org.openelisglobal.typeoftestresult.service.TypeOfTestResultServiceImpl;
 
 public abstract class PatientProgramReport extends Report implements IReportCreator {
 
-    private ImageService imageService = SpringContext.getBean(ImageService.class);
+    private ReportTemplateCache reportTemplateCache = SpringContext.getBean(ReportTemplateCache.class);
 
     protected PathologySampleService pathologySerivice = SpringContext.getBean(PathologySampleService.class);
 
@@ -229,11 +228,11 @@ public abstract class PatientProgramReport extends Report implements IReportCrea
                 SpringContext.getBean(LocalizationService.class).getLocalizedValueById(ConfigurationProperties
                         .getInstance().getPropertyValue(Property.BILLING_REFERENCE_NUMBER_LABEL)));
         reportParameters.put("footerName", getFooterName());
-        Optional<Image> labDirectorSignature = imageService.getImageBySiteInfoName("labDirectorSignature");
+        Optional<byte[]> labDirectorSignature = reportTemplateCache.getSiteImage("labDirectorSignature");
         reportParameters.put("useLabDirectorSignature", labDirectorSignature.isPresent());
         if (labDirectorSignature.isPresent()) {
             reportParameters.put("labDirectorSignature",
-                    new ByteArrayInputStream(labDirectorSignature.get().getImage()));
+                    new ByteArrayInputStream(labDirectorSignature.get()));
         }
 
         reportParameters.put("labDirectorName",
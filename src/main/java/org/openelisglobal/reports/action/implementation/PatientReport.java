@@ -13,8 +13,13 @@
  */
 package org.openelisglobal.reports.action.implementation;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.Date;
+import java.sql.SQLException;
 import java.text.DecimalFormat;
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -26,6 +31,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
+import net.sf.jasperreports.engine.JRException;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.validator.GenericValidator;
@@ -76,6 +82,7 @@ import org.openelisglobal.referral.valueholder.ReferralResult;
 import org.openelisglobal.reports.action.implementation.reportBeans.ClinicalPatientData;
 import org.openelisglobal.reports.form.ReportForm;
 import org.openelisglobal.reports.form.ReportForm.DateType;
+import org.openelisglobal.reports.service.BulkReportRenderer;
 import org.openelisglobal.result.service.ResultService;
 import org.openelisglobal.result.valueholder.Result;
 import org.openelisglobal.sample.service.SampleService;
@@ -92,7 +99,7 @@ import org.openelisglobal.test.service.TestServiceImpl;
 import org.openelisglobal.test.valueholder.Test;
 import org.openelisglobal.typeoftestresult.service.TypeOfTestResultServiceImpl;
 
-public abstract class PatientReport extends Report {
+public abstract class PatientReport extends Report implements IStreamingReportCreator {
 
     // not threadSafe, use this classes formatTwoDecimals method when using this
     private static final DecimalFormat twoDecimalFormat = new DecimalFormat("#.##");
@@ -121,9 +128,20 @@ public abstract class PatientReport extends Report {
     protected SampleOrganizationService sampleOrganizationService = SpringContext
             .getBean(SampleOrganizationService.class);
     protected UserService userService = SpringContext.getBean(UserService.class);;
+    private ResultService resultService = SpringContext.getBean(ResultService.class);
+    private BulkReportRenderer bulkReportRenderer = SpringContext.getBean(BulkReportRenderer.class);
     private List<String> handledOrders;
     private List<Analysis> updatedAnalysis = new ArrayList<>();
 
+    // set instead of building the items when the report is rendered in chunks
+    private List<String> bulkSampleIds;
+    // what is read for all of the samples of the chunk being built, by sample id
+    private Map<String, Patient> chunkPatients;
+    private Map<String, Provider> chunkProviders;
+    private Map<String, List<Analysis>> chunkAnalyses;
+    // by analysis id
+    private Map<String, List<Result>> chunkResults;
+
     private String lowerNumber;
     private String upperNumber;
     protected String STNumber = null;
@@ -183,6 +201,14 @@ public abstract class PatientReport extends Report {
         return true;
     }
 
+    /*
+     * reports whose items are ordered by accession number first can be built and
+     * filled a chunk of samples at a time when there are many samples
+     */
+    protected boolean supportsBulkRendering() {
+        return false;
+    }
+
     protected String convertToAlphaNumericDisplay(Sample currentSample) {
         String displayAccesionNumber = "";
         if (AccessionFormat.ALPHANUM.toString()
@@ -260,20 +286,18 @@ public abstract class PatientReport extends Report {
         sampleCompleteMap = new HashMap<>();
         sampleCorrectedMap = new HashMap<>();
         initializeReportItems();
+        bulkSampleIds = null;
 
         if (reportSampleList.isEmpty()) {
             add1LineErrorMessage("report.error.message.noPrintableItems");
+        } else if (supportsBulkRendering() && reportSampleList.size() > bulkReportRenderer.getBulkThreshold()) {
+            // the items are built a chunk at a time as the report is written
+            reportSampleList.sort(Comparator.comparing(sample -> sampleService.getAccessionNumber(sample)));
+            bulkSampleIds = reportSampleList.stream().map(Sample::getId).collect(Collectors.toList());
         } else {
 
             for (Sample sample : reportSampleList) {
-                currentSample = sample;
-                handledOrders.add(sample.getId());
-                sampleCompleteMap.put(convertToAlphaNumericDisplay(sample), Boolean.TRUE);
-                findCompletionDate();
-                findPatientFromSample();
-                findContactInfo();
-                findPatientInfo();
-                createReportItems();
+                addSampleToReport(sample);
             }
             if (reportItems.size() == 0) {
                 add1LineErrorMessage("report.error.message.noPrintableItems");
@@ -282,6 +306,21 @@ public abstract class PatientReport extends Report {
             }
         }
 
+        saveUpdatedAnalyses();
+    }
+
+    private void addSampleToReport(Sample sample) {
+        currentSample = sample;
+        handledOrders.add(sample.getId());
+        sampleCompleteMap.put(convertToAlphaNumericDisplay(sample), Boolean.TRUE);
+        findCompletionDate();
+        findPatientFromSample();
+        findContactInfo();
+        findPatientInfo();
+        createReportItems();
+    }
+
+    private void saveUpdatedAnalyses() {
         if (!updatedAnalysis.isEmpty()) {
             try {
                 analysisService.updateAllNoAuditTrail(updatedAnalysis);
@@ -292,6 +331,85 @@ public abstract class PatientReport extends Report {
             } catch (LIMSRuntimeException e) {
                 LogEvent.logError(e);
             }
+            updatedAnalysis.clear();
+        }
+    }
+
+    @Override
+    public boolean canStream() {
+        return !errorFound;
+    }
+
+    @Override
+    public byte[] runReport() throws IOException, SQLException, JRException, ParseException {
+        if (bulkSampleIds == null) {
+            return super.runReport();
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        runReport(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    public void runReport(OutputStream outputStream) throws IOException, SQLException, ParseException {
+        if (bulkSampleIds == null) {
+            try {
+                outputStream.write(super.runReport());
+            } catch (JRException e) {
+                throw new LIMSRuntimeException("could not create the report", e);
+            }
+            return;
+        }
+        int pages = bulkReportRenderer.render(getFullReportFilename(), bulkSampleIds, this::gatherChunk,
+                outputStream);
+        if (pages == 0) {
+            // nothing has been written, so the notice can go out instead
+            add1LineErrorMessage("report.error.message.noPrintableItems");
+            try {
+                outputStream.write(runErrorReport());
+            } catch (JRException e) {
+                throw new LIMSRuntimeException("could not create the error report", e);
+            }
+        }
+    }
+
+    /*
+     * builds the items for one chunk of the samples, reading the samples, their
+     * patients, providers, analyses and results for the whole chunk at once
+     */
+    private BulkReportRenderer.Chunk gatherChunk(List<String> sampleIds) {
+        List<Sample> samples = sampleService.getSamplesByIds(sampleIds);
+        samples.sort(Comparator.comparing(sample -> sampleService.getAccessionNumber(sample)));
+        chunkPatients = sampleHumanService.getPatientsForSamples(sampleIds);
+        chunkProviders = sampleHumanService.getProvidersForSamples(sampleIds);
+        chunkAnalyses = analysisService.getAnalysesBySampleIds(sampleIds).stream()
+                .collect(Collectors.groupingBy(analysis -> analysis.getSampleItem().getSample().getId()));
+        chunkResults = resultService.getResultsByAnalysisIds(chunkAnalyses.values().stream()
+                .flatMap(List::stream).map(Analysis::getId).collect(Collectors.toList())).stream()
+                .collect(Collectors.groupingBy(result -> result.getAnalysis().getId()));
+        patientService.loadDemographics(chunkPatients.values());
+        try {
+            // the previous chunk's patient belongs to a session that is closed
+            currentPatient = null;
+            sampleCompleteMap = new HashMap<>();
+            sampleCorrectedMap = new HashMap<>();
+            initializeReportItems();
+            for (Sample sample : samples) {
+                addSampleToReport(sample);
+            }
+            saveUpdatedAnalyses();
+            if (reportItems.isEmpty()) {
+                return null;
+            }
+            postSampleBuild();
+            // each chunk is filled with its own logo streams
+            createReportParameters();
+            return new BulkReportRenderer.Chunk(new HashMap<>(getReportParameters()), getReportDataSource());
+        } finally {
+            chunkPatients = null;
+            chunkProviders = null;
+            chunkAnalyses = null;
+            chunkResults = null;
         }
     }
 
@@ -376,9 +494,9 @@ public abstract class PatientReport extends Report {
         currentSiteInfo += "|" + (referringDepartmentOrg == null ? "" : referringDepartmentOrg.getOrganizationName());
 
         // Person person = sampleService.getPersonRequester(currentSample);
-        Person person = (ObjectUtils.isNotEmpty(sampleHumanService.getProviderForSample(currentSample)))
-                ? sampleHumanService.getProviderForSample(currentSample).getPerson()
-                : null;
+        Provider provider = chunkProviders == null ? sampleHumanService.getProviderForSample(currentSample)
+                : chunkProviders.get(currentSample.getId());
+        Person person = ObjectUtils.isNotEmpty(provider) ? provider.getPerson() : null;
 
         if (person != null) {
             PersonService personService = SpringContext.getBean(PersonService.class);
@@ -417,6 +535,8 @@ public abstract class PatientReport extends Report {
 
     private List<Sample> findReportSamplesForReportPatient(List<Patient> patientList) {
         List<Sample> sampleList = new ArrayList<>();
+        // their identities are read for every sample of the report
+        patientService.loadDemographics(patientList);
         for (Patient searchPatient : patientList) {
             sampleList.addAll(sampleHumanService.getSamplesForPatient(searchPatient.getId()));
         }
@@ -466,7 +586,8 @@ public abstract class PatientReport extends Report {
     }
 
     protected void findPatientFromSample() {
-        Patient patient = sampleHumanService.getPatientForSample(currentSample);
+        Patient patient = chunkPatients == null ? sampleHumanService.getPatientForSample(currentSample)
+                : chunkPatients.get(currentSample.getId());
 
         if (currentPatient == null || !patient.getId().equals(patientService.getPatientId(currentPatient))) {
             STNumber = null;
@@ -540,7 +661,7 @@ public abstract class PatientReport extends Report {
     }
 
     protected void reportResultAndConclusion(ClinicalPatientData data) {
-        List<Result> resultList = analysisService.getResults(currentAnalysis);
+        List<Result> resultList = getCurrentAnalysisResults();
 
         Test test = analysisService.getTest(currentAnalysis);
         NoteService noteService = SpringContext.getBean(NoteService.class);
@@ -852,6 +973,30 @@ public abstract class PatientReport extends Report {
         }
     }
 
+    /*
+     * the analyses of the current sample in one of the statuses, taken from those
+     * read for the whole chunk when the report is rendered in chunks
+     */
+    protected List<Analysis> getCurrentSampleAnalyses(Set<Integer> statusIds) {
+        if (chunkAnalyses == null) {
+            return analysisService.getAnalysesBySampleIdAndStatusId(sampleService.getId(currentSample), statusIds);
+        }
+        return chunkAnalyses.getOrDefault(currentSample.getId(), Collections.emptyList()).stream()
+                .filter(analysis -> statusIds.contains(Integer.parseInt(analysis.getStatusId())))
+                .collect(Collectors.toList());
+    }
+
+    /*
+     * the results of the current analysis, taken from those read for the whole
+     * chunk when the report is rendered in chunks
+     */
+    protected List<Result> getCurrentAnalysisResults() {
+        if (chunkResults == null) {
+            return analysisService.getResults(currentAnalysis);
+        }
+        return chunkResults.getOrDefault(currentAnalysis.getId(), new ArrayList<>());
+    }
+
     /**
      * @see PatientReport#initializeReportItems()
      */
@@ -28,25 +28,24 @@ import java.util.Optional;
 import net.sf.jasperreports.engine.JRDataSource;
 import net.sf.jasperreports.engine.JRException;
 import net.sf.jasperreports.engine.JRParameter;
-import net.sf.jasperreports.engine.JasperRunManager;
+import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
 import org.apache.commons.validator.GenericValidator;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.common.util.ConfigurationProperties.Property;
 import org.openelisglobal.common.util.DateUtil;
-import org.openelisglobal.image.service.ImageService;
-import org.openelisglobal.image.valueholder.Image;
 import org.openelisglobal.internationalization.MessageUtil;
 import org.openelisglobal.organization.service.OrganizationService;
 import org.openelisglobal.organization.valueholder.Organization;
 import org.openelisglobal.reports.action.implementation.reportBeans.ErrorMessages;
+import org.openelisglobal.reports.service.ReportTemplateCache;
 import org.openelisglobal.spring.util.SpringContext;
 import org.springframework.context.i18n.LocaleContextHolder;
 
 public abstract class Report implements IReportCreator {
 
-    private ImageService imageService = SpringContext.getBean(ImageService.class);
+    private ReportTemplateCache reportTemplateCache = SpringContext.getBean(ReportTemplateCache.class);
     private OrganizationService organizationService = SpringContext.getBean(OrganizationService.class);
     public static final String ERROR_REPORT = "NoticeOfReportError";
 
@@ -57,6 +56,7 @@ public abstract class Report implements IReportCreator {
     protected List<ErrorMessages> errorMsgs = new ArrayList<>();
     protected HashMap<String, Object> reportParameters = null;
     protected String requestedReport;
+    private String reportPath;
     private String fullReportFilename;
     protected String systemUserId;
 
@@ -107,13 +107,13 @@ public abstract class Report implements IReportCreator {
         reportParameters.put("usePageNumbers",
                 ConfigurationProperties.getInstance().getPropertyValue(Property.USE_PAGE_NUMBERS_ON_REPORTS));
         // reportParameters.put("localization", createLocalizationMap());
-        Optional<Image> leftLogo = imageService.getImageBySiteInfoName("headerLeftImage");
-        Optional<Image> rightLogo = imageService.getImageBySiteInfoName("headerRightImage");
+        Optional<byte[]> leftLogo = reportTemplateCache.getSiteImage("headerLeftImage");
+        Optional<byte[]> rightLogo = reportTemplateCache.getSiteImage("headerRightImage");
         if (leftLogo.isPresent()) {
-            reportParameters.put("leftHeaderImage", new ByteArrayInputStream(leftLogo.get().getImage()));
+            reportParameters.put("leftHeaderImage", new ByteArrayInputStream(leftLogo.get()));
         }
         if (rightLogo.isPresent()) {
-            reportParameters.put("rightHeaderImage", new ByteArrayInputStream(rightLogo.get().getImage()));
+            reportParameters.put("rightHeaderImage", new ByteArrayInputStream(rightLogo.get()));
         }
         reportParameters.put(JRParameter.REPORT_LOCALE, LocaleContextHolder.getLocale());
         reportParameters.put(JRParameter.REPORT_RESOURCE_BUNDLE, MessageUtil.getMessageSourceAsResourceBundle());
@@ -122,7 +122,7 @@ public abstract class Report implements IReportCreator {
     @Override
     public byte[] runReport() throws UnsupportedEncodingException, IOException, SQLException, IllegalStateException,
             JRException, ParseException {
-        return JasperRunManager.runReportToPdf(fullReportFilename, getReportParameters(), getReportDataSource());
+        return reportTemplateCache.runReportToPdf(fullReportFilename, getReportParameters(), getReportDataSource());
     }
 
     public abstract JRDataSource getReportDataSource() throws IllegalStateException;
@@ -296,9 +296,25 @@ public abstract class Report implements IReportCreator {
 
     @Override
     public void setReportPath(String path) {
+        reportPath = path;
         fullReportFilename = path + getReportFileName() + ".jasper";
     }
 
+    protected String getFullReportFilename() {
+        return fullReportFilename;
+    }
+
+    /*
+     * the notice listing the errors, for reports that only find them while the
+     * report is being written
+     */
+    protected byte[] runErrorReport() throws JRException {
+        errorFound = true;
+        createReportParameters();
+        return reportTemplateCache.runReportToPdf(reportPath + ERROR_REPORT + ".jasper", getReportParameters(),
+                new JRBeanCollectionDataSource(errorMsgs));
+    }
+
     @Override
     public List<String> getReportedOrders() {
         return new ArrayList<>();
@@ -15,6 +15,7 @@ package org.openelisglobal.reports.action.implementation;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.sql.SQLException;
 import java.text.ParseException;
@@ -23,7 +24,8 @@ import javax.xml.ws.Response;
 import net.sf.jasperreports.engine.JRException;
 import org.openelisglobal.reports.action.implementation.reportBeans.WHONETCSVRoutineColumnBuilder;
 
-public abstract class WHONETCSVRoutineSampleExportReport extends WHONETCSVRoutineExportReport {
+public abstract class WHONETCSVRoutineSampleExportReport extends WHONETCSVRoutineExportReport
+        implements IStreamingReportCreator {
 
     protected String lowDateStr;
     protected String highDateStr;
@@ -64,14 +66,23 @@ public abstract class WHONETCSVRoutineSampleExportReport extends WHONETCSVRoutin
         }
 
         ByteArrayOutputStream buffer = new ByteArrayOutputStream(100000);
-        buffer.write(WHONETcsvRoutineColumnBuilder.getColumnNamesLine().getBytes("windows-1252"));
-
-        writeResultsToBuffer(buffer);
+        runReport(buffer);
 
         return buffer.toByteArray();
     }
 
-    protected void writeResultsToBuffer(ByteArrayOutputStream buffer)
+    @Override
+    public boolean canStream() {
+        return !errorFound;
+    }
+
+    @Override
+    public void runReport(OutputStream outputStream) throws IOException, SQLException, ParseException {
+        outputStream.write(WHONETcsvRoutineColumnBuilder.getColumnNamesLine().getBytes("windows-1252"));
+        writeResultsToBuffer(outputStream);
+    }
+
+    protected void writeResultsToBuffer(OutputStream buffer)
             throws IOException, UnsupportedEncodingException, SQLException, ParseException {
         while (WHONETcsvRoutineColumnBuilder.next()) {
             buffer.write(WHONETcsvRoutineColumnBuilder.nextLine().getBytes("windows-1252"));
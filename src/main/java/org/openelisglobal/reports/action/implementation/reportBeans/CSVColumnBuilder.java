@@ -23,6 +23,7 @@ import static org.openelisglobal.reports.action.implementation.reportBeans.CSVCo
 
 import java.sql.Connection;
 import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.ParseException;
@@ -134,6 +135,10 @@ public abstract class CSVColumnBuilder {
 
     protected ResultSet resultSet;
 
+    private Session session;
+
+    protected static final int FETCH_SIZE = 1000;
+
     protected String eol = System.getProperty("line.separator");
 
     private static ProjectService projectService = SpringContext.getBean(ProjectService.class);
@@ -245,14 +250,18 @@ public abstract class CSVColumnBuilder {
         // ResultSet.TYPE_SCROLL_SENSITIVE,
         // ResultSet.CONCUR_READ_ONLY);
         // resultSet = stmt.executeQuery();
-        Session session = SpringContext.getBean(SessionFactory.class).getCurrentSession();
+        session = SpringContext.getBean(SessionFactory.class).getCurrentSession();
         session.beginTransaction();
         resultSet = session.doReturningWork(new ReturningWork<ResultSet>() {
 
             @Override
             public ResultSet execute(Connection connection) throws SQLException {
-                return connection.prepareStatement(sql, ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_READ_ONLY)
-                        .executeQuery();
+                // the rows are only ever read once, front to back, so a forward only cursor
+                // lets the driver stream them in FETCH_SIZE pieces instead of loading them all
+                PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(FETCH_SIZE);
+                return statement.executeQuery();
             }
         });
     }
@@ -745,8 +754,19 @@ public abstract class CSVColumnBuilder {
      * @throws SQLException
      */
     public void closeResultSet() throws SQLException {
-        resultSet.close();
-        resultSet = null;
+        if (resultSet == null) {
+            return;
+        }
+        try {
+            resultSet.getStatement().close();
+        } finally {
+            resultSet = null;
+            // nothing was written, this only releases the cursor and the connection
+            if (session.getTransaction().isActive()) {
+                session.getTransaction().rollback();
+            }
+            session = null;
+        }
     }
 
     protected String getGendCD4CountAnalyteId() {
@@ -22,6 +22,7 @@ import static org.openelisglobal.reports.action.implementation.reportBeans.CSVRo
 import static org.openelisglobal.reports.action.implementation.reportBeans.CSVRoutineColumnBuilder.Strategy.TEST_RESULT;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.ParseException;
@@ -124,6 +125,10 @@ public abstract class CSVRoutineColumnBuilder {
 
     protected ResultSet resultSet;
 
+    private Session session;
+
+    protected static final int FETCH_SIZE = 1000;
+
     protected String eol = System.getProperty("line.separator");
 
     protected ResultService resultService = SpringContext.getBean(ResultService.class);
@@ -222,14 +227,19 @@ public abstract class CSVRoutineColumnBuilder {
         // ResultSet.TYPE_SCROLL_SENSITIVE,
         // ResultSet.CONCUR_READ_ONLY);
         // resultSet = stmt.executeQuery();
-        Session session = SpringContext.getBean(SessionFactory.class).openSession();
+        session = SpringContext.getBean(SessionFactory.class).openSession();
+        // postgres only fetches in pieces inside a transaction
+        session.beginTransaction();
         resultSet = session.doReturningWork(new ReturningWork<ResultSet>() {
 
             @Override
             public ResultSet execute(Connection connection) throws SQLException {
-
-                return connection.prepareStatement(sql, ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_READ_ONLY)
-                        .executeQuery();
+                // the rows are only ever read once, front to back, so a forward only cursor
+                // lets the driver stream them in FETCH_SIZE pieces instead of loading them all
+                PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(FETCH_SIZE);
+                return statement.executeQuery();
             }
         });
     }
@@ -708,8 +718,20 @@ public abstract class CSVRoutineColumnBuilder {
      * @throws SQLException
      */
     public void closeResultSet() throws SQLException {
-        resultSet.close();
-        resultSet = null;
+        if (resultSet == null) {
+            return;
+        }
+        try {
+            resultSet.getStatement().close();
+        } finally {
+            resultSet = null;
+            // nothing was written, this only releases the cursor and the connection
+            if (session.getTransaction().isActive()) {
+                session.getTransaction().rollback();
+            }
+            session.close();
+            session = null;
+        }
     }
 
     protected String getGendCD4CountAnalyteId() {
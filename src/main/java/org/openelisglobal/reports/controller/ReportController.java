@@ -26,8 +26,10 @@ import org.openelisglobal.common.services.IReportTrackingService;
 import org.openelisglobal.common.services.ReportTrackingService.ReportType;
 import org.openelisglobal.reports.action.implementation.IReportCreator;
 import org.openelisglobal.reports.action.implementation.IReportParameterSetter;
+import org.openelisglobal.reports.action.implementation.IStreamingReportCreator;
 import org.openelisglobal.reports.action.implementation.ReportImplementationFactory;
 import org.openelisglobal.reports.form.ReportForm;
+import org.openelisglobal.reports.service.ReportExportService;
 import org.openelisglobal.spring.util.SpringContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -54,6 +56,8 @@ public class ReportController extends BaseController {
 
     @Autowired
     private ServletContext context;
+    @Autowired
+    private ReportExportService reportExportService;
 
     private String reportPath = null;
     private String imagesPath = null;
@@ -124,15 +128,20 @@ public class ReportController extends BaseController {
                     response.setHeader(responseHeaderName, responseHeaderContent);
                 }
 
-                byte[] bytes = reportCreator.runReport();
+                if (reportCreator instanceof IStreamingReportCreator
+                        && ((IStreamingReportCreator) reportCreator).canStream()) {
+                    reportExportService.streamReport((IStreamingReportCreator) reportCreator, request, response);
+                } else {
+                    byte[] bytes = reportCreator.runReport();
 
-                response.setContentLength(bytes.length);
+                    response.setContentLength(bytes.length);
 
-                ServletOutputStream servletOutputStream = response.getOutputStream();
+                    ServletOutputStream servletOutputStream = response.getOutputStream();
 
-                servletOutputStream.write(bytes, 0, bytes.length);
-                servletOutputStream.flush();
-                servletOutputStream.close();
+                    servletOutputStream.write(bytes, 0, bytes.length);
+                    servletOutputStream.flush();
+                    servletOutputStream.close();
+                }
             } catch (IOException | SQLException | JRException | DocumentException | ParseException e) {
                 LogEvent.logError(e);
             }
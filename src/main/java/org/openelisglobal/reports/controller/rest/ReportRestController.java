@@ -9,6 +9,8 @@ import java.net.URLDecoder;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
@@ -19,10 +21,21 @@ import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.rest.BaseRestController;
 import org.openelisglobal.common.util.validator.GenericValidator;
 import org.openelisglobal.reports.action.implementation.IReportCreator;
+import org.openelisglobal.reports.action.implementation.IStreamingReportCreator;
 import org.openelisglobal.reports.action.implementation.ReportImplementationFactory;
 import org.openelisglobal.reports.form.ReportForm;
+import org.openelisglobal.reports.service.ReportExportJob;
+import org.openelisglobal.reports.service.ReportExportService;
+import org.openelisglobal.reports.service.ReportTemplateCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -34,6 +47,10 @@ public class ReportRestController extends BaseRestController {
 
     @Autowired
     private ServletContext context;
+    @Autowired
+    private ReportExportService reportExportService;
+    @Autowired
+    private ReportTemplateCache reportTemplateCache;
 
     private static String reportPath = null;
 
@@ -66,15 +83,20 @@ public class ReportRestController extends BaseRestController {
                     response.setHeader(responseHeaderName, responseHeaderContent);
                 }
 
-                byte[] bytes = reportCreator.runReport();
+                if (reportCreator instanceof IStreamingReportCreator
+                        && ((IStreamingReportCreator) reportCreator).canStream()) {
+                    reportExportService.streamReport((IStreamingReportCreator) reportCreator, request, response);
+                } else {
+                    byte[] bytes = reportCreator.runReport();
 
-                response.setContentLength(bytes.length);
+                    response.setContentLength(bytes.length);
 
-                ServletOutputStream servletOutputStream = response.getOutputStream();
+                    ServletOutputStream servletOutputStream = response.getOutputStream();
 
-                servletOutputStream.write(bytes, 0, bytes.length);
-                servletOutputStream.flush();
-                servletOutputStream.close();
+                    servletOutputStream.write(bytes, 0, bytes.length);
+                    servletOutputStream.flush();
+                    servletOutputStream.close();
+                }
 
             } catch (IOException | SQLException | JRException | DocumentException | ParseException e) {
                 LogEvent.logError(e);
@@ -82,6 +104,46 @@ public class ReportRestController extends BaseRestController {
         }
     }
 
+    @PostMapping(value = "ReportExportJob", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ReportExportJob> submitReportExportJob(@RequestBody ReportForm form,
+            HttpServletRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(reportExportService.submitExportJob(form, getSysUserId(request)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (TaskRejectedException e) {
+            LogEvent.logWarn(this.getClass().getSimpleName(), "submitReportExportJob",
+                    "too many report exports queued, refusing " + form.getReport());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping(value = "ReportExportJob/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ReportExportJob> getReportExportJob(@PathVariable String jobId,
+            HttpServletRequest request) {
+        return ResponseEntity.of(reportExportService.getExportJob(jobId, getSysUserId(request)));
+    }
+
+    @GetMapping(value = "ReportExportJob/{jobId}/file")
+    public void downloadReportExportJob(@PathVariable String jobId, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Optional<ReportExportJob> job = reportExportService.getExportJob(jobId, getSysUserId(request));
+        if (job.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        } else if (job.get().getStatus() != ReportExportJob.Status.COMPLETE) {
+            response.sendError(HttpServletResponse.SC_CONFLICT);
+        } else {
+            reportExportService.writeExportJobResult(job.get(), request, response);
+        }
+    }
+
+    @GetMapping(value = "ReportMetrics", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public Map<String, Object> getReportMetrics() {
+        return reportTemplateCache.getMetrics();
+    }
+
     private String getReportPath() {
         String reportPath = getReportPathValue();
         if (reportPath.endsWith(File.separator)) {
@@ -0,0 +1,166 @@
+package org.openelisglobal.reports.service;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.pdf.PdfCopy;
+import com.lowagie.text.pdf.PdfReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import net.sf.jasperreports.engine.JRDataSource;
+import org.openelisglobal.common.exception.LIMSRuntimeException;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Renders a report over many samples a chunk of samples at a time. The data
+ * of each chunk is gathered on the calling thread in a transaction of its own,
+ * the chunk is then filled and exported on the reportRender pool while the
+ * next one is gathered, and the pdfs are appended to the output in order as
+ * they finish. Only a few chunks are held at once, so the memory used does not
+ * grow with the number of samples.
+ */
+@Service
+public class BulkReportRenderer {
+
+    /*
+     * gathers the data of the samples of one chunk, null when there is nothing
+     * to print for them
+     */
+    public interface ChunkGatherer {
+        Chunk gather(List<String> sampleIds);
+    }
+
+    public static class Chunk {
+        private final Map<String, Object> parameters;
+        private final JRDataSource dataSource;
+
+        // the parameters have to be the chunk's own, filling adds to them
+        public Chunk(Map<String, Object> parameters, JRDataSource dataSource) {
+            this.parameters = parameters;
+            this.dataSource = dataSource;
+        }
+    }
+
+    @Autowired
+    private ReportTemplateCache reportTemplateCache;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    @Qualifier(AsyncConfig.REPORT_RENDER_EXECUTOR)
+    private InstrumentedTaskExecutor executor;
+
+    @Value("${org.openelisglobal.reports.bulk.threshold:200}")
+    private int bulkThreshold;
+    @Value("${org.openelisglobal.reports.bulk.chunkSize:100}")
+    private int chunkSize;
+    @Value("${org.openelisglobal.reports.bulk.chunksInFlight:4}")
+    private int chunksInFlight;
+
+    /*
+     * reports over more samples than this are rendered in chunks
+     */
+    public int getBulkThreshold() {
+        return bulkThreshold;
+    }
+
+    /*
+     * writes the report for all of the samples to the output as one pdf and
+     * returns the number of pages written. Nothing is written when no chunk had
+     * anything to print
+     */
+    public int render(String jasperPath, List<String> sampleIds, ChunkGatherer gatherer, OutputStream outputStream)
+            throws IOException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Deque<Future<byte[]>> rendering = new ArrayDeque<>();
+        PdfAppender appender = new PdfAppender(outputStream);
+        try {
+            for (int from = 0; from < sampleIds.size(); from += chunkSize) {
+                List<String> chunkSampleIds = sampleIds.subList(from, Math.min(from + chunkSize, sampleIds.size()));
+                Chunk chunk = transactionTemplate.execute(status -> gatherer.gather(chunkSampleIds));
+                if (chunk == null) {
+                    continue;
+                }
+                rendering.add(executor.submit(
+                        () -> reportTemplateCache.runReportToPdf(jasperPath, chunk.parameters, chunk.dataSource)));
+                while (rendering.size() > chunksInFlight) {
+                    appender.append(await(rendering.poll()));
+                }
+            }
+            while (!rendering.isEmpty()) {
+                appender.append(await(rendering.poll()));
+            }
+            return appender.finish();
+        } finally {
+            for (Future<byte[]> abandoned : rendering) {
+                abandoned.cancel(true);
+            }
+        }
+    }
+
+    private byte[] await(Future<byte[]> chunk) {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LIMSRuntimeException("interrupted while rendering a report", e);
+        } catch (ExecutionException e) {
+            throw new LIMSRuntimeException("could not render a report chunk", e.getCause());
+        }
+    }
+
+    /*
+     * copies the pages of each pdf to the output as they are appended, freeing
+     * each one once it is copied
+     */
+    private static class PdfAppender {
+        private final OutputStream outputStream;
+        private Document document;
+        private PdfCopy copy;
+        private int pages;
+
+        private PdfAppender(OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        private void append(byte[] pdf) throws IOException {
+            PdfReader reader = new PdfReader(pdf);
+            try {
+                if (document == null) {
+                    document = new Document(reader.getPageSizeWithRotation(1));
+                    copy = new PdfCopy(document, outputStream);
+                    // the caller owns the output
+                    copy.setCloseStream(false);
+                    document.open();
+                }
+                for (int page = 1; page <= reader.getNumberOfPages(); page++) {
+                    copy.addPage(copy.getImportedPage(reader, page));
+                }
+                pages += reader.getNumberOfPages();
+                copy.freeReader(reader);
+            } catch (DocumentException e) {
+                throw new LIMSRuntimeException("could not merge a report chunk", e);
+            } finally {
+                reader.close();
+            }
+        }
+
+        private int finish() {
+            if (document != null) {
+                document.close();
+            }
+            return pages;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.services.DashBoardMetricsService;
 import org.openelisglobal.reports.dao.DocumentTrackDAO;
 import org.openelisglobal.reports.valueholder.DocumentTrack;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +27,26 @@ public class DocumentTrackServiceImpl extends AuditableBaseObjectServiceImpl<Doc
         return baseObjectDAO;
     }
 
+    @Override
+    @Transactional
+    public String insert(DocumentTrack documentTrack) {
+        DashBoardMetricsService.changed();
+        return super.insert(documentTrack);
+    }
+
+    @Override
+    protected DocumentTrack update(DocumentTrack documentTrack, String auditTrailType) {
+        DashBoardMetricsService.changed();
+        return super.update(documentTrack, auditTrailType);
+    }
+
+    @Override
+    @Transactional
+    public void delete(DocumentTrack documentTrack) {
+        DashBoardMetricsService.changed();
+        super.delete(documentTrack);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<DocumentTrack> getByTypeRecordAndTable(String typeId, String tableId, String recordId) {
@@ -0,0 +1,121 @@
+package org.openelisglobal.reports.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.nio.file.Path;
+import java.util.Date;
+
+/**
+ * A report export running (or finished) in the background. The output is kept
+ * gzipped in a temporary file until it is downloaded or expires.
+ */
+public class ReportExportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETE, FAILED
+    }
+
+    private final String id;
+    private final String report;
+    private final String sysUserId;
+    private final Date submitted;
+    private volatile Status status = Status.QUEUED;
+    private volatile Date finished;
+    private volatile String message;
+    private volatile long fileSize;
+    private volatile String contentType;
+    private volatile String responseHeaderName;
+    private volatile String responseHeaderContent;
+    private volatile Path file;
+
+    public ReportExportJob(String id, String report, String sysUserId) {
+        this.id = id;
+        this.report = report;
+        this.sysUserId = sysUserId;
+        this.submitted = new Date();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getReport() {
+        return report;
+    }
+
+    @JsonIgnore
+    public String getSysUserId() {
+        return sysUserId;
+    }
+
+    public Date getSubmitted() {
+        return submitted;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Date getFinished() {
+        return finished;
+    }
+
+    public void setFinished(Date finished) {
+        this.finished = finished;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    @JsonIgnore
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    @JsonIgnore
+    public String getResponseHeaderName() {
+        return responseHeaderName;
+    }
+
+    public void setResponseHeaderName(String responseHeaderName) {
+        this.responseHeaderName = responseHeaderName;
+    }
+
+    @JsonIgnore
+    public String getResponseHeaderContent() {
+        return responseHeaderContent;
+    }
+
+    public void setResponseHeaderContent(String responseHeaderContent) {
+        this.responseHeaderContent = responseHeaderContent;
+    }
+
+    @JsonIgnore
+    public Path getFile() {
+        return file;
+    }
+
+    public void setFile(Path file) {
+        this.file = file;
+    }
+}
@@ -0,0 +1,23 @@
+package org.openelisglobal.reports.service;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.util.Optional;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.openelisglobal.reports.action.implementation.IStreamingReportCreator;
+import org.openelisglobal.reports.form.ReportForm;
+
+public interface ReportExportService {
+
+    void streamReport(IStreamingReportCreator reportCreator, HttpServletRequest request,
+            HttpServletResponse response) throws IOException, SQLException, ParseException;
+
+    ReportExportJob submitExportJob(ReportForm form, String sysUserId);
+
+    Optional<ReportExportJob> getExportJob(String jobId, String sysUserId);
+
+    void writeExportJobResult(ReportExportJob job, HttpServletRequest request, HttpServletResponse response)
+            throws IOException;
+}
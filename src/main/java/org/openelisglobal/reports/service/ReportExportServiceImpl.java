@@ -0,0 +1,212 @@
+package org.openelisglobal.reports.service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.validator.GenericValidator;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.reports.action.implementation.IReportCreator;
+import org.openelisglobal.reports.action.implementation.IStreamingReportCreator;
+import org.openelisglobal.reports.action.implementation.ReportImplementationFactory;
+import org.openelisglobal.reports.form.ReportForm;
+import org.openelisglobal.reports.service.ReportExportJob.Status;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ReportExportServiceImpl implements ReportExportService {
+
+    // how much output is collected before it is pushed to the client
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    @Value("${org.openelisglobal.reports.export.gzip:true}")
+    private boolean gzipExports;
+
+    @Value("${org.openelisglobal.reports.export.jobRetentionHours:24}")
+    private int jobRetentionHours;
+
+    @Autowired
+    @Qualifier(AsyncConfig.REPORT_EXPORT_EXECUTOR)
+    private AsyncTaskExecutor reportExportExecutor;
+    @Autowired
+    private ServletContext context;
+
+    private final Map<String, ReportExportJob> exportJobs = new ConcurrentHashMap<>();
+
+    @Override
+    public void streamReport(IStreamingReportCreator reportCreator, HttpServletRequest request,
+            HttpServletResponse response) throws IOException, SQLException, ParseException {
+        OutputStream responseStream = response.getOutputStream();
+        if (gzipExports && acceptsGzip(request)) {
+            response.setHeader("Content-Encoding", "gzip");
+            responseStream = new GZIPOutputStream(responseStream, STREAM_BUFFER_SIZE);
+        }
+        try (OutputStream outputStream = new BufferedOutputStream(responseStream, STREAM_BUFFER_SIZE)) {
+            reportCreator.runReport(outputStream);
+        }
+    }
+
+    @Override
+    public ReportExportJob submitExportJob(ReportForm form, String sysUserId) {
+        if (!(ReportImplementationFactory.getReportCreator(form.getReport()) instanceof IStreamingReportCreator)) {
+            throw new IllegalArgumentException("report " + form.getReport() + " can not be exported in the background");
+        }
+        ReportExportJob job = new ReportExportJob(UUID.randomUUID().toString(), form.getReport(), sysUserId);
+        Locale locale = LocaleContextHolder.getLocale();
+        exportJobs.put(job.getId(), job);
+        try {
+            reportExportExecutor.execute(() -> runExportJob(job, form, locale));
+        } catch (RuntimeException e) {
+            exportJobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    private void runExportJob(ReportExportJob job, ReportForm form, Locale locale) {
+        LocaleContextHolder.setLocale(locale);
+        job.setStatus(Status.RUNNING);
+        Path file = null;
+        try {
+            IReportCreator reportCreator = ReportImplementationFactory.getReportCreator(form.getReport());
+            reportCreator.setSystemUserId(job.getSysUserId());
+            reportCreator.setRequestedReport(form.getReport());
+            reportCreator.initializeReport(form);
+            // as the report controllers do, for the reports that fill jasper templates
+            reportCreator.setReportPath(getReportPath());
+            HashMap<String, Object> parameterMap = (HashMap<String, Object>) reportCreator.getReportParameters();
+            parameterMap.put("SUBREPORT_DIR", getReportPath());
+            parameterMap.put("imagesPath", getImagesPath());
+            IStreamingReportCreator streamingReportCreator = (IStreamingReportCreator) reportCreator;
+            if (!streamingReportCreator.canStream()) {
+                finishJob(job, Status.FAILED, "report parameters are not valid");
+                return;
+            }
+            job.setContentType(reportCreator.getContentType());
+            job.setResponseHeaderName(reportCreator.getResponseHeaderName());
+            job.setResponseHeaderContent(reportCreator.getResponseHeaderContent());
+
+            file = Files.createTempFile("report-export-", ".gz");
+            job.setFile(file);
+            try (OutputStream outputStream = new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(file), STREAM_BUFFER_SIZE), STREAM_BUFFER_SIZE)) {
+                streamingReportCreator.runReport(outputStream);
+            }
+            job.setFileSize(Files.size(file));
+            finishJob(job, Status.COMPLETE, null);
+        } catch (IOException | SQLException | ParseException | RuntimeException e) {
+            LogEvent.logError(e);
+            deleteFile(file);
+            job.setFile(null);
+            finishJob(job, Status.FAILED, "export failed");
+        } finally {
+            LocaleContextHolder.resetLocaleContext();
+        }
+    }
+
+    private String getReportPath() throws UnsupportedEncodingException {
+        String reportPath = URLDecoder.decode(getClass().getClassLoader().getResource("reports").getPath(), "UTF-8");
+        return reportPath.endsWith(File.separator) ? reportPath : reportPath + File.separator;
+    }
+
+    private String getImagesPath() throws UnsupportedEncodingException {
+        return URLDecoder.decode(
+                context.getRealPath("") + "static" + File.separator + "images" + File.separator, "UTF-8");
+    }
+
+    private void finishJob(ReportExportJob job, Status status, String message) {
+        job.setMessage(message);
+        job.setFinished(new Date());
+        job.setStatus(status);
+    }
+
+    @Override
+    public Optional<ReportExportJob> getExportJob(String jobId, String sysUserId) {
+        ReportExportJob job = exportJobs.get(jobId);
+        // jobs are only visible to the user who started them
+        if (job == null || !job.getSysUserId().equals(sysUserId)) {
+            return Optional.empty();
+        }
+        return Optional.of(job);
+    }
+
+    @Override
+    public void writeExportJobResult(ReportExportJob job, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setContentType(job.getContentType());
+        if (!GenericValidator.isBlankOrNull(job.getResponseHeaderName())
+                && !GenericValidator.isBlankOrNull(job.getResponseHeaderContent())) {
+            response.setHeader(job.getResponseHeaderName(), job.getResponseHeaderContent());
+        }
+        // the file is already gzipped, so it only needs to be decompressed for clients
+        // that can't accept it that way
+        if (acceptsGzip(request)) {
+            response.setHeader("Content-Encoding", "gzip");
+            response.setContentLengthLong(job.getFileSize());
+            Files.copy(job.getFile(), response.getOutputStream());
+        } else {
+            try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(job.getFile()),
+                    STREAM_BUFFER_SIZE)) {
+                inputStream.transferTo(response.getOutputStream());
+            }
+        }
+        response.getOutputStream().flush();
+    }
+
+    @Scheduled(initialDelay = 60 * 60 * 1000, fixedRate = 60 * 60 * 1000)
+    public void removeExpiredExportJobs() {
+        long expiredBefore = System.currentTimeMillis() - jobRetentionHours * 60L * 60L * 1000L;
+        Iterator<ReportExportJob> jobs = exportJobs.values().iterator();
+        while (jobs.hasNext()) {
+            ReportExportJob job = jobs.next();
+            if (job.getFinished() != null && job.getFinished().getTime() < expiredBefore) {
+                jobs.remove();
+                deleteFile(job.getFile());
+            }
+        }
+    }
+
+    private void deleteFile(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LogEvent.logWarn(this.getClass().getSimpleName(), "deleteFile",
+                    "could not delete report export file " + file + ": " + e.getMessage());
+        }
+    }
+
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+}
@@ -0,0 +1,193 @@
+package org.openelisglobal.reports.service;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperExportManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.common.util.ConfigurationListener;
+import org.openelisglobal.image.service.ImageService;
+import org.openelisglobal.image.valueholder.Image;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the compiled report templates and the site images printed on reports
+ * so a report does not read and deserialize its .jasper file and fetch the
+ * logos from the database every time it is run. Templates are loaded the first
+ * time they are asked for. With checkForChanges on, as when working on the
+ * templates, a template whose files changed is loaded again and compiled from
+ * the .jrxml next to it when that is the newer one.
+ *
+ * The site images are dropped whenever the configuration is reloaded, which is
+ * done after site information is saved, and when the logos are changed.
+ */
+@Service
+public class ReportTemplateCache implements ConfigurationListener {
+
+    @Autowired
+    private ImageService imageService;
+
+    @Value("${org.openelisglobal.reports.templates.checkForChanges:false}")
+    private boolean checkForChanges;
+
+    private final ConcurrentMap<String, Template> templates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Optional<byte[]>> siteImages = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timings> timings = new ConcurrentHashMap<>();
+
+    /*
+     * the template for a .jasper path, loaded with the first call for it
+     */
+    public JasperReport getReport(String jasperPath) throws JRException {
+        Template template = templates.get(jasperPath);
+        if (template != null && (!checkForChanges || !template.isStale())) {
+            return template.report;
+        }
+        template = load(jasperPath);
+        templates.put(jasperPath, template);
+        return template.report;
+    }
+
+    /*
+     * fills the template with the parameters and data and exports it as a pdf,
+     * timing both for the metrics
+     */
+    public byte[] runReportToPdf(String jasperPath, Map<String, Object> parameters, JRDataSource dataSource)
+            throws JRException {
+        JasperReport report = getReport(jasperPath);
+        long started = System.currentTimeMillis();
+        JasperPrint print = JasperFillManager.fillReport(report, parameters, dataSource);
+        long filled = System.currentTimeMillis();
+        byte[] pdf = JasperExportManager.exportReportToPdf(print);
+        long exported = System.currentTimeMillis();
+        timings.computeIfAbsent(report.getName(), k -> new Timings()).add(filled - started, exported - filled,
+                print.getPages().size());
+        return pdf;
+    }
+
+    /*
+     * the image a site information entry points to, read from the database only
+     * the first time
+     */
+    public Optional<byte[]> getSiteImage(String siteInfoName) {
+        return siteImages.computeIfAbsent(siteInfoName,
+                name -> imageService.getImageBySiteInfoName(name).map(Image::getImage));
+    }
+
+    /*
+     * drops the site images once the current transaction commits, so a report run
+     * in between does not put the old image back
+     */
+    public void evictSiteImages() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    siteImages.clear();
+                }
+            });
+        } else {
+            siteImages.clear();
+        }
+    }
+
+    @Override
+    public void refreshConfiguration() {
+        siteImages.clear();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("templatesLoaded", templates.size());
+        metrics.put("siteImagesCached", siteImages.size());
+        Map<String, Object> reports = new TreeMap<>();
+        for (Map.Entry<String, Timings> entry : timings.entrySet()) {
+            reports.put(entry.getKey(), entry.getValue().toMap());
+        }
+        metrics.put("reports", reports);
+        return metrics;
+    }
+
+    private Template load(String jasperPath) throws JRException {
+        File jasperFile = new File(jasperPath);
+        File jrxmlFile = new File(jasperPath.replaceAll("\\.jasper$", ".jrxml"));
+        long jasperModified = jasperFile.lastModified();
+        long jrxmlModified = jrxmlFile.lastModified();
+        JasperReport report;
+        // compiling needs the jdt compiler, so outside of template work only when there
+        // is nothing compiled
+        if (!jasperFile.exists() || (checkForChanges && jrxmlModified > jasperModified)) {
+            LogEvent.logInfo(this.getClass().getSimpleName(), "load", "compiling " + jrxmlFile.getName());
+            report = JasperCompileManager.compileReport(jrxmlFile.getPath());
+        } else {
+            report = (JasperReport) JRLoader.loadObject(jasperFile);
+        }
+        return new Template(report, jasperFile, jrxmlFile, jasperModified, jrxmlModified);
+    }
+
+    private static class Template {
+        private final JasperReport report;
+        private final File jasperFile;
+        private final File jrxmlFile;
+        private final long jasperModified;
+        private final long jrxmlModified;
+
+        private Template(JasperReport report, File jasperFile, File jrxmlFile, long jasperModified,
+                long jrxmlModified) {
+            this.report = report;
+            this.jasperFile = jasperFile;
+            this.jrxmlFile = jrxmlFile;
+            this.jasperModified = jasperModified;
+            this.jrxmlModified = jrxmlModified;
+        }
+
+        private boolean isStale() {
+            return jasperFile.lastModified() != jasperModified || jrxmlFile.lastModified() != jrxmlModified;
+        }
+    }
+
+    private static class Timings {
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong pages = new AtomicLong();
+        private final AtomicLong fillMillis = new AtomicLong();
+        private final AtomicLong maxFillMillis = new AtomicLong();
+        private final AtomicLong exportMillis = new AtomicLong();
+        private final AtomicLong maxExportMillis = new AtomicLong();
+
+        private void add(long fill, long export, int pageCount) {
+            runs.incrementAndGet();
+            pages.addAndGet(pageCount);
+            fillMillis.addAndGet(fill);
+            maxFillMillis.accumulateAndGet(fill, Math::max);
+            exportMillis.addAndGet(export);
+            maxExportMillis.accumulateAndGet(export, Math::max);
+        }
+
+        private Map<String, Object> toMap() {
+            long count = Math.max(1, runs.get());
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("runs", runs.get());
+            map.put("pages", pages.get());
+            map.put("averageFillMillis", fillMillis.get() / count);
+            map.put("maxFillMillis", maxFillMillis.get());
+            map.put("averageExportMillis", exportMillis.get() / count);
+            map.put("maxExportMillis", maxExportMillis.get());
+            return map;
+        }
+    }
+}
@@ -51,9 +51,6 @@ import org.openelisglobal.inventory.action.InventoryUtility;
 import org.openelisglobal.inventory.form.InventoryKitItem;
 import org.openelisglobal.localization.service.LocalizationService;
 import org.openelisglobal.localization.valueholder.Localization;
-import org.openelisglobal.note.service.NoteService;
-import org.openelisglobal.note.service.NoteServiceImpl.NoteType;
-import org.openelisglobal.observationhistory.service.ObservationHistoryService;
 import org.openelisglobal.observationhistory.valueholder.ObservationHistory;
 import org.openelisglobal.observationhistory.valueholder.ObservationHistory.ValueType;
 import org.openelisglobal.patient.form.PatientInfoForm;
@@ -63,17 +60,14 @@ import org.openelisglobal.patient.valueholder.Patient;
 import org.openelisglobal.patientidentity.valueholder.PatientIdentity;
 import org.openelisglobal.patientidentitytype.util.PatientIdentityTypeMap;
 import org.openelisglobal.person.service.PersonService;
-import org.openelisglobal.referral.service.ReferralService;
 import org.openelisglobal.referral.valueholder.Referral;
-import org.openelisglobal.result.service.ResultInventoryService;
 import org.openelisglobal.result.service.ResultService;
-import org.openelisglobal.result.service.ResultSignatureService;
+import org.openelisglobal.result.service.ResultServiceImpl;
 import org.openelisglobal.result.valueholder.Result;
 import org.openelisglobal.result.valueholder.ResultInventory;
 import org.openelisglobal.result.valueholder.ResultSignature;
 import org.openelisglobal.resultlimit.service.ResultLimitService;
 import org.openelisglobal.resultlimits.valueholder.ResultLimit;
-import org.openelisglobal.sample.service.SampleService;
 import org.openelisglobal.sample.valueholder.Sample;
 import org.openelisglobal.samplehuman.service.SampleHumanService;
 import org.openelisglobal.sampleitem.service.SampleItemService;
@@ -102,6 +96,8 @@ import org.springframework.stereotype.Service;
 public class ResultsLoadUtility {
 
     private static final boolean SORT_FORWARD = true;
+    // analyses are prefetched this many at a time to keep the IN lists bounded
+    private static final int PREFETCH_BATCH_SIZE = 500;
 
     public static final String TESTKIT = "TestKit";
 
@@ -120,6 +116,8 @@ public class ResultsLoadUtility {
 
     private Patient currentPatient;
 
+    private TestResultItemBatch batch;
+
     @Autowired
     private PatientService patientService;
     @Autowired
@@ -129,16 +127,8 @@ public class ResultsLoadUtility {
     @Autowired
     private LocalizationService localizationService;
     @Autowired
-    private ResultSignatureService resultSignatureService;
-    @Autowired
-    private ResultInventoryService resultInventoryService;
-    @Autowired
-    private ObservationHistoryService observationHistoryService;
-    @Autowired
     private AnalysisService analysisService;
     @Autowired
-    private ReferralService referralService;
-    @Autowired
     private AnalyteService analyteService;
     @Autowired
     private SystemUserService systemUserService;
@@ -284,30 +274,35 @@ public class ResultsLoadUtility {
 
         List<TestResultItem> selectedTestList = new ArrayList<>();
 
-        for (Analysis analysis : filteredAnalysisList) {
-            patientService = SpringContext.getBean(PatientService.class);
-            SampleService sampleService = SpringContext.getBean(SampleService.class);
-            Sample sample = analysis.getSampleItem().getSample();
-            currentPatient = sampleService.getPatient(sample);
-
-            String patientName = "";
-            String patientInfo;
-            String nationalId = patientService.getNationalId(currentPatient);
-            if (depersonalize) {
-                patientInfo = GenericValidator.isBlankOrNull(nationalId) ? patientService.getExternalId(currentPatient)
-                        : nationalId;
-            } else {
-                patientName = patientService.getLastFirstName(currentPatient);
-                patientInfo = nationalId + ", " + patientService.getGender(currentPatient) + ", "
-                        + patientService.getBirthdayForDisplay(currentPatient);
-            }
+        for (int start = 0; start < filteredAnalysisList.size(); start += PREFETCH_BATCH_SIZE) {
+            List<Analysis> analysisList = filteredAnalysisList.subList(start,
+                    Math.min(start + PREFETCH_BATCH_SIZE, filteredAnalysisList.size()));
+            batch = loadBatch(analysisList);
+
+            for (Analysis analysis : analysisList) {
+                Sample sample = analysis.getSampleItem().getSample();
+                currentPatient = batch.getPatient(sample.getId());
+
+                String patientName = "";
+                String patientInfo;
+                String nationalId = batch.getNationalId(currentPatient);
+                if (depersonalize) {
+                    patientInfo = GenericValidator.isBlankOrNull(nationalId)
+                            ? patientService.getExternalId(currentPatient)
+                            : nationalId;
+                } else {
+                    patientName = patientService.getLastFirstName(currentPatient);
+                    patientInfo = nationalId + ", " + patientService.getGender(currentPatient) + ", "
+                            + patientService.getBirthdayForDisplay(currentPatient);
+                }
 
-            currSample = analysis.getSampleItem().getSample();
-            List<TestResultItem> testResultItemList = getTestResultItemFromAnalysis(analysis, patientName, patientInfo,
-                    nationalId);
+                currSample = sample;
+                List<TestResultItem> testResultItemList = getTestResultItemFromAnalysis(analysis, patientName,
+                        patientInfo, nationalId);
 
-            for (TestResultItem selectionItem : testResultItemList) {
-                selectedTestList.add(selectionItem);
+                for (TestResultItem selectionItem : testResultItemList) {
+                    selectedTestList.add(selectionItem);
+                }
             }
         }
 
@@ -403,7 +398,7 @@ public class ResultsLoadUtility {
         List<TestResultItem> testResultList = new ArrayList<>();
 
         SampleItem sampleItem = analysis.getSampleItem();
-        List<Result> resultList = resultService.getResultsByAnalysis(analysis);
+        List<Result> resultList = batch.getResults(analysis);
 
         ResultInventory testKit = null;
 
@@ -434,7 +429,7 @@ public class ResultsLoadUtility {
 
             if (result != null) {
                 if (useTechSignature) {
-                    List<ResultSignature> signatures = resultSignatureService.getResultSignaturesByResults(resultList);
+                    List<ResultSignature> signatures = batch.getSignatures(resultList);
 
                     for (ResultSignature signature : signatures) {
                         // we no longer use supervisor signature but there may be some in db
@@ -445,17 +440,14 @@ public class ResultsLoadUtility {
                     }
                 }
 
-                testKit = getInventoryForResult(result);
+                testKit = batch.getInventory(result);
 
                 multiSelectionResult = TypeOfTestResultServiceImpl.ResultType
                         .isMultiSelectVariant(result.getResultType());
             }
 
             String initialConditions = getInitialSampleConditionString(sampleItem);
-            NoteType[] noteTypes = { NoteType.EXTERNAL, NoteType.INTERNAL, NoteType.REJECTION_REASON,
-                    NoteType.NON_CONFORMITY };
-            NoteService noteService = SpringContext.getBean(NoteService.class);
-            String notes = noteService.getNotesAsString(analysis, true, true, "<br/>", noteTypes, false);
+            String notes = batch.getNotes(analysis);
 
             TestResultItem resultItem = createTestResultItem(analysis, testKit, notes, sampleItem.getSortOrder(),
                     result, sampleItem.getSample().getAccessionNumber(), patientName, patientInfo, techSignature,
@@ -474,8 +466,7 @@ public class ResultsLoadUtility {
 
     private String getInitialSampleConditionString(SampleItem sampleItem) {
         if (useInitialSampleCondition) {
-            List<ObservationHistory> observationList = observationHistoryService
-                    .getObservationHistoriesBySampleItemId(sampleItem.getId());
+            List<ObservationHistory> observationList = batch.getObservations(sampleItem.getId());
             StringBuilder conditions = new StringBuilder();
 
             for (ObservationHistory observation : observationList) {
@@ -503,10 +494,8 @@ public class ResultsLoadUtility {
         return null;
     }
 
-    private ResultInventory getInventoryForResult(Result result) throws LIMSRuntimeException {
-        List<ResultInventory> inventoryList = resultInventoryService.getResultInventorysByResult(result);
-
-        return inventoryList.size() > 0 ? inventoryList.get(0) : null;
+    private TestResultItemBatch loadBatch(List<Analysis> analysisList) {
+        return TestResultItemBatch.load(analysisList, useTechSignature, supportReferrals, useInitialSampleCondition);
     }
 
     private List<TestResultItem> getGroupedTestsForSamples() {
@@ -540,21 +529,29 @@ public class ResultsLoadUtility {
 
         List<TestResultItem> testList = new ArrayList<>();
 
+        List<List<Analysis>> analysesBySample = new ArrayList<>();
+        List<Analysis> allAnalyses = new ArrayList<>();
         for (Sample sample : samples) {
-            currSample = sample;
-            List<SampleItem> sampleItems = getSampleItemsForSample(sample);
+            List<Analysis> sampleAnalyses = new ArrayList<>();
+            for (SampleItem item : getSampleItemsForSample(sample)) {
+                sampleAnalyses.addAll(getAnalysisForSampleItem(item));
+            }
+            analysesBySample.add(sampleAnalyses);
+            allAnalyses.addAll(sampleAnalyses);
+        }
 
-            for (SampleItem item : sampleItems) {
-                List<Analysis> analysisList = getAnalysisForSampleItem(item);
+        batch = loadBatch(allAnalyses);
 
-                for (Analysis analysis : analysisList) {
+        for (int i = 0; i < samples.size(); i++) {
+            currSample = samples.get(i);
 
-                    List<TestResultItem> selectedItemList = getTestResultItemFromAnalysis(analysis, NO_PATIENT_NAME,
-                            NO_PATIENT_INFO, "");
+            for (Analysis analysis : analysesBySample.get(i)) {
 
-                    for (TestResultItem selectedItem : selectedItemList) {
-                        testList.add(selectedItem);
-                    }
+                List<TestResultItem> selectedItemList = getTestResultItemFromAnalysis(analysis, NO_PATIENT_NAME,
+                        NO_PATIENT_INFO, "");
+
+                for (TestResultItem selectedItem : selectedItemList) {
+                    testList.add(selectedItem);
                 }
             }
         }
@@ -634,7 +631,8 @@ public class ResultsLoadUtility {
 
         String receivedDate = currSample == null ? getCurrentDate() : currSample.getReceivedDateForDisplay();
         String testMethodName = testService.getTestMethodName(test);
-        List<TestResult> testResults = testService.getPossibleTestResults(test);
+        List<TestResult> testResults = batch.getPossibleTestResults(test.getId());
+        List<Result> analysisResults = batch.getResults(analysis);
 
         String testKitId = null;
         String testKitInventoryId = null;
@@ -669,7 +667,7 @@ public class ResultsLoadUtility {
         String referralReasonId = null;
         boolean referralCanceled = false;
         if (supportReferrals) {
-            Referral referral = referralService.getReferralByAnalysisId(analysis.getId());
+            Referral referral = batch.getReferral(analysis);
             if (referral != null) {
                 referralCanceled = referral.isCanceled();
                 referralId = referral.getId();
@@ -707,10 +705,12 @@ public class ResultsLoadUtility {
         testItem.setTestMethod(analysisService.getMethodId(analysis));
         testItem.setResult(result);
         testItem.setResultValue(getFormattedResultValue(result));
-        testItem.setMultiSelectResultValues(analysisService.getJSONMultiSelectResults(analysis));
+        testItem.setMultiSelectResultValues(ResultServiceImpl.getJSONStringForMultiSelect(analysisResults));
         testItem.setAnalysisStatusId(analysisService.getStatusId(analysis));
         // setDictionaryResults must come after setResultType, it may override it
-        testItem.setResultType(testService.getResultType(test));
+        testItem.setResultType(
+                testResults.isEmpty() ? TypeOfTestResultServiceImpl.ResultType.NUMERIC.getCharacterValue()
+                        : testResults.get(0).getTestResultType());
         setDictionaryResults(testItem, isConclusion, result, testResults);
 
         testItem.setTechnician(techSignature);
@@ -732,18 +732,17 @@ public class ResultsLoadUtility {
             testItem.setTechnician(currentUserName);
         }
         testItem.setReflexGroup(analysisService.getTriggeredReflex(analysis));
-        testItem.setChildReflex(
-                analysisService.getTriggeredReflex(analysis) && analysisService.resultIsConclusion(result, analysis));
+        testItem.setChildReflex(analysisService.getTriggeredReflex(analysis)
+                && analysisService.resultIsConclusion(result, analysisResults));
         testItem.setPastNotes(notes);
         testItem.setDisplayResultAsLog(hasLogValue(test));
-        testItem.setNonconforming(
-                analysisService.isParentNonConforming(analysis) || SpringContext.getBean(IStatusService.class)
-                        .matches(analysisService.getStatusId(analysis), AnalysisStatus.TechnicalRejected));
+        testItem.setNonconforming(isParentNonConforming(analysis) || SpringContext.getBean(IStatusService.class)
+                .matches(analysisService.getStatusId(analysis), AnalysisStatus.TechnicalRejected));
         if (FormFields.getInstance().useField(Field.QaEventsBySection)) {
             testItem.setNonconforming(testItem.isNonconforming() || getQaEventByTestSection(analysis));
         }
 
-        Result quantifiedResult = analysisService.getQuantifiedResult(analysis);
+        Result quantifiedResult = analysisService.getQuantifiedResult(analysisResults);
         if (quantifiedResult != null) {
             testItem.setQualifiedResultId(quantifiedResult.getId());
             testItem.setQualifiedResultValue(quantifiedResult.getValue());
@@ -761,6 +760,12 @@ public class ResultsLoadUtility {
         return testItem;
     }
 
+    private boolean isParentNonConforming(Analysis analysis) {
+        SampleItem sampleItem = analysis.getSampleItem();
+        return QAService.isAnalysisParentNonConforming(analysis, batch.getNceSpecimens(sampleItem.getId()),
+                batch.getSampleQaEvents(sampleItem.getSample().getId()));
+    }
+
     private boolean isReadOnly(boolean isConclusion, boolean isCD4Conclusion) {
         return isConclusion || isCD4Conclusion || isLockCurrentResults();
     }
@@ -1010,7 +1015,7 @@ public class ResultsLoadUtility {
 
         if (analysis.getTestSection() != null && analysis.getSampleItem().getSample() != null) {
             Sample sample = analysis.getSampleItem().getSample();
-            List<SampleQaEvent> sampleQaEventsList = getSampleQaEvents(sample);
+            List<SampleQaEvent> sampleQaEventsList = batch.getSampleQaEvents(sample.getId());
             for (SampleQaEvent event : sampleQaEventsList) {
                 QAService qa = new QAService(event);
                 if (!GenericValidator.isBlankOrNull(qa.getObservationValue(QAObservationType.SECTION))
@@ -0,0 +1,199 @@
+package org.openelisglobal.result.action.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.openelisglobal.analysis.valueholder.Analysis;
+import org.openelisglobal.note.service.NoteService;
+import org.openelisglobal.note.service.NoteServiceImpl.NoteType;
+import org.openelisglobal.observationhistory.service.ObservationHistoryService;
+import org.openelisglobal.observationhistory.valueholder.ObservationHistory;
+import org.openelisglobal.patient.service.PatientService;
+import org.openelisglobal.patient.valueholder.Patient;
+import org.openelisglobal.qaevent.service.NceSpecimenService;
+import org.openelisglobal.qaevent.valueholder.NceSpecimen;
+import org.openelisglobal.referral.service.ReferralService;
+import org.openelisglobal.referral.valueholder.Referral;
+import org.openelisglobal.result.service.ResultInventoryService;
+import org.openelisglobal.result.service.ResultService;
+import org.openelisglobal.result.service.ResultSignatureService;
+import org.openelisglobal.result.valueholder.Result;
+import org.openelisglobal.result.valueholder.ResultInventory;
+import org.openelisglobal.result.valueholder.ResultSignature;
+import org.openelisglobal.samplehuman.service.SampleHumanService;
+import org.openelisglobal.sampleqaevent.service.SampleQaEventService;
+import org.openelisglobal.sampleqaevent.valueholder.SampleQaEvent;
+import org.openelisglobal.spring.util.SpringContext;
+import org.openelisglobal.testresult.service.TestResultService;
+import org.openelisglobal.testresult.valueholder.TestResult;
+
+/**
+ * Everything ResultsLoadUtility needs to build the TestResultItems for a list
+ * of analyses, loaded with one IN-list query per kind of object rather than a
+ * set of queries per analysis. The number of queries is fixed regardless of
+ * the number of analyses.
+ */
+final class TestResultItemBatch {
+
+    private static final NoteType[] NOTE_TYPES = { NoteType.EXTERNAL, NoteType.INTERNAL,
+            NoteType.REJECTION_REASON, NoteType.NON_CONFORMITY };
+
+    private final Map<String, Patient> patientsBySampleId;
+    private final Map<String, String> nationalIdsByPatientId;
+    private final Map<String, List<Result>> resultsByAnalysisId = new HashMap<>();
+    private final Map<String, List<ResultSignature>> signaturesByResultId = new HashMap<>();
+    private final Map<String, ResultInventory> inventoryByResultId = new HashMap<>();
+    private final Map<String, String> notesByAnalysisId;
+    private final Map<String, Referral> referralsByAnalysisId = new HashMap<>();
+    private final Map<String, List<TestResult>> testResultsByTestId = new HashMap<>();
+    private final Map<String, List<ObservationHistory>> observationsBySampleItemId = new HashMap<>();
+    private final Map<String, List<SampleQaEvent>> sampleQaEventsBySampleId = new HashMap<>();
+    private final Map<String, List<NceSpecimen>> nceSpecimensBySampleItemId = new HashMap<>();
+
+    private TestResultItemBatch(List<Analysis> analyses, boolean loadSignatures, boolean loadReferrals,
+            boolean loadSampleConditions) {
+        Set<String> analysisIds = new LinkedHashSet<>();
+        Set<String> sampleItemIds = new LinkedHashSet<>();
+        Set<String> sampleIds = new LinkedHashSet<>();
+        Set<String> testIds = new LinkedHashSet<>();
+        for (Analysis analysis : analyses) {
+            analysisIds.add(analysis.getId());
+            sampleItemIds.add(analysis.getSampleItem().getId());
+            sampleIds.add(analysis.getSampleItem().getSample().getId());
+            if (analysis.getTest() != null) {
+                testIds.add(analysis.getTest().getId());
+            }
+        }
+
+        patientsBySampleId = SpringContext.getBean(SampleHumanService.class)
+                .getPatientsForSamples(new ArrayList<>(sampleIds));
+        nationalIdsByPatientId = SpringContext.getBean(PatientService.class)
+                .getNationalIds(patientsBySampleId.values());
+
+        List<String> resultIds = new ArrayList<>();
+        List<Result> results = SpringContext.getBean(ResultService.class)
+                .getResultsByAnalysisIds(new ArrayList<>(analysisIds));
+        for (Result result : results) {
+            resultsByAnalysisId.computeIfAbsent(result.getAnalysis().getId(), k -> new ArrayList<>()).add(result);
+            resultIds.add(result.getId());
+        }
+
+        if (loadSignatures) {
+            for (ResultSignature signature : SpringContext.getBean(ResultSignatureService.class)
+                    .getResultSignaturesByResults(results)) {
+                signaturesByResultId.computeIfAbsent(signature.getResultId(), k -> new ArrayList<>())
+                        .add(signature);
+            }
+        }
+
+        for (ResultInventory inventory : SpringContext.getBean(ResultInventoryService.class)
+                .getResultInventorysByResultIds(resultIds)) {
+            inventoryByResultId.putIfAbsent(inventory.getResultId(), inventory);
+        }
+
+        notesByAnalysisId = SpringContext.getBean(NoteService.class).getNotesAsStringForAnalyses(analyses, true, true,
+                "<br/>", NOTE_TYPES, false);
+
+        if (loadReferrals) {
+            // getReferralByAnalysisId only answers when there is a single referral
+            Map<String, List<Referral>> referralLists = new HashMap<>();
+            for (Referral referral : SpringContext.getBean(ReferralService.class)
+                    .getReferralsByAnalysisIds(new ArrayList<>(analysisIds))) {
+                referralLists.computeIfAbsent(referral.getAnalysis().getId(), k -> new ArrayList<>()).add(referral);
+            }
+            for (Map.Entry<String, List<Referral>> entry : referralLists.entrySet()) {
+                if (entry.getValue().size() == 1) {
+                    referralsByAnalysisId.put(entry.getKey(), entry.getValue().get(0));
+                }
+            }
+        }
+
+        for (TestResult testResult : SpringContext.getBean(TestResultService.class)
+                .getAllActiveTestResultsForTests(new ArrayList<>(testIds))) {
+            testResultsByTestId.computeIfAbsent(testResult.getTest().getId(), k -> new ArrayList<>())
+                    .add(testResult);
+        }
+
+        if (loadSampleConditions) {
+            for (ObservationHistory observation : SpringContext.getBean(ObservationHistoryService.class)
+                    .getObservationHistoriesBySampleItemIds(new ArrayList<>(sampleItemIds))) {
+                observationsBySampleItemId.computeIfAbsent(observation.getSampleItemId(), k -> new ArrayList<>())
+                        .add(observation);
+            }
+        }
+
+        for (SampleQaEvent event : SpringContext.getBean(SampleQaEventService.class)
+                .getSampleQaEventsBySampleIds(new ArrayList<>(sampleIds))) {
+            sampleQaEventsBySampleId.computeIfAbsent(event.getSample().getId(), k -> new ArrayList<>()).add(event);
+        }
+
+        for (NceSpecimen specimen : SpringContext.getBean(NceSpecimenService.class)
+                .getSpecimenBySampleItemIds(new ArrayList<>(sampleItemIds))) {
+            nceSpecimensBySampleItemId
+                    .computeIfAbsent(String.valueOf(specimen.getSampleItemId()), k -> new ArrayList<>())
+                    .add(specimen);
+        }
+    }
+
+    static TestResultItemBatch load(List<Analysis> analyses, boolean loadSignatures, boolean loadReferrals,
+            boolean loadSampleConditions) {
+        return new TestResultItemBatch(analyses, loadSignatures, loadReferrals, loadSampleConditions);
+    }
+
+    Patient getPatient(String sampleId) {
+        return patientsBySampleId.get(sampleId);
+    }
+
+    String getNationalId(Patient patient) {
+        return patient == null ? "" : nationalIdsByPatientId.getOrDefault(patient.getId(), "");
+    }
+
+    /*
+     * A new list is returned each time, callers are free to modify it
+     */
+    List<Result> getResults(Analysis analysis) {
+        return new ArrayList<>(resultsByAnalysisId.getOrDefault(analysis.getId(), Collections.emptyList()));
+    }
+
+    List<ResultSignature> getSignatures(List<Result> results) {
+        List<ResultSignature> signatures = new ArrayList<>();
+        for (Result result : results) {
+            if (result != null) {
+                signatures.addAll(signaturesByResultId.getOrDefault(result.getId(), Collections.emptyList()));
+            }
+        }
+        return signatures;
+    }
+
+    ResultInventory getInventory(Result result) {
+        return inventoryByResultId.get(result.getId());
+    }
+
+    String getNotes(Analysis analysis) {
+        return notesByAnalysisId.get(analysis.getId());
+    }
+
+    Referral getReferral(Analysis analysis) {
+        return referralsByAnalysisId.get(analysis.getId());
+    }
+
+    List<TestResult> getPossibleTestResults(String testId) {
+        return new ArrayList<>(testResultsByTestId.getOrDefault(testId, Collections.emptyList()));
+    }
+
+    List<ObservationHistory> getObservations(String sampleItemId) {
+        return observationsBySampleItemId.getOrDefault(sampleItemId, Collections.emptyList());
+    }
+
+    List<SampleQaEvent> getSampleQaEvents(String sampleId) {
+        return sampleQaEventsBySampleId.getOrDefault(sampleId, Collections.emptyList());
+    }
+
+    List<NceSpecimen> getNceSpecimens(String sampleItemId) {
+        return nceSpecimensBySampleItemId.getOrDefault(sampleItemId, Collections.emptyList());
+    }
+}
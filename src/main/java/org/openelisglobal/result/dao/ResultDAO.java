@@ -77,4 +77,8 @@ public interface ResultDAO extends BaseDAO<Result, String> {
 
     List<Result> getResultsForTestSectionInDateRange(String testSectionId, Date lowDate, Date highDate)
             throws LIMSRuntimeException;
+
+    List<Result> getResultsForSampleIds(List<String> sampleIds) throws LIMSRuntimeException;
+
+    List<Result> getResultsByAnalysisIds(List<String> analysisIds) throws LIMSRuntimeException;
 }
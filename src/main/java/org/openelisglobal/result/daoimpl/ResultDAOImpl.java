@@ -17,7 +17,9 @@ package org.openelisglobal.result.daoimpl;
 
 import java.lang.reflect.InvocationTargetException;
 import java.sql.Date;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
@@ -424,4 +426,41 @@ public class ResultDAOImpl extends BaseDAOImpl<Result, String> implements Result
         }
         return null;
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Result> getResultsForSampleIds(List<String> sampleIds) throws LIMSRuntimeException {
+        if (sampleIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "From Result r join fetch r.analysis a join fetch a.sampleItem si where si.sample.id in"
+                + " (:sampleIds)";
+        try {
+            Query<Result> query = entityManager.unwrap(Session.class).createQuery(sql, Result.class);
+            query.setParameterList("sampleIds",
+                    sampleIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getResultsForSampleIds");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Result> getResultsByAnalysisIds(List<String> analysisIds) throws LIMSRuntimeException {
+        if (analysisIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "from Result r where r.analysis.id in (:analysisIds) order by r.id";
+        try {
+            Query<Result> query = entityManager.unwrap(Session.class).createQuery(sql, Result.class);
+            query.setParameterList("analysisIds",
+                    analysisIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getResultsByAnalysisIds");
+        }
+        return new ArrayList<>();
+    }
 }
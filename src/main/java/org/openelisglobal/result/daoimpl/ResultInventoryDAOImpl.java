@@ -16,8 +16,11 @@
 package org.openelisglobal.result.daoimpl;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.apache.commons.beanutils.PropertyUtils;
+import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 import org.openelisglobal.common.daoimpl.BaseDAOImpl;
@@ -90,6 +93,24 @@ public class ResultInventoryDAOImpl extends BaseDAOImpl<ResultInventory, String>
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<ResultInventory> getResultInventorysByResultIds(List<String> resultIds) throws LIMSRuntimeException {
+        if (resultIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "from ResultInventory r where r.resultId in (:resultIds)";
+        try {
+            Query<ResultInventory> query = entityManager.unwrap(Session.class).createQuery(sql, ResultInventory.class);
+            query.setParameterList("resultIds",
+                    resultIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getResultInventorysByResultIds");
+        }
+        return new ArrayList<>();
+    }
+
     public ResultInventory readResultInventory(String idString) {
         ResultInventory data = null;
         try {
@@ -13,4 +13,6 @@ public interface ResultInventoryService extends BaseObjectService<ResultInventor
     List<ResultInventory> getAllResultInventoryss();
 
     List<ResultInventory> getResultInventorysByResult(Result result);
+
+    List<ResultInventory> getResultInventorysByResultIds(List<String> resultIds);
 }
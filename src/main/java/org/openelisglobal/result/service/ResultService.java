@@ -73,4 +73,8 @@ public interface ResultService extends BaseObjectService<Result, String> {
     String getResultValueForDisplay(Result result, String string, boolean b, boolean c);
 
     String getUOM(Result result);
+
+    List<Result> getResultsForSampleIds(List<String> sampleIds);
+
+    List<Result> getResultsByAnalysisIds(List<String> analysisIds);
 }
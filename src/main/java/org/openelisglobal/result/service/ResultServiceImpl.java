@@ -691,4 +691,16 @@ public class ResultServiceImpl extends AuditableBaseObjectServiceImpl<Result, St
     public List<Result> getPageOfResults(int startingRecNo) {
         return getBaseObjectDAO().getPageOfResults(startingRecNo);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Result> getResultsForSampleIds(List<String> sampleIds) {
+        return getBaseObjectDAO().getResultsForSampleIds(sampleIds);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Result> getResultsByAnalysisIds(List<String> analysisIds) {
+        return getBaseObjectDAO().getResultsByAnalysisIds(analysisIds);
+    }
 }
@@ -0,0 +1,156 @@
+package org.openelisglobal.resultlimit.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import org.apache.commons.validator.GenericValidator;
+import org.openelisglobal.resultlimits.valueholder.ResultLimit;
+
+/**
+ * The result limits of a single test, compiled so that finding the limit for a
+ * patient doesn't need to scan the limits. Every lookup gives the same answer
+ * as scanning the limits in their original order and taking the first match.
+ */
+class ResultLimitIndex {
+
+    private final boolean empty;
+    private final ResultLimit defaultLimit;
+    private final AgeIndex noGenderAgeIndex;
+    private final AgeIndex anyGenderAgeIndex;
+    private final Map<String, GenderBucket> genderBuckets = new HashMap<>();
+
+    ResultLimitIndex(List<ResultLimit> resultLimits) {
+        List<ResultLimit> limits = resultLimits == null ? Collections.emptyList() : new ArrayList<>(resultLimits);
+        empty = limits.isEmpty();
+        defaultLimit = first(limits,
+                limit -> GenericValidator.isBlankOrNull(limit.getGender()) && limit.ageLimitsAreDefault());
+        noGenderAgeIndex = new AgeIndex(limits,
+                limit -> GenericValidator.isBlankOrNull(limit.getGender()) && !limit.ageLimitsAreDefault());
+        anyGenderAgeIndex = new AgeIndex(limits, limit -> !limit.ageLimitsAreDefault());
+        for (ResultLimit limit : limits) {
+            if (!GenericValidator.isBlankOrNull(limit.getGender())) {
+                genderBuckets.computeIfAbsent(limit.getGender(), gender -> new GenderBucket(limits, gender));
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return empty;
+    }
+
+    ResultLimit getDefaultLimit() {
+        return defaultLimit == null ? new ResultLimit() : defaultLimit;
+    }
+
+    ResultLimit getLimitForAge(double ageInDays) {
+        // First we look for a limit with no gender, if none is found then drop the no
+        // gender requirement
+        ResultLimit limit = noGenderAgeIndex.find(ageInDays);
+        if (limit == null) {
+            limit = anyGenderAgeIndex.find(ageInDays);
+        }
+        return limit == null ? getDefaultLimit() : limit;
+    }
+
+    ResultLimit getLimitForGender(String gender) {
+        GenderBucket bucket = genderBuckets.get(gender);
+        return bucket == null || bucket.genderLimit == null ? getDefaultLimit() : bucket.genderLimit;
+    }
+
+    ResultLimit getLimitForAgeAndGender(double ageInDays, String gender) {
+        GenderBucket bucket = genderBuckets.get(gender);
+        if (bucket == null) {
+            // no limits for this gender, so only age can matter
+            ResultLimit limit = anyGenderAgeIndex.find(ageInDays);
+            return limit == null ? getDefaultLimit() : limit;
+        }
+        // first age and gender matter, then only age from the limits not specific to
+        // this gender, then only gender
+        ResultLimit limit = bucket.genderAgeIndex.find(ageInDays);
+        if (limit == null) {
+            limit = bucket.otherAgeIndex.find(ageInDays);
+        }
+        if (limit == null) {
+            limit = bucket.genderNoAgeLimit;
+        }
+        return limit == null ? getDefaultLimit() : limit;
+    }
+
+    private static ResultLimit first(List<ResultLimit> limits, Predicate<ResultLimit> filter) {
+        for (ResultLimit limit : limits) {
+            if (filter.test(limit)) {
+                return limit;
+            }
+        }
+        return null;
+    }
+
+    private static class GenderBucket {
+        // first limit with this gender and no age limits
+        private final ResultLimit genderNoAgeLimit;
+        // first limit with this gender, preferring ones with no age limits
+        private final ResultLimit genderLimit;
+        private final AgeIndex genderAgeIndex;
+        private final AgeIndex otherAgeIndex;
+
+        private GenderBucket(List<ResultLimit> limits, String gender) {
+            genderNoAgeLimit = first(limits, e -> e.ageLimitsAreDefault() && gender.equals(e.getGender()));
+            genderLimit = genderNoAgeLimit != null ? genderNoAgeLimit
+                    : first(limits, e -> gender.equals(e.getGender()));
+            genderAgeIndex = new AgeIndex(limits, e -> gender.equals(e.getGender()) && !e.ageLimitsAreDefault());
+            otherAgeIndex = new AgeIndex(limits, e -> !gender.equals(e.getGender()) && !e.ageLimitsAreDefault());
+        }
+    }
+
+    /*
+     * The age ranges are inclusive and may overlap, so the distinct range
+     * boundaries split the age axis into the boundary points themselves and the
+     * open gaps between them. The first matching limit is worked out for each of
+     * those once, leaving a binary search over the boundaries per lookup.
+     */
+    private static class AgeIndex {
+        private final double[] boundaries;
+        // match at boundaries[i]
+        private final ResultLimit[] atBoundary;
+        // match strictly between boundaries[i] and boundaries[i + 1]
+        private final ResultLimit[] afterBoundary;
+
+        private AgeIndex(List<ResultLimit> limits, Predicate<ResultLimit> filter) {
+            List<ResultLimit> ageLimits = new ArrayList<>();
+            TreeSet<Double> points = new TreeSet<>();
+            for (ResultLimit limit : limits) {
+                if (filter.test(limit)) {
+                    ageLimits.add(limit);
+                    points.add(limit.getMinAge());
+                    points.add(limit.getMaxAge());
+                }
+            }
+            boundaries = points.stream().mapToDouble(Double::doubleValue).toArray();
+            atBoundary = new ResultLimit[boundaries.length];
+            afterBoundary = new ResultLimit[boundaries.length];
+            for (int i = 0; i < boundaries.length; ++i) {
+                double point = boundaries[i];
+                atBoundary[i] = first(ageLimits, limit -> limit.getMinAge() <= point && point <= limit.getMaxAge());
+                if (i + 1 < boundaries.length) {
+                    double next = boundaries[i + 1];
+                    afterBoundary[i] = first(ageLimits,
+                            limit -> limit.getMinAge() <= point && next <= limit.getMaxAge());
+                }
+            }
+        }
+
+        private ResultLimit find(double age) {
+            int index = Arrays.binarySearch(boundaries, age);
+            if (index >= 0) {
+                return atBoundary[index];
+            }
+            int before = -index - 2;
+            return before < 0 ? null : afterBoundary[before];
+        }
+    }
+}
@@ -3,16 +3,18 @@ package org.openelisglobal.resultlimit.service;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.PostConstruct;
 import org.apache.commons.validator.GenericValidator;
 import org.openelisglobal.analysis.valueholder.Analysis;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.util.CacheGeneration;
 import org.openelisglobal.common.util.DateUtil;
 import org.openelisglobal.common.util.IdValuePair;
 import org.openelisglobal.common.util.StringUtil;
@@ -53,6 +55,10 @@ public class ResultLimitServiceImpl extends AuditableBaseObjectServiceImpl<Resul
     @Autowired
     private SampleHumanService sampleHumanService;
 
+    // compiled limits by test id, built on first use
+    private final Map<String, ResultLimitIndex> resultLimitIndexes = new ConcurrentHashMap<>();
+    private final CacheGeneration resultLimitGeneration = new CacheGeneration();
+
     @PostConstruct
     public void initializeGlobalVariables() {
         NUMERIC_RESULT_TYPE_ID = typeOfTestResultService.getTypeOfTestResultByType("N").getId();
@@ -78,138 +84,71 @@ public class ResultLimitServiceImpl extends AuditableBaseObjectServiceImpl<Resul
     @Override
     @Transactional(readOnly = true)
     public ResultLimit getResultLimitForTestAndPatient(String testId, Patient patient) {
-        List<ResultLimit> resultLimits = getResultLimits(testId);
+        ResultLimitIndex resultLimitIndex = getResultLimitIndex(testId);
 
-        if (resultLimits.isEmpty()) {
+        if (resultLimitIndex.isEmpty()) {
             return null;
         } else if (patient == null
                 || patient.getBirthDate() == null && GenericValidator.isBlankOrNull(patient.getGender())) {
-            return defaultResultLimit(resultLimits);
+            return resultLimitIndex.getDefaultLimit();
         } else if (GenericValidator.isBlankOrNull(patient.getGender())) {
-            return ageBasedResultLimit(resultLimits, patient);
+            return resultLimitIndex.getLimitForAge(getCurrPatientAge(patient));
         } else if (patient.getBirthDate() == null) {
-            return genderBasedResultLimit(resultLimits, patient);
+            return resultLimitIndex.getLimitForGender(patient.getGender());
         } else {
-            return ageAndGenderBasedResultLimit(resultLimits, patient);
+            return resultLimitIndex.getLimitForAgeAndGender(getCurrPatientAge(patient), patient.getGender());
         }
     }
 
-    private ResultLimit defaultResultLimit(List<ResultLimit> resultLimits) {
-
-        for (ResultLimit limit : resultLimits) {
-            if (GenericValidator.isBlankOrNull(limit.getGender()) && limit.ageLimitsAreDefault()) {
-                return limit;
-            }
+    private ResultLimitIndex getResultLimitIndex(String testId) {
+        if (GenericValidator.isBlankOrNull(testId)) {
+            return new ResultLimitIndex(null);
         }
-        return new ResultLimit();
-    }
-
-    private ResultLimit ageBasedResultLimit(List<ResultLimit> resultLimits, Patient patient) {
-
-        ResultLimit resultLimit = null;
-
-        // First we look for a limit with no gender
-        for (ResultLimit limit : resultLimits) {
-            if (GenericValidator.isBlankOrNull(limit.getGender()) && !limit.ageLimitsAreDefault()
-                    && getCurrPatientAge(patient) >= limit.getMinAge()
-                    && getCurrPatientAge(patient) <= limit.getMaxAge()) {
-
-                resultLimit = limit;
-                break;
-            }
+        ResultLimitIndex resultLimitIndex = resultLimitIndexes.get(testId);
+        if (resultLimitIndex == null) {
+            long generation = resultLimitGeneration.current();
+            ResultLimitIndex builtIndex = new ResultLimitIndex(getResultLimits(testId));
+            resultLimitGeneration.publishIfCurrent(generation,
+                    () -> resultLimitIndexes.putIfAbsent(testId, builtIndex));
+            resultLimitIndex = builtIndex;
         }
-
-        // if none is found then drop the no gender requirement
-        if (resultLimit == null) {
-            for (ResultLimit limit : resultLimits) {
-                if (!limit.ageLimitsAreDefault() && getCurrPatientAge(patient) >= limit.getMinAge()
-                        && getCurrPatientAge(patient) <= limit.getMaxAge()) {
-
-                    resultLimit = limit;
-                    break;
-                }
-            }
-        }
-
-        return resultLimit == null ? defaultResultLimit(resultLimits) : resultLimit;
+        return resultLimitIndex;
     }
 
-    private ResultLimit genderBasedResultLimit(List<ResultLimit> resultLimits, Patient patient) {
-
-        ResultLimit resultLimit = null;
-
-        // First we look for a limit with no age
-        for (ResultLimit limit : resultLimits) {
-            if (limit.ageLimitsAreDefault() && patient.getGender().equals(limit.getGender())) {
-
-                resultLimit = limit;
-                break;
-            }
-        }
-
-        // drop the age limit
-        if (resultLimit == null) {
-            for (ResultLimit limit : resultLimits) {
-                if (patient.getGender().equals(limit.getGender())) {
-                    resultLimit = limit;
-                    break;
-                }
-            }
-        }
-        return resultLimit == null ? defaultResultLimit(resultLimits) : resultLimit;
+    @Override
+    public void refreshResultLimits() {
+        resultLimitGeneration.invalidate(resultLimitIndexes::clear);
     }
 
-    /*
-     * We only get here if patient has age and gender
-     */
-    private ResultLimit ageAndGenderBasedResultLimit(List<ResultLimit> resultLimits, Patient patient) {
-
-        ResultLimit resultLimit = null;
-
-        List<ResultLimit> fullySpecifiedLimits = new ArrayList<>();
-        // first age and gender matter
-        for (ResultLimit limit : resultLimits) {
-            if (patient.getGender().equals(limit.getGender()) && !limit.ageLimitsAreDefault()) {
-
-                // if fully qualified don't retest for only part of the
-                // qualification
-                fullySpecifiedLimits.add(limit);
-
-                if (patientInAgeRange(patient, limit)) {
-
-                    resultLimit = limit;
-                    break;
-                }
-            }
+    private void invalidateResultLimitIndex(String testId) {
+        if (!GenericValidator.isBlankOrNull(testId)) {
+            resultLimitGeneration.invalidate(() -> resultLimitIndexes.remove(testId));
         }
+    }
 
-        resultLimits.removeAll(fullySpecifiedLimits);
-
-        // second only age matters
-        if (resultLimit == null) {
-            for (ResultLimit limit : resultLimits) {
-                if (!limit.ageLimitsAreDefault() && patientInAgeRange(patient, limit)) {
-
-                    resultLimit = limit;
-                    break;
-                }
-            }
-        }
+    @Override
+    @Transactional
+    public String insert(ResultLimit resultLimit) {
+        invalidateResultLimitIndex(resultLimit.getTestId());
+        return super.insert(resultLimit);
+    }
 
-        // third only gender matters
-        return resultLimit == null ? genderBasedResultLimit(resultLimits, patient) : resultLimit;
+    @Override
+    @Transactional
+    protected ResultLimit update(ResultLimit resultLimit, String auditTrailType) {
+        invalidateResultLimitIndex(resultLimit.getTestId());
+        return super.update(resultLimit, auditTrailType);
     }
 
-    private boolean patientInAgeRange(Patient patient, ResultLimit limit) {
-        return getCurrPatientAge(patient) >= limit.getMinAge() && getCurrPatientAge(patient) <= limit.getMaxAge();
+    @Override
+    @Transactional
+    public void delete(ResultLimit resultLimit) {
+        invalidateResultLimitIndex(resultLimit.getTestId());
+        super.delete(resultLimit);
     }
 
     private double getCurrPatientAge(Patient patient) {
         if (patient.getBirthDate() != null) {
-
-            Calendar dob = Calendar.getInstance();
-            dob.setTime(patient.getBirthDate());
-
             return DateUtil.getAgeInDays(patient.getBirthDate(), new Date());
         }
 
@@ -86,4 +86,8 @@ public interface SampleDAO extends BaseDAO<Sample, String> {
             LocalDate upperDate);
 
     List<Sample> getSamplesByPriority(OrderPriority priority) throws LIMSRuntimeException;
+
+    List<String> getSampleIdsAfter(String lastSampleId, boolean missingFhirUuidOnly, int limit);
+
+    List<Sample> getSamplesByIds(List<String> sampleIds);
 }
@@ -87,11 +87,20 @@ public class DBSearchResultsDAOImpl implements SearchResultsDAO {
     }
 
     @Override
-    @SuppressWarnings("rawtypes")
     @Transactional
     public List<PatientSearchResults> getSearchResults(String lastName, String firstName, String STNumber,
             String subjectNumber, String nationalID, String externalID, String patientID, String guid,
             String dateOfBirth, String gender) throws LIMSRuntimeException {
+        return getSearchResults(lastName, firstName, STNumber, subjectNumber, nationalID, externalID, patientID, guid,
+                dateOfBirth, gender, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    @Transactional
+    public List<PatientSearchResults> getSearchResults(String lastName, String firstName, String STNumber,
+            String subjectNumber, String nationalID, String externalID, String patientID, String guid,
+            String dateOfBirth, String gender, int offset, int limit) throws LIMSRuntimeException {
 
         List queryResults;
 
@@ -167,6 +176,8 @@ public class DBSearchResultsDAOImpl implements SearchResultsDAO {
             LogEvent.logTrace(this.getClass().getSimpleName(), "getSearchResults",
                     "SearchResultsDAOImp:getSearchResults:query: " + query.getQueryString());
 
+            query.setFirstResult(offset);
+            query.setMaxResults(limit);
             queryResults = query.list();
         } catch (RuntimeException e) {
             LogEvent.logError(e);
@@ -188,11 +199,20 @@ public class DBSearchResultsDAOImpl implements SearchResultsDAO {
     }
 
     @Override
-    @SuppressWarnings("rawtypes")
     @Transactional
     public List<PatientSearchResults> getSearchResultsExact(String lastName, String firstName, String STNumber,
             String subjectNumber, String nationalID, String externalID, String patientID, String guid,
             String dateOfBirth, String gender) throws LIMSRuntimeException {
+        return getSearchResultsExact(lastName, firstName, STNumber, subjectNumber, nationalID, externalID, patientID,
+                guid, dateOfBirth, gender, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    @Transactional
+    public List<PatientSearchResults> getSearchResultsExact(String lastName, String firstName, String STNumber,
+            String subjectNumber, String nationalID, String externalID, String patientID, String guid,
+            String dateOfBirth, String gender, int offset, int limit) throws LIMSRuntimeException {
 
         List queryResults;
 
@@ -252,6 +272,8 @@ public class DBSearchResultsDAOImpl implements SearchResultsDAO {
             if (queryGender) {
                 query.setParameter(GENDER, gender);
             }
+            query.setFirstResult(offset);
+            query.setMaxResults(limit);
             queryResults = query.list();
         } catch (RuntimeException e) {
             LogEvent.logError(e);
@@ -385,6 +407,8 @@ public class DBSearchResultsDAOImpl implements SearchResultsDAO {
         } else if (lastOrIndex > lastAndIndex) {
             queryBuilder.delete(lastOrIndex, queryBuilder.length());
         }
+        // so the results can be paged
+        queryBuilder.append(" order by p.id");
 
         return queryBuilder.toString();
     }
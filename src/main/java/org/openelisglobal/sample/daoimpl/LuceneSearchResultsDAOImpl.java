@@ -3,20 +3,24 @@ package org.openelisglobal.sample.daoimpl;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.transaction.Transactional;
 import org.apache.commons.validator.GenericValidator;
-import org.hibernate.Session;
-import org.hibernate.query.Query;
+import org.hibernate.search.engine.search.predicate.dsl.BooleanPredicateClausesStep;
+import org.hibernate.search.engine.search.predicate.dsl.MatchPredicateOptionsStep;
+import org.hibernate.search.engine.search.predicate.dsl.PredicateFinalStep;
+import org.hibernate.search.engine.search.predicate.dsl.SearchPredicateFactory;
+import org.hibernate.search.engine.search.query.SearchQuery;
 import org.hibernate.search.mapper.orm.Search;
 import org.hibernate.search.mapper.orm.session.SearchSession;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
+import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.provider.query.PatientSearchResults;
+import org.openelisglobal.hibernate.search.bridge.PatientIdentityBinder;
 import org.openelisglobal.patient.valueholder.Patient;
-import org.openelisglobal.patientidentitytype.util.PatientIdentityTypeMap;
 import org.openelisglobal.sample.dao.SearchResultsDAO;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -25,80 +29,26 @@ public class LuceneSearchResultsDAOImpl implements SearchResultsDAO {
     @PersistenceContext
     EntityManager entityManager;
 
+    // the most relevant hits returned when no limit is given
+    @Value("${org.openelisglobal.patient.search.maxResults:100}")
+    private int maxResults;
+
     @Override
     @Transactional
     public List<PatientSearchResults> getSearchResults(String lastName, String firstName, String STNumber,
             String subjectNumber, String nationalID, String externalID, String patientID, String guid,
             String dateOfBirth, String gender) throws LIMSRuntimeException {
+        return getSearchResults(lastName, firstName, STNumber, subjectNumber, nationalID, externalID, patientID, guid,
+                dateOfBirth, gender, 0, maxResults);
+    }
 
-        SearchSession searchSession = Search.session(entityManager);
-
-        List<String> hits = searchSession.search(Patient.class).select(f -> f.id(String.class)).where(f -> f.bool(b -> {
-            if (!GenericValidator.isBlankOrNull(patientID)) {
-                b.must(f.match().field("id").matching(patientID));
-            }
-            if (!GenericValidator.isBlankOrNull(gender)) {
-                b.must(f.match().field("gender").matching(gender));
-            }
-            if (!GenericValidator.isBlankOrNull(dateOfBirth)) {
-                b.must(f.match().field("birthDateForDisplay").matching(dateOfBirth));
-            }
-            if (!GenericValidator.isBlankOrNull(firstName) && !GenericValidator.isBlankOrNull(lastName)) {
-                b.must(f.nested().objectField("person")
-                        .nest(f.bool().must(f.match().field("person.firstName").matching(firstName).fuzzy())
-                                .must(f.match().field("person.lastName").matching(lastName).fuzzy())));
-            } else {
-                if (!GenericValidator.isBlankOrNull(firstName)) {
-                    b.must(f.match().field("person.firstName").matching(firstName).fuzzy());
-                }
-                if (!GenericValidator.isBlankOrNull(lastName)) {
-                    b.must(f.match().field("person.lastName").matching(lastName).fuzzy());
-                }
-            }
-        })).fetchAllHits();
-
-        List<Long> longHits = hits.stream().map(Long::parseLong).collect(Collectors.toList());
-        // 'IN' predicate requires the list to contain at least one value
-        longHits.add(-1L);
-
-        String sqlString = buildQueryString(nationalID, externalID, STNumber, subjectNumber, guid);
-        Query query = entityManager.unwrap(Session.class).createNativeQuery(sqlString);
-        query.setParameter(ID_TYPE_FOR_ST, Integer.valueOf(PatientIdentityTypeMap.getInstance().getIDForType("ST")));
-        query.setParameter(ID_TYPE_FOR_SUBJECT_NUMBER,
-                Integer.valueOf(PatientIdentityTypeMap.getInstance().getIDForType("SUBJECT")));
-        query.setParameter(ID_TYPE_FOR_GUID,
-                Integer.valueOf(PatientIdentityTypeMap.getInstance().getIDForType("GUID")));
-
-        if (!GenericValidator.isBlankOrNull(nationalID)) {
-            query.setParameter(NATIONAL_ID_PARAM, nationalID);
-        }
-        if (!GenericValidator.isBlankOrNull(externalID)) {
-            query.setParameter(EXTERNAL_ID_PARAM, nationalID);
-        }
-        if (!GenericValidator.isBlankOrNull(STNumber)) {
-            query.setParameter(ST_NUMBER_PARAM, STNumber);
-        }
-        if (!GenericValidator.isBlankOrNull(subjectNumber)) {
-            query.setParameter(SUBJECT_NUMBER_PARAM, subjectNumber);
-        }
-        if (!GenericValidator.isBlankOrNull(guid)) {
-            query.setParameter(GUID, guid);
-        }
-        query.setParameter("idList", longHits);
-
-        List<Object[]> queryResults = query.list();
-
-        List<PatientSearchResults> patientSearchResultsList = new ArrayList<>();
-
-        for (Object[] tuple : queryResults) {
-
-            PatientSearchResults patientSearchResults = new PatientSearchResults((BigDecimal) tuple[0],
-                    (String) tuple[1], (String) tuple[2], (String) tuple[3], (String) tuple[4], (String) tuple[5],
-                    (String) tuple[6], (String) tuple[7], (String) tuple[8], (String) tuple[9], null);
-            patientSearchResultsList.add(patientSearchResults);
-        }
-
-        return patientSearchResultsList;
+    @Override
+    @Transactional
+    public List<PatientSearchResults> getSearchResults(String lastName, String firstName, String STNumber,
+            String subjectNumber, String nationalID, String externalID, String patientID, String guid,
+            String dateOfBirth, String gender, int offset, int limit) throws LIMSRuntimeException {
+        return search(true, lastName, firstName, STNumber, subjectNumber, nationalID, externalID, patientID, guid,
+                dateOfBirth, gender, offset, limit);
     }
 
     @Override
@@ -116,136 +66,114 @@ public class LuceneSearchResultsDAOImpl implements SearchResultsDAO {
     public List<PatientSearchResults> getSearchResultsExact(String lastName, String firstName, String STNumber,
             String subjectNumber, String nationalID, String externalID, String patientID, String guid,
             String dateOfBirth, String gender) throws LIMSRuntimeException {
+        return getSearchResultsExact(lastName, firstName, STNumber, subjectNumber, nationalID, externalID, patientID,
+                guid, dateOfBirth, gender, 0, maxResults);
+    }
 
-        SearchSession searchSession = Search.session(entityManager);
-
-        List<String> hits = searchSession.search(Patient.class).select(f -> f.id(String.class)).where(f -> f.bool(b -> {
-            if (!GenericValidator.isBlankOrNull(patientID)) {
-                b.must(f.match().field("id").matching(patientID));
-            }
-            if (!GenericValidator.isBlankOrNull(gender)) {
-                b.must(f.match().field("gender").matching(gender));
-            }
-            if (!GenericValidator.isBlankOrNull(dateOfBirth)) {
-                b.must(f.match().field("birthDateForDisplay").matching(dateOfBirth));
-            }
-            if (!GenericValidator.isBlankOrNull(firstName) && !GenericValidator.isBlankOrNull(lastName)) {
-                b.must(f.nested().objectField("person")
-                        .nest(f.bool().must(f.match().field("person.firstName").matching(firstName))
-                                .must(f.match().field("person.lastName").matching(lastName))));
-            } else {
-                if (!GenericValidator.isBlankOrNull(firstName)) {
-                    b.must(f.match().field("person.firstName").matching(firstName));
-                }
-                if (!GenericValidator.isBlankOrNull(lastName)) {
-                    b.must(f.match().field("person.lastName").matching(lastName));
-                }
-            }
-        })).fetchAllHits();
-
-        List<Long> longHits = hits.stream().map(Long::parseLong).collect(Collectors.toList());
-        // 'IN' predicate requires the list to contain at least one value
-        longHits.add(-1L);
-
-        String sqlString = buildQueryString(nationalID, externalID, STNumber, subjectNumber, guid);
-        Query query = entityManager.unwrap(Session.class).createNativeQuery(sqlString);
-        query.setParameter(ID_TYPE_FOR_ST, Integer.valueOf(PatientIdentityTypeMap.getInstance().getIDForType("ST")));
-        query.setParameter(ID_TYPE_FOR_SUBJECT_NUMBER,
-                Integer.valueOf(PatientIdentityTypeMap.getInstance().getIDForType("SUBJECT")));
-        query.setParameter(ID_TYPE_FOR_GUID,
-                Integer.valueOf(PatientIdentityTypeMap.getInstance().getIDForType("GUID")));
-
-        if (!GenericValidator.isBlankOrNull(nationalID)) {
-            query.setParameter(NATIONAL_ID_PARAM, nationalID);
-        }
-        if (!GenericValidator.isBlankOrNull(externalID)) {
-            query.setParameter(EXTERNAL_ID_PARAM, nationalID);
-        }
-        if (!GenericValidator.isBlankOrNull(STNumber)) {
-            query.setParameter(ST_NUMBER_PARAM, STNumber);
-        }
-        if (!GenericValidator.isBlankOrNull(subjectNumber)) {
-            query.setParameter(SUBJECT_NUMBER_PARAM, subjectNumber);
-        }
-        if (!GenericValidator.isBlankOrNull(guid)) {
-            query.setParameter(GUID, guid);
-        }
-        query.setParameter("idList", longHits);
-
-        List<Object[]> queryResults = query.list();
-
-        List<PatientSearchResults> patientSearchResultsList = new ArrayList<>();
-
-        for (Object[] tuple : queryResults) {
+    @Override
+    @Transactional
+    public List<PatientSearchResults> getSearchResultsExact(String lastName, String firstName, String STNumber,
+            String subjectNumber, String nationalID, String externalID, String patientID, String guid,
+            String dateOfBirth, String gender, int offset, int limit) throws LIMSRuntimeException {
+        return search(false, lastName, firstName, STNumber, subjectNumber, nationalID, externalID, patientID, guid,
+                dateOfBirth, gender, offset, limit);
+    }
 
-            PatientSearchResults patientSearchResults = new PatientSearchResults((BigDecimal) tuple[0],
-                    (String) tuple[1], (String) tuple[2], (String) tuple[3], (String) tuple[4], (String) tuple[5],
-                    (String) tuple[6], (String) tuple[7], (String) tuple[8], (String) tuple[9], null);
-            patientSearchResultsList.add(patientSearchResults);
+    /*
+     * Answered from the index alone, every column of the results is projected from
+     * the patient's document. Only the requested page of hits is read, in order of
+     * relevance
+     */
+    private List<PatientSearchResults> search(boolean fuzzy, String lastName, String firstName, String STNumber,
+            String subjectNumber, String nationalID, String externalID, String patientID, String guid,
+            String dateOfBirth, String gender, int offset, int limit) {
+        if (allBlank(lastName, firstName, STNumber, subjectNumber, nationalID, externalID, patientID, guid,
+                dateOfBirth, gender)) {
+            return new ArrayList<>();
+        }
+        try {
+            SearchSession searchSession = Search.session(entityManager);
+            SearchQuery<PatientSearchResults> query = searchSession.search(Patient.class)
+                    .select(f -> f.composite(LuceneSearchResultsDAOImpl::toSearchResults, f.id(String.class),
+                            f.field("person.firstName", String.class), f.field("person.lastName", String.class),
+                            f.field("gender", String.class), f.field("birthDateForDisplay", String.class),
+                            f.field("nationalId", String.class), f.field("externalId", String.class),
+                            f.field(PatientIdentityBinder.ST_NUMBER, String.class),
+                            f.field(PatientIdentityBinder.SUBJECT_NUMBER, String.class),
+                            f.field(PatientIdentityBinder.GUID, String.class)))
+                    .where(f -> f.bool(b -> {
+                        // a patient is found by any one of the identifiers or by all of the
+                        // other details, as the SQL searches do
+                        if (!allBlank(subjectNumber, nationalID, externalID, STNumber)) {
+                            b.should(f.bool(identifiers -> {
+                                addMatch(f, identifiers, PatientIdentityBinder.SUBJECT_NUMBER, subjectNumber);
+                                addMatch(f, identifiers, "nationalId", nationalID);
+                                addMatch(f, identifiers, "externalId", externalID);
+                                addMatch(f, identifiers, PatientIdentityBinder.ST_NUMBER, STNumber);
+                            }));
+                        }
+                        if (!allBlank(lastName, firstName, patientID, guid, dateOfBirth, gender)) {
+                            b.should(f.bool(details -> addDetailMatches(f, details, fuzzy, lastName, firstName,
+                                    patientID, guid, dateOfBirth, gender)));
+                        }
+                    })).toQuery();
+            // callers add to the results
+            return new ArrayList<>(query.fetchHits(offset, limit));
+        } catch (RuntimeException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in LuceneSearchResultsDAOImpl search()", e);
         }
+    }
 
-        return patientSearchResultsList;
+    private static PatientSearchResults toSearchResults(List<?> fields) {
+        return new PatientSearchResults(new BigDecimal((String) fields.get(0)), (String) fields.get(1),
+                (String) fields.get(2), (String) fields.get(3), (String) fields.get(4), (String) fields.get(5),
+                (String) fields.get(6), (String) fields.get(7), (String) fields.get(8), (String) fields.get(9), null);
     }
 
-    private String buildQueryString(String nationalID, String externalID, String STNumber, String subjectNumber,
-            String guid) {
-
-        StringBuilder queryBuilder = new StringBuilder();
-        queryBuilder.append("select p.id, pr.first_name, pr.last_name, p.gender, p.entered_birth_date, p.national_id,"
-                + " p.external_id, pi.identity_data as st, piSN.identity_data as subject,"
-                + " piGUID.identity_data as guid ");
-        queryBuilder.append("from patient p join person pr on p.person_id = pr.id ");
-        queryBuilder.append("left join patient_identity pi on pi.patient_id = p.id and pi.identity_type_id = :");
-        queryBuilder.append(ID_TYPE_FOR_ST).append(" ");
-        queryBuilder.append("left join patient_identity piSN on piSN.patient_id = p.id and piSN.identity_type_id = :");
-        queryBuilder.append(ID_TYPE_FOR_SUBJECT_NUMBER).append(" ");
-        queryBuilder.append(
-                "left join patient_identity piGUID on piGUID.patient_id = p.id and piGUID.identity_type_id" + " = :");
-        queryBuilder.append(ID_TYPE_FOR_GUID).append(" ");
-        queryBuilder.append("where ");
-
-        queryBuilder.append("( false or ");
-        if (!GenericValidator.isBlankOrNull(subjectNumber)) {
-            queryBuilder.append("piSN.identity_data ilike :");
-            queryBuilder.append(SUBJECT_NUMBER_PARAM).append(" or ");
+    private void addDetailMatches(SearchPredicateFactory f, BooleanPredicateClausesStep<?> allOf, boolean fuzzy,
+            String lastName, String firstName, String patientID, String guid, String dateOfBirth, String gender) {
+        if (!GenericValidator.isBlankOrNull(guid)) {
+            allOf.must(f.match().field(PatientIdentityBinder.GUID).matching(guid));
         }
-
-        if (!GenericValidator.isBlankOrNull(nationalID)) {
-            queryBuilder.append("p.national_id ilike :");
-            queryBuilder.append(NATIONAL_ID_PARAM).append(" or ");
+        if (!GenericValidator.isBlankOrNull(patientID)) {
+            allOf.must(f.match().field("id").matching(patientID));
         }
-
-        if (!GenericValidator.isBlankOrNull(externalID)) {
-            queryBuilder.append("p.external_id ilike :");
-            queryBuilder.append(EXTERNAL_ID_PARAM).append(" or ");
+        if (!GenericValidator.isBlankOrNull(gender)) {
+            allOf.must(f.match().field("gender").matching(gender));
         }
-
-        if (!GenericValidator.isBlankOrNull(STNumber)) {
-            queryBuilder.append("pi.identity_data ilike :");
-            queryBuilder.append(ST_NUMBER_PARAM).append(" and ");
+        if (!GenericValidator.isBlankOrNull(dateOfBirth)) {
+            allOf.must(f.match().field("birthDateForDisplay").matching(dateOfBirth));
+        }
+        if (!GenericValidator.isBlankOrNull(firstName) && !GenericValidator.isBlankOrNull(lastName)) {
+            allOf.must(f.nested().objectField("person").nest(f.bool()
+                    .must(matchName(f, "person.firstName", firstName, fuzzy))
+                    .must(matchName(f, "person.lastName", lastName, fuzzy))));
+        } else if (!GenericValidator.isBlankOrNull(firstName)) {
+            allOf.must(f.nested().objectField("person").nest(matchName(f, "person.firstName", firstName, fuzzy)));
+        } else if (!GenericValidator.isBlankOrNull(lastName)) {
+            allOf.must(f.nested().objectField("person").nest(matchName(f, "person.lastName", lastName, fuzzy)));
         }
+    }
 
-        // Need to close paren before dangling AND/OR.
-        int lastAndIndex = queryBuilder.lastIndexOf("and");
-        int lastOrIndex = queryBuilder.lastIndexOf("or");
+    private PredicateFinalStep matchName(SearchPredicateFactory f, String field, String name, boolean fuzzy) {
+        MatchPredicateOptionsStep<?> match = f.match().field(field).matching(name);
+        return fuzzy ? match.fuzzy() : match;
+    }
 
-        if (lastAndIndex > lastOrIndex) {
-            queryBuilder.delete(lastAndIndex, queryBuilder.length());
-            queryBuilder.append(") and ");
-        } else if (lastOrIndex > lastAndIndex) {
-            queryBuilder.delete(lastOrIndex, queryBuilder.length());
-            queryBuilder.append(") or ");
+    private void addMatch(SearchPredicateFactory f, BooleanPredicateClausesStep<?> anyOf, String field,
+            String value) {
+        if (!GenericValidator.isBlankOrNull(value)) {
+            anyOf.should(f.match().field(field).matching(value));
         }
+    }
 
-        if (!GenericValidator.isBlankOrNull(guid)) {
-            queryBuilder.append("piGUID.identity_data = :");
-            queryBuilder.append(GUID).append(" and ");
+    private boolean allBlank(String... values) {
+        for (String value : values) {
+            if (!GenericValidator.isBlankOrNull(value)) {
+                return false;
+            }
         }
-
-        // idList contains patient IDs from Lucene search results matching the fields
-        // id, person.firstName, person.lastName, birthDateForDisplay and gender
-        queryBuilder.append("p.id in :idList");
-
-        return queryBuilder.toString();
+        return true;
     }
 }
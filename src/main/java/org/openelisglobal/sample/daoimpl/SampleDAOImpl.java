@@ -717,4 +717,39 @@ public class SampleDAOImpl extends BaseDAOImpl<Sample, String> implements Sample
 
         return null;
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> getSampleIdsAfter(String lastSampleId, boolean missingFhirUuidOnly, int limit) {
+        String hql = "select s.id from Sample s where s.id > :lastId"
+                + (missingFhirUuidOnly ? " and s.fhirUuid is null" : "") + " order by s.id";
+        try {
+            Query<String> query = entityManager.unwrap(Session.class).createQuery(hql, String.class);
+            query.setParameter("lastId",
+                    GenericValidator.isBlankOrNull(lastSampleId) ? 0 : Integer.parseInt(lastSampleId));
+            query.setMaxResults(limit);
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getSampleIdsAfter");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Sample> getSamplesByIds(List<String> sampleIds) {
+        if (sampleIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String hql = "from Sample s where s.id in (:sampleIds)";
+        try {
+            Query<Sample> query = entityManager.unwrap(Session.class).createQuery(hql, Sample.class);
+            query.setParameterList("sampleIds",
+                    sampleIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getSamplesByIds");
+        }
+        return new ArrayList<>();
+    }
 }
@@ -118,4 +118,8 @@ public interface SampleService extends BaseObjectService<Sample, String> {
             LocalDate upperDate);
 
     List<Sample> getSamplesByPriority(OrderPriority priority);
+
+    List<String> getSampleIdsAfter(String lastSampleId, boolean missingFhirUuidOnly, int limit);
+
+    List<Sample> getSamplesByIds(List<String> sampleIds);
 }
@@ -591,4 +591,16 @@ public class SampleServiceImpl extends AuditableBaseObjectServiceImpl<Sample, St
     public List<Sample> getSamplesByPriority(OrderPriority priority) {
         return sampleDAO.getSamplesByPriority(priority);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> getSampleIdsAfter(String lastSampleId, boolean missingFhirUuidOnly, int limit) {
+        return sampleDAO.getSampleIdsAfter(lastSampleId, missingFhirUuidOnly, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Sample> getSamplesByIds(List<String> sampleIds) {
+        return sampleDAO.getSamplesByIds(sampleIds);
+    }
 }
@@ -14,6 +14,7 @@
 package org.openelisglobal.samplehuman.dao;
 
 import java.util.List;
+import java.util.Map;
 import org.openelisglobal.common.dao.BaseDAO;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.patient.valueholder.Patient;
@@ -50,4 +51,11 @@ public interface SampleHumanDAO extends BaseDAO<SampleHuman, String> {
     public List<Patient> getAllPatientsWithSampleEntered();
 
     public List<Patient> getAllPatientsWithSampleEnteredMissingFhirUuid();
+
+    public List<String> getPatientIdsWithSampleEnteredAfter(String lastPatientId, boolean missingFhirUuidOnly,
+            int limit);
+
+    public Map<String, Patient> getPatientsForSamples(List<String> sampleIds);
+
+    public Map<String, Provider> getProvidersForSamples(List<String> sampleIds);
 }
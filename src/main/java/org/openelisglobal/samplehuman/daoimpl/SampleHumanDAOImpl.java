@@ -17,8 +17,12 @@ package org.openelisglobal.samplehuman.daoimpl;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.commons.validator.GenericValidator;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
@@ -186,4 +190,71 @@ public class SampleHumanDAOImpl extends BaseDAOImpl<SampleHuman, String> impleme
 
         return patients;
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> getPatientIdsWithSampleEnteredAfter(String lastPatientId, boolean missingFhirUuidOnly,
+            int limit) {
+        try {
+            String sql = "select distinct patient.id from Patient as patient, SampleHuman as sampleHuman where"
+                    + " sampleHuman.patientId = patient.id and patient.id > :lastId"
+                    + (missingFhirUuidOnly ? " and patient.fhirUuid is null" : "") + " order by patient.id";
+            Query<String> query = entityManager.unwrap(Session.class).createQuery(sql, String.class);
+            query.setParameter("lastId",
+                    GenericValidator.isBlankOrNull(lastPatientId) ? 0 : Integer.parseInt(lastPatientId));
+            query.setMaxResults(limit);
+            return query.list();
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in SampleHuman getPatientIdsWithSampleEnteredAfter()", e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Patient> getPatientsForSamples(List<String> sampleIds) {
+        Map<String, Patient> patientsBySampleId = new HashMap<>();
+        if (sampleIds.isEmpty()) {
+            return patientsBySampleId;
+        }
+        try {
+            String sql = "select sampleHuman.sampleId, patient from Patient as patient join fetch patient.person,"
+                    + " SampleHuman as sampleHuman where sampleHuman.patientId = patient.id and sampleHuman.sampleId"
+                    + " in (:sampleIds)";
+            Query<Object[]> query = entityManager.unwrap(Session.class).createQuery(sql, Object[].class);
+            query.setParameterList("sampleIds",
+                    sampleIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+            for (Object[] row : query.list()) {
+                patientsBySampleId.put((String) row[0], (Patient) row[1]);
+            }
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in SampleHuman getPatientsForSamples()", e);
+        }
+        return patientsBySampleId;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Provider> getProvidersForSamples(List<String> sampleIds) {
+        Map<String, Provider> providersBySampleId = new HashMap<>();
+        if (sampleIds.isEmpty()) {
+            return providersBySampleId;
+        }
+        try {
+            String sql = "select sampleHuman.sampleId, provider from Provider as provider, SampleHuman as"
+                    + " sampleHuman where sampleHuman.providerId = provider.id and sampleHuman.sampleId in"
+                    + " (:sampleIds)";
+            Query<Object[]> query = entityManager.unwrap(Session.class).createQuery(sql, Object[].class);
+            query.setParameterList("sampleIds",
+                    sampleIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+            for (Object[] row : query.list()) {
+                providersBySampleId.put((String) row[0], (Provider) row[1]);
+            }
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in SampleHuman getProvidersForSamples()", e);
+        }
+        return providersBySampleId;
+    }
 }
@@ -1,6 +1,7 @@
 package org.openelisglobal.samplehuman.service;
 
 import java.util.List;
+import java.util.Map;
 import org.openelisglobal.common.service.BaseObjectService;
 import org.openelisglobal.patient.valueholder.Patient;
 import org.openelisglobal.provider.valueholder.Provider;
@@ -21,4 +22,10 @@ public interface SampleHumanService extends BaseObjectService<SampleHuman, Strin
     List<Patient> getAllPatientsWithSampleEntered();
 
     List<Patient> getAllPatientsWithSampleEnteredMissingFhirUuid();
+
+    List<String> getPatientIdsWithSampleEnteredAfter(String lastPatientId, boolean missingFhirUuidOnly, int limit);
+
+    Map<String, Patient> getPatientsForSamples(List<String> sampleIds);
+
+    Map<String, Provider> getProvidersForSamples(List<String> sampleIds);
 }
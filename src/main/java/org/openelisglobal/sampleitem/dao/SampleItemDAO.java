@@ -54,4 +54,6 @@ public interface SampleItemDAO extends BaseDAO<SampleItem, String> {
             throws LIMSRuntimeException;
 
     public SampleItem getData(String sampleItemId) throws LIMSRuntimeException;
+
+    public List<SampleItem> getSampleItemsBySampleIds(List<String> sampleIds) throws LIMSRuntimeException;
 }
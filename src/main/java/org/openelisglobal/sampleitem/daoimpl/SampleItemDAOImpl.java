@@ -19,6 +19,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
@@ -228,4 +229,23 @@ public class SampleItemDAOImpl extends BaseDAOImpl<SampleItem, String> implement
 
         return null;
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SampleItem> getSampleItemsBySampleIds(List<String> sampleIds) throws LIMSRuntimeException {
+        if (sampleIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            String sql = "from SampleItem sampleItem where sampleItem.sample.id in (:sampleIds) order by"
+                    + " sampleItem.sample.id, sampleItem.sortOrder";
+            Query<SampleItem> query = entityManager.unwrap(Session.class).createQuery(sql, SampleItem.class);
+            query.setParameterList("sampleIds",
+                    sampleIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+            return query.list();
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in SampleItem getSampleItemsBySampleIds()", e);
+        }
+    }
 }
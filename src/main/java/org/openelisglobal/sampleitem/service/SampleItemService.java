@@ -24,4 +24,6 @@ public interface SampleItemService extends BaseObjectService<SampleItem, String>
     void getDataBySample(SampleItem sampleItem);
 
     String getTypeOfSampleId(SampleItem sampleItem);
+
+    List<SampleItem> getSampleItemsBySampleIds(List<String> sampleIds);
 }
@@ -106,4 +106,10 @@ public class SampleItemServiceImpl extends AuditableBaseObjectServiceImpl<Sample
         sampleItem = get(sampleItem.getId());
         return sampleItem.getTypeOfSampleId();
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SampleItem> getSampleItemsBySampleIds(List<String> sampleIds) {
+        return getBaseObjectDAO().getSampleItemsBySampleIds(sampleIds);
+    }
 }
@@ -52,4 +52,6 @@ public interface SampleQaEventDAO extends BaseDAO<SampleQaEvent, String> {
     List<SampleQaEvent> getAllUncompleatedEvents() throws LIMSRuntimeException;
 
     SampleQaEvent getData(String sampleQaEventId) throws LIMSRuntimeException;
+
+    List<SampleQaEvent> getSampleQaEventsBySampleIds(List<String> sampleIds) throws LIMSRuntimeException;
 }
@@ -19,6 +19,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.sql.Date;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
@@ -192,4 +193,22 @@ public class SampleQaEventDAOImpl extends BaseDAOImpl<SampleQaEvent, String> imp
 
         return null;
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SampleQaEvent> getSampleQaEventsBySampleIds(List<String> sampleIds) throws LIMSRuntimeException {
+        if (sampleIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "from SampleQaEvent sqe where sqe.sample.id in (:sampleIds)";
+        try {
+            Query<SampleQaEvent> query = entityManager.unwrap(Session.class).createQuery(sql, SampleQaEvent.class);
+            query.setParameterList("sampleIds",
+                    sampleIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getSampleQaEventsBySampleIds");
+        }
+        return new ArrayList<>();
+    }
 }
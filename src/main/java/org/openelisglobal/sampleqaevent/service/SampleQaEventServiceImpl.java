@@ -67,4 +67,10 @@ public class SampleQaEventServiceImpl extends AuditableBaseObjectServiceImpl<Sam
     public SampleQaEvent getSampleQaEventBySampleAndQaEvent(SampleQaEvent sampleQaEvent) {
         return getBaseObjectDAO().getSampleQaEventBySampleAndQaEvent(sampleQaEvent);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SampleQaEvent> getSampleQaEventsBySampleIds(List<String> sampleIds) {
+        return getBaseObjectDAO().getSampleQaEventsBySampleIds(sampleIds);
+    }
 }
@@ -13,17 +13,25 @@
  */
 package org.openelisglobal.scheduler.independentthreads;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.PostConstruct;
+import org.apache.commons.validator.GenericValidator;
+import org.openelisglobal.common.exception.LIMSRuntimeException;
+import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.common.util.ConfigurationProperties.Property;
+import org.openelisglobal.common.util.DateUtil;
 import org.openelisglobal.dataexchange.aggregatereporting.valueholder.ReportExternalExport;
-import org.openelisglobal.dataexchange.common.IRowTransmissionResponseHandler;
-import org.openelisglobal.dataexchange.common.ReportTransmission;
-import org.openelisglobal.dataexchange.common.ReportTransmission.HTTP_TYPE;
+import org.openelisglobal.dataexchange.common.ExternalExportOutbox;
 import org.openelisglobal.dataexchange.service.aggregatereporting.ReportExternalExportService;
 import org.openelisglobal.dataexchange.service.aggregatereporting.ReportQueueTypeService;
-import org.openelisglobal.spring.util.SpringContext;
+import org.openelisglobal.referencetables.service.ReferenceTablesService;
+import org.openelisglobal.reports.service.DocumentTrackService;
+import org.openelisglobal.reports.service.DocumentTypeService;
+import org.openelisglobal.reports.valueholder.DocumentTrack;
+import org.openelisglobal.reports.valueholder.DocumentType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
@@ -31,34 +39,35 @@ import org.springframework.stereotype.Component;
 @Component
 public class MalariaResultExporter {
 
+    private static final String DESTINATION = "malariaCase";
+
     @Autowired
     private ReportQueueTypeService reportQueueTypeService;
     @Autowired
     private ReportExternalExportService reportExternalExportService;
+    @Autowired
+    private ReferenceTablesService referenceTablesService;
+    @Autowired
+    private DocumentTypeService documentTypeService;
+    @Autowired
+    private DocumentTrackService documentTrackService;
+    @Autowired
+    private ExternalExportOutbox outbox;
 
     private String resultReportTypeId;
 
     @PostConstruct
     private void initializeGlobalVariables() {
         resultReportTypeId = reportQueueTypeService.getReportQueueTypeByName("malariaCase").getId();
+        outbox.register(DESTINATION, resultReportTypeId,
+                () -> ConfigurationProperties.getInstance().getPropertyValue(Property.malariaCaseReportURL),
+                this::markAsSent);
     }
 
     @Scheduled(fixedRateString = "#{resultsResendTime}")
     private void exportResults() {
         if (shouldReportResults()) {
-            List<ReportExternalExport> reportList = reportExternalExportService
-                    .getUnsentReportExports(resultReportTypeId);
-
-            ReportTransmission transmitter = new ReportTransmission();
-            String url = ConfigurationProperties.getInstance().getPropertyValue(Property.malariaCaseReportURL);
-            boolean sendAsychronously = false;
-
-            for (ReportExternalExport report : reportList) {
-                IRowTransmissionResponseHandler responseHandler = (IRowTransmissionResponseHandler) SpringContext
-                        .getBean("malariaSuccessReportHandler");
-                responseHandler.setRowId(report.getId());
-                transmitter.sendRawReport(report.getData(), url, sendAsychronously, responseHandler, HTTP_TYPE.POST);
-            }
+            outbox.sendDue(DESTINATION);
         }
     }
 
@@ -67,4 +76,50 @@ public class MalariaResultExporter {
                 .getPropertyValueLowerCase(Property.malariaCaseReport);
         return ("true".equals(reportResults) || "enable".equals(reportResults));
     }
+
+    // called by the outbox in a transaction once the case was accepted
+    private void markAsSent(ReportExternalExport report) {
+        List<DocumentTrack> documents = getSentDocuments(report.getBookkeepingData());
+
+        try {
+            for (DocumentTrack document : documents) {
+                documentTrackService.insert(document);
+            }
+            reportExternalExportService.delete(report);
+
+        } catch (LIMSRuntimeException e) {
+            LogEvent.logError(e);
+            throw e;
+        }
+    }
+
+    private List<DocumentTrack> getSentDocuments(String bookkeepingData) {
+        List<DocumentTrack> documentList = new ArrayList<>();
+        String resultTableId = getResultTableId();
+        DocumentType type = getResultType();
+        Timestamp now = DateUtil.getNowAsTimestamp();
+
+        if (!GenericValidator.isBlankOrNull(bookkeepingData)) {
+            String[] resultIdList = bookkeepingData.split(",");
+
+            for (int i = 0; i < resultIdList.length; i++) {
+                DocumentTrack document = new DocumentTrack();
+                document.setDocumentTypeId(type.getId());
+                document.setRecordId(resultIdList[i]);
+                document.setReportTime(now);
+                document.setTableId(resultTableId);
+                document.setSysUserId("1");
+                documentList.add(document);
+            }
+        }
+        return documentList;
+    }
+
+    private DocumentType getResultType() {
+        return documentTypeService.getDocumentTypeByName("malariaCase");
+    }
+
+    private String getResultTableId() {
+        return referenceTablesService.getReferenceTableByName("RESULT").getId();
+    }
 }
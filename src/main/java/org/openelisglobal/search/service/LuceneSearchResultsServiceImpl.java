@@ -24,6 +24,15 @@ public class LuceneSearchResultsServiceImpl implements SearchResultsService {
                 patientID, guid, dateOfBirth, gender);
     }
 
+    @Override
+    @Transactional
+    public List<PatientSearchResults> getSearchResults(String lastName, String firstName, String STNumber,
+            String subjectNumber, String nationalID, String externalID, String patientID, String guid,
+            String dateOfBirth, String gender, int offset, int limit) {
+        return searchResultsDAO.getSearchResults(lastName, firstName, STNumber, subjectNumber, nationalID, externalID,
+                patientID, guid, dateOfBirth, gender, offset, limit);
+    }
+
     @Override
     @Transactional
     public List<PatientSearchResults> getSearchResultsExact(String lastName, String firstName, String STNumber,
@@ -32,4 +41,13 @@ public class LuceneSearchResultsServiceImpl implements SearchResultsService {
         return searchResultsDAO.getSearchResultsExact(lastName, firstName, STNumber, subjectNumber, nationalID,
                 externalID, patientID, guid, dateOfBirth, gender);
     }
+
+    @Override
+    @Transactional
+    public List<PatientSearchResults> getSearchResultsExact(String lastName, String firstName, String STNumber,
+            String subjectNumber, String nationalID, String externalID, String patientID, String guid,
+            String dateOfBirth, String gender, int offset, int limit) {
+        return searchResultsDAO.getSearchResultsExact(lastName, firstName, STNumber, subjectNumber, nationalID,
+                externalID, patientID, guid, dateOfBirth, gender, offset, limit);
+    }
 }
@@ -69,4 +69,17 @@ public class SystemModuleUrlDAOImpl extends BaseDAOImpl<SystemModuleUrl, String>
 
         return moduleUrl;
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SystemModuleUrl> getAllWithModuleAndParam() {
+        try {
+            String sql = "From SystemModuleUrl smu join fetch smu.systemModule left join fetch smu.param";
+            Query<SystemModuleUrl> query = entityManager.unwrap(Session.class).createQuery(sql, SystemModuleUrl.class);
+            return query.list();
+        } catch (RuntimeException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in SystemModuleUrl getAllWithModuleAndParam()", e);
+        }
+    }
 }
@@ -5,12 +5,15 @@ import org.openelisglobal.systemmodule.dao.SystemModuleParamDAO;
 import org.openelisglobal.systemmodule.valueholder.SystemModuleParam;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class SystemModuleParamServiceImpl extends AuditableBaseObjectServiceImpl<SystemModuleParam, String>
         implements SystemModuleParamService {
     @Autowired
     protected SystemModuleParamDAO baseObjectDAO;
+    @Autowired
+    private SystemModuleUrlService systemModuleUrlService;
 
     SystemModuleParamServiceImpl() {
         super(SystemModuleParam.class);
@@ -20,4 +23,18 @@ public class SystemModuleParamServiceImpl extends AuditableBaseObjectServiceImpl
     protected SystemModuleParamDAO getBaseObjectDAO() {
         return baseObjectDAO;
     }
+
+    // params are part of the url permission index
+    @Override
+    protected SystemModuleParam update(SystemModuleParam systemModuleParam, String auditTrailType) {
+        systemModuleUrlService.refreshUrlIndex();
+        return super.update(systemModuleParam, auditTrailType);
+    }
+
+    @Override
+    @Transactional
+    public void delete(SystemModuleParam systemModuleParam) {
+        systemModuleUrlService.refreshUrlIndex();
+        super.delete(systemModuleParam);
+    }
 }
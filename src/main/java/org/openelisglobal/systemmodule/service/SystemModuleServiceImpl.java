@@ -14,6 +14,8 @@ public class SystemModuleServiceImpl extends AuditableBaseObjectServiceImpl<Syst
         implements SystemModuleService {
     @Autowired
     protected SystemModuleDAO baseObjectDAO;
+    @Autowired
+    private SystemModuleUrlService systemModuleUrlService;
 
     SystemModuleServiceImpl() {
         super(SystemModule.class);
@@ -77,4 +79,18 @@ public class SystemModuleServiceImpl extends AuditableBaseObjectServiceImpl<Syst
         }
         return super.update(systemModule);
     }
+
+    // module names are part of the url permission index
+    @Override
+    protected SystemModule update(SystemModule systemModule, String auditTrailType) {
+        systemModuleUrlService.refreshUrlIndex();
+        return super.update(systemModule, auditTrailType);
+    }
+
+    @Override
+    @Transactional
+    public void delete(SystemModule systemModule) {
+        systemModuleUrlService.refreshUrlIndex();
+        super.delete(systemModule);
+    }
 }
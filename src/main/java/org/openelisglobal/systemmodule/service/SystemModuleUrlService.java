@@ -1,6 +1,7 @@
 package org.openelisglobal.systemmodule.service;
 
 import java.util.List;
+import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
 import org.openelisglobal.common.service.BaseObjectService;
 import org.openelisglobal.systemmodule.valueholder.SystemModuleUrl;
@@ -11,4 +12,8 @@ public interface SystemModuleUrlService extends BaseObjectService<SystemModuleUr
     List<SystemModuleUrl> getByRequest(HttpServletRequest request);
 
     SystemModuleUrl getByModuleAndUrl(String moduleId, String urlPath);
+
+    Set<String> getModuleNamesForRequest(HttpServletRequest request, boolean useParameters);
+
+    void refreshUrlIndex();
 }
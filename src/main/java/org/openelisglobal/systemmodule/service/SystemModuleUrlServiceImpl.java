@@ -1,9 +1,18 @@
 package org.openelisglobal.systemmodule.service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.util.CacheGeneration;
+import org.openelisglobal.common.util.URLUtil;
 import org.openelisglobal.systemmodule.dao.SystemModuleUrlDAO;
+import org.openelisglobal.systemmodule.valueholder.SystemModuleParam;
 import org.openelisglobal.systemmodule.valueholder.SystemModuleUrl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -15,6 +24,11 @@ public class SystemModuleUrlServiceImpl extends AuditableBaseObjectServiceImpl<S
     @Autowired
     protected SystemModuleUrlDAO baseObjectDAO;
 
+    // url path -> the modules that give access to it. Checked on every request so
+    // it is held in memory and rebuilt whenever a url, module or param changes
+    private volatile Map<String, List<UrlPermission>> urlIndex;
+    private final CacheGeneration urlIndexGeneration = new CacheGeneration();
+
     SystemModuleUrlServiceImpl() {
         super(SystemModuleUrl.class);
     }
@@ -40,4 +54,77 @@ public class SystemModuleUrlServiceImpl extends AuditableBaseObjectServiceImpl<S
     public SystemModuleUrl getByModuleAndUrl(String moduleId, String urlPath) {
         return getBaseObjectDAO().getByModuleAndUrl(moduleId, urlPath);
     }
+
+    // not transactional so no connection is taken from the pool once the index is
+    // built
+    @Override
+    public Set<String> getModuleNamesForRequest(HttpServletRequest request, boolean useParameters) {
+        List<UrlPermission> permissions = getUrlIndex().getOrDefault(URLUtil.getReourcePathFromRequest(request),
+                Collections.emptyList());
+        Set<String> moduleNames = new HashSet<>();
+        for (UrlPermission permission : permissions) {
+            if (!useParameters || permission.paramMatches(request)) {
+                moduleNames.add(permission.moduleName);
+            }
+        }
+        return moduleNames;
+    }
+
+    @Override
+    public void refreshUrlIndex() {
+        urlIndexGeneration.invalidate(() -> urlIndex = null);
+    }
+
+    private Map<String, List<UrlPermission>> getUrlIndex() {
+        Map<String, List<UrlPermission>> index = urlIndex;
+        if (index == null) {
+            long generation = urlIndexGeneration.current();
+            Map<String, List<UrlPermission>> builtIndex = new HashMap<>();
+            for (SystemModuleUrl moduleUrl : getBaseObjectDAO().getAllWithModuleAndParam()) {
+                builtIndex.computeIfAbsent(moduleUrl.getUrlPath(), k -> new ArrayList<>())
+                        .add(new UrlPermission(moduleUrl));
+            }
+            urlIndexGeneration.publishIfCurrent(generation, () -> urlIndex = builtIndex);
+            index = builtIndex;
+        }
+        return index;
+    }
+
+    @Override
+    @Transactional
+    public String insert(SystemModuleUrl systemModuleUrl) {
+        refreshUrlIndex();
+        return super.insert(systemModuleUrl);
+    }
+
+    @Override
+    protected SystemModuleUrl update(SystemModuleUrl systemModuleUrl, String auditTrailType) {
+        refreshUrlIndex();
+        return super.update(systemModuleUrl, auditTrailType);
+    }
+
+    @Override
+    @Transactional
+    public void delete(SystemModuleUrl systemModuleUrl) {
+        refreshUrlIndex();
+        super.delete(systemModuleUrl);
+    }
+
+    private static class UrlPermission {
+        private final String moduleName;
+        private final String paramName;
+        private final String paramValue;
+
+        private UrlPermission(SystemModuleUrl moduleUrl) {
+            moduleName = moduleUrl.getSystemModule().getSystemModuleName();
+            SystemModuleParam param = moduleUrl.getParam();
+            paramName = param == null ? null : param.getName();
+            paramValue = param == null ? null : param.getValue();
+        }
+
+        // the url only grants access to the module when the param has this value
+        private boolean paramMatches(HttpServletRequest request) {
+            return paramName == null || paramValue.equals(request.getParameter(paramName));
+        }
+    }
 }
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import org.openelisglobal.common.dao.KeysetPage;
 import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.rolemodule.service.RoleModuleService;
 import org.openelisglobal.systemusermodule.valueholder.PermissionModule;
@@ -189,6 +190,22 @@ public class PermissionModuleServiceImpl implements PermissionModuleService<Perm
                 pageNumber);
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<PermissionModule> getKeysetPage(String cursor) {
+        return getActivePermissionModule().getKeysetPage(cursor);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<PermissionModule> getMatchingKeysetPage(Map<String, Object> propertyValues,
+            List<String> orderProperties, boolean descending, String cursor) {
+        return getActivePermissionModule().getMatchingKeysetPage(propertyValues, orderProperties, descending,
+                cursor);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     @Transactional
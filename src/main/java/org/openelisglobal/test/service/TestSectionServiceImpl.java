@@ -7,6 +7,7 @@ import java.util.Map;
 import javax.annotation.PostConstruct;
 import org.openelisglobal.common.exception.LIMSDuplicateRecordException;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.services.DisplayListService;
 import org.openelisglobal.common.util.LocaleChangeListener;
 import org.openelisglobal.internationalization.GlobalLocaleResolver;
 import org.openelisglobal.systemusersection.service.SystemUserSectionService;
@@ -199,6 +200,7 @@ public class TestSectionServiceImpl extends AuditableBaseObjectServiceImpl<TestS
         if (duplicateTestSectionExists(testSection)) {
             throw new LIMSDuplicateRecordException("Duplicate record exists for " + testSection.getTestSectionName());
         }
+        invalidateDisplayLists();
         return super.insert(testSection);
     }
 
@@ -218,6 +220,19 @@ public class TestSectionServiceImpl extends AuditableBaseObjectServiceImpl<TestS
         return super.update(testSection);
     }
 
+    @Override
+    protected TestSection update(TestSection testSection, String auditTrailType) {
+        invalidateDisplayLists();
+        return super.update(testSection, auditTrailType);
+    }
+
+    private void invalidateDisplayLists() {
+        DisplayListService displayListService = DisplayListService.getInstance();
+        if (displayListService != null) {
+            displayListService.invalidate(DisplayListService.TEST_SECTION_LISTS);
+        }
+    }
+
     private boolean duplicateTestSectionExists(TestSection testSection) {
         return baseObjectDAO.duplicateTestSectionExists(testSection);
     }
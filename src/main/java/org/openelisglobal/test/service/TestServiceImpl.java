@@ -16,6 +16,7 @@ import org.openelisglobal.common.exception.LIMSDuplicateRecordException;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.services.DisplayListService;
 import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.common.util.LocaleChangeListener;
 import org.openelisglobal.internationalization.GlobalLocaleResolver;
@@ -610,9 +611,24 @@ public class TestServiceImpl extends AuditableBaseObjectServiceImpl<Test, String
             throw new LIMSDuplicateRecordException("Duplicate record exists for " + test.getDescription());
         }
 
+        invalidateDisplayLists();
         return super.insert(test);
     }
 
+    @Override
+    protected Test update(Test test, String auditTrailType) {
+        invalidateDisplayLists();
+        return super.update(test, auditTrailType);
+    }
+
+    // the test names are rebuilt by refreshList, this only drops the lists
+    private void invalidateDisplayLists() {
+        DisplayListService displayListService = DisplayListService.getInstance();
+        if (displayListService != null) {
+            displayListService.invalidate(DisplayListService.TEST_LISTS);
+        }
+    }
+
     private List<Test> filterOnlyFullSetup(boolean onlyTestsFullySetup, List<Test> list) {
         if (onlyTestsFullySetup && list != null && list.size() > 0) {
             Iterator<Test> testIterator = list.iterator();
@@ -0,0 +1,494 @@
+package org.openelisglobal.testcalculated.action.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.openelisglobal.testcalculated.valueholder.Calculation;
+import org.openelisglobal.testcalculated.valueholder.Operation;
+
+/**
+ * A calculation rule parsed once into an expression tree. The rule is the
+ * ordered list of operations of a Calculation, read the way the JavaScript
+ * built from them used to be: * and / bind tighter than + and -, then the
+ * comparisons, then equality, then && and finally ||. Comparisons give true or
+ * false, which count as 1 and 0 in arithmetic.
+ *
+ * IS_IN_NORMAL_RANGE and IS_OUTSIDE_NORMAL_RANGE apply to the test result in
+ * front of them, so "A IS_IN_NORMAL_RANGE" reads as "A >= min(A) && A <=
+ * max(A)".
+ */
+public final class CalculationExpression {
+
+    /**
+     * The values an expression is evaluated against. A value that is not
+     * available (no result, a result that is not numeric, no birth date) is
+     * reported by throwing IllegalStateException.
+     */
+    public interface Inputs {
+        double getResultValue(int testId);
+
+        double getMinNormal(int testId);
+
+        double getMaxNormal(int testId);
+
+        double getPatientAge();
+    }
+
+    private final Node root;
+    private final Set<Integer> inputTestIds;
+
+    private CalculationExpression(Node root, Set<Integer> inputTestIds) {
+        this.root = root;
+        this.inputTestIds = Collections.unmodifiableSet(inputTestIds);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the operations do not make up a valid
+     *                                  expression
+     */
+    public static CalculationExpression compile(Calculation calculation) throws IllegalArgumentException {
+        Set<Integer> inputTestIds = new HashSet<>();
+        List<Token> tokens = tokenize(calculation.getOperations(), inputTestIds);
+        Parser parser = new Parser(tokens);
+        Node root = parser.parseOr();
+        if (!parser.isAtEnd()) {
+            throw new IllegalArgumentException("unexpected " + parser.peek() + " in " + calculation.getName());
+        }
+        return new CalculationExpression(root, inputTestIds);
+    }
+
+    /**
+     * @return the ids of the tests whose results this expression reads
+     */
+    public Set<Integer> getInputTestIds() {
+        return inputTestIds;
+    }
+
+    /**
+     * @return "true" or "false" for a condition, otherwise the number formatted
+     *         as JavaScript would
+     * @throws IllegalStateException if a value the expression needs is missing
+     */
+    public String evaluate(Inputs inputs) throws IllegalStateException {
+        double value = root.evaluate(inputs);
+        if (root.isBoolean()) {
+            return value != 0 ? "true" : "false";
+        }
+        return formatNumber(value);
+    }
+
+    private static String formatNumber(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "Infinity" : "-Infinity";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e21) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static List<Token> tokenize(List<Operation> operations, Set<Integer> inputTestIds) {
+        List<Token> tokens = new ArrayList<>();
+        for (Operation operation : operations) {
+            switch (operation.getType()) {
+            case TEST_RESULT:
+                int testId = parseTestId(operation);
+                inputTestIds.add(testId);
+                tokens.add(Token.operand(new ResultValue(testId)));
+                break;
+            case INTEGER:
+                try {
+                    tokens.add(Token.operand(new Constant(Double.parseDouble(operation.getValue()))));
+                } catch (NumberFormatException e) {
+                    // ignored, as it always has been
+                }
+                break;
+            case MATH_FUNCTION:
+                if (Operation.IN_NORMAL_RANGE.equals(operation.getValue())
+                        || Operation.OUTSIDE_NORMAL_RANGE.equals(operation.getValue())) {
+                    addRangeCheck(operations, operation, tokens, inputTestIds);
+                } else {
+                    tokens.add(Token.symbol(operation.getValue()));
+                }
+                break;
+            case PATIENT_ATTRIBUTE:
+                if (Operation.PatientAttribute.AGE.toString().equals(operation.getValue())) {
+                    tokens.add(Token.operand(new PatientAge()));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("unknown operation type " + operation.getType());
+            }
+        }
+        return tokens;
+    }
+
+    private static void addRangeCheck(List<Operation> operations, Operation operation, List<Token> tokens,
+            Set<Integer> inputTestIds) {
+        int index = operation.getOrder() - 1;
+        if (index < 0 || index >= operations.size()) {
+            throw new IllegalArgumentException(operation.getValue() + " has no test result before it");
+        }
+        int testId = parseTestId(operations.get(index));
+        inputTestIds.add(testId);
+        if (Operation.IN_NORMAL_RANGE.equals(operation.getValue())) {
+            tokens.add(Token.symbol(Operation.GREATER_OR_EQUALS));
+            tokens.add(Token.operand(new MinNormal(testId)));
+            tokens.add(Token.symbol(Operation.LOGICAL_AND));
+            tokens.add(Token.operand(new ResultValue(testId)));
+            tokens.add(Token.symbol(Operation.LESS_OR_EQUALS));
+            tokens.add(Token.operand(new MaxNormal(testId)));
+        } else {
+            tokens.add(Token.symbol(Operation.LESS_OR_EQUALS));
+            tokens.add(Token.operand(new MinNormal(testId)));
+            tokens.add(Token.symbol(Operation.LOGICAL_OR));
+            tokens.add(Token.operand(new ResultValue(testId)));
+            tokens.add(Token.symbol(Operation.GREATER_OR_EQUALS));
+            tokens.add(Token.operand(new MaxNormal(testId)));
+        }
+    }
+
+    private static int parseTestId(Operation operation) {
+        try {
+            return Integer.parseInt(operation.getValue());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + operation.getValue() + "' is not a test id", e);
+        }
+    }
+
+    private static final class Token {
+        private final String symbol;
+        private final Node operand;
+
+        private Token(String symbol, Node operand) {
+            this.symbol = symbol;
+            this.operand = operand;
+        }
+
+        private static Token symbol(String symbol) {
+            return new Token(symbol, null);
+        }
+
+        private static Token operand(Node operand) {
+            return new Token(null, operand);
+        }
+
+        private boolean is(String expected) {
+            return expected.equals(symbol);
+        }
+
+        @Override
+        public String toString() {
+            return symbol == null ? "value" : "'" + symbol + "'";
+        }
+    }
+
+    // recursive descent, one method per precedence level
+    private static final class Parser {
+        private final List<Token> tokens;
+        private int position = 0;
+
+        private Parser(List<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        private boolean isAtEnd() {
+            return position >= tokens.size();
+        }
+
+        private Token peek() {
+            return tokens.get(position);
+        }
+
+        private boolean accept(String symbol) {
+            if (!isAtEnd() && peek().is(symbol)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private Node parseOr() {
+            Node node = parseAnd();
+            while (accept(Operation.LOGICAL_OR)) {
+                node = new Or(node, parseAnd());
+            }
+            return node;
+        }
+
+        private Node parseAnd() {
+            Node node = parseEquality();
+            while (accept(Operation.LOGICAL_AND)) {
+                node = new And(node, parseEquality());
+            }
+            return node;
+        }
+
+        private Node parseEquality() {
+            Node node = parseComparison();
+            while (true) {
+                if (accept(Operation.EQUALS)) {
+                    node = new Comparison(Operation.EQUALS, node, parseComparison());
+                } else if (accept(Operation.NOT_EQUALS)) {
+                    node = new Comparison(Operation.NOT_EQUALS, node, parseComparison());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        private Node parseComparison() {
+            Node node = parseAdditive();
+            while (true) {
+                if (accept(Operation.GREATER_OR_EQUALS)) {
+                    node = new Comparison(Operation.GREATER_OR_EQUALS, node, parseAdditive());
+                } else if (accept(Operation.LESS_OR_EQUALS)) {
+                    node = new Comparison(Operation.LESS_OR_EQUALS, node, parseAdditive());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        private Node parseAdditive() {
+            Node node = parseMultiplicative();
+            while (true) {
+                if (accept(Operation.ADD)) {
+                    node = new Arithmetic(Operation.ADD, node, parseMultiplicative());
+                } else if (accept(Operation.SUBTRACT)) {
+                    node = new Arithmetic(Operation.SUBTRACT, node, parseMultiplicative());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        private Node parseMultiplicative() {
+            Node node = parseUnary();
+            while (true) {
+                if (accept(Operation.MULTIPLY)) {
+                    node = new Arithmetic(Operation.MULTIPLY, node, parseUnary());
+                } else if (accept(Operation.DIVIDE)) {
+                    node = new Arithmetic(Operation.DIVIDE, node, parseUnary());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        private Node parseUnary() {
+            if (accept(Operation.SUBTRACT)) {
+                return new Arithmetic(Operation.SUBTRACT, new Constant(0), parseUnary());
+            }
+            if (accept(Operation.ADD)) {
+                return new Arithmetic(Operation.ADD, new Constant(0), parseUnary());
+            }
+            return parsePrimary();
+        }
+
+        private Node parsePrimary() {
+            if (isAtEnd()) {
+                throw new IllegalArgumentException("expression ends where a value is expected");
+            }
+            if (accept(Operation.OPEN_BRACKET)) {
+                Node node = parseOr();
+                if (!accept(Operation.CLOSE_BRACKET)) {
+                    throw new IllegalArgumentException("missing " + Operation.CLOSE_BRACKET);
+                }
+                return node;
+            }
+            Token token = tokens.get(position++);
+            if (token.operand == null) {
+                throw new IllegalArgumentException("unexpected " + token + " where a value is expected");
+            }
+            return token.operand;
+        }
+    }
+
+    private abstract static class Node {
+        abstract double evaluate(Inputs inputs);
+
+        boolean isBoolean() {
+            return false;
+        }
+    }
+
+    private static final class Constant extends Node {
+        private final double value;
+
+        private Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        double evaluate(Inputs inputs) {
+            return value;
+        }
+    }
+
+    private static final class ResultValue extends Node {
+        private final int testId;
+
+        private ResultValue(int testId) {
+            this.testId = testId;
+        }
+
+        @Override
+        double evaluate(Inputs inputs) {
+            return inputs.getResultValue(testId);
+        }
+    }
+
+    private static final class MinNormal extends Node {
+        private final int testId;
+
+        private MinNormal(int testId) {
+            this.testId = testId;
+        }
+
+        @Override
+        double evaluate(Inputs inputs) {
+            return inputs.getMinNormal(testId);
+        }
+    }
+
+    private static final class MaxNormal extends Node {
+        private final int testId;
+
+        private MaxNormal(int testId) {
+            this.testId = testId;
+        }
+
+        @Override
+        double evaluate(Inputs inputs) {
+            return inputs.getMaxNormal(testId);
+        }
+    }
+
+    private static final class PatientAge extends Node {
+        @Override
+        double evaluate(Inputs inputs) {
+            return inputs.getPatientAge();
+        }
+    }
+
+    private static final class Arithmetic extends Node {
+        private final String operator;
+        private final Node left;
+        private final Node right;
+
+        private Arithmetic(String operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(Inputs inputs) {
+            double l = left.evaluate(inputs);
+            double r = right.evaluate(inputs);
+            switch (operator) {
+            case Operation.ADD:
+                return l + r;
+            case Operation.SUBTRACT:
+                return l - r;
+            case Operation.MULTIPLY:
+                return l * r;
+            default:
+                return l / r;
+            }
+        }
+    }
+
+    private static final class Comparison extends Node {
+        private final String operator;
+        private final Node left;
+        private final Node right;
+
+        private Comparison(String operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(Inputs inputs) {
+            double l = left.evaluate(inputs);
+            double r = right.evaluate(inputs);
+            boolean result;
+            switch (operator) {
+            case Operation.EQUALS:
+                result = l == r;
+                break;
+            case Operation.NOT_EQUALS:
+                result = l != r;
+                break;
+            case Operation.GREATER_OR_EQUALS:
+                result = l >= r;
+                break;
+            default:
+                result = l <= r;
+                break;
+            }
+            return result ? 1 : 0;
+        }
+
+        @Override
+        boolean isBoolean() {
+            return true;
+        }
+    }
+
+    // like JavaScript the value of the deciding operand is returned, and the
+    // right hand side is only evaluated when it is needed
+    private static final class And extends Node {
+        private final Node left;
+        private final Node right;
+
+        private And(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(Inputs inputs) {
+            double l = left.evaluate(inputs);
+            return isTruthy(l) ? right.evaluate(inputs) : l;
+        }
+
+        @Override
+        boolean isBoolean() {
+            return left.isBoolean() && right.isBoolean();
+        }
+    }
+
+    private static final class Or extends Node {
+        private final Node left;
+        private final Node right;
+
+        private Or(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(Inputs inputs) {
+            double l = left.evaluate(inputs);
+            return isTruthy(l) ? l : right.evaluate(inputs);
+        }
+
+        @Override
+        boolean isBoolean() {
+            return left.isBoolean() && right.isBoolean();
+        }
+    }
+
+    private static boolean isTruthy(double value) {
+        return value != 0 && !Double.isNaN(value);
+    }
+}
@@ -7,9 +7,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
 import org.apache.commons.lang3.StringUtils;
 import org.jfree.util.Log;
 import org.openelisglobal.analysis.service.AnalysisService;
@@ -20,6 +17,7 @@ import org.openelisglobal.common.util.DateUtil;
 import org.openelisglobal.note.service.NoteService;
 import org.openelisglobal.note.service.NoteServiceImpl.NoteType;
 import org.openelisglobal.note.valueholder.Note;
+import org.openelisglobal.patient.valueholder.Patient;
 import org.openelisglobal.result.action.util.ResultSet;
 import org.openelisglobal.result.service.ResultService;
 import org.openelisglobal.result.valueholder.Result;
@@ -70,7 +68,8 @@ public class TestCalculatedUtil {
             if (resultSet.result.getTestResult() == null) {
                 continue;
             }
-            List<Calculation> calculations = calculationService.getAll();
+            List<Calculation> calculations = calculationService
+                    .getActiveCalculationsForTest(resultSet.result.getTestResult().getTest().getId());
             for (Calculation calculation : calculations) {
                 if (!calculation.getActive()) {
                     continue;
@@ -153,57 +152,11 @@ public class TestCalculatedUtil {
                     }
                     Calculation calculation = resultCalculation.getCalculation();
                     if (!isMissingParams) {
-                        StringBuffer function = new StringBuffer();
-                        calculation.getOperations().forEach(operation -> {
-                            switch (operation.getType()) {
-                            case TEST_RESULT:
-                                addNumericOperation(operation, resultCalculation, function,
-                                        Operation.OperationType.TEST_RESULT.toString());
-                                break;
-                            case INTEGER:
-                                try {
-                                    if (operation.getValue().contains(".")) {
-                                        double val = Double.parseDouble(operation.getValue());
-                                        function.append(val).append(" ");
-                                    } else {
-                                        int number = Integer.parseInt(operation.getValue());
-                                        function.append(number).append(" ");
-                                    }
-                                } catch (NumberFormatException e) {
-
-                                }
-                                break;
-                            case MATH_FUNCTION:
-                                if (operation.getValue().equals(Operation.IN_NORMAL_RANGE)) {
-                                    int order = operation.getOrder();
-                                    Operation prevOperation = calculation.getOperations().get(order - 1);
-                                    addNumericOperation(prevOperation, resultCalculation, function,
-                                            Operation.IN_NORMAL_RANGE);
-
-                                } else if (operation.getValue().equals(Operation.OUTSIDE_NORMAL_RANGE)) {
-                                    int order = operation.getOrder();
-                                    Operation prevOperation = calculation.getOperations().get(order - 1);
-                                    addNumericOperation(prevOperation, resultCalculation, function,
-                                            Operation.OUTSIDE_NORMAL_RANGE);
-                                } else {
-                                    function.append(operation.getValue()).append(" ");
-                                }
-                                break;
-                            case PATIENT_ATTRIBUTE:
-                                if (operation.getValue().equals(Operation.PatientAttribute.AGE.toString())) {
-                                    int age = DateUtil.getAgeInYears(
-                                            new Date(resultSet.patient.getBirthDate().getTime()), new Date());
-                                    function.append(age);
-                                }
-                                break;
-                            }
-                        });
-                        ScriptEngineManager scriptEngineManager = new ScriptEngineManager();
-                        ScriptEngine scriptEngine = scriptEngineManager.getEngineByName("JavaScript");
                         String value = null;
                         try {
-                            value = scriptEngine.eval(function.toString()).toString();
-                        } catch (ScriptException e) {
+                            value = calculationService.getExpression(calculation)
+                                    .evaluate(new ResultCalculationInputs(resultCalculation, resultSet.patient));
+                        } catch (IllegalArgumentException | IllegalStateException e) {
                             Log.error("Invalid Calication Rule: " + calculation.getName(), e);
                         }
                         Analysis analysis = createCalculatedResult(resultCalculation, resultSet, calculation, value,
@@ -367,46 +320,6 @@ public class TestCalculatedUtil {
         return null;
     }
 
-    private void addNumericOperation(Operation operation, ResultCalculation resultCalculation, StringBuffer function,
-            String inputType) {
-        Test test = testService.getActiveTestById(Integer.valueOf(operation.getValue()));
-        if (test != null) {
-            Integer resultId = resultCalculation.getTestResultMap().get(Integer.valueOf(test.getId()));
-            Result result = null;
-            if (resultId != null) {
-                result = resultService.get(resultId.toString());
-            }
-
-            if (result != null) {
-                if (testService.getResultType(result.getTestResult().getTest()).equals("N")) {
-                    switch (inputType) {
-                    case Operation.TEST_RESULT:
-                        function.append(result.getValue()).append(" ");
-                        break;
-                    case Operation.IN_NORMAL_RANGE:
-                        function.append(" >= ")
-                                .append(result.getMinNormal() != null ? result.getMinNormal()
-                                        : Double.NEGATIVE_INFINITY)
-                                .append(" && ").append(result.getValue()).append(" <= ")
-                                .append(result.getMaxNormal() != null ? result.getMaxNormal()
-                                        : Double.POSITIVE_INFINITY)
-                                .append(" ");
-                        break;
-                    case Operation.OUTSIDE_NORMAL_RANGE:
-                        function.append(" <= ")
-                                .append(result.getMinNormal() != null ? result.getMinNormal()
-                                        : Double.NEGATIVE_INFINITY)
-                                .append(" || ").append(result.getValue()).append(" >= ")
-                                .append(result.getMaxNormal() != null ? result.getMaxNormal()
-                                        : Double.POSITIVE_INFINITY)
-                                .append(" ");
-                        break;
-                    }
-                }
-            }
-        }
-    }
-
     private Analysis createCalculatedAnalysis(Analysis existingAnalysis, Test test, Result result, String value,
             String calculationName, String systemUserId, Boolean resultCalculated, String externalNote) {
         Analysis currentAnalysis = result.getAnalysis();
@@ -456,4 +369,74 @@ public class TestCalculatedUtil {
         }
         return generatedAnalysis;
     }
+
+    /*
+     * The values a calculation reads, taken from the results recorded against the
+     * ResultCalculation. A result only counts when its test is active and has a
+     * numeric result type.
+     */
+    private class ResultCalculationInputs implements CalculationExpression.Inputs {
+        private final ResultCalculation resultCalculation;
+        private final Patient patient;
+        private final Map<Integer, Result> results = new HashMap<>();
+
+        private ResultCalculationInputs(ResultCalculation resultCalculation, Patient patient) {
+            this.resultCalculation = resultCalculation;
+            this.patient = patient;
+        }
+
+        private Result getResult(int testId) {
+            Result result = results.computeIfAbsent(testId, k -> findNumericResult(testId));
+            if (result == null) {
+                throw new IllegalStateException("no numeric result for test " + testId);
+            }
+            return result;
+        }
+
+        private Result findNumericResult(int testId) {
+            Test test = testService.getActiveTestById(testId);
+            if (test == null) {
+                return null;
+            }
+            Integer resultId = resultCalculation.getTestResultMap().get(Integer.valueOf(test.getId()));
+            if (resultId == null) {
+                return null;
+            }
+            Result result = resultService.get(resultId.toString());
+            if (result == null || !"N".equals(testService.getResultType(result.getTestResult().getTest()))) {
+                return null;
+            }
+            return result;
+        }
+
+        @Override
+        public double getResultValue(int testId) {
+            String value = getResult(testId).getValue();
+            try {
+                return Double.parseDouble(value.trim());
+            } catch (NullPointerException | NumberFormatException e) {
+                throw new IllegalStateException("result for test " + testId + " is not a number: " + value, e);
+            }
+        }
+
+        @Override
+        public double getMinNormal(int testId) {
+            Double minNormal = getResult(testId).getMinNormal();
+            return minNormal != null ? minNormal : Double.NEGATIVE_INFINITY;
+        }
+
+        @Override
+        public double getMaxNormal(int testId) {
+            Double maxNormal = getResult(testId).getMaxNormal();
+            return maxNormal != null ? maxNormal : Double.POSITIVE_INFINITY;
+        }
+
+        @Override
+        public double getPatientAge() {
+            if (patient == null || patient.getBirthDate() == null) {
+                throw new IllegalStateException("patient has no birth date");
+            }
+            return DateUtil.getAgeInYears(new Date(patient.getBirthDate().getTime()), new Date());
+        }
+    }
 }
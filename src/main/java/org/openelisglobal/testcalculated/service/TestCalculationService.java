@@ -1,7 +1,13 @@
 package org.openelisglobal.testcalculated.service;
 
+import java.util.List;
 import org.openelisglobal.common.service.BaseObjectService;
+import org.openelisglobal.testcalculated.action.util.CalculationExpression;
 import org.openelisglobal.testcalculated.valueholder.Calculation;
 
 public interface TestCalculationService extends BaseObjectService<Calculation, Integer> {
+
+    List<Calculation> getActiveCalculationsForTest(String testId);
+
+    CalculationExpression getExpression(Calculation calculation) throws IllegalArgumentException;
 }
@@ -1,10 +1,24 @@
 package org.openelisglobal.testcalculated.service;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.util.CacheGeneration;
+import org.openelisglobal.testcalculated.action.util.CalculationExpression;
 import org.openelisglobal.testcalculated.dao.TestCalculationDAO;
 import org.openelisglobal.testcalculated.valueholder.Calculation;
+import org.openelisglobal.testcalculated.valueholder.Operation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class TestCalculationServiceImpl extends AuditableBaseObjectServiceImpl<Calculation, Integer>
@@ -12,6 +26,13 @@ public class TestCalculationServiceImpl extends AuditableBaseObjectServiceImpl<C
     @Autowired
     TestCalculationDAO testCalculationDAOdao;
 
+    // test id -> ids of the active calculations that read or produce that test's
+    // result, so saving a result only looks at the calculations it can affect
+    private volatile Map<Integer, List<Integer>> calculationIdsByTest;
+    private final CacheGeneration calculationIndexGeneration = new CacheGeneration();
+    // compiled rules, recompiled when the calculation's version changes
+    private final Map<Integer, CompiledCalculation> expressions = new ConcurrentHashMap<>();
+
     public TestCalculationServiceImpl() {
         super(Calculation.class);
     }
@@ -20,4 +41,93 @@ public class TestCalculationServiceImpl extends AuditableBaseObjectServiceImpl<C
     protected TestCalculationDAO getBaseObjectDAO() {
         return testCalculationDAOdao;
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Calculation> getActiveCalculationsForTest(String testId) {
+        List<Integer> calculationIds = getCalculationIdsByTest().getOrDefault(Integer.valueOf(testId),
+                Collections.emptyList());
+        List<Calculation> calculations = new ArrayList<>();
+        for (Integer calculationId : calculationIds) {
+            Calculation calculation = get(calculationId);
+            if (calculation.getActive()) {
+                calculations.add(calculation);
+            }
+        }
+        return calculations;
+    }
+
+    @Override
+    public CalculationExpression getExpression(Calculation calculation) throws IllegalArgumentException {
+        CompiledCalculation compiled = expressions.get(calculation.getId());
+        if (compiled == null || !Objects.equals(compiled.version, calculation.getLastupdated())) {
+            compiled = new CompiledCalculation(calculation.getLastupdated(),
+                    CalculationExpression.compile(calculation));
+            expressions.put(calculation.getId(), compiled);
+        }
+        return compiled.expression;
+    }
+
+    private Map<Integer, List<Integer>> getCalculationIdsByTest() {
+        Map<Integer, List<Integer>> index = calculationIdsByTest;
+        if (index == null) {
+            long generation = calculationIndexGeneration.current();
+            index = new HashMap<>();
+            for (Calculation calculation : getAll()) {
+                if (!calculation.getActive()) {
+                    continue;
+                }
+                Set<Integer> testIds = new LinkedHashSet<>();
+                if (calculation.getTestId() != null) {
+                    testIds.add(calculation.getTestId());
+                }
+                for (Operation operation : calculation.getOperations()) {
+                    if (Operation.OperationType.TEST_RESULT.equals(operation.getType())) {
+                        testIds.add(Integer.valueOf(operation.getValue()));
+                    }
+                }
+                for (Integer testId : testIds) {
+                    index.computeIfAbsent(testId, k -> new ArrayList<>()).add(calculation.getId());
+                }
+            }
+            Map<Integer, List<Integer>> builtIndex = index;
+            calculationIndexGeneration.publishIfCurrent(generation, () -> calculationIdsByTest = builtIndex);
+        }
+        return index;
+    }
+
+    private void invalidateCalculationIndex() {
+        calculationIndexGeneration.invalidate(() -> calculationIdsByTest = null);
+    }
+
+    @Override
+    @Transactional
+    public Integer insert(Calculation calculation) {
+        invalidateCalculationIndex();
+        return super.insert(calculation);
+    }
+
+    @Override
+    protected Calculation update(Calculation calculation, String auditTrailType) {
+        invalidateCalculationIndex();
+        return super.update(calculation, auditTrailType);
+    }
+
+    @Override
+    @Transactional
+    public void delete(Calculation calculation) {
+        invalidateCalculationIndex();
+        expressions.remove(calculation.getId());
+        super.delete(calculation);
+    }
+
+    private static class CompiledCalculation {
+        private final Timestamp version;
+        private final CalculationExpression expression;
+
+        private CompiledCalculation(Timestamp version, CalculationExpression expression) {
+            this.version = version;
+            this.expression = expression;
+        }
+    }
 }
@@ -149,6 +149,7 @@ public class TestAddController extends BaseController {
         }
 
         testService.refreshTestNames();
+        SpringContext.getBean(ResultLimitService.class).refreshResultLimits();
         displayListService.refreshList(DisplayListService.ListType.SAMPLE_TYPE_ACTIVE);
         displayListService.refreshList(DisplayListService.ListType.SAMPLE_TYPE_INACTIVE);
         displayListService.refreshList(DisplayListService.ListType.PANELS_ACTIVE);
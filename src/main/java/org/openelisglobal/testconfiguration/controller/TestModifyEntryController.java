@@ -468,6 +468,7 @@ public class TestModifyEntryController extends BaseController {
         }
 
         testService.refreshTestNames();
+        SpringContext.getBean(ResultLimitService.class).refreshResultLimits();
         SpringContext.getBean(TypeOfSampleService.class).clearCache();
 
         return findForward(FWD_SUCCESS_INSERT, form);
@@ -48,6 +48,8 @@ public interface TestResultDAO extends BaseDAO<TestResult, String> {
 
     List<TestResult> getAllActiveTestResultsPerTest(Test test) throws LIMSRuntimeException;
 
+    List<TestResult> getAllActiveTestResultsForTests(List<String> testIds) throws LIMSRuntimeException;
+
     /*
      * Finds a TestResult by a test id and dictionary result id
      */
@@ -18,6 +18,7 @@ package org.openelisglobal.testresult.daoimpl;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
@@ -216,6 +217,7 @@ public class TestResultDAOImpl extends BaseDAOImpl<TestResult, String> implement
             String sql = "from TestResult t where  t.test = :testId and t.isActive = true";
             Query<TestResult> query = entityManager.unwrap(Session.class).createQuery(sql, TestResult.class);
             query.setParameter("testId", Integer.parseInt(testId));
+            query.setCacheable(true);
 
             list = query.list();
 
@@ -226,4 +228,25 @@ public class TestResultDAOImpl extends BaseDAOImpl<TestResult, String> implement
 
         return null;
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TestResult> getAllActiveTestResultsForTests(List<String> testIds) throws LIMSRuntimeException {
+        if (testIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            // same order as getAllActiveTestResultsPerTest, callers rely on it per test
+            String sql = "from TestResult t where t.test.id in (:testIds) and t.isActive = true order by"
+                    + " t.resultGroup, t.id asc";
+            Query<TestResult> query = entityManager.unwrap(Session.class).createQuery(sql, TestResult.class);
+            query.setParameterList("testIds",
+                    testIds.stream().map(e -> Integer.parseInt(e)).collect(Collectors.toList()));
+            return query.list();
+        } catch (RuntimeException e) {
+            handleException(e, "getAllActiveTestResultsForTests");
+        }
+
+        return new ArrayList<>();
+    }
 }
@@ -13,6 +13,8 @@ public interface TestResultService extends BaseObjectService<TestResult, String>
 
     List<TestResult> getAllActiveTestResultsPerTest(Test test);
 
+    List<TestResult> getAllActiveTestResultsForTests(List<String> testIds);
+
     List<TestResult> getActiveTestResultsByTest(String testId);
 
     List<TestResult> getPageOfTestResults(int startingRecNo);
@@ -42,6 +42,12 @@ public class TestResultServiceImpl extends AuditableBaseObjectServiceImpl<TestRe
         return baseObjectDAO.getAllMatchingOrdered(propertyValues, orderProperties, true);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<TestResult> getAllActiveTestResultsForTests(List<String> testIds) {
+        return baseObjectDAO.getAllActiveTestResultsForTests(testIds);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<TestResult> getActiveTestResultsByTest(String testId) {
@@ -135,6 +135,7 @@ public class TypeOfSamplePanelDAOImpl extends BaseDAOImpl<TypeOfSamplePanel, Str
             Query<TypeOfSamplePanel> query = entityManager.unwrap(Session.class).createQuery(sql,
                     TypeOfSamplePanel.class);
             query.setParameter("sampleId", Integer.parseInt(sampleType));
+            query.setCacheable(true);
             list = query.list();
         } catch (RuntimeException e) {
             LogEvent.logError(e);
@@ -154,6 +155,7 @@ public class TypeOfSamplePanelDAOImpl extends BaseDAOImpl<TypeOfSamplePanel, Str
             Query<TypeOfSamplePanel> query = entityManager.unwrap(Session.class).createQuery(sql,
                     TypeOfSamplePanel.class);
             query.setParameter("panelId", Integer.parseInt(panelId));
+            query.setCacheable(true);
             List<TypeOfSamplePanel> typeOfSamplePanels = query.list();
             return typeOfSamplePanels;
         } catch (HibernateException e) {
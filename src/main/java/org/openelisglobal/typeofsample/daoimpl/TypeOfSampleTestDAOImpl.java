@@ -127,6 +127,7 @@ public class TypeOfSampleTestDAOImpl extends BaseDAOImpl<TypeOfSampleTest, Strin
             Query<TypeOfSampleTest> query = entityManager.unwrap(Session.class).createQuery(sql,
                     TypeOfSampleTest.class);
             query.setParameter("sampleId", Integer.parseInt(sampleTypeId));
+            query.setCacheable(true);
             List<TypeOfSampleTest> list = query.list();
             return list;
         } catch (RuntimeException e) {
@@ -146,6 +147,7 @@ public class TypeOfSampleTestDAOImpl extends BaseDAOImpl<TypeOfSampleTest, Strin
             Query<TypeOfSampleTest> query = entityManager.unwrap(Session.class).createQuery(sql,
                     TypeOfSampleTest.class);
             query.setParameter("testId", Integer.parseInt(testId));
+            query.setCacheable(true);
             List<TypeOfSampleTest> list = query.list();
             return list.size() > 0 ? list.get(0) : null;
         } catch (RuntimeException e) {
@@ -164,6 +166,7 @@ public class TypeOfSampleTestDAOImpl extends BaseDAOImpl<TypeOfSampleTest, Strin
             Query<TypeOfSampleTest> query = entityManager.unwrap(Session.class).createQuery(sql,
                     TypeOfSampleTest.class);
             query.setParameter("testId", Integer.parseInt(testId));
+            query.setCacheable(true);
             List<TypeOfSampleTest> list = query.list();
             return list;
         } catch (RuntimeException e) {
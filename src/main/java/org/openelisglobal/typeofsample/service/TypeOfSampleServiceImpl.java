@@ -11,6 +11,7 @@ import javax.annotation.PostConstruct;
 import org.hibernate.Hibernate;
 import org.openelisglobal.common.exception.LIMSDuplicateRecordException;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.services.DisplayListService;
 import org.openelisglobal.localization.valueholder.Localization;
 import org.openelisglobal.panel.service.PanelService;
 import org.openelisglobal.panel.valueholder.Panel;
@@ -334,6 +335,7 @@ public class TypeOfSampleServiceImpl extends AuditableBaseObjectServiceImpl<Type
     @Transactional
     public void delete(TypeOfSample typeOfSample) {
         super.delete(typeOfSample);
+        invalidateDisplayLists();
         getBaseObjectDAO().clearMap();
     }
 
@@ -344,6 +346,7 @@ public class TypeOfSampleServiceImpl extends AuditableBaseObjectServiceImpl<Type
             throw new LIMSDuplicateRecordException("Duplicate record exists for " + typeOfSample.getDescription());
         }
         baseObjectDAO.clearMap();
+        invalidateDisplayLists();
         return super.insert(typeOfSample);
     }
 
@@ -367,6 +370,19 @@ public class TypeOfSampleServiceImpl extends AuditableBaseObjectServiceImpl<Type
         return super.update(typeOfSample);
     }
 
+    @Override
+    protected TypeOfSample update(TypeOfSample typeOfSample, String auditTrailType) {
+        invalidateDisplayLists();
+        return super.update(typeOfSample, auditTrailType);
+    }
+
+    private void invalidateDisplayLists() {
+        DisplayListService displayListService = DisplayListService.getInstance();
+        if (displayListService != null) {
+            displayListService.invalidate(DisplayListService.SAMPLE_TYPE_LISTS);
+        }
+    }
+
     private boolean duplicateTypeOfSampleExists(TypeOfSample typeOfSample) {
         return baseObjectDAO.duplicateTypeOfSampleExists(typeOfSample);
     }
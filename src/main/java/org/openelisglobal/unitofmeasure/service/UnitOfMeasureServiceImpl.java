@@ -7,6 +7,7 @@ import javax.annotation.PostConstruct;
 import org.hibernate.Hibernate;
 import org.openelisglobal.common.exception.LIMSDuplicateRecordException;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.common.services.DisplayListService;
 import org.openelisglobal.common.util.LocaleChangeListener;
 import org.openelisglobal.internationalization.GlobalLocaleResolver;
 import org.openelisglobal.localization.valueholder.Localization;
@@ -116,6 +117,7 @@ public class UnitOfMeasureServiceImpl extends AuditableBaseObjectServiceImpl<Uni
             throw new LIMSDuplicateRecordException(
                     "Duplicate record exists for " + unitOfMeasure.getUnitOfMeasureName());
         }
+        invalidateDisplayLists();
         return super.insert(unitOfMeasure);
     }
 
@@ -137,6 +139,19 @@ public class UnitOfMeasureServiceImpl extends AuditableBaseObjectServiceImpl<Uni
         return super.update(unitOfMeasure);
     }
 
+    @Override
+    protected UnitOfMeasure update(UnitOfMeasure unitOfMeasure, String auditTrailType) {
+        invalidateDisplayLists();
+        return super.update(unitOfMeasure, auditTrailType);
+    }
+
+    private void invalidateDisplayLists() {
+        DisplayListService displayListService = DisplayListService.getInstance();
+        if (displayListService != null) {
+            displayListService.invalidate(DisplayListService.UNIT_OF_MEASURE_LISTS);
+        }
+    }
+
     @Override
     public Localization getLocalizationForUnitOfMeasure(String id) {
         UnitOfMeasure unitOfMeasure = getUnitOfMeasureById(id);
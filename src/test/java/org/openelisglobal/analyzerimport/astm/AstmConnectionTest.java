@@ -0,0 +1,260 @@
+package org.openelisglobal.analyzerimport.astm;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AstmConnectionTest {
+
+    private ServerSocketChannel serverChannel;
+    private SocketChannel instrument;
+    private SocketChannel lisSide;
+    private Selector selector;
+    private List<String> messages;
+    private AstmConnection connection;
+
+    @Before
+    public void init() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        instrument = SocketChannel.open(serverChannel.getLocalAddress());
+        lisSide = serverChannel.accept();
+        lisSide.configureBlocking(false);
+        selector = Selector.open();
+        SelectionKey key = lisSide.register(selector, SelectionKey.OP_READ);
+        messages = new ArrayList<>();
+        connection = createConnection(key, 10000);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        selector.close();
+        lisSide.close();
+        instrument.close();
+        serverChannel.close();
+    }
+
+    @Test
+    public void onRead_shouldAckEachFrameAndHandOverTheMessageAtEot() throws IOException {
+        List<byte[]> frames = AstmFraming.toFrames("H|\\^&\rP|1\rL|1|N");
+
+        send(AstmFraming.ENQ);
+        assertAnswer(AstmFraming.ACK);
+        for (byte[] frame : frames) {
+            send(frame);
+            assertAnswer(AstmFraming.ACK);
+        }
+        Assert.assertTrue(messages.isEmpty());
+        send(AstmFraming.EOT);
+
+        Assert.assertEquals(Arrays.asList("H|\\^&\rP|1\rL|1|N\r"), messages);
+        Assert.assertEquals(3, connection.getStatistics().getFramesIn());
+        Assert.assertEquals(1, connection.getStatistics().getMessagesIn());
+    }
+
+    @Test
+    public void onRead_shouldJoinEtbFramesIntoOneRecord() throws IOException {
+        char[] record = new char[500];
+        Arrays.fill(record, 'R');
+        List<byte[]> frames = AstmFraming.toFrames(new String(record));
+        Assert.assertEquals(AstmFraming.ETB, frames.get(0)[frames.get(0).length - 5]);
+
+        receive(frames);
+
+        Assert.assertEquals(Arrays.asList(new String(record) + "\r"), messages);
+    }
+
+    @Test
+    public void onRead_shouldAcceptFramesSplitAcrossReads() throws IOException {
+        byte[] frame = AstmFraming.toFrames("H|\\^&").get(0);
+
+        send(AstmFraming.ENQ);
+        assertAnswer(AstmFraming.ACK);
+        send(Arrays.copyOfRange(frame, 0, 4));
+        send(Arrays.copyOfRange(frame, 4, frame.length - 1));
+        send(Arrays.copyOfRange(frame, frame.length - 1, frame.length));
+        assertAnswer(AstmFraming.ACK);
+        send(AstmFraming.EOT);
+
+        Assert.assertEquals(Arrays.asList("H|\\^&\r"), messages);
+    }
+
+    @Test
+    public void onRead_shouldNakABadChecksumAndTakeTheRetransmission() throws IOException {
+        byte[] frame = AstmFraming.toFrames("H|\\^&").get(0);
+        byte[] corrupted = frame.clone();
+        corrupted[3] = '#';
+
+        send(AstmFraming.ENQ);
+        assertAnswer(AstmFraming.ACK);
+        send(corrupted);
+        assertAnswer(AstmFraming.NAK);
+        send(frame);
+        assertAnswer(AstmFraming.ACK);
+        send(AstmFraming.EOT);
+
+        Assert.assertEquals(Arrays.asList("H|\\^&\r"), messages);
+        Assert.assertEquals(1, connection.getStatistics().getNaksSent());
+    }
+
+    @Test
+    public void onRead_shouldAckButNotKeepADuplicateFrame() throws IOException {
+        List<byte[]> frames = AstmFraming.toFrames("H|\\^&\rL|1|N");
+
+        send(AstmFraming.ENQ);
+        assertAnswer(AstmFraming.ACK);
+        send(frames.get(0));
+        assertAnswer(AstmFraming.ACK);
+        // the ACK was lost and the instrument sends the frame again
+        send(frames.get(0));
+        assertAnswer(AstmFraming.ACK);
+        send(frames.get(1));
+        assertAnswer(AstmFraming.ACK);
+        send(AstmFraming.EOT);
+
+        Assert.assertEquals(Arrays.asList("H|\\^&\rL|1|N\r"), messages);
+        Assert.assertEquals(2, connection.getStatistics().getFramesIn());
+    }
+
+    @Test
+    public void onRead_shouldNakAFrameOutOfSequence() throws IOException {
+        List<byte[]> frames = AstmFraming.toFrames("H|\\^&\rP|1\rL|1|N");
+
+        send(AstmFraming.ENQ);
+        assertAnswer(AstmFraming.ACK);
+        send(frames.get(0));
+        assertAnswer(AstmFraming.ACK);
+        send(frames.get(2));
+        assertAnswer(AstmFraming.NAK);
+        send(frames.get(1));
+        assertAnswer(AstmFraming.ACK);
+        send(frames.get(2));
+        assertAnswer(AstmFraming.ACK);
+        send(AstmFraming.EOT);
+
+        Assert.assertEquals(Arrays.asList("H|\\^&\rP|1\rL|1|N\r"), messages);
+    }
+
+    @Test
+    public void onRead_shouldFollowTheFrameNumberPast7() throws IOException {
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            message.append("R|").append(i).append('\r');
+        }
+        List<byte[]> frames = AstmFraming.toFrames(message.toString());
+        Assert.assertEquals('0', frames.get(7)[1]);
+
+        receive(frames);
+
+        Assert.assertEquals(Arrays.asList(message.toString()), messages);
+        Assert.assertEquals(0, connection.getStatistics().getNaksSent());
+    }
+
+    @Test
+    public void onRead_shouldIgnoreNoiseOutsideAMessage() throws IOException {
+        send(ascii("noise"));
+        send(AstmFraming.EOT);
+
+        receive(AstmFraming.toFrames("H|\\^&"));
+
+        Assert.assertEquals(Arrays.asList("H|\\^&\r"), messages);
+    }
+
+    @Test
+    public void onRead_shouldDropAMessageLongerThanTheLimit() throws IOException {
+        connection = createConnection(lisSide.keyFor(selector), 10);
+
+        receive(AstmFraming.toFrames("H|\\^&\rP|1|0123456789\rL|1|N"));
+        receive(AstmFraming.toFrames("H|\\^&"));
+
+        Assert.assertEquals(Arrays.asList("H|\\^&\r"), messages);
+        Assert.assertEquals(1, connection.getStatistics().getMessagesDropped());
+    }
+
+    @Test
+    public void send_shouldEstablishAndSendFramesUntilEot() throws IOException {
+        connection.send("H|\\^&\rL|1|N");
+        assertAnswer(AstmFraming.ENQ);
+
+        send(AstmFraming.ACK);
+        List<byte[]> frames = AstmFraming.toFrames("H|\\^&\rL|1|N");
+        assertAnswer(frames.get(0));
+        // a refused frame is sent again
+        send(AstmFraming.NAK);
+        assertAnswer(frames.get(0));
+        send(AstmFraming.ACK);
+        assertAnswer(frames.get(1));
+        send(AstmFraming.ACK);
+        assertAnswer(AstmFraming.EOT);
+
+        Assert.assertEquals(1, connection.getStatistics().getMessagesOut());
+        Assert.assertEquals("IDLE", connection.getStatistics().getState());
+    }
+
+    @Test
+    public void send_shouldLetTheInstrumentGoFirstOnContention() throws IOException {
+        connection.send("H|\\^&");
+        assertAnswer(AstmFraming.ENQ);
+
+        // the instrument sent ENQ at the same time
+        receive(AstmFraming.toFrames("P|1"));
+
+        Assert.assertEquals(Arrays.asList("P|1\r"), messages);
+        Assert.assertEquals("IDLE", connection.getStatistics().getState());
+    }
+
+    private AstmConnection createConnection(SelectionKey key, int maxMessageLength) {
+        return new AstmConnection(lisSide, key, "instrument",
+                (connection, message, receivedAt) -> messages.add(new String(message, StandardCharsets.ISO_8859_1)),
+                maxMessageLength);
+    }
+
+    private void receive(List<byte[]> frames) throws IOException {
+        send(AstmFraming.ENQ);
+        assertAnswer(AstmFraming.ACK);
+        for (byte[] frame : frames) {
+            send(frame);
+            assertAnswer(AstmFraming.ACK);
+        }
+        send(AstmFraming.EOT);
+    }
+
+    private void send(byte controlCharacter) throws IOException {
+        send(new byte[] { controlCharacter });
+    }
+
+    private void send(byte[] bytes) throws IOException {
+        connection.onRead(ByteBuffer.wrap(bytes));
+    }
+
+    private void assertAnswer(byte controlCharacter) throws IOException {
+        assertAnswer(new byte[] { controlCharacter });
+    }
+
+    private void assertAnswer(byte[] expected) throws IOException {
+        ByteBuffer answer = ByteBuffer.allocate(expected.length);
+        while (answer.hasRemaining()) {
+            if (instrument.read(answer) < 0) {
+                break;
+            }
+        }
+        Assert.assertArrayEquals(expected, answer.array());
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
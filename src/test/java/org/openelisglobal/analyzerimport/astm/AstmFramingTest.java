@@ -0,0 +1,125 @@
+package org.openelisglobal.analyzerimport.astm;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AstmFramingTest {
+
+    @Test
+    public void checksum_shouldBeTheModulo256SumAsUpperCaseHex() {
+        byte[] frame = { AstmFraming.STX, '1', 'A', AstmFraming.ETX };
+
+        // 0x31 + 0x41 + 0x03
+        Assert.assertArrayEquals(ascii("75"), AstmFraming.checksum(frame, 1, 3));
+    }
+
+    @Test
+    public void checksum_shouldWrapAt256() {
+        byte[] frame = { AstmFraming.STX, '7', (byte) 0xFF, (byte) 0xFF, AstmFraming.ETB };
+
+        // 0x37 + 0xFF + 0xFF + 0x17 = 0x24C
+        Assert.assertArrayEquals(ascii("4C"), AstmFraming.checksum(frame, 1, 4));
+    }
+
+    @Test
+    public void hasValidChecksum_shouldAcceptLowerCaseAndRejectChangedFrames() {
+        byte[] frame = AstmFraming.toFrames("H|\\^&").get(0);
+        Assert.assertTrue(AstmFraming.hasValidChecksum(frame, frame.length));
+
+        byte[] lowerCase = frame.clone();
+        lowerCase[frame.length - 4] = (byte) Character.toLowerCase(lowerCase[frame.length - 4]);
+        lowerCase[frame.length - 3] = (byte) Character.toLowerCase(lowerCase[frame.length - 3]);
+        Assert.assertTrue(AstmFraming.hasValidChecksum(lowerCase, lowerCase.length));
+
+        byte[] changedText = frame.clone();
+        changedText[2] = 'X';
+        Assert.assertFalse(AstmFraming.hasValidChecksum(changedText, changedText.length));
+
+        byte[] changedNumber = frame.clone();
+        changedNumber[1] = '2';
+        Assert.assertFalse(AstmFraming.hasValidChecksum(changedNumber, changedNumber.length));
+    }
+
+    @Test
+    public void isFrameEnd_shouldNeedTheTerminatorChecksumAndCrLf() {
+        byte[] frame = AstmFraming.toFrames("H|\\^&").get(0);
+
+        Assert.assertTrue(AstmFraming.isFrameEnd(frame, frame.length));
+        for (int length = 0; length < frame.length; length++) {
+            Assert.assertFalse(AstmFraming.isFrameEnd(frame, length));
+        }
+    }
+
+    @Test
+    public void toFrames_shouldPutEachRecordInItsOwnFrame() {
+        List<byte[]> frames = AstmFraming.toFrames("H|\\^&\r\nP|1\rL|1|N\n");
+
+        Assert.assertEquals(3, frames.size());
+        Assert.assertEquals("H|\\^&\r", text(frames.get(0)));
+        Assert.assertEquals("P|1\r", text(frames.get(1)));
+        Assert.assertEquals("L|1|N\r", text(frames.get(2)));
+        for (int i = 0; i < frames.size(); i++) {
+            byte[] frame = frames.get(i);
+            Assert.assertEquals(AstmFraming.STX, frame[0]);
+            Assert.assertEquals('1' + i, frame[1]);
+            Assert.assertEquals(AstmFraming.ETX, frame[frame.length - 5]);
+            Assert.assertTrue(AstmFraming.isFrameEnd(frame, frame.length));
+            Assert.assertTrue(AstmFraming.hasValidChecksum(frame, frame.length));
+        }
+    }
+
+    @Test
+    public void toFrames_shouldContinueALongRecordOverEtbFrames() {
+        char[] record = new char[600];
+        Arrays.fill(record, 'R');
+        String message = new String(record);
+
+        List<byte[]> frames = AstmFraming.toFrames(message);
+
+        Assert.assertEquals(3, frames.size());
+        Assert.assertEquals(AstmFraming.MAX_FRAME_LENGTH, frames.get(0).length);
+        Assert.assertEquals(AstmFraming.ETB, frames.get(0)[frames.get(0).length - 5]);
+        Assert.assertEquals(AstmFraming.ETB, frames.get(1)[frames.get(1).length - 5]);
+        Assert.assertEquals(AstmFraming.ETX, frames.get(2)[frames.get(2).length - 5]);
+        StringBuilder text = new StringBuilder();
+        for (byte[] frame : frames) {
+            Assert.assertTrue(AstmFraming.hasValidChecksum(frame, frame.length));
+            text.append(text(frame));
+        }
+        Assert.assertEquals(message + "\r", text.toString());
+    }
+
+    @Test
+    public void toFrames_shouldWrapTheFrameNumberAt7() {
+        List<String> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            records.add("R|" + i);
+        }
+
+        List<byte[]> frames = AstmFraming.toFrames(String.join("\r", records));
+
+        StringBuilder frameNumbers = new StringBuilder();
+        for (byte[] frame : frames) {
+            frameNumbers.append((char) frame[1]);
+        }
+        Assert.assertEquals("1234567012", frameNumbers.toString());
+    }
+
+    @Test
+    public void toFrames_shouldSkipEmptyLines() {
+        Assert.assertEquals(2, AstmFraming.toFrames("H|\\^&\r\n\r\nL|1|N\r\n").size());
+        Assert.assertTrue(AstmFraming.toFrames("").isEmpty());
+    }
+
+    private static String text(byte[] frame) {
+        return new String(frame, 2, frame.length - 7, StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,247 @@
+package org.openelisglobal.analyzerimport.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.openelisglobal.analyzerimport.action.beans.AnalyzerImportJobStatus;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob.Source;
+import org.openelisglobal.analyzerimport.valueholder.AnalyzerImportJob.Status;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class AnalyzerImportQueueTest {
+
+    private AnalyzerImportJobService jobService;
+    private RecordingQueue queue;
+    // the jobs as they are in the database
+    private Map<Integer, AnalyzerImportJob> jobs;
+    // tasks handed to the pool, run by the test
+    private List<Runnable> tasks;
+
+    @Before
+    public void init() {
+        jobs = new HashMap<>();
+        tasks = new ArrayList<>();
+
+        jobService = Mockito.mock(AnalyzerImportJobService.class);
+        when(jobService.insert(any(AnalyzerImportJob.class))).thenAnswer(invocation -> {
+            AnalyzerImportJob job = invocation.getArgument(0);
+            Integer id = jobs.size() + 1;
+            job.setId(id);
+            jobs.put(id, job);
+            return id;
+        });
+        when(jobService.update(any(AnalyzerImportJob.class))).thenAnswer(invocation -> {
+            AnalyzerImportJob job = invocation.getArgument(0);
+            jobs.put(job.getId(), job);
+            return job;
+        });
+        when(jobService.get(anyInt())).thenAnswer(invocation -> jobs.get(invocation.getArgument(0)));
+        when(jobService.getJobKeysWithStatus(any())).thenReturn(new ArrayList<>());
+
+        InstrumentedTaskExecutor executor = Mockito.mock(InstrumentedTaskExecutor.class);
+        doAnswer(invocation -> tasks.add(invocation.getArgument(0))).when(executor).execute(any(Runnable.class));
+
+        queue = new RecordingQueue();
+        ReflectionTestUtils.setField(queue, "jobService", jobService);
+        ReflectionTestUtils.setField(queue, "executor", executor);
+        ReflectionTestUtils.setField(queue, "retentionDays", 0);
+    }
+
+    @Test
+    public void submit_shouldImportNewContentOnThePool() {
+        AnalyzerImportJobStatus status = queue.submit(payload("first"), "results.csv", Source.FILE, "cobas", "1");
+
+        Assert.assertFalse(status.isDuplicate());
+        Assert.assertEquals(Status.QUEUED.name(), status.getStatus());
+        Assert.assertTrue(queue.imported.isEmpty());
+
+        runTasks();
+
+        Assert.assertEquals(Arrays.asList(status.getJobId()), queue.imported);
+        AnalyzerImportJob job = jobs.get(status.getJobId());
+        Assert.assertEquals(Status.SUCCEEDED, job.getStatus());
+        Assert.assertEquals(Integer.valueOf(1), job.getAttempts());
+        Assert.assertNotNull(job.getFinishedTime());
+    }
+
+    @Test
+    public void submit_shouldRecordWhyAnImportFailed() {
+        queue.error = "Unable to understand which analyzer sent the file";
+
+        AnalyzerImportJobStatus status = queue.submit(payload("first"), "results.csv", Source.FILE, "cobas", "1");
+        runTasks();
+
+        AnalyzerImportJob job = jobs.get(status.getJobId());
+        Assert.assertEquals(Status.FAILED, job.getStatus());
+        Assert.assertEquals(queue.error, job.getError());
+    }
+
+    @Test
+    public void submit_shouldImportAnAnalyzersUploadsInTheOrderTheyArrived() {
+        Integer first = queue.submit(payload("first"), "1.csv", Source.FILE, "cobas", "1").getJobId();
+        Integer second = queue.submit(payload("second"), "2.csv", Source.FILE, "cobas", "1").getJobId();
+        Integer third = queue.submit(payload("third"), "3.csv", Source.FILE, "cobas", "1").getJobId();
+
+        // one lane per analyzer, worked by a single task
+        Assert.assertEquals(1, tasks.size());
+        runTasks();
+
+        Assert.assertEquals(Arrays.asList(first, second, third), queue.imported);
+    }
+
+    @Test
+    public void submit_shouldGiveEachAnalyzerItsOwnLane() {
+        queue.submit(payload("first"), "1.csv", Source.FILE, "cobas", "1");
+        queue.submit(payload("first"), "1.csv", Source.FILE, "sysmex", "1");
+
+        Assert.assertEquals(2, tasks.size());
+    }
+
+    @Test
+    public void submit_shouldNotQueueContentAlreadyReceivedFromTheAnalyzer() {
+        AnalyzerImportJob imported = createJob(7, "cobas", Status.SUCCEEDED);
+        when(jobService.getJobForAnalyzerAndContent(eq("cobas"), anyString())).thenReturn(imported);
+
+        AnalyzerImportJobStatus status = queue.submit(payload("first"), "results.csv", Source.FILE, "cobas", "1");
+
+        Assert.assertTrue(status.isDuplicate());
+        Assert.assertEquals(Integer.valueOf(7), status.getJobId());
+        verify(jobService, never()).insert(any(AnalyzerImportJob.class));
+        verify(jobService, never()).update(any(AnalyzerImportJob.class));
+        Assert.assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    public void submit_shouldNotQueueAJobThatNeedsReviewAgain() {
+        AnalyzerImportJob interrupted = createJob(7, "cobas", Status.NEEDS_REVIEW);
+        when(jobService.getJobForAnalyzerAndContent(eq("cobas"), anyString())).thenReturn(interrupted);
+
+        AnalyzerImportJobStatus status = queue.submit(payload("first"), "results.csv", Source.FILE, "cobas", "1");
+
+        Assert.assertTrue(status.isDuplicate());
+        Assert.assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    public void submit_shouldQueueFailedContentAgain() {
+        AnalyzerImportJob failed = createJob(7, "cobas", Status.FAILED);
+        failed.setError("Unable to read file");
+        jobs.put(7, failed);
+        when(jobService.getJobForAnalyzerAndContent(eq("cobas"), anyString())).thenReturn(failed);
+
+        AnalyzerImportJobStatus status = queue.submit(payload("first"), "results.csv", Source.FILE, "cobas", "1");
+        runTasks();
+
+        Assert.assertFalse(status.isDuplicate());
+        Assert.assertEquals(Arrays.asList(7), queue.imported);
+        Assert.assertEquals(Status.SUCCEEDED, jobs.get(7).getStatus());
+        Assert.assertNull(jobs.get(7).getError());
+        Assert.assertEquals(Integer.valueOf(2), jobs.get(7).getAttempts());
+        verify(jobService, never()).insert(any(AnalyzerImportJob.class));
+    }
+
+    @Test
+    public void sweep_shouldQueueJobsLeftQueued() {
+        jobs.put(3, createJob(3, "cobas", Status.QUEUED));
+        when(jobService.getJobKeysWithStatus(Arrays.asList(Status.QUEUED)))
+                .thenReturn(Collections.singletonList(new Object[] { 3, "cobas" }));
+
+        queue.sweep();
+        runTasks();
+
+        Assert.assertEquals(Arrays.asList(3), queue.imported);
+        Assert.assertEquals(Status.SUCCEEDED, jobs.get(3).getStatus());
+    }
+
+    @Test
+    public void sweep_shouldNotQueueAJobThatIsAlreadyWaiting() {
+        Integer jobId = queue.submit(payload("first"), "results.csv", Source.FILE, "cobas", "1").getJobId();
+        when(jobService.getJobKeysWithStatus(Arrays.asList(Status.QUEUED)))
+                .thenReturn(Collections.singletonList(new Object[] { jobId, "cobas" }));
+
+        queue.sweep();
+        runTasks();
+
+        Assert.assertEquals(Arrays.asList(jobId), queue.imported);
+    }
+
+    @Test
+    public void sweep_shouldMarkJobsInterruptedByARestartForReview() {
+        jobs.put(3, createJob(3, "cobas", Status.RUNNING));
+        when(jobService.getJobKeysWithStatus(Arrays.asList(Status.RUNNING)))
+                .thenReturn(Collections.singletonList(new Object[] { 3, "cobas" }));
+
+        queue.sweep();
+        runTasks();
+
+        verify(jobService).markForReviewIfRunning(eq(3), anyString(), any(Timestamp.class));
+        Assert.assertTrue(queue.imported.isEmpty());
+    }
+
+    @Test
+    public void sweep_shouldLeaveAJobThatIsBeingImportedHere() {
+        Integer jobId = queue.submit(payload("first"), "results.csv", Source.FILE, "cobas", "1").getJobId();
+        when(jobService.getJobKeysWithStatus(Arrays.asList(Status.RUNNING)))
+                .thenReturn(Collections.singletonList(new Object[] { jobId, "cobas" }));
+
+        queue.sweep();
+
+        verify(jobService, never()).markForReviewIfRunning(anyInt(), anyString(), any(Timestamp.class));
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private AnalyzerImportJob createJob(Integer id, String analyzerKey, Status status) {
+        AnalyzerImportJob job = new AnalyzerImportJob();
+        job.setId(id);
+        job.setAnalyzerKey(analyzerKey);
+        job.setSource(Source.FILE);
+        job.setFileName("results.csv");
+        job.setPayload(payload("first"));
+        job.setStatus(status);
+        job.setAttempts(1);
+        job.setReceivedTime(new Timestamp(System.currentTimeMillis()));
+        return job;
+    }
+
+    private static byte[] payload(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // records the jobs it is given in place of reading them
+    private static class RecordingQueue extends AnalyzerImportQueue {
+
+        private final List<Integer> imported = new ArrayList<>();
+        private String error;
+
+        @Override
+        protected String parseAndInsert(AnalyzerImportJob job) {
+            imported.add(job.getId());
+            return error;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.openelisglobal.audittrail.daoimpl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.openelisglobal.audittrail.valueholder.History;
+import org.openelisglobal.common.action.IActionConstants;
+import org.openelisglobal.history.service.HistoryService;
+import org.openelisglobal.person.valueholder.Person;
+import org.openelisglobal.referencetables.service.ReferenceTablesService;
+import org.openelisglobal.referencetables.valueholder.ReferenceTables;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class AuditTrailServiceImplTest {
+
+    private static final int BATCH_SIZE = 3;
+
+    private HistoryService historyService;
+    private AuditTrailServiceImpl auditTrailService;
+    // the rows of each insertBatch call, copied since the pending list is reused
+    private List<List<History>> batches;
+
+    @Before
+    public void init() {
+        ReferenceTables referenceTable = new ReferenceTables();
+        referenceTable.setId("7");
+        referenceTable.setTableName("PERSON");
+        referenceTable.setKeepHistory(IActionConstants.YES);
+        ReferenceTablesService referenceTablesService = Mockito.mock(ReferenceTablesService.class);
+        when(referenceTablesService.getReferenceTableByName("PERSON")).thenReturn(referenceTable);
+
+        batches = new ArrayList<>();
+        historyService = Mockito.mock(HistoryService.class);
+        doAnswer(invocation -> batches.add(new ArrayList<>((List<History>) invocation.getArgument(0))))
+                .when(historyService).insertBatch(anyList());
+
+        auditTrailService = new AuditTrailServiceImpl();
+        ReflectionTestUtils.setField(auditTrailService, "referenceTablesService", referenceTablesService);
+        ReflectionTestUtils.setField(auditTrailService, "historyService", historyService);
+        ReflectionTestUtils.setField(auditTrailService, "batchSize", BATCH_SIZE);
+
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    public void saveNewHistory_shouldHoldTheRowsBackUntilTheBatchIsFull() {
+        saveNewHistory("1", "2");
+        Assert.assertTrue(batches.isEmpty());
+
+        saveNewHistory("3");
+
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(Arrays.asList("1", "2", "3"), referenceIds(batches.get(0)));
+        for (History history : batches.get(0)) {
+            Assert.assertEquals("1", history.getSysUserId());
+            Assert.assertEquals("7", history.getReferenceTable());
+            Assert.assertEquals(IActionConstants.AUDIT_TRAIL_INSERT, history.getActivity());
+            Assert.assertNotNull(history.getTimestamp());
+        }
+    }
+
+    @Test
+    public void saveNewHistory_shouldWriteTheRestBeforeCommit() {
+        saveNewHistory("1", "2", "3", "4", "5");
+        Assert.assertEquals(1, batches.size());
+
+        commit();
+
+        Assert.assertEquals(2, batches.size());
+        Assert.assertEquals(Arrays.asList("4", "5"), referenceIds(batches.get(1)));
+        verify(historyService, never()).insert(any(History.class));
+    }
+
+    @Test
+    public void saveNewHistory_shouldNotWriteAnEmptyBatchAtCommit() {
+        saveNewHistory("1", "2", "3");
+
+        commit();
+
+        Assert.assertEquals(1, batches.size());
+        verify(historyService, times(1)).insertBatch(anyList());
+    }
+
+    @Test
+    public void saveNewHistory_shouldDropThePendingRowsOnRollback() {
+        saveNewHistory("1", "2");
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        Assert.assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void saveNewHistory_outsideATransaction_shouldInsertStraightAway() {
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+
+        saveNewHistory("1");
+
+        verify(historyService, times(1)).insert(any(History.class));
+        Assert.assertTrue(batches.isEmpty());
+    }
+
+    private void saveNewHistory(String... personIds) {
+        for (String personId : personIds) {
+            Person person = new Person();
+            person.setId(personId);
+            auditTrailService.saveNewHistory(person, "1", "PERSON");
+        }
+    }
+
+    private void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            synchronization.beforeCommit(false);
+        }
+        for (TransactionSynchronization synchronization : synchronizations) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+    }
+
+    private static List<String> referenceIds(List<History> histories) {
+        return histories.stream().map(History::getReferenceId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,91 @@
+package org.openelisglobal.audittrail.daoimpl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import javax.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.openelisglobal.audittrail.valueholder.History;
+import org.openelisglobal.common.exception.LIMSRuntimeException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class HistoryDAOImplTest {
+
+    private PreparedStatement statement;
+    private HistoryDAOImpl historyDAO;
+
+    @Before
+    public void init() throws SQLException {
+        statement = Mockito.mock(PreparedStatement.class);
+        Connection connection = Mockito.mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        Session session = Mockito.mock(Session.class);
+        doAnswer(invocation -> {
+            ((Work) invocation.getArgument(0)).execute(connection);
+            return null;
+        }).when(session).doWork(any(Work.class));
+        EntityManager entityManager = Mockito.mock(EntityManager.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+
+        historyDAO = new HistoryDAOImpl();
+        ReflectionTestUtils.setField(historyDAO, "entityManager", entityManager);
+    }
+
+    @Test
+    public void insertBatch_shouldAddEveryRowToOneBatch() throws SQLException {
+        History first = createHistory("11", "I", null);
+        History second = createHistory("12", "U", new byte[] { 1, 2 });
+
+        historyDAO.insertBatch(Arrays.asList(first, second));
+
+        InOrder inOrder = Mockito.inOrder(statement);
+        inOrder.verify(statement).setInt(2, 11);
+        inOrder.verify(statement).setString(5, "I");
+        inOrder.verify(statement).setBytes(6, null);
+        inOrder.verify(statement).addBatch();
+        inOrder.verify(statement).setInt(2, 12);
+        inOrder.verify(statement).setString(5, "U");
+        inOrder.verify(statement).setBytes(6, new byte[] { 1, 2 });
+        inOrder.verify(statement).addBatch();
+        inOrder.verify(statement).executeBatch();
+        verify(statement, times(2)).setInt(1, 1);
+        verify(statement, times(2)).setInt(3, 7);
+        verify(statement, times(1)).executeBatch();
+        verify(statement).close();
+    }
+
+    @Test(expected = LIMSRuntimeException.class)
+    public void insertBatch_shouldRejectANonNumericReference() throws SQLException {
+        try {
+            historyDAO.insertBatch(Arrays.asList(createHistory("not a number", "I", null)));
+        } finally {
+            verify(statement, never()).executeBatch();
+        }
+    }
+
+    private History createHistory(String referenceId, String activity, byte[] changes) {
+        History history = new History();
+        history.setSysUserId("1");
+        history.setReferenceId(referenceId);
+        history.setReferenceTable("7");
+        history.setTimestamp(new Timestamp(System.currentTimeMillis()));
+        history.setActivity(activity);
+        history.setChanges(changes);
+        return history;
+    }
+}
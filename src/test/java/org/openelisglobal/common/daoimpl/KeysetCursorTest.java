@@ -0,0 +1,104 @@
+package org.openelisglobal.common.daoimpl;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KeysetCursorTest {
+
+    private static final int ORDERING = "Person[lastName, id]false".hashCode();
+
+    @Test
+    public void decode_shouldReturnTheValuesThatWereEncoded() {
+        Timestamp timestamp = Timestamp.valueOf("2024-03-01 10:15:30.123456");
+        List<Object> values = Arrays.asList("Doe", 42, 42L, new BigDecimal("12.50"), Boolean.TRUE, timestamp,
+                java.sql.Date.valueOf("2024-03-01"), new java.util.Date(1709288130123L));
+
+        KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode(false, ORDERING, values), ORDERING);
+
+        Assert.assertFalse(cursor.isBefore());
+        Assert.assertEquals(values, cursor.getValues());
+        for (int i = 0; i < values.size(); i++) {
+            Assert.assertEquals(values.get(i).getClass(), cursor.getValues().get(i).getClass());
+        }
+    }
+
+    @Test
+    public void decode_shouldKeepTheNanosOfATimestamp() {
+        Timestamp timestamp = Timestamp.valueOf("2024-03-01 10:15:30.123456789");
+
+        KeysetCursor cursor = KeysetCursor.decode(
+                KeysetCursor.encode(false, ORDERING, Collections.singletonList(timestamp)), ORDERING);
+
+        Assert.assertEquals(123456789, ((Timestamp) cursor.getValues().get(0)).getNanos());
+    }
+
+    @Test
+    public void decode_shouldKeepTheDirection() {
+        String cursor = KeysetCursor.encode(true, ORDERING, Collections.singletonList("1"));
+
+        Assert.assertTrue(KeysetCursor.decode(cursor, ORDERING).isBefore());
+    }
+
+    @Test
+    public void decode_shouldKeepStringsWithSeparatorsAndNonAsciiCharacters() {
+        List<Object> values = Arrays.asList("Doe, Jr.", "", "Nguy\u1ec5n%2C", "a+b c");
+
+        KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode(false, ORDERING, values), ORDERING);
+
+        Assert.assertEquals(values, cursor.getValues());
+    }
+
+    @Test
+    public void encode_shouldMakeUrlSafeCursors() {
+        String cursor = KeysetCursor.encode(false, ORDERING, Arrays.asList("??>>~~", 1));
+
+        Assert.assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encode_shouldRejectNullValues() {
+        KeysetCursor.encode(false, ORDERING, Arrays.asList("Doe", null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encode_shouldRejectTypesItCanNotRestore() {
+        KeysetCursor.encode(false, ORDERING, Collections.singletonList(new Object()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_shouldRejectACursorForAnotherOrdering() {
+        String cursor = KeysetCursor.encode(false, ORDERING, Collections.singletonList("1"));
+
+        KeysetCursor.decode(cursor, "Person[lastName, id]true".hashCode());
+    }
+
+    @Test
+    public void decode_shouldRejectMalformedCursors() {
+        assertMalformed("not base64!");
+        assertMalformed(encodeRaw("a"));
+        assertMalformed(encodeRaw("x," + Integer.toHexString(ORDERING) + ",S1"));
+        assertMalformed(encodeRaw("a," + Integer.toHexString(ORDERING) + ","));
+        assertMalformed(encodeRaw("a," + Integer.toHexString(ORDERING) + ",Qvalue"));
+        assertMalformed(encodeRaw("a," + Integer.toHexString(ORDERING) + ",Inot-a-number"));
+    }
+
+    private static void assertMalformed(String cursor) {
+        try {
+            KeysetCursor.decode(cursor, ORDERING);
+            Assert.fail("expected " + cursor + " to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static String encodeRaw(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,162 @@
+package org.openelisglobal.common.daoimpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openelisglobal.BaseWebContextSensitiveTest;
+import org.openelisglobal.common.dao.KeysetPage;
+import org.openelisglobal.patient.service.PatientService;
+import org.openelisglobal.person.service.PersonService;
+import org.openelisglobal.person.valueholder.Person;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@Transactional
+public class KeysetPageTest extends BaseWebContextSensitiveTest {
+
+    private static final List<String> LAST_NAMES = Arrays.asList("Doe", "Smith", "Doe", "Adams", "Smith", "Doe",
+            "Brown", "Adams", "Doe", "Clark", "Smith");
+
+    @Autowired
+    PersonService personService;
+
+    @Autowired
+    PatientService patientService;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    private PersonPager pager;
+
+    @Before
+    public void init() throws Exception {
+        patientService.deleteAll(patientService.getAll());
+        personService.deleteAll(personService.getAll());
+        for (String lastName : LAST_NAMES) {
+            Person person = new Person();
+            person.setLastName(lastName);
+            person.setFirstName(lastName.startsWith("D") ? "Jane" : "John");
+            personService.insert(person);
+        }
+        pager = new PersonPager();
+        ReflectionTestUtils.setField(pager, "entityManager", entityManager);
+    }
+
+    @Test
+    public void getKeysetPage_shouldReadEveryRowOnceInOrder() {
+        List<String> allIds = ids(pager.page(false, null, 100).getItems());
+        Assert.assertEquals(LAST_NAMES.size(), allIds.size());
+
+        List<String> pagedIds = new ArrayList<>();
+        KeysetPage<Person> page = pager.page(false, null, 3);
+        Assert.assertFalse(page.hasPrevious());
+        pagedIds.addAll(ids(page.getItems()));
+        while (page.hasNext()) {
+            page = pager.page(false, page.getNextCursor(), 3);
+            Assert.assertTrue(page.hasPrevious());
+            pagedIds.addAll(ids(page.getItems()));
+        }
+
+        Assert.assertEquals(allIds, pagedIds);
+        List<String> lastNames = pager.page(false, null, 100).getItems().stream().map(Person::getLastName)
+                .collect(Collectors.toList());
+        List<String> sortedLastNames = new ArrayList<>(LAST_NAMES);
+        Collections.sort(sortedLastNames);
+        Assert.assertEquals(sortedLastNames, lastNames);
+    }
+
+    @Test
+    public void getKeysetPage_shouldNotHaveANextPageWhenTheRowsFillTheLastPage() {
+        KeysetPage<Person> page = pager.page(false, null, LAST_NAMES.size());
+
+        Assert.assertEquals(LAST_NAMES.size(), page.getItems().size());
+        Assert.assertFalse(page.hasNext());
+        Assert.assertFalse(page.hasPrevious());
+    }
+
+    @Test
+    public void getKeysetPage_shouldReadThePreviousPageFromItsCursor() {
+        KeysetPage<Person> first = pager.page(false, null, 4);
+        KeysetPage<Person> second = pager.page(false, first.getNextCursor(), 4);
+        KeysetPage<Person> third = pager.page(false, second.getNextCursor(), 4);
+
+        KeysetPage<Person> backToSecond = pager.page(false, third.getPreviousCursor(), 4);
+        Assert.assertEquals(ids(second.getItems()), ids(backToSecond.getItems()));
+        Assert.assertTrue(backToSecond.hasNext());
+
+        KeysetPage<Person> backToFirst = pager.page(false, backToSecond.getPreviousCursor(), 4);
+        Assert.assertEquals(ids(first.getItems()), ids(backToFirst.getItems()));
+        Assert.assertFalse(backToFirst.hasPrevious());
+        Assert.assertTrue(backToFirst.hasNext());
+    }
+
+    @Test
+    public void getKeysetPage_descending_shouldReadTheRowsInReverse() {
+        List<String> ascendingIds = ids(pager.page(false, null, 100).getItems());
+
+        List<String> descendingIds = new ArrayList<>();
+        KeysetPage<Person> page = pager.page(true, null, 5);
+        descendingIds.addAll(ids(page.getItems()));
+        while (page.hasNext()) {
+            page = pager.page(true, page.getNextCursor(), 5);
+            descendingIds.addAll(ids(page.getItems()));
+        }
+
+        Collections.reverse(ascendingIds);
+        Assert.assertEquals(ascendingIds, descendingIds);
+    }
+
+    @Test
+    public void getMatchingKeysetPage_shouldOnlyReadMatchingRows() {
+        List<Person> janes = new ArrayList<>();
+        KeysetPage<Person> page = pager.getMatchingKeysetPage(Collections.singletonMap("firstName", "Jane"),
+                Arrays.asList("lastName"), false, null);
+        janes.addAll(page.getItems());
+        while (page.hasNext()) {
+            page = pager.getMatchingKeysetPage(Collections.singletonMap("firstName", "Jane"),
+                    Arrays.asList("lastName"), false, page.getNextCursor());
+            janes.addAll(page.getItems());
+        }
+
+        Assert.assertEquals(Collections.frequency(LAST_NAMES, "Doe"), janes.size());
+        for (Person jane : janes) {
+            Assert.assertEquals("Doe", jane.getLastName());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getKeysetPage_shouldRejectACursorFromAnotherOrdering() {
+        String cursor = pager.page(false, null, 3).getNextCursor();
+
+        pager.page(true, cursor, 3);
+    }
+
+    private static List<String> ids(List<Person> persons) {
+        return persons.stream().map(Person::getId).collect(Collectors.toList());
+    }
+
+    private static class PersonPager extends BaseDAOImpl<Person, String> {
+
+        private PersonPager() {
+            super(Person.class);
+        }
+
+        private KeysetPage<Person> page(boolean descending, String cursor, int pageSize) {
+            return getKeysetPage((criteriaBuilder, root) -> new ArrayList<>(), Arrays.asList("lastName"), descending,
+                    cursor, pageSize);
+        }
+
+        @Override
+        protected int getDefaultPageSize() {
+            return 2;
+        }
+    }
+}
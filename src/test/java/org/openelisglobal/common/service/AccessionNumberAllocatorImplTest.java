@@ -0,0 +1,140 @@
+package org.openelisglobal.common.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.openelisglobal.common.provider.validation.AccessionNumberValidatorFactory.AccessionFormat;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class AccessionNumberAllocatorImplTest {
+
+    private static final LongSupplier NONE_IN_USE = () -> 0L;
+
+    private AccessionService accessionService;
+    // the counter rows, by prefix and format
+    private Map<String, AtomicLong> counters;
+
+    @Before
+    public void init() {
+        counters = new ConcurrentHashMap<>();
+        accessionService = Mockito.mock(AccessionService.class);
+        when(accessionService.reserveBlock(anyString(), any(AccessionFormat.class), anyInt(), any()))
+                .thenAnswer(invocation -> counter(invocation.getArgument(0), invocation.getArgument(1))
+                        .addAndGet((Integer) invocation.getArgument(2)));
+        when(accessionService.getCurVal(anyString(), any(AccessionFormat.class), any()))
+                .thenAnswer(invocation -> counter(invocation.getArgument(0), invocation.getArgument(1)).get());
+    }
+
+    @Test
+    public void nextNumber_withBlockSizeOne_shouldReserveEveryNumber() {
+        AccessionNumberAllocator allocator = createAllocator(1);
+
+        Assert.assertEquals(1, allocator.nextNumber("", AccessionFormat.SITEYEARNUM, NONE_IN_USE));
+        Assert.assertEquals(2, allocator.nextNumber("", AccessionFormat.SITEYEARNUM, NONE_IN_USE));
+        Assert.assertEquals(3, allocator.nextNumber("", AccessionFormat.SITEYEARNUM, NONE_IN_USE));
+        verify(accessionService, times(3)).reserveBlock(eq(""), eq(AccessionFormat.SITEYEARNUM), eq(1), any());
+    }
+
+    @Test
+    public void nextNumber_shouldHandOutABlockBeforeReservingTheNext() {
+        AccessionNumberAllocator allocator = createAllocator(10);
+
+        for (long expected = 1; expected <= 10; ++expected) {
+            Assert.assertEquals(expected, allocator.nextNumber("", AccessionFormat.SITEYEARNUM, NONE_IN_USE));
+        }
+        verify(accessionService, times(1)).reserveBlock(anyString(), any(AccessionFormat.class), anyInt(), any());
+
+        Assert.assertEquals(11, allocator.nextNumber("", AccessionFormat.SITEYEARNUM, NONE_IN_USE));
+        verify(accessionService, times(2)).reserveBlock(anyString(), any(AccessionFormat.class), anyInt(), any());
+    }
+
+    @Test
+    public void nextNumber_shouldStartAfterNumbersReservedByAnotherNode() {
+        AccessionNumberAllocator allocator = createAllocator(5);
+        counter("", AccessionFormat.SITEYEARNUM).set(42);
+
+        Assert.assertEquals(43, allocator.nextNumber("", AccessionFormat.SITEYEARNUM, NONE_IN_USE));
+        Assert.assertEquals(44, allocator.nextNumber("", AccessionFormat.SITEYEARNUM, NONE_IN_USE));
+    }
+
+    @Test
+    public void nextNumber_shouldKeepACounterPerPrefixAndFormat() {
+        AccessionNumberAllocator allocator = createAllocator(1);
+
+        Assert.assertEquals(1, allocator.nextNumber("LART", AccessionFormat.PROGRAMNUM, NONE_IN_USE));
+        Assert.assertEquals(1, allocator.nextNumber("ARV", AccessionFormat.PROGRAMNUM, NONE_IN_USE));
+        Assert.assertEquals(1, allocator.nextNumber("LART", AccessionFormat.YEARNUM_SIX, NONE_IN_USE));
+        Assert.assertEquals(2, allocator.nextNumber("LART", AccessionFormat.PROGRAMNUM, NONE_IN_USE));
+    }
+
+    @Test
+    public void peekNextNumber_shouldNotReserveANumber() {
+        AccessionNumberAllocator allocator = createAllocator(10);
+
+        Assert.assertEquals(1, allocator.peekNextNumber("", AccessionFormat.SITEYEARNUM, NONE_IN_USE));
+        verify(accessionService, never()).reserveBlock(anyString(), any(AccessionFormat.class), anyInt(), any());
+
+        allocator.nextNumber("", AccessionFormat.SITEYEARNUM, NONE_IN_USE);
+        Assert.assertEquals(2, allocator.peekNextNumber("", AccessionFormat.SITEYEARNUM, NONE_IN_USE));
+        Assert.assertEquals(2, allocator.nextNumber("", AccessionFormat.SITEYEARNUM, NONE_IN_USE));
+    }
+
+    @Test
+    public void nextNumber_shouldNeverHandOutTheSameNumberTwice() throws Exception {
+        AccessionNumberAllocator allocator = createAllocator(7);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<List<Long>>> tasks = new ArrayList<>();
+            for (int i = 0; i < 8; ++i) {
+                tasks.add(() -> {
+                    List<Long> numbers = new ArrayList<>();
+                    for (int j = 0; j < 500; ++j) {
+                        numbers.add(allocator.nextNumber("", AccessionFormat.SITEYEARNUM, NONE_IN_USE));
+                    }
+                    return numbers;
+                });
+            }
+            Set<Long> allNumbers = ConcurrentHashMap.newKeySet();
+            for (Future<List<Long>> future : executor.invokeAll(tasks)) {
+                allNumbers.addAll(future.get());
+            }
+            Assert.assertEquals(8 * 500, allNumbers.size());
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private AccessionNumberAllocator createAllocator(int blockSize) {
+        AccessionNumberAllocatorImpl allocator = new AccessionNumberAllocatorImpl();
+        ReflectionTestUtils.setField(allocator, "blockSize", blockSize);
+        ReflectionTestUtils.setField(allocator, "accessionService", accessionService);
+        return allocator;
+    }
+
+    private AtomicLong counter(String prefix, AccessionFormat accessionFormat) {
+        return counters.computeIfAbsent(prefix + "." + accessionFormat, k -> new AtomicLong());
+    }
+}
@@ -0,0 +1,168 @@
+package org.openelisglobal.reports.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfWriter;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JREmptyDataSource;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.openelisglobal.reports.service.BulkReportRenderer.Chunk;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+public class BulkReportRendererTest {
+
+    private static final String JASPER_PATH = "patientReport.jasper";
+
+    private ReportTemplateCache reportTemplateCache;
+    private PlatformTransactionManager transactionManager;
+    private BulkReportRenderer renderer;
+    // the sample ids of each chunk the gatherer was asked for
+    private List<List<String>> gathered;
+
+    @Before
+    public void init() throws Exception {
+        gathered = new ArrayList<>();
+
+        // each chunk prints the number of pages it is asked for, as wide as its
+        // first sample id so the merged pages can be told apart
+        reportTemplateCache = Mockito.mock(ReportTemplateCache.class);
+        when(reportTemplateCache.runReportToPdf(anyString(), anyMap(), any(JRDataSource.class)))
+                .thenAnswer(invocation -> {
+                    Map<String, Object> parameters = invocation.getArgument(1);
+                    return createPdf((Integer) parameters.get("width"), (Integer) parameters.get("pages"));
+                });
+
+        transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any(TransactionDefinition.class)))
+                .thenReturn(Mockito.mock(TransactionStatus.class));
+
+        // renders on the calling thread
+        InstrumentedTaskExecutor executor = Mockito.mock(InstrumentedTaskExecutor.class);
+        when(executor.submit(any(Callable.class))).thenAnswer(invocation -> {
+            FutureTask<Object> task = new FutureTask<>((Callable<Object>) invocation.getArgument(0));
+            task.run();
+            return task;
+        });
+
+        renderer = new BulkReportRenderer();
+        ReflectionTestUtils.setField(renderer, "reportTemplateCache", reportTemplateCache);
+        ReflectionTestUtils.setField(renderer, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(renderer, "executor", executor);
+        ReflectionTestUtils.setField(renderer, "chunkSize", 2);
+        ReflectionTestUtils.setField(renderer, "chunksInFlight", 1);
+    }
+
+    @Test
+    public void render_shouldGatherEachChunkOfSamplesInItsOwnTransaction() throws Exception {
+        renderer.render(JASPER_PATH, Arrays.asList("100", "200", "300", "400", "500"), this::gatherOnePage,
+                new ByteArrayOutputStream());
+
+        Assert.assertEquals(Arrays.asList(Arrays.asList("100", "200"), Arrays.asList("300", "400"),
+                Arrays.asList("500")), gathered);
+        verify(transactionManager, times(3)).getTransaction(any(TransactionDefinition.class));
+        verify(transactionManager, times(3)).commit(any(TransactionStatus.class));
+    }
+
+    @Test
+    public void render_shouldAppendTheChunksInOrder() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        int pages = renderer.render(JASPER_PATH, Arrays.asList("100", "200", "300", "400", "500"),
+                sampleIds -> gather(sampleIds, sampleIds.size()), output);
+
+        Assert.assertEquals(5, pages);
+        Assert.assertEquals(Arrays.asList(100, 100, 300, 300, 500), pageWidths(output.toByteArray()));
+    }
+
+    @Test
+    public void render_shouldSkipAChunkWithNothingToPrint() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        int pages = renderer.render(JASPER_PATH, Arrays.asList("100", "200", "300", "400", "500"),
+                sampleIds -> sampleIds.contains("300") ? skip(sampleIds) : gatherOnePage(sampleIds), output);
+
+        Assert.assertEquals(3, gathered.size());
+        Assert.assertEquals(2, pages);
+        Assert.assertEquals(Arrays.asList(100, 500), pageWidths(output.toByteArray()));
+        verify(reportTemplateCache, times(2)).runReportToPdf(anyString(), anyMap(), any(JRDataSource.class));
+    }
+
+    @Test
+    public void render_shouldWriteNothingWhenNoChunkHasAnythingToPrint() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        int pages = renderer.render(JASPER_PATH, Arrays.asList("100", "200", "300"), this::skip, output);
+
+        Assert.assertEquals(0, pages);
+        Assert.assertEquals(0, output.size());
+        verify(reportTemplateCache, never()).runReportToPdf(anyString(), anyMap(), any(JRDataSource.class));
+    }
+
+    private Chunk gatherOnePage(List<String> sampleIds) {
+        return gather(sampleIds, 1);
+    }
+
+    private Chunk gather(List<String> sampleIds, int pages) {
+        gathered.add(new ArrayList<>(sampleIds));
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("width", Integer.valueOf(sampleIds.get(0)));
+        parameters.put("pages", pages);
+        return new Chunk(parameters, new JREmptyDataSource());
+    }
+
+    private Chunk skip(List<String> sampleIds) {
+        gathered.add(new ArrayList<>(sampleIds));
+        return null;
+    }
+
+    private static byte[] createPdf(int width, int pages) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Document document = new Document(new Rectangle(width, 200));
+        PdfWriter.getInstance(document, output);
+        document.open();
+        for (int page = 1; page <= pages; page++) {
+            document.add(new Paragraph(String.valueOf(page)));
+            document.newPage();
+        }
+        document.close();
+        return output.toByteArray();
+    }
+
+    private static List<Integer> pageWidths(byte[] pdf) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        try {
+            List<Integer> widths = new ArrayList<>();
+            for (int page = 1; page <= reader.getNumberOfPages(); page++) {
+                widths.add((int) reader.getPageSize(page).getWidth());
+            }
+            return widths;
+        } finally {
+            reader.close();
+        }
+    }
+}
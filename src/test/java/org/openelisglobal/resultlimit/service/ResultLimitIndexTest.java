@@ -0,0 +1,182 @@
+package org.openelisglobal.resultlimit.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openelisglobal.resultlimits.valueholder.ResultLimit;
+
+public class ResultLimitIndexTest {
+
+    private static final double[] AGES = { 0, 0.5, 1, 29, 30, 31, 364, 365, 366, 3650, 36500 };
+
+    @Test
+    public void emptyIndex_shouldFallBackToNewDefaultLimit() {
+        ResultLimitIndex index = new ResultLimitIndex(null);
+
+        Assert.assertTrue(index.isEmpty());
+        Assert.assertNotNull(index.getDefaultLimit());
+        Assert.assertNull(index.getDefaultLimit().getId());
+        Assert.assertNull(index.getLimitForAgeAndGender(30, "F").getId());
+    }
+
+    @Test
+    public void getLimitForAge_shouldTreatAgeRangesAsInclusive() {
+        ResultLimit newborn = limit("1", null, 0, 30);
+        ResultLimit infant = limit("2", null, 30, 365);
+        ResultLimit other = limit("3", null, 0, Double.POSITIVE_INFINITY);
+        ResultLimitIndex index = new ResultLimitIndex(Arrays.asList(newborn, infant, other));
+
+        Assert.assertSame(newborn, index.getLimitForAge(0));
+        Assert.assertSame(newborn, index.getLimitForAge(30));
+        Assert.assertSame(infant, index.getLimitForAge(30.5));
+        Assert.assertSame(infant, index.getLimitForAge(365));
+        Assert.assertSame(other, index.getLimitForAge(366));
+    }
+
+    @Test
+    public void getLimitForAge_shouldPreferLimitsWithNoGender() {
+        ResultLimit female = limit("1", "F", 0, 365);
+        ResultLimit noGender = limit("2", null, 0, 365);
+        ResultLimitIndex index = new ResultLimitIndex(Arrays.asList(female, noGender));
+
+        Assert.assertSame(noGender, index.getLimitForAge(100));
+    }
+
+    @Test
+    public void getLimitForGender_shouldPreferLimitsWithNoAge() {
+        ResultLimit femaleInfant = limit("1", "F", 0, 365);
+        ResultLimit female = limit("2", "F", 0, Double.POSITIVE_INFINITY);
+        ResultLimitIndex index = new ResultLimitIndex(Arrays.asList(femaleInfant, female));
+
+        Assert.assertSame(female, index.getLimitForGender("F"));
+        Assert.assertNull(index.getLimitForGender("M").getId());
+    }
+
+    @Test
+    public void getLimitForAgeAndGender_shouldCheckAgeAndGenderThenAgeThenGender() {
+        ResultLimit femaleInfant = limit("1", "F", 0, 365);
+        ResultLimit child = limit("2", null, 0, 3650);
+        ResultLimit female = limit("3", "F", 0, Double.POSITIVE_INFINITY);
+        ResultLimitIndex index = new ResultLimitIndex(Arrays.asList(female, child, femaleInfant));
+
+        Assert.assertSame(femaleInfant, index.getLimitForAgeAndGender(100, "F"));
+        Assert.assertSame(child, index.getLimitForAgeAndGender(1000, "F"));
+        Assert.assertSame(female, index.getLimitForAgeAndGender(5000, "F"));
+        Assert.assertSame(child, index.getLimitForAgeAndGender(100, "M"));
+    }
+
+    @Test
+    public void lookups_shouldMatchScanningTheLimitsInOrder() {
+        Random random = new Random(42);
+        String[] genders = { null, "", "F", "M" };
+        double[] bounds = { 0, 1, 30, 365, 3650, Double.POSITIVE_INFINITY };
+        for (int round = 0; round < 500; ++round) {
+            List<ResultLimit> limits = new ArrayList<>();
+            int count = random.nextInt(8);
+            for (int i = 0; i < count; ++i) {
+                int low = random.nextInt(bounds.length - 1);
+                int high = low + 1 + random.nextInt(bounds.length - 1 - low);
+                if (random.nextInt(3) == 0) {
+                    low = 0;
+                    high = bounds.length - 1;
+                }
+                limits.add(limit(String.valueOf(i), genders[random.nextInt(genders.length)], bounds[low],
+                        bounds[high]));
+            }
+            ResultLimitIndex index = new ResultLimitIndex(limits);
+
+            Assert.assertEquals(limits.isEmpty(), index.isEmpty());
+            assertSameLimit(scanDefault(limits), index.getDefaultLimit());
+            for (String gender : Arrays.asList("F", "M")) {
+                assertSameLimit(scanGender(limits, gender), index.getLimitForGender(gender));
+            }
+            for (double age : AGES) {
+                assertSameLimit(scanAge(limits, age), index.getLimitForAge(age));
+                for (String gender : Arrays.asList("F", "M")) {
+                    assertSameLimit(scanAgeAndGender(limits, age, gender), index.getLimitForAgeAndGender(age, gender));
+                }
+            }
+        }
+    }
+
+    private static void assertSameLimit(ResultLimit expected, ResultLimit actual) {
+        Assert.assertEquals(expected.getId(), actual.getId());
+    }
+
+    private static ResultLimit limit(String id, String gender, double minAge, double maxAge) {
+        ResultLimit limit = new ResultLimit();
+        limit.setId(id);
+        limit.setGender(gender);
+        limit.setMinAge(minAge);
+        limit.setMaxAge(maxAge);
+        return limit;
+    }
+
+    private static boolean blank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static boolean inRange(ResultLimit limit, double age) {
+        return !limit.ageLimitsAreDefault() && age >= limit.getMinAge() && age <= limit.getMaxAge();
+    }
+
+    // the scans below are the lookups as they were done before the index
+
+    private static ResultLimit scanDefault(List<ResultLimit> limits) {
+        for (ResultLimit limit : limits) {
+            if (blank(limit.getGender()) && limit.ageLimitsAreDefault()) {
+                return limit;
+            }
+        }
+        return new ResultLimit();
+    }
+
+    private static ResultLimit scanAge(List<ResultLimit> limits, double age) {
+        for (ResultLimit limit : limits) {
+            if (blank(limit.getGender()) && inRange(limit, age)) {
+                return limit;
+            }
+        }
+        for (ResultLimit limit : limits) {
+            if (inRange(limit, age)) {
+                return limit;
+            }
+        }
+        return scanDefault(limits);
+    }
+
+    private static ResultLimit scanGender(List<ResultLimit> limits, String gender) {
+        for (ResultLimit limit : limits) {
+            if (limit.ageLimitsAreDefault() && gender.equals(limit.getGender())) {
+                return limit;
+            }
+        }
+        for (ResultLimit limit : limits) {
+            if (gender.equals(limit.getGender())) {
+                return limit;
+            }
+        }
+        return scanDefault(limits);
+    }
+
+    private static ResultLimit scanAgeAndGender(List<ResultLimit> limits, double age, String gender) {
+        List<ResultLimit> remaining = new ArrayList<>(limits);
+        for (ResultLimit limit : limits) {
+            if (gender.equals(limit.getGender()) && !limit.ageLimitsAreDefault()) {
+                remaining.remove(limit);
+                if (inRange(limit, age)) {
+                    return limit;
+                }
+            }
+        }
+        for (ResultLimit limit : remaining) {
+            if (inRange(limit, age)) {
+                return limit;
+            }
+        }
+        return scanGender(remaining, gender);
+    }
+}
@@ -4,8 +4,11 @@ import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -133,6 +136,48 @@ public class SearchResultsServiceTest extends BaseWebContextSensitiveTest {
         Assert.assertEquals(dob, result.getBirthdate());
     }
 
+    @Test
+    public void getSearchResults_shouldFindPatientsByNameOrIdentifierFromLuceneIndexes() throws Exception {
+        Patient byName = createPatient("John", "Doe", "12/12/1992", "M");
+        byName.setNationalId("NAT-1");
+        String byNameId = patientService.insert(byName);
+        Patient byIdentifier = createPatient("Jane", "Roe", "01/01/1990", "F");
+        byIdentifier.setNationalId("NAT-2");
+        String byIdentifierId = patientService.insert(byIdentifier);
+
+        List<PatientSearchResults> searchResults = luceneSearchResultsServiceImpl.getSearchResultsExact("Doe", null,
+                null, null, "NAT-2", null, null, null, null, null);
+
+        Assert.assertEquals(2, searchResults.size());
+        Set<String> patientIds = new HashSet<>();
+        for (PatientSearchResults result : searchResults) {
+            patientIds.add(result.getPatientID());
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList(byNameId, byIdentifierId)), patientIds);
+    }
+
+    @Test
+    public void getSearchResultsExact_shouldReturnTheRequestedPageFromLuceneIndexes() throws Exception {
+        Set<String> insertedIds = new HashSet<>();
+        for (String firstName : Arrays.asList("John", "Jack", "James")) {
+            insertedIds.add(patientService.insert(createPatient(firstName, "Doe", "12/12/1992", "M")));
+        }
+
+        List<PatientSearchResults> firstPage = luceneSearchResultsServiceImpl.getSearchResultsExact("Doe", null,
+                null, null, null, null, null, null, null, null, 0, 2);
+        List<PatientSearchResults> secondPage = luceneSearchResultsServiceImpl.getSearchResultsExact("Doe", null,
+                null, null, null, null, null, null, null, null, 2, 2);
+
+        Assert.assertEquals(2, firstPage.size());
+        Assert.assertEquals(1, secondPage.size());
+        Set<String> patientIds = new HashSet<>();
+        for (PatientSearchResults result : firstPage) {
+            patientIds.add(result.getPatientID());
+        }
+        patientIds.add(secondPage.get(0).getPatientID());
+        Assert.assertEquals(insertedIds, patientIds);
+    }
+
     private Patient createPatient(String firstName, String LastName, String birthDate, String gender)
             throws ParseException {
         Person person = new Person();
@@ -0,0 +1,236 @@
+package org.openelisglobal.testcalculated.action.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openelisglobal.testcalculated.valueholder.Calculation;
+import org.openelisglobal.testcalculated.valueholder.Operation;
+import org.openelisglobal.testcalculated.valueholder.Operation.OperationType;
+
+public class CalculationExpressionTest {
+
+    private TestInputs inputs;
+
+    @Before
+    public void init() {
+        inputs = new TestInputs();
+    }
+
+    @Test
+    public void evaluate_shouldMultiplyAndDivideBeforeAddingAndSubtracting() {
+        Assert.assertEquals("14", evaluate(number("2"), math("+"), number("3"), math("*"), number("4")));
+        Assert.assertEquals("4", evaluate(number("10"), math("-"), number("12"), math("/"), number("2")));
+    }
+
+    @Test
+    public void evaluate_shouldApplyBracketsFirst() {
+        Assert.assertEquals("20", evaluate(math("("), number("2"), math("+"), number("3"), math(")"), math("*"),
+                number("4")));
+    }
+
+    @Test
+    public void evaluate_shouldAllowLeadingSign() {
+        Assert.assertEquals("2", evaluate(math("-"), number("3"), math("+"), number("5")));
+    }
+
+    @Test
+    public void evaluate_shouldFormatNumbersAsJavaScriptDoes() {
+        Assert.assertEquals("3.5", evaluate(number("7"), math("/"), number("2")));
+        Assert.assertEquals("2", evaluate(number("6"), math("/"), number("3")));
+        Assert.assertEquals("Infinity", evaluate(number("1"), math("/"), number("0")));
+        Assert.assertEquals("NaN", evaluate(number("0"), math("/"), number("0")));
+    }
+
+    @Test
+    public void evaluate_shouldReadTestResultsAndPatientAge() {
+        inputs.results.put(5, 1.5);
+        inputs.patientAge = 40;
+
+        Assert.assertEquals("60", evaluate(testResult(5), math("*"), patientAge()));
+    }
+
+    @Test
+    public void evaluate_shouldGiveTrueOrFalseForComparisons() {
+        inputs.results.put(5, 12.0);
+
+        Assert.assertEquals("true", evaluate(testResult(5), math(">="), number("10")));
+        Assert.assertEquals("false", evaluate(testResult(5), math("<="), number("10")));
+        Assert.assertEquals("true", evaluate(testResult(5), math("=="), number("12")));
+        Assert.assertEquals("false", evaluate(testResult(5), math("!="), number("12")));
+    }
+
+    @Test
+    public void evaluate_shouldCompareBeforeCheckingEquality() {
+        // (1 >= 2) == (3 >= 4)
+        Assert.assertEquals("true",
+                evaluate(number("1"), math(">="), number("2"), math("=="), number("3"), math(">="), number("4")));
+    }
+
+    @Test
+    public void evaluate_shouldAndBeforeOr() {
+        // 2 >= 1 || (0 >= 1 && 0 >= 1)
+        Assert.assertEquals("true", evaluate(number("2"), math(">="), number("1"), math("||"), number("0"),
+                math(">="), number("1"), math("&&"), number("0"), math(">="), number("1")));
+    }
+
+    @Test
+    public void evaluate_shouldNotEvaluateTheRightHandSideWhenItIsNotNeeded() {
+        // test 9 has no result, reading it throws
+        Assert.assertEquals("false",
+                evaluate(number("1"), math(">="), number("2"), math("&&"), testResult(9), math(">="), number("0")));
+        Assert.assertEquals("true",
+                evaluate(number("2"), math(">="), number("1"), math("||"), testResult(9), math(">="), number("0")));
+    }
+
+    @Test
+    public void evaluate_shouldCheckTheNormalRangeOfTheTestInFrontOfIt() {
+        inputs.minNormal.put(5, 10.0);
+        inputs.maxNormal.put(5, 20.0);
+
+        inputs.results.put(5, 15.0);
+        Assert.assertEquals("true", evaluate(testResult(5), math(Operation.IN_NORMAL_RANGE)));
+        Assert.assertEquals("false", evaluate(testResult(5), math(Operation.OUTSIDE_NORMAL_RANGE)));
+        // the bounds count as both, as they always have
+        for (double result : new double[] { 10, 20 }) {
+            inputs.results.put(5, result);
+            Assert.assertEquals("true", evaluate(testResult(5), math(Operation.IN_NORMAL_RANGE)));
+            Assert.assertEquals("true", evaluate(testResult(5), math(Operation.OUTSIDE_NORMAL_RANGE)));
+        }
+        for (double result : new double[] { 9, 21 }) {
+            inputs.results.put(5, result);
+            Assert.assertEquals("false", evaluate(testResult(5), math(Operation.IN_NORMAL_RANGE)));
+            Assert.assertEquals("true", evaluate(testResult(5), math(Operation.OUTSIDE_NORMAL_RANGE)));
+        }
+    }
+
+    @Test
+    public void evaluate_shouldReportMissingValues() {
+        CalculationExpression expression = compile(testResult(9), math("+"), number("1"));
+        try {
+            expression.evaluate(inputs);
+            Assert.fail("expected the missing result to be reported");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void compile_shouldCollectInputTestIds() {
+        CalculationExpression expression = compile(testResult(5), math("+"), testResult(7), math(">="), number("1"),
+                math("&&"), testResult(8), math(Operation.IN_NORMAL_RANGE));
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList(5, 7, 8)), expression.getInputTestIds());
+    }
+
+    @Test
+    public void compile_shouldIgnoreNumbersThatDoNotParse() {
+        Assert.assertEquals("3", evaluate(number("3"), number("abc")));
+    }
+
+    @Test
+    public void compile_shouldRejectInvalidExpressions() {
+        assertInvalid(math("("), number("1"), math("+"), number("2"));
+        assertInvalid(number("1"), math("+"));
+        assertInvalid(number("1"), number("2"));
+        assertInvalid(math("*"), number("2"));
+        assertInvalid(math(Operation.IN_NORMAL_RANGE));
+        assertInvalid(operation(OperationType.TEST_RESULT, "abc"));
+    }
+
+    private void assertInvalid(Operation... operations) {
+        try {
+            compile(operations);
+            Assert.fail("expected " + describe(operations) + " to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private String evaluate(Operation... operations) {
+        return compile(operations).evaluate(inputs);
+    }
+
+    private static CalculationExpression compile(Operation... operations) {
+        List<Operation> ordered = new ArrayList<>();
+        for (int i = 0; i < operations.length; ++i) {
+            operations[i].setOrder(i);
+            ordered.add(operations[i]);
+        }
+        Calculation calculation = new Calculation();
+        calculation.setName("test calculation");
+        calculation.setOperations(ordered);
+        return CalculationExpression.compile(calculation);
+    }
+
+    private static String describe(Operation... operations) {
+        StringBuilder description = new StringBuilder();
+        for (Operation operation : operations) {
+            description.append(operation.getValue()).append(' ');
+        }
+        return description.toString().trim();
+    }
+
+    private static Operation number(String value) {
+        return operation(OperationType.INTEGER, value);
+    }
+
+    private static Operation math(String value) {
+        return operation(OperationType.MATH_FUNCTION, value);
+    }
+
+    private static Operation testResult(int testId) {
+        return operation(OperationType.TEST_RESULT, String.valueOf(testId));
+    }
+
+    private static Operation patientAge() {
+        return operation(OperationType.PATIENT_ATTRIBUTE, Operation.PatientAttribute.AGE.toString());
+    }
+
+    private static Operation operation(OperationType type, String value) {
+        Operation operation = new Operation();
+        operation.setType(type);
+        operation.setValue(value);
+        return operation;
+    }
+
+    private static class TestInputs implements CalculationExpression.Inputs {
+        private final Map<Integer, Double> results = new HashMap<>();
+        private final Map<Integer, Double> minNormal = new HashMap<>();
+        private final Map<Integer, Double> maxNormal = new HashMap<>();
+        private double patientAge;
+
+        @Override
+        public double getResultValue(int testId) {
+            return get(results, testId);
+        }
+
+        @Override
+        public double getMinNormal(int testId) {
+            return get(minNormal, testId);
+        }
+
+        @Override
+        public double getMaxNormal(int testId) {
+            return get(maxNormal, testId);
+        }
+
+        @Override
+        public double getPatientAge() {
+            return patientAge;
+        }
+
+        private static double get(Map<Integer, Double> values, int testId) {
+            Double value = values.get(testId);
+            if (value == null) {
+                throw new IllegalStateException("no value for test " + testId);
+            }
+            return value;
+        }
+    }
+}
@@ -65,6 +65,8 @@ sub sendToServer{
 	    my $curlReturn = `$command`;
 	    my $returnStatus = $?;
 	    
+	    # OpenELIS answers success once the file is queued for import, a file it
+	    # can not read is answered with the reader's error and sent again
 	    if (($returnStatus != 0) || ($curlReturn ne 'success')) {
 		print "Curl had an error. Curl said \n$curlReturn\n"
 		    . "Return status $returnStatus\n";
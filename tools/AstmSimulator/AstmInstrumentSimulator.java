@@ -0,0 +1,260 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulates ASTM E1381 instruments against the OpenELIS ASTM listener to load
+ * test it. Each connection sends its messages one after the other as an
+ * instrument would: ENQ, one frame per record with its checksum, each frame
+ * waiting for its ACK, then EOT. In query mode every message is a host query
+ * and the simulator waits for the LIS to send the answer back.
+ *
+ * Run with java 11 or later, no compiling needed:
+ *
+ * java AstmInstrumentSimulator.java localhost 12001 20 500
+ * java AstmInstrumentSimulator.java localhost 12001 5 100 --query --sender=GeneXpert
+ */
+public class AstmInstrumentSimulator {
+
+    private static final byte STX = 0x02;
+    private static final byte ETX = 0x03;
+    private static final byte EOT = 0x04;
+    private static final byte ENQ = 0x05;
+    private static final byte ACK = 0x06;
+    private static final byte ETB = 0x17;
+    private static final int MAX_FRAME_TEXT = 240;
+    private static final int TIMEOUT = 30 * 1000;
+
+    private static final AtomicLong messages = new AtomicLong();
+    private static final AtomicLong failures = new AtomicLong();
+    private static final AtomicLong naks = new AtomicLong();
+    private static final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 4) {
+            System.err.println("usage: AstmInstrumentSimulator host port connections messagesPerConnection"
+                    + " [--query] [--sender=name]");
+            System.exit(1);
+        }
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int connections = Integer.parseInt(args[2]);
+        int messagesPerConnection = Integer.parseInt(args[3]);
+        boolean query = false;
+        String sender = "SIMULATOR";
+        for (int i = 4; i < args.length; i++) {
+            if (args[i].equals("--query")) {
+                query = true;
+            } else if (args[i].startsWith("--sender=")) {
+                sender = args[i].substring("--sender=".length());
+            }
+        }
+
+        long started = System.currentTimeMillis();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            Instrument instrument = new Instrument(host, port, i, messagesPerConnection, query, sender);
+            Thread thread = new Thread(instrument, "instrument-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = Math.max(1, System.currentTimeMillis() - started);
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.println("messages      " + messages.get());
+        System.out.println("failures      " + failures.get());
+        System.out.println("naks received " + naks.get());
+        System.out.println("elapsed ms    " + elapsed);
+        System.out.printf("messages/s    %.1f%n", messages.get() * 1000.0 / elapsed);
+        if (!sorted.isEmpty()) {
+            System.out.println("latency ms    p50 " + percentile(sorted, 50) + "  p95 " + percentile(sorted, 95)
+                    + "  p99 " + percentile(sorted, 99) + "  max " + sorted.get(sorted.size() - 1));
+        }
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+
+    private static class Instrument implements Runnable {
+        private final String host;
+        private final int port;
+        private final int number;
+        private final int count;
+        private final boolean query;
+        private final String sender;
+        private InputStream in;
+        private OutputStream out;
+
+        Instrument(String host, int port, int number, int count, boolean query, String sender) {
+            this.host = host;
+            this.port = port;
+            this.number = number;
+            this.count = count;
+            this.query = query;
+            this.sender = sender;
+        }
+
+        @Override
+        public void run() {
+            try (Socket socket = new Socket(host, port)) {
+                socket.setSoTimeout(TIMEOUT);
+                socket.setTcpNoDelay(true);
+                in = socket.getInputStream();
+                out = socket.getOutputStream();
+                for (int i = 0; i < count; i++) {
+                    long started = System.currentTimeMillis();
+                    String sampleId = "SIM" + number + "-" + i;
+                    boolean sent = sendMessage(query ? queryMessage(sampleId) : resultMessage(sampleId, i));
+                    if (sent && query) {
+                        sent = receiveMessage();
+                    }
+                    if (sent) {
+                        messages.incrementAndGet();
+                        latencies.add(System.currentTimeMillis() - started);
+                    } else {
+                        failures.incrementAndGet();
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("instrument " + number + ": " + e.getMessage());
+                failures.incrementAndGet();
+            }
+        }
+
+        private boolean sendMessage(List<String> records) throws IOException {
+            out.write(ENQ);
+            out.flush();
+            if (readControl() != ACK) {
+                return false;
+            }
+            int frameNumber = 1;
+            for (String record : records) {
+                byte[] text = (record + "\r").getBytes(StandardCharsets.ISO_8859_1);
+                for (int start = 0; start < text.length; start += MAX_FRAME_TEXT) {
+                    int end = Math.min(start + MAX_FRAME_TEXT, text.length);
+                    byte[] frame = frame(frameNumber, text, start, end, end == text.length);
+                    if (!sendFrame(frame)) {
+                        out.write(EOT);
+                        out.flush();
+                        return false;
+                    }
+                    frameNumber = (frameNumber + 1) % 8;
+                }
+            }
+            out.write(EOT);
+            out.flush();
+            return true;
+        }
+
+        private boolean sendFrame(byte[] frame) throws IOException {
+            for (int attempt = 0; attempt < 6; attempt++) {
+                out.write(frame);
+                out.flush();
+                int answer = readControl();
+                if (answer == ACK || answer == EOT) {
+                    return true;
+                }
+                naks.incrementAndGet();
+            }
+            return false;
+        }
+
+        // waits for the LIS to establish, then ACKs its frames until EOT
+        private boolean receiveMessage() throws IOException {
+            try {
+                int b;
+                while ((b = in.read()) != ENQ) {
+                    if (b < 0) {
+                        return false;
+                    }
+                }
+                out.write(ACK);
+                out.flush();
+                int length = 0;
+                while ((b = in.read()) >= 0) {
+                    if (length == 0 && b == EOT) {
+                        return true;
+                    }
+                    length++;
+                    if (b == '\n') {
+                        out.write(ACK);
+                        out.flush();
+                        length = 0;
+                    }
+                }
+                return false;
+            } catch (SocketTimeoutException e) {
+                return false;
+            }
+        }
+
+        private int readControl() throws IOException {
+            try {
+                return in.read();
+            } catch (SocketTimeoutException e) {
+                return -1;
+            }
+        }
+
+        private List<String> resultMessage(String sampleId, int index) {
+            List<String> records = new ArrayList<>();
+            records.add(header());
+            records.add("P|1");
+            records.add("O|1|" + sampleId + "||^^^GLU|R||||||N||||||||||||||F");
+            records.add("R|1|^^^GLU|" + (3 + number % 5) + "." + (index % 10) + "|mmol/L||N||F||||"
+                    + timestamp());
+            records.add("L|1|N");
+            return records;
+        }
+
+        private List<String> queryMessage(String sampleId) {
+            List<String> records = new ArrayList<>();
+            records.add(header());
+            records.add("Q|1|^" + sampleId + "||^^^ALL||||||||O");
+            records.add("L|1|N");
+            return records;
+        }
+
+        private String header() {
+            return "H|\\^&|||" + sender + "^" + number + "|||||||P|LIS2-A2|" + timestamp();
+        }
+    }
+
+    private static String timestamp() {
+        return new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
+    }
+
+    private static byte[] frame(int frameNumber, byte[] text, int start, int end, boolean last) {
+        int textLength = end - start;
+        byte[] frame = new byte[textLength + 7];
+        frame[0] = STX;
+        frame[1] = (byte) ('0' + frameNumber);
+        System.arraycopy(text, start, frame, 2, textLength);
+        frame[textLength + 2] = last ? ETX : ETB;
+        int sum = 0;
+        for (int i = 1; i <= textLength + 2; i++) {
+            sum += frame[i] & 0xFF;
+        }
+        String checksum = String.format("%02X", sum & 0xFF);
+        frame[textLength + 3] = (byte) checksum.charAt(0);
+        frame[textLength + 4] = (byte) checksum.charAt(1);
+        frame[textLength + 5] = '\r';
+        frame[textLength + 6] = '\n';
+        return frame;
+    }
+}
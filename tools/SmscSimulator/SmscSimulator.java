@@ -0,0 +1,220 @@
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local SMSC to point the OpenELIS SMPP sender at when trying it out or load
+ * testing it. It accepts any bind, answers enquire_link and unbind, and accepts
+ * every submit_sm after the given latency, answering the submits of a session
+ * in whatever order their latency runs out as an SMSC with a window does. The
+ * messages are not delivered anywhere.
+ *
+ * Run with java 11 or later, no compiling needed:
+ *
+ * java SmscSimulator.java 2775
+ * java SmscSimulator.java 2775 --latency=200 --throttle=50 --fail=5
+ */
+public class SmscSimulator {
+
+    private static final int GENERIC_NACK = 0x80000000;
+    private static final int BIND_RECEIVER = 0x00000001;
+    private static final int BIND_TRANSMITTER = 0x00000002;
+    private static final int SUBMIT_SM = 0x00000004;
+    private static final int UNBIND = 0x00000006;
+    private static final int BIND_TRANSCEIVER = 0x00000009;
+    private static final int ENQUIRE_LINK = 0x00000015;
+    private static final int RESPONSE = 0x80000000;
+
+    private static final int ESME_ROK = 0x00;
+    private static final int ESME_RINVCMDID = 0x03;
+    private static final int ESME_RSYSERR = 0x08;
+    private static final int ESME_RTHROTTLED = 0x58;
+
+    private static final AtomicInteger connections = new AtomicInteger();
+    private static final AtomicLong binds = new AtomicLong();
+    private static final AtomicLong submits = new AtomicLong();
+    private static final AtomicLong throttled = new AtomicLong();
+    private static final AtomicLong failed = new AtomicLong();
+    private static final AtomicLong enquireLinks = new AtomicLong();
+    private static final AtomicInteger outstanding = new AtomicInteger();
+    private static final AtomicInteger maxOutstanding = new AtomicInteger();
+    private static final AtomicLong messageIds = new AtomicLong();
+
+    private static int latency;
+    private static int throttle;
+    private static int failPercent;
+    private static long throttleSecond;
+    private static int throttleCount;
+
+    private static final ScheduledExecutorService responder = Executors.newScheduledThreadPool(4);
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: SmscSimulator port [--latency=ms] [--throttle=perSecond] [--fail=percent]");
+            System.exit(1);
+        }
+        int port = Integer.parseInt(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--latency=")) {
+                latency = Integer.parseInt(args[i].substring("--latency=".length()));
+            } else if (args[i].startsWith("--throttle=")) {
+                throttle = Integer.parseInt(args[i].substring("--throttle=".length()));
+            } else if (args[i].startsWith("--fail=")) {
+                failPercent = Integer.parseInt(args[i].substring("--fail=".length()));
+            }
+        }
+
+        Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(SmscSimulator::printStatistics, 10, 10,
+                TimeUnit.SECONDS);
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            System.out.println("SMSC simulator listening on " + port);
+            while (true) {
+                Socket socket = serverSocket.accept();
+                Thread thread = new Thread(() -> serve(socket), "esme-" + socket.getRemoteSocketAddress());
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+
+    private static void printStatistics() {
+        System.out.println("connections " + connections.get() + "  binds " + binds.get() + "  submits "
+                + submits.get() + "  throttled " + throttled.get() + "  failed " + failed.get() + "  enquire_links "
+                + enquireLinks.get() + "  max outstanding " + maxOutstanding.get());
+    }
+
+    private static void serve(Socket socket) {
+        connections.incrementAndGet();
+        boolean unbound = false;
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            while (true) {
+                int length = in.readInt();
+                int commandId = in.readInt();
+                in.readInt();
+                int sequence = in.readInt();
+                byte[] body = new byte[length - 16];
+                in.readFully(body);
+                if ((commandId & RESPONSE) != 0) {
+                    continue;
+                }
+                switch (commandId) {
+                case BIND_RECEIVER:
+                case BIND_TRANSMITTER:
+                case BIND_TRANSCEIVER:
+                    binds.incrementAndGet();
+                    System.out.println("bind from " + socket.getRemoteSocketAddress() + " as " + cString(body));
+                    write(out, commandId | RESPONSE, ESME_ROK, sequence, "SMSCSIM");
+                    break;
+                case SUBMIT_SM:
+                    submit(out, sequence);
+                    break;
+                case ENQUIRE_LINK:
+                    enquireLinks.incrementAndGet();
+                    write(out, commandId | RESPONSE, ESME_ROK, sequence, null);
+                    break;
+                case UNBIND:
+                    // after the answers to the submits before it
+                    unbound = true;
+                    responder.schedule(() -> {
+                        try {
+                            write(out, UNBIND | RESPONSE, ESME_ROK, sequence, null);
+                        } catch (IOException e) {
+                            // closing anyway
+                        }
+                        close(socket);
+                    }, latency, TimeUnit.MILLISECONDS);
+                    return;
+                default:
+                    write(out, GENERIC_NACK, ESME_RINVCMDID, sequence, null);
+                }
+            }
+        } catch (EOFException e) {
+            // the client went away
+        } catch (IOException e) {
+            System.err.println(socket.getRemoteSocketAddress() + ": " + e.getMessage());
+        } finally {
+            if (!unbound) {
+                close(socket);
+            }
+            connections.decrementAndGet();
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already gone
+        }
+    }
+
+    private static void submit(OutputStream out, int sequence) {
+        int status = ESME_ROK;
+        if (overThrottle()) {
+            status = ESME_RTHROTTLED;
+            throttled.incrementAndGet();
+        } else if (ThreadLocalRandom.current().nextInt(100) < failPercent) {
+            status = ESME_RSYSERR;
+            failed.incrementAndGet();
+        } else {
+            submits.incrementAndGet();
+        }
+        int now = outstanding.incrementAndGet();
+        maxOutstanding.accumulateAndGet(now, Math::max);
+        int responseStatus = status;
+        responder.schedule(() -> {
+            outstanding.decrementAndGet();
+            try {
+                write(out, SUBMIT_SM | RESPONSE, responseStatus, sequence,
+                        responseStatus == ESME_ROK ? Long.toHexString(messageIds.incrementAndGet()) : null);
+            } catch (IOException e) {
+                System.err.println("could not answer submit_sm " + sequence + ": " + e.getMessage());
+            }
+        }, latency, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized boolean overThrottle() {
+        if (throttle <= 0) {
+            return false;
+        }
+        long second = System.currentTimeMillis() / 1000;
+        if (second != throttleSecond) {
+            throttleSecond = second;
+            throttleCount = 0;
+        }
+        return ++throttleCount > throttle;
+    }
+
+    private static void write(OutputStream out, int commandId, int status, int sequence, String cString)
+            throws IOException {
+        byte[] body = cString == null ? new byte[0] : (cString + "\0").getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer pdu = ByteBuffer.allocate(16 + body.length);
+        pdu.putInt(16 + body.length).putInt(commandId).putInt(status).putInt(sequence).put(body);
+        synchronized (out) {
+            out.write(pdu.array());
+            out.flush();
+        }
+    }
+
+    private static String cString(byte[] body) {
+        int end = 0;
+        while (end < body.length && body[end] != 0) {
+            end++;
+        }
+        return new String(body, 0, end, StandardCharsets.US_ASCII);
+    }
+}